@@ -18,12 +18,10 @@ import com.alibaba.druid.pool.DruidConnectionHolder;
 import com.alibaba.druid.pool.DruidPooledConnection;
 import com.alibaba.druid.pool.DruidPooledPreparedStatement;
 import com.alibaba.druid.proxy.jdbc.TransactionInfo;
-import com.pamirs.attach.plugin.common.datasource.pressure.PressureCallableStatement;
-import com.pamirs.attach.plugin.common.datasource.pressure.PressurePreparedStatement;
-import com.pamirs.attach.plugin.common.datasource.pressure.PressureStatment;
 import com.pamirs.attach.plugin.common.datasource.trace.CheckedTraceCallableStatement;
 import com.pamirs.attach.plugin.common.datasource.trace.CheckedTracePreparedStatement;
 import com.pamirs.attach.plugin.common.datasource.trace.CheckedTraceStatement;
+import com.pamirs.attach.plugin.common.datasource.trace.JdbcConnectionMeta;
 import com.pamirs.attach.plugin.common.datasource.utils.ProxyFlag;
 import com.pamirs.attach.plugin.dynamic.reflect.ReflectionUtils;
 import com.pamirs.pradar.internal.config.ShadowDatabaseConfig;
@@ -50,6 +48,7 @@ public class DruidPooledPressureConnection extends DruidPooledConnection {
     private String username;
     private String dbType;
     private SqlMetaData sqlMetaData;
+    private JdbcConnectionMeta connectionMeta;
     private DruidPooledConnection target;
 
     public DruidPooledPressureConnection(DruidPooledConnection connection, String dbConnectionKey, String url, String username, String dbType, SqlMetaData sqlMetaData) {
@@ -60,6 +59,7 @@ public class DruidPooledPressureConnection extends DruidPooledConnection {
         this.username = username;
         this.dbType = dbType;
         this.sqlMetaData = sqlMetaData;
+        this.connectionMeta = new JdbcConnectionMeta(url, username, dbType, dbConnectionKey, true, sqlMetaData);
     }
 
     @Override
@@ -123,18 +123,18 @@ public class DruidPooledPressureConnection extends DruidPooledConnection {
 
     @Override
     public Statement createStatement() throws SQLException {
-        return new CheckedTraceStatement(new PressureStatment(target.createStatement(), this.conn, this.dbConnectionKey, this.dbType), this.url, this.username, this.dbType, true, sqlMetaData);
+        return new CheckedTraceStatement(target.createStatement(), connectionMeta);
     }
 
     @Override
     public Statement createStatement(int arg0, int arg1) throws SQLException {
-        return new CheckedTraceStatement(new PressureStatment(target.createStatement(arg0, arg1), this.conn, this.dbConnectionKey, this.dbType), this.url, this.username, this.dbType, true, sqlMetaData);
+        return new CheckedTraceStatement(target.createStatement(arg0, arg1), connectionMeta);
     }
 
     @Override
     public Statement createStatement(int arg0, int arg1, int arg2)
             throws SQLException {
-        return new CheckedTraceStatement(new PressureStatment(target.createStatement(arg0, arg1, arg2), this.conn, this.dbConnectionKey, this.dbType), this.url, this.username, this.dbType, true, sqlMetaData);
+        return new CheckedTraceStatement(target.createStatement(arg0, arg1, arg2), connectionMeta);
     }
 
     @Override
@@ -218,20 +218,20 @@ public class DruidPooledPressureConnection extends DruidPooledConnection {
 
     @Override
     public CallableStatement prepareCall(String arg0) throws SQLException {
-        return new CheckedTraceCallableStatement(new PressureCallableStatement(target.prepareCall(arg0), this.conn, this.dbConnectionKey, this.dbType), arg0, this.url, this.username, this.dbType, true, sqlMetaData);
+        return new CheckedTraceCallableStatement(target.prepareCall(arg0), arg0, connectionMeta);
     }
 
     @Override
     public CallableStatement prepareCall(String arg0, int arg1, int arg2)
             throws SQLException {
-        return new CheckedTraceCallableStatement(new PressureCallableStatement(target.prepareCall(arg0, arg1, arg2), this.conn, this.dbConnectionKey, this.dbType), arg0, this.url, this.username, this.dbType, true, sqlMetaData);
+        return new CheckedTraceCallableStatement(target.prepareCall(arg0, arg1, arg2), arg0, connectionMeta);
     }
 
 
     @Override
     public CallableStatement prepareCall(String arg0, int arg1, int arg2,
                                          int arg3) throws SQLException {
-        return new CheckedTraceCallableStatement(new PressureCallableStatement(target.prepareCall(arg0, arg1, arg2, arg3), this.conn, this.dbConnectionKey, this.dbType), arg0, this.url, this.username, this.dbType, true, sqlMetaData);
+        return new CheckedTraceCallableStatement(target.prepareCall(arg0, arg1, arg2, arg3), arg0, connectionMeta);
     }
 
 
@@ -240,7 +240,7 @@ public class DruidPooledPressureConnection extends DruidPooledConnection {
         try {
             ProxyFlag.enter();
             arg0 = SqlParser.replaceSchema(arg0, this.dbConnectionKey, this.dbType);
-            return new CheckedTracePreparedStatement(new PressurePreparedStatement(target.prepareStatement(arg0), this.conn, this.dbConnectionKey, this.dbType), arg0, this.url, this.username, this.dbType, true, sqlMetaData);
+            return new CheckedTracePreparedStatement(target.prepareStatement(arg0), arg0, connectionMeta);
         } finally {
             ProxyFlag.exit();
         }
@@ -252,7 +252,7 @@ public class DruidPooledPressureConnection extends DruidPooledConnection {
         try {
             ProxyFlag.enter();
             arg0 = SqlParser.replaceSchema(arg0, this.dbConnectionKey, this.dbType);
-            return new CheckedTracePreparedStatement(new PressurePreparedStatement(target.prepareStatement(arg0, arg1), this.conn, this.dbConnectionKey, this.dbType), arg0, this.url, this.username, this.dbType, true, sqlMetaData);
+            return new CheckedTracePreparedStatement(target.prepareStatement(arg0, arg1), arg0, connectionMeta);
         } finally {
             ProxyFlag.exit();
         }
@@ -264,7 +264,7 @@ public class DruidPooledPressureConnection extends DruidPooledConnection {
         try {
             ProxyFlag.enter();
             arg0 = SqlParser.replaceSchema(arg0, this.dbConnectionKey, this.dbType);
-            return new CheckedTracePreparedStatement(new PressurePreparedStatement(target.prepareStatement(arg0, arg1), this.conn, this.dbConnectionKey, this.dbType), arg0, this.url, this.username, this.dbType, true, sqlMetaData);
+            return new CheckedTracePreparedStatement(target.prepareStatement(arg0, arg1), arg0, connectionMeta);
         } finally {
             ProxyFlag.exit();
         }
@@ -276,7 +276,7 @@ public class DruidPooledPressureConnection extends DruidPooledConnection {
         try {
             ProxyFlag.enter();
             arg0 = SqlParser.replaceSchema(arg0, this.dbConnectionKey, this.dbType);
-            return new CheckedTracePreparedStatement(new PressurePreparedStatement(target.prepareStatement(arg0, arg1), this.conn, this.dbConnectionKey, this.dbType), arg0, this.url, this.username, this.dbType, true, sqlMetaData);
+            return new CheckedTracePreparedStatement(target.prepareStatement(arg0, arg1), arg0, connectionMeta);
         } finally {
             ProxyFlag.exit();
         }
@@ -288,7 +288,7 @@ public class DruidPooledPressureConnection extends DruidPooledConnection {
         try {
             ProxyFlag.enter();
             arg0 = SqlParser.replaceSchema(arg0, this.dbConnectionKey, this.dbType);
-            return new CheckedTracePreparedStatement(new PressurePreparedStatement(target.prepareStatement(arg0, arg1, arg2), this.conn, this.dbConnectionKey, this.dbType), arg0, this.url, this.username, this.dbType, true, sqlMetaData);
+            return new CheckedTracePreparedStatement(target.prepareStatement(arg0, arg1, arg2), arg0, connectionMeta);
         } finally {
             ProxyFlag.exit();
         }
@@ -300,7 +300,7 @@ public class DruidPooledPressureConnection extends DruidPooledConnection {
         try {
             ProxyFlag.enter();
             arg0 = SqlParser.replaceSchema(arg0, this.dbConnectionKey, this.dbType);
-            return new CheckedTracePreparedStatement(new PressurePreparedStatement(target.prepareStatement(arg0, arg1, arg2, arg3), this.conn, this.dbConnectionKey, this.dbType), arg0, this.url, this.username, this.dbType, true, sqlMetaData);
+            return new CheckedTracePreparedStatement(target.prepareStatement(arg0, arg1, arg2, arg3), arg0, connectionMeta);
         } finally {
             ProxyFlag.exit();
         }
@@ -15,6 +15,8 @@
 package com.pamirs.attach.plugin.alibaba.druid.util;
 
 import com.alibaba.druid.pool.DruidDataSource;
+import com.pamirs.attach.plugin.common.datasource.utils.DataSourceLocks;
+import com.pamirs.attach.plugin.common.datasource.warmup.ShadowPoolWarmer;
 import com.pamirs.attach.plugin.alibaba.druid.obj.DbDruidMediatorDataSource;
 import com.pamirs.pradar.ConfigNames;
 import com.pamirs.pradar.ErrorTypeEnum;
@@ -26,7 +28,7 @@ import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
@@ -37,8 +39,12 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class DataSourceWrapUtil {
     private final static Logger LOGGER = LoggerFactory.getLogger(DataSourceWrapUtil.class.getName());
-    private static Set<Object> pressureDatasourceSet = new HashSet<Object>();
-    private final static Object lock = new Object();
+    private static Set<Object> pressureDatasourceSet = Collections.newSetFromMap(new ConcurrentHashMap<Object, Boolean>());
+
+    /**
+     * 本插件的初始化锁, 销毁时只清除本插件的锁
+     */
+    private final static DataSourceLocks LOCKS = new DataSourceLocks();
 
     public static final ConcurrentHashMap<DataSourceMeta, DbDruidMediatorDataSource> pressureDataSources = new ConcurrentHashMap<DataSourceMeta, DbDruidMediatorDataSource>();
 
@@ -51,6 +57,22 @@ public class DataSourceWrapUtil {
         }
         pressureDataSources.clear();
         pressureDatasourceSet.clear();
+        LOCKS.clear();
+        ShadowPoolWarmer.clear("druid");
+    }
+
+    /**
+     * 配置生效后在后台重新创建业务数据源对应的影子数据源并预热
+     *
+     * @param dataSourceMeta 业务数据源
+     */
+    public static void initInBackground(final DataSourceMeta<DruidDataSource> dataSourceMeta) {
+        ShadowPoolWarmer.execute(new Runnable() {
+            @Override
+            public void run() {
+                doWrap(dataSourceMeta);
+            }
+        });
     }
 
     public static DbDruidMediatorDataSource doWrap(DataSourceMeta<DruidDataSource> dataSourceMeta) {
@@ -63,7 +85,8 @@ public class DataSourceWrapUtil {
             LOGGER.warn("[druid] current datasource is performance datasource. ignore it. url={}, username={}", target.getUrl(), target.getUsername());
             return null;
         }
-        synchronized (lock) {
+        // 按数据源加锁, 不同数据源之间互不阻塞
+        synchronized (LOCKS.lockOf(dataSourceMeta)) {
             if (pressureDataSources.get(dataSourceMeta) != null) {
                 return pressureDataSources.get(dataSourceMeta);
             }
@@ -132,6 +155,8 @@ public class DataSourceWrapUtil {
                     LOGGER.info("[druid] create shadow datasource success. target:{} url:{} ,username:{} shadow-url:{},shadow-username:{}", target.hashCode(), target.getUrl(), target.getUsername(), ptDataSource.getUrl(), ptDataSource.getUsername());
                 }
                 pressureDatasourceSet.add(ptDataSource);
+                ShadowPoolWarmer.warmUp("druid", ptDataSource.getUrl(), ptDataSource.getUsername(), ptDataSource,
+                        Math.max(ptDataSource.getMinIdle(), ptDataSource.getInitialSize()));
                 return dbMediatorDataSource;
             }
         }
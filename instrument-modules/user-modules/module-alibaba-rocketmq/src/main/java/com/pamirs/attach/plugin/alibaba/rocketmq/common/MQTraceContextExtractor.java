@@ -0,0 +1,181 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.attach.plugin.alibaba.rocketmq.common;
+
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.pamirs.pradar.Pradar;
+import com.pamirs.pradar.pressurement.ClusterTestUtils;
+
+/**
+ * 消费消息时从消息属性中提取压测标识和调用链上下文
+ * <p>
+ * 需要传递的上下文字段是固定的，在类加载时转换成数组。批量消费时整批消息共用一个按字段下标存放的
+ * String 数组({@link Batch})，每条消息的上下文只是数组上的一段视图，不再为每条消息创建 HashMap；
+ * 消息中没有上下文字段时不占用数组
+ * </p>
+ */
+public final class MQTraceContextExtractor {
+
+    private static final String RETRY_PREFIX = "%RETRY%";
+
+    private static final String DLQ_PREFIX = "%DLQ%";
+
+    private static final String[] TRANSFORM_KEYS;
+
+    /**
+     * 上下文字段 -> 在数组中的下标
+     */
+    private static final Map<String, Integer> KEY_INDEXES;
+
+    static {
+        List<String> keys = Pradar.getInvokeContextTransformKeys();
+        TRANSFORM_KEYS = keys.toArray(new String[keys.size()]);
+        KEY_INDEXES = new HashMap<String, Integer>(TRANSFORM_KEYS.length * 2);
+        for (int i = 0; i < TRANSFORM_KEYS.length; i++) {
+            KEY_INDEXES.put(TRANSFORM_KEYS[i], i);
+        }
+    }
+
+    private MQTraceContextExtractor() {
+    }
+
+    /**
+     * 判断是否是压测消息，先检查消息属性中的压测标，没有时再按 topic 是否带压测前缀判断
+     *
+     * @param topic           topic
+     * @param clusterTestFlag 消息属性中的压测标
+     * @return 是否是压测消息
+     */
+    public static boolean isClusterTest(String topic, String clusterTestFlag) {
+        if (ClusterTestUtils.isClusterTestRequest(clusterTestFlag)) {
+            return true;
+        }
+        return topic != null &&
+                (Pradar.isClusterTestPrefix(topic)
+                        || Pradar.isClusterTestPrefix(topic, RETRY_PREFIX)
+                        || Pradar.isClusterTestPrefix(topic, DLQ_PREFIX));
+    }
+
+    /**
+     * 为一批消息创建共用的上下文存储
+     *
+     * @param size 消息条数
+     * @return 上下文存储
+     */
+    public static Batch newBatch(int size) {
+        return new Batch(size);
+    }
+
+    /**
+     * 一批消息共用的上下文存储，每条消息按固定的字段顺序占用数组中的一段。只在消费线程中使用
+     */
+    public static final class Batch {
+        private final String[] values;
+        private int next;
+
+        private Batch(int size) {
+            this.values = new String[size * TRANSFORM_KEYS.length];
+        }
+
+        /**
+         * 从消息属性中提取调用链上下文，超过创建时的条数后不再提取
+         *
+         * @param properties 消息属性
+         * @return 上下文，消息中没有上下文字段时返回 null
+         */
+        public Map<String, String> extract(Map<String, String> properties) {
+            if (properties == null || properties.isEmpty() || next + TRANSFORM_KEYS.length > values.length) {
+                return null;
+            }
+            int offset = next;
+            boolean found = false;
+            for (int i = 0; i < TRANSFORM_KEYS.length; i++) {
+                String value = properties.get(TRANSFORM_KEYS[i]);
+                if (value != null) {
+                    values[offset + i] = value;
+                    found = true;
+                }
+            }
+            if (!found) {
+                return null;
+            }
+            next += TRANSFORM_KEYS.length;
+            return new Context(values, offset);
+        }
+    }
+
+    /**
+     * 单条消息的上下文，按字段下标读写所在批次的数组，只支持固定的上下文字段
+     */
+    private static final class Context extends AbstractMap<String, String> {
+        private final String[] values;
+        private final int offset;
+
+        private Context(String[] values, int offset) {
+            this.values = values;
+            this.offset = offset;
+        }
+
+        @Override
+        public String get(Object key) {
+            Integer index = KEY_INDEXES.get(key);
+            return index == null ? null : values[offset + index];
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public String put(String key, String value) {
+            Integer index = KEY_INDEXES.get(key);
+            if (index == null) {
+                throw new UnsupportedOperationException("unsupported context key " + key);
+            }
+            String previous = values[offset + index];
+            values[offset + index] = value;
+            return previous;
+        }
+
+        @Override
+        public String remove(Object key) {
+            Integer index = KEY_INDEXES.get(key);
+            if (index == null) {
+                return null;
+            }
+            String previous = values[offset + index];
+            values[offset + index] = null;
+            return previous;
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            Map<String, String> copy = new LinkedHashMap<String, String>();
+            for (int i = 0; i < TRANSFORM_KEYS.length; i++) {
+                if (values[offset + i] != null) {
+                    copy.put(TRANSFORM_KEYS[i], values[offset + i]);
+                }
+            }
+            return copy.entrySet();
+        }
+    }
+}
@@ -26,6 +26,7 @@ import com.alibaba.rocketmq.common.message.MessageAccessor;
 import com.alibaba.rocketmq.common.message.MessageExt;
 
 import com.pamirs.attach.plugin.alibaba.rocketmq.common.MQTraceBean;
+import com.pamirs.attach.plugin.alibaba.rocketmq.common.MQTraceContextExtractor;
 import com.pamirs.attach.plugin.alibaba.rocketmq.common.MQTraceConstants;
 import com.pamirs.attach.plugin.alibaba.rocketmq.common.MQTraceContext;
 import com.pamirs.attach.plugin.alibaba.rocketmq.common.MQType;
@@ -34,7 +35,6 @@ import com.pamirs.pradar.Pradar;
 import com.pamirs.pradar.PradarService;
 import com.pamirs.pradar.exception.PradarException;
 import com.pamirs.pradar.exception.PressureMeasureError;
-import com.pamirs.pradar.pressurement.ClusterTestUtils;
 import com.shulie.instrument.simulator.message.ConcurrentWeakHashMap;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
@@ -79,34 +79,24 @@ public class PushConsumeMessageHookImpl implements ConsumeMessageHook, MQTraceCo
             boolean silence = PradarService.isSilence();
 
             List<MQTraceBean> beans = new ArrayList<MQTraceBean>();
+            MQTraceContextExtractor.Batch traceContexts = MQTraceContextExtractor.newBatch(context.getMsgList().size());
             for (MessageExt msg : context.getMsgList()) {
                 if (msg == null) {
                     continue;
                 }
+                // 按固定的上下文字段提取到整批共用的数组中，不持有消息属性 Map 的引用
+                Map<String, String> traceContext = traceContexts.extract(msg.getProperties());
+                // 先按消息属性中的压测标判断，没有时再按 topic 前缀判断
+                boolean isClusterTest = MQTraceContextExtractor.isClusterTest(msg.getTopic(),
+                        traceContext == null ? null : traceContext.get(PradarService.PRADAR_CLUSTER_TEST_KEY));
+                if (silence && isClusterTest) {
+                    throw new PressureMeasureError(this.getClass().getName() + ":silence module ! can not handle cluster test data");
+                }
                 MQTraceBean traceBean = new MQTraceBean();
-                boolean isClusterTest = msg.getTopic() != null &&
-                    (Pradar.isClusterTestPrefix(msg.getTopic())
-                        || Pradar.isClusterTestPrefix(msg.getTopic(), RETRYSTR)
-                        || Pradar.isClusterTestPrefix(msg.getTopic(), DLQSTR));
-                // 消息的properties是否包含Pradar.PRADAR_CLUSTER_TEST_KEY
-                isClusterTest = isClusterTest || ClusterTestUtils.isClusterTestRequest(
-                    msg.getProperty(PradarService.PRADAR_CLUSTER_TEST_KEY));
+                traceBean.setContext(traceContext);
                 if (isClusterTest) {
                     traceBean.setClusterTest(Boolean.TRUE.toString());
                 }
-                if (silence && isClusterTest) {
-                    throw new PressureMeasureError(
-                        this.getClass().getName() + ":silence module ! can not handle cluster test data");
-                }
-
-                Map<String, String> rpcContext = new HashMap<String, String>();
-                for (String key : Pradar.getInvokeContextTransformKeys()) {
-                    String value = msg.getProperty(key);
-                    if (value != null) {
-                        rpcContext.put(key, value);
-                    }
-                }
-                traceBean.setContext(rpcContext);
                 traceBean.setTopic(msg.getTopic());
                 traceBean.setMsgId(msg.getMsgId());
                 traceBean.setOriginMsgId(MessageAccessor.getOriginMessageId(msg));
@@ -18,11 +18,14 @@ import com.pamirs.attach.plugin.apache.kafka.header.HeaderProvider;
 import com.pamirs.attach.plugin.apache.kafka.header.ProducerConfigProvider;
 import com.pamirs.attach.plugin.apache.kafka.interceptor.*;
 import com.pamirs.attach.plugin.apache.kafka.listener.KafkaShadowPreCheckEventListener;
+import com.pamirs.attach.plugin.apache.kafka.origin.ConsumerHolder;
 import com.pamirs.pradar.interceptor.Interceptors;
 import com.pamirs.pradar.pressurement.agent.shared.service.EventRouter;
+import com.shulie.instrument.simulator.api.CommandResponse;
 import com.shulie.instrument.simulator.api.ExtensionModule;
 import com.shulie.instrument.simulator.api.ModuleInfo;
 import com.shulie.instrument.simulator.api.ModuleLifecycleAdapter;
+import com.shulie.instrument.simulator.api.annotation.Command;
 import com.shulie.instrument.simulator.api.instrument.EnhanceCallback;
 import com.shulie.instrument.simulator.api.instrument.InstrumentClass;
 import com.shulie.instrument.simulator.api.instrument.InstrumentMethod;
@@ -30,6 +33,8 @@ import com.shulie.instrument.simulator.api.listener.Listeners;
 import com.shulie.instrument.simulator.api.scope.ExecutionPolicy;
 import org.kohsuke.MetaInfServices;
 
+import java.util.Map;
+
 /**
  * @author <a href="tangyuhan@shulie.io">yuhan.tang</a>
  * @since 2019-08-05 19:40
@@ -277,6 +282,17 @@ public class KafkaPlugin extends ModuleLifecycleAdapter implements ExtensionModu
         });
     }
 
+    /**
+     * 查询影子消费者的 poll 统计, 包括业务与影子的 poll 次数、消息数、耗时占比和消息延迟
+     *
+     * @param args 参数
+     * @return 按 topic#groupId 分组的统计
+     */
+    @Command("pollStats")
+    public CommandResponse pollStats(Map<String, String> args) {
+        return CommandResponse.success(ConsumerHolder.getPollStats());
+    }
+
     private void addListener() {
         EventRouter.router()
                 .addListener(new KafkaShadowPreCheckEventListener());
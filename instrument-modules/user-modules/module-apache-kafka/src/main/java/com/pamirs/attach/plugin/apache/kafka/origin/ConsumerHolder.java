@@ -14,6 +14,7 @@
  */
 package com.pamirs.attach.plugin.apache.kafka.origin;
 
+import com.pamirs.attach.plugin.apache.kafka.origin.selector.AdaptivePollSelector;
 import com.pamirs.attach.plugin.apache.kafka.util.AopTargetUtil;
 import com.pamirs.attach.plugin.dynamic.reflect.ReflectionUtils;
 import com.pamirs.pradar.pressurement.agent.shared.util.PradarSpringUtil;
@@ -135,6 +136,24 @@ public class ConsumerHolder {
         return PROXY_MAPPING;
     }
 
+    /**
+     * 获取所有影子消费者代理的 poll 统计
+     *
+     * @return key 为 topic#groupId, value 为统计快照
+     */
+    public static Map<String, AdaptivePollSelector.PollStats> getPollStats() {
+        Map<String, AdaptivePollSelector.PollStats> result = new HashMap<String, AdaptivePollSelector.PollStats>();
+        synchronized (ConsumerHolder.PROXY_MAPPING) {
+            for (ConsumerProxy consumerProxy : PROXY_MAPPING.values()) {
+                AdaptivePollSelector.PollStats stats = consumerProxy.getPollStats();
+                if (stats != null) {
+                    result.put(getConsumerMetaDataKey(consumerProxy.getTopicAndGroup()), stats);
+                }
+            }
+        }
+        return result;
+    }
+
     public static Map<String, Integer> getShadowProxyMapping() {
         return SHADOW_PROXY_MAPPING;
     }
@@ -15,8 +15,9 @@
 package com.pamirs.attach.plugin.apache.kafka.origin;
 
 import com.pamirs.attach.plugin.apache.kafka.ConfigCache;
+import com.pamirs.attach.plugin.apache.kafka.origin.selector.AdaptivePollSelector;
 import com.pamirs.attach.plugin.apache.kafka.origin.selector.PollConsumerSelector;
-import com.pamirs.attach.plugin.apache.kafka.origin.selector.RecordsRatioPollSelector;
+import com.pamirs.attach.plugin.apache.kafka.origin.selector.PollFeedbackSelector;
 import com.pamirs.attach.plugin.dynamic.reflect.ReflectionUtils;
 import com.pamirs.pradar.Pradar;
 import com.pamirs.pradar.exception.PressureMeasureError;
@@ -58,16 +59,18 @@ public class ConsumerProxy<K, V> implements Consumer<K, V> {
 
     private final Logger log = LoggerFactory.getLogger(ConsumerProxy.class);
 
-    private final long ptMaxPollTimeout = 500;
+    private final static long PT_MAX_POLL_TIMEOUT = 500;
 
     private long lag = 0;
 
+    private long shadowLag = 0;
+
     private final long allowMaxLag;
 
     private final long currentPollTime;
 
     public ConsumerProxy(KafkaConsumer consumer, ConsumerMetaData topicAndGroup, long maxLagMillSecond, long timeout) {
-        this(consumer, topicAndGroup, maxLagMillSecond, new RecordsRatioPollSelector(), timeout);
+        this(consumer, topicAndGroup, maxLagMillSecond, new AdaptivePollSelector(maxLagMillSecond, PT_MAX_POLL_TIMEOUT), timeout);
     }
 
     public ConsumerProxy(KafkaConsumer consumer, ConsumerMetaData topicAndGroup,
@@ -101,6 +104,22 @@ public class ConsumerProxy<K, V> implements Consumer<K, V> {
         return bizConsumer;
     }
 
+    public ConsumerMetaData getTopicAndGroup() {
+        return topicAndGroup;
+    }
+
+    /**
+     * 获取 poll 统计
+     *
+     * @return 统计快照，选择器不是 {@link AdaptivePollSelector} 时返回 null
+     */
+    public AdaptivePollSelector.PollStats getPollStats() {
+        if (consumerSelector instanceof AdaptivePollSelector) {
+            return ((AdaptivePollSelector) consumerSelector).getStats();
+        }
+        return null;
+    }
+
     @Override
     public Set<TopicPartition> assignment() {
         Set<TopicPartition> set1 = this.bizConsumer.assignment();
@@ -173,42 +192,75 @@ public class ConsumerProxy<K, V> implements Consumer<K, V> {
     }
 
     private ConsumerRecords doShadowPoll(long timeout) {
+        long start = System.nanoTime();
         try {
-            ConsumerRecords consumerRecords = ptConsumer.poll(Math.min(timeout, ptMaxPollTimeout));
+            ConsumerRecords consumerRecords = ptConsumer.poll(shadowPollTimeout(timeout));
             Pradar.setClusterTest(true);
-            ((RecordsRatioPollSelector) consumerSelector).addPtRecordCounts(consumerRecords.count());
+            shadowLag = recordLag(consumerRecords, shadowLag);
+            onPolled(PollConsumerSelector.ConsumerType.SHADOW, consumerRecords.count(),
+                    shadowLag, System.nanoTime() - start);
             heartbeatPoll();
             return consumerRecords;
         } catch (Exception e) {
             log.error("shadow consumer poll fail!", e);
+            onPolled(PollConsumerSelector.ConsumerType.SHADOW, 0, 0L, System.nanoTime() - start);
             return ConsumerRecords.empty();
         }
     }
 
+    private long shadowPollTimeout(long timeout) {
+        if (consumerSelector instanceof PollFeedbackSelector) {
+            timeout = ((PollFeedbackSelector) consumerSelector).shadowPollTimeout(timeout);
+        }
+        return Math.min(timeout, PT_MAX_POLL_TIMEOUT);
+    }
+
+    private void onPolled(PollConsumerSelector.ConsumerType type, int records, long lagMillis, long costNanos) {
+        if (consumerSelector instanceof PollFeedbackSelector) {
+            ((PollFeedbackSelector) consumerSelector).onPolled(type, records, lagMillis, costNanos);
+        }
+    }
+
     private void heartbeatPoll() {
-        this.ptHeartbeat.poll(System.currentTimeMillis());
-        this.bizHeartbeat.poll(System.currentTimeMillis());
+        long now = System.currentTimeMillis();
+        if (this.ptHeartbeat != null) {
+            this.ptHeartbeat.poll(now);
+        }
+        if (this.bizHeartbeat != null) {
+            this.bizHeartbeat.poll(now);
+        }
     }
 
     private ConsumerRecords doBizPoll(long timeout) {
+        long start = System.nanoTime();
         ConsumerRecords consumerRecords = bizConsumer.poll(timeout);
+        long cost = System.nanoTime() - start;
         logDetection(consumerRecords);
         Pradar.setClusterTest(false);
-        ((RecordsRatioPollSelector) consumerSelector).addBizRecordCounts(consumerRecords.count());
+        onPolled(PollConsumerSelector.ConsumerType.BIZ, consumerRecords.count(), lag, cost);
         heartbeatPoll();
         return consumerRecords;
     }
 
     private void logDetection(ConsumerRecords consumerRecords) {
+        lag = recordLag(consumerRecords, lag);
+    }
+
+    /**
+     * 本次拉取到的最早一条消息距今的时间，没有消息时为 0，
+     * 消息没有时间戳时(如 0.10 之前的消息格式)无法计算，沿用上一次的延迟
+     *
+     * @param previous 上一次的延迟
+     */
+    private long recordLag(ConsumerRecords consumerRecords, long previous) {
         if (consumerRecords.isEmpty()) {
-            lag = 0L;
-            return;
+            return 0L;
         }
         long earliest = getEarliestRecordTime(consumerRecords);
         if (earliest <= 0) {
-            return;
+            return previous;
         }
-        lag = System.currentTimeMillis() - earliest;
+        return Math.max(0L, System.currentTimeMillis() - earliest);
     }
 
     private long getEarliestRecordTime(ConsumerRecords<K, V> consumerRecords) {
@@ -0,0 +1,303 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.attach.plugin.apache.kafka.origin.selector;
+
+import com.pamirs.pradar.PradarService;
+import com.pamirs.pradar.pressurement.agent.shared.service.GlobalConfig;
+import com.pamirs.pradar.pressurement.agent.shared.service.SimulatorDynamicConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Random;
+
+/**
+ * 按业务与影子消费者的拉取量和消息延迟分配 poll 的选择器
+ * <p>
+ * 每个消费者维护每次 poll 拉取消息数的指数滑动平均以及最近一次的消息延迟，
+ * 按 (拉取量 + 1) * (1 + 延迟 / 允许的最大延迟) 作为权重计算选择影子消费者的概率，
+ * 概率不超过动态配置 kafkaPtConsumerPollMaxRatio，影子 poll 的耗时占比超过该配置时只选择业务消费者，
+ * 业务消息延迟超过允许的最大延迟时影子消费者只保留最低比例。
+ * 影子消费者连续拉取不到消息时按 2^n - 1 次跳过影子 poll，之后强制探测一次，并缩短探测时的超时时间，
+ * 避免空闲的影子消费者占用业务 poll 的时间
+ * </p>
+ * 选择和反馈只在 poll 线程中调用，统计数据可以在其他线程通过 {@link #getStats()} 读取，
+ * 模块命令 pollStats 返回所有影子消费者的统计
+ */
+public class AdaptivePollSelector implements PollFeedbackSelector {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(AdaptivePollSelector.class);
+
+    private final static String TEST_MODE_POLL = "agent.test.mode.poll";
+
+    private final static double EWMA_ALPHA = 0.25;
+
+    /**
+     * 影子消费者选择概率的下限，业务消息延迟超限时也使用这个比例
+     */
+    private final static double MIN_SHADOW_RATIO = 0.05;
+
+    private final static double DEFAULT_MAX_SHADOW_RATIO = 0.8;
+
+    /**
+     * 连续空 poll 时最多跳过 2^6 - 1 次影子 poll
+     */
+    private final static int MAX_BACKOFF_SHIFT = 6;
+
+    /**
+     * 空闲探测时影子 poll 的超时时间，单位毫秒
+     */
+    private final static long IDLE_SHADOW_POLL_TIMEOUT = 10;
+
+    private final static long STATS_LOG_INTERVAL_NANOS = 60L * 1000 * 1000 * 1000;
+
+    private final boolean testModePoll = System.getProperty(TEST_MODE_POLL) != null;
+
+    private final PollConsumerSelector testModeSelector = new PollingSelector();
+
+    private final long allowMaxLag;
+
+    private final long maxShadowPollTimeout;
+
+    private final Random random;
+
+    private double bizYield;
+    private double shadowYield;
+    private double bizNanosAvg;
+    private double shadowNanosAvg;
+
+    private int idleShadowPolls;
+    private int skipShadowPolls;
+
+    private long lastLogNanos = System.nanoTime();
+
+    private volatile long bizPolls;
+    private volatile long shadowPolls;
+    private volatile long skippedShadowPolls;
+    private volatile long bizRecords;
+    private volatile long shadowRecords;
+    private volatile long bizPollNanos;
+    private volatile long shadowPollNanos;
+    private volatile long bizLag;
+    private volatile long shadowLag;
+    private volatile double shadowRatio;
+
+    /**
+     * @param allowMaxLag          业务消息允许的最大延迟，单位毫秒
+     * @param maxShadowPollTimeout 影子 poll 的最大超时时间，单位毫秒
+     */
+    public AdaptivePollSelector(long allowMaxLag, long maxShadowPollTimeout) {
+        this(allowMaxLag, maxShadowPollTimeout, new Random());
+    }
+
+    AdaptivePollSelector(long allowMaxLag, long maxShadowPollTimeout, Random random) {
+        this.allowMaxLag = allowMaxLag > 0 ? allowMaxLag : 1000;
+        this.maxShadowPollTimeout = maxShadowPollTimeout;
+        this.random = random;
+    }
+
+    @Override
+    public ConsumerType select() {
+        if (testModePoll) {
+            return testModeSelector.select();
+        }
+        if (PradarService.isSilence()) {
+            return ConsumerType.BIZ;
+        }
+        if (idleShadowPolls > 0) {
+            if (skipShadowPolls > 0) {
+                skipShadowPolls--;
+                skippedShadowPolls++;
+                return ConsumerType.BIZ;
+            }
+            return bizLag > allowMaxLag && random.nextDouble() >= MIN_SHADOW_RATIO ? ConsumerType.BIZ : ConsumerType.SHADOW;
+        }
+        double maxRatio = maxShadowRatio();
+        double totalNanos = bizNanosAvg + shadowNanosAvg;
+        if (totalNanos > 0 && shadowNanosAvg / totalNanos > maxRatio) {
+            return ConsumerType.BIZ;
+        }
+        double ratio = computeShadowRatio(maxRatio);
+        this.shadowRatio = ratio;
+        return random.nextDouble() < ratio ? ConsumerType.SHADOW : ConsumerType.BIZ;
+    }
+
+    private double computeShadowRatio(double maxRatio) {
+        if (bizLag > allowMaxLag) {
+            return Math.min(MIN_SHADOW_RATIO, maxRatio);
+        }
+        double bizWeight = (bizYield + 1) * (1 + (double) bizLag / allowMaxLag);
+        double shadowWeight = (shadowYield + 1) * (1 + (double) shadowLag / allowMaxLag);
+        double ratio = shadowWeight / (bizWeight + shadowWeight);
+        if (ratio > maxRatio) {
+            ratio = maxRatio;
+        }
+        return ratio < MIN_SHADOW_RATIO ? Math.min(MIN_SHADOW_RATIO, maxRatio) : ratio;
+    }
+
+    private static double maxShadowRatio() {
+        SimulatorDynamicConfig config = GlobalConfig.getInstance().getSimulatorDynamicConfig();
+        if (config == null) {
+            return DEFAULT_MAX_SHADOW_RATIO;
+        }
+        double ratio = config.getKafkaPtConsumerPollMaxRatio();
+        return ratio > 0 && ratio <= 1 ? ratio : DEFAULT_MAX_SHADOW_RATIO;
+    }
+
+    @Override
+    public long shadowPollTimeout(long timeout) {
+        long max = idleShadowPolls > 0 ? IDLE_SHADOW_POLL_TIMEOUT : maxShadowPollTimeout;
+        return Math.min(timeout, max);
+    }
+
+    @Override
+    public void onPolled(ConsumerType type, int records, long lagMillis, long costNanos) {
+        if (type == ConsumerType.SHADOW) {
+            shadowPolls++;
+            shadowRecords += records;
+            shadowPollNanos += costNanos;
+            shadowLag = lagMillis;
+            shadowYield += EWMA_ALPHA * (records - shadowYield);
+            shadowNanosAvg += EWMA_ALPHA * (costNanos - shadowNanosAvg);
+            bizNanosAvg -= EWMA_ALPHA * bizNanosAvg;
+            if (records > 0) {
+                idleShadowPolls = 0;
+                skipShadowPolls = 0;
+            } else {
+                idleShadowPolls++;
+                skipShadowPolls = (1 << Math.min(idleShadowPolls, MAX_BACKOFF_SHIFT)) - 1;
+            }
+        } else {
+            bizPolls++;
+            bizRecords += records;
+            bizPollNanos += costNanos;
+            bizLag = lagMillis;
+            bizYield += EWMA_ALPHA * (records - bizYield);
+            bizNanosAvg += EWMA_ALPHA * (costNanos - bizNanosAvg);
+            shadowNanosAvg -= EWMA_ALPHA * shadowNanosAvg;
+        }
+        if (LOGGER.isInfoEnabled()) {
+            long now = System.nanoTime();
+            if (now - lastLogNanos >= STATS_LOG_INTERVAL_NANOS) {
+                lastLogNanos = now;
+                LOGGER.info("[SIMULATOR KAFKA] kafka consumer poll stats: {}", getStats());
+            }
+        }
+    }
+
+    /**
+     * 获取当前的 poll 统计
+     *
+     * @return 统计快照
+     */
+    public PollStats getStats() {
+        PollStats stats = new PollStats();
+        stats.bizPolls = bizPolls;
+        stats.shadowPolls = shadowPolls;
+        stats.skippedShadowPolls = skippedShadowPolls;
+        stats.bizRecords = bizRecords;
+        stats.shadowRecords = shadowRecords;
+        stats.bizPollNanos = bizPollNanos;
+        stats.shadowPollNanos = shadowPollNanos;
+        stats.bizLag = bizLag;
+        stats.shadowLag = shadowLag;
+        stats.shadowRatio = shadowRatio;
+        return stats;
+    }
+
+    /**
+     * poll 统计快照，次数、消息数与耗时为累计值，延迟为最近一次 poll 的值
+     */
+    public static class PollStats {
+        private long bizPolls;
+        private long shadowPolls;
+        private long skippedShadowPolls;
+        private long bizRecords;
+        private long shadowRecords;
+        private long bizPollNanos;
+        private long shadowPollNanos;
+        private long bizLag;
+        private long shadowLag;
+        private double shadowRatio;
+
+        public long getBizPolls() {
+            return bizPolls;
+        }
+
+        public long getShadowPolls() {
+            return shadowPolls;
+        }
+
+        /**
+         * 影子消费者空闲退避时跳过的 poll 次数
+         */
+        public long getSkippedShadowPolls() {
+            return skippedShadowPolls;
+        }
+
+        public long getBizRecords() {
+            return bizRecords;
+        }
+
+        public long getShadowRecords() {
+            return shadowRecords;
+        }
+
+        public long getBizPollNanos() {
+            return bizPollNanos;
+        }
+
+        public long getShadowPollNanos() {
+            return shadowPollNanos;
+        }
+
+        public long getBizLag() {
+            return bizLag;
+        }
+
+        public long getShadowLag() {
+            return shadowLag;
+        }
+
+        /**
+         * 影子消息延迟与业务消息延迟的差值，单位毫秒
+         */
+        public long getLagSkew() {
+            return shadowLag - bizLag;
+        }
+
+        /**
+         * 影子 poll 耗时占全部 poll 耗时的比例
+         */
+        public double getShadowTimeShare() {
+            long total = bizPollNanos + shadowPollNanos;
+            return total == 0 ? 0 : (double) shadowPollNanos / total;
+        }
+
+        /**
+         * 最近一次计算出的影子消费者选择概率
+         */
+        public double getShadowRatio() {
+            return shadowRatio;
+        }
+
+        @Override
+        public String toString() {
+            return "bizPolls=" + bizPolls + ", shadowPolls=" + shadowPolls + ", skippedShadowPolls=" + skippedShadowPolls
+                    + ", bizRecords=" + bizRecords + ", shadowRecords=" + shadowRecords
+                    + ", bizPollMillis=" + bizPollNanos / 1000000 + ", shadowPollMillis=" + shadowPollNanos / 1000000
+                    + ", lagSkew=" + getLagSkew() + ", shadowRatio=" + shadowRatio;
+        }
+    }
+}
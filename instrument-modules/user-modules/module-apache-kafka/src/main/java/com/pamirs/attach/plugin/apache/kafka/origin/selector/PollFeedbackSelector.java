@@ -0,0 +1,39 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.attach.plugin.apache.kafka.origin.selector;
+
+/**
+ * 根据每次 poll 的结果调整后续选择的选择器
+ */
+public interface PollFeedbackSelector extends PollConsumerSelector {
+
+    /**
+     * 影子消费者本次 poll 使用的超时时间
+     *
+     * @param timeout 业务调用 poll 时传入的超时时间，单位毫秒
+     * @return 影子消费者的超时时间，单位毫秒
+     */
+    long shadowPollTimeout(long timeout);
+
+    /**
+     * 记录一次 poll 的结果，只在 poll 线程中调用
+     *
+     * @param type      本次 poll 的消费者
+     * @param records   拉取到的消息数
+     * @param lagMillis 拉取到的最早一条消息距今的时间，没有消息时为 0
+     * @param costNanos poll 耗时，单位纳秒
+     */
+    void onPolled(ConsumerType type, int records, long lagMillis, long costNanos);
+}
@@ -10,7 +10,7 @@ import java.util.Deque;
 import java.util.LinkedList;
 import java.util.Random;
 
-public class RecordsRatioPollSelector implements PollConsumerSelector {
+public class RecordsRatioPollSelector implements PollFeedbackSelector {
 
     protected final Logger logger = LoggerFactory.getLogger(getClass());
 
@@ -47,6 +47,20 @@ public class RecordsRatioPollSelector implements PollConsumerSelector {
         ptRecordCounts.addFirst(count);
     }
 
+    @Override
+    public long shadowPollTimeout(long timeout) {
+        return timeout;
+    }
+
+    @Override
+    public void onPolled(ConsumerType type, int records, long lagMillis, long costNanos) {
+        if (type == ConsumerType.SHADOW) {
+            addPtRecordCounts(records);
+        } else {
+            addBizRecordCounts(records);
+        }
+    }
+
     @Override
     public ConsumerType select() {
         // 最开始时业务影子各一次, 业务压测消息个数一样时各一次
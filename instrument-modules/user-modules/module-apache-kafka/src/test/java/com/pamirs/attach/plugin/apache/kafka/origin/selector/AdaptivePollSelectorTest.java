@@ -0,0 +1,206 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.attach.plugin.apache.kafka.origin.selector;
+
+import com.pamirs.attach.plugin.apache.kafka.origin.selector.PollConsumerSelector.ConsumerType;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 使用 MockConsumer 的拉取结果驱动 AdaptivePollSelector, 验证空闲退避、延迟上限和耗时占比上限
+ * <p>
+ * MockConsumer 的 poll 不耗时, poll 耗时按场景直接给定; 延迟与 ConsumerProxy 一样按最早一条消息的时间戳计算
+ * </p>
+ */
+public class AdaptivePollSelectorTest {
+
+    private static final long ALLOW_MAX_LAG = 1000;
+    private static final long MAX_SHADOW_POLL_TIMEOUT = 500;
+    private static final long MILLIS = 1000L * 1000;
+
+    private final TopicPartition bizPartition = new TopicPartition("orders", 0);
+    private final TopicPartition shadowPartition = new TopicPartition("PT_orders", 0);
+
+    private MockConsumer<String, String> bizConsumer;
+    private MockConsumer<String, String> shadowConsumer;
+    private FixedRandom random;
+    private AdaptivePollSelector selector;
+    private long bizOffset;
+    private long shadowOffset;
+    private long bizLag;
+    private long shadowLag;
+
+    @Before
+    public void setUp() {
+        bizConsumer = newConsumer(bizPartition);
+        shadowConsumer = newConsumer(shadowPartition);
+        random = new FixedRandom();
+        selector = new AdaptivePollSelector(ALLOW_MAX_LAG, MAX_SHADOW_POLL_TIMEOUT, random);
+        bizOffset = 0;
+        shadowOffset = 0;
+        bizLag = 0;
+        shadowLag = 0;
+    }
+
+    @Test
+    public void idleShadowConsumerBacksOffExponentially() {
+        random.value = 0;
+
+        poll(ConsumerType.SHADOW, shadowConsumer, MILLIS);
+        assertEquals(10, selector.shadowPollTimeout(MAX_SHADOW_POLL_TIMEOUT));
+        assertEquals(ConsumerType.BIZ, selector.select());
+        assertEquals(ConsumerType.SHADOW, selector.select());
+
+        poll(ConsumerType.SHADOW, shadowConsumer, MILLIS);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(ConsumerType.BIZ, selector.select());
+        }
+        assertEquals(ConsumerType.SHADOW, selector.select());
+        assertEquals(4, selector.getStats().getSkippedShadowPolls());
+
+        addShadowRecords(1, System.currentTimeMillis());
+        poll(ConsumerType.SHADOW, shadowConsumer, MILLIS);
+        assertEquals(MAX_SHADOW_POLL_TIMEOUT, selector.shadowPollTimeout(MAX_SHADOW_POLL_TIMEOUT));
+        addBizRecords(1, System.currentTimeMillis());
+        poll(ConsumerType.BIZ, bizConsumer, MILLIS);
+        assertEquals(ConsumerType.SHADOW, selector.select());
+    }
+
+    @Test
+    public void businessLagCapsShadowShare() {
+        long now = System.currentTimeMillis();
+        addShadowRecords(10, now);
+        poll(ConsumerType.SHADOW, shadowConsumer, MILLIS);
+        addBizRecords(1, now - 5 * ALLOW_MAX_LAG);
+        poll(ConsumerType.BIZ, bizConsumer, MILLIS);
+
+        random.value = 0.06;
+        assertEquals(ConsumerType.BIZ, selector.select());
+        assertEquals(0.05, selector.getStats().getShadowRatio(), 1e-9);
+        random.value = 0.04;
+        assertEquals(ConsumerType.SHADOW, selector.select());
+
+        addBizRecords(1, System.currentTimeMillis());
+        poll(ConsumerType.BIZ, bizConsumer, MILLIS);
+        random.value = 0.06;
+        assertEquals(ConsumerType.SHADOW, selector.select());
+    }
+
+    @Test
+    public void recordsWithoutTimestampKeepPreviousLag() {
+        long now = System.currentTimeMillis();
+        addShadowRecords(10, now);
+        poll(ConsumerType.SHADOW, shadowConsumer, MILLIS);
+        addBizRecords(1, now - 5 * ALLOW_MAX_LAG);
+        poll(ConsumerType.BIZ, bizConsumer, MILLIS);
+
+        addBizRecords(1, ConsumerRecord.NO_TIMESTAMP);
+        poll(ConsumerType.BIZ, bizConsumer, MILLIS);
+        random.value = 0.06;
+        assertEquals(ConsumerType.BIZ, selector.select());
+        assertTrue(selector.getStats().getBizLag() >= 5 * ALLOW_MAX_LAG);
+
+        poll(ConsumerType.BIZ, bizConsumer, MILLIS);
+        assertEquals(0, selector.getStats().getBizLag());
+        assertEquals(ConsumerType.SHADOW, selector.select());
+    }
+
+    @Test
+    public void slowShadowPollsAreCappedByTimeShare() {
+        long now = System.currentTimeMillis();
+        addShadowRecords(10, now);
+        poll(ConsumerType.SHADOW, shadowConsumer, 100 * MILLIS);
+        addBizRecords(1, now);
+        poll(ConsumerType.BIZ, bizConsumer, MILLIS);
+
+        random.value = 0;
+        assertEquals(ConsumerType.BIZ, selector.select());
+
+        for (int i = 0; i < 20; i++) {
+            poll(ConsumerType.BIZ, bizConsumer, MILLIS);
+        }
+        assertEquals(ConsumerType.SHADOW, selector.select());
+    }
+
+    /**
+     * 与 ConsumerProxy 一样把一次 poll 的结果反馈给选择器, 消息没有时间戳时沿用上一次的延迟
+     */
+    private void poll(ConsumerType type, MockConsumer<String, String> consumer, long costNanos) {
+        ConsumerRecords<String, String> records = consumer.poll(0);
+        long lag = type == ConsumerType.SHADOW ? shadowLag : bizLag;
+        if (records.isEmpty()) {
+            lag = 0;
+        } else {
+            long earliest = Long.MAX_VALUE;
+            for (ConsumerRecord<String, String> record : records) {
+                earliest = Math.min(earliest, record.timestamp());
+            }
+            if (earliest > 0) {
+                lag = Math.max(0L, System.currentTimeMillis() - earliest);
+            }
+        }
+        if (type == ConsumerType.SHADOW) {
+            shadowLag = lag;
+        } else {
+            bizLag = lag;
+        }
+        selector.onPolled(type, records.count(), lag, costNanos);
+    }
+
+    private void addBizRecords(int count, long timestamp) {
+        for (int i = 0; i < count; i++) {
+            bizConsumer.addRecord(record(bizPartition, bizOffset++, timestamp));
+        }
+    }
+
+    private void addShadowRecords(int count, long timestamp) {
+        for (int i = 0; i < count; i++) {
+            shadowConsumer.addRecord(record(shadowPartition, shadowOffset++, timestamp));
+        }
+    }
+
+    private static ConsumerRecord<String, String> record(TopicPartition partition, long offset, long timestamp) {
+        return new ConsumerRecord<String, String>(partition.topic(), partition.partition(), offset, timestamp,
+                TimestampType.CREATE_TIME, 0L, 0, 0, null, "v");
+    }
+
+    private static MockConsumer<String, String> newConsumer(TopicPartition partition) {
+        MockConsumer<String, String> consumer = new MockConsumer<String, String>(OffsetResetStrategy.EARLIEST);
+        consumer.assign(Collections.singletonList(partition));
+        consumer.updateBeginningOffsets(Collections.singletonMap(partition, 0L));
+        return consumer;
+    }
+
+    private static class FixedRandom extends Random {
+        private double value;
+
+        @Override
+        public double nextDouble() {
+            return value;
+        }
+    }
+}
@@ -16,12 +16,12 @@ package com.pamirs.attach.plugin.apache.rocketmq.hook;
 
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import com.pamirs.attach.plugin.apache.rocketmq.RocketmqConstants;
 import com.pamirs.attach.plugin.apache.rocketmq.common.MQTraceBean;
+import com.pamirs.attach.plugin.apache.rocketmq.common.MQTraceContextExtractor;
 import com.pamirs.attach.plugin.apache.rocketmq.common.MQTraceConstants;
 import com.pamirs.attach.plugin.apache.rocketmq.common.MQTraceContext;
 import com.pamirs.attach.plugin.apache.rocketmq.common.MQType;
@@ -30,7 +30,6 @@ import com.pamirs.pradar.Pradar;
 import com.pamirs.pradar.PradarService;
 import com.pamirs.pradar.exception.PradarException;
 import com.pamirs.pradar.exception.PressureMeasureError;
-import com.pamirs.pradar.pressurement.ClusterTestUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.rocketmq.client.hook.ConsumeMessageContext;
 import org.apache.rocketmq.client.hook.ConsumeMessageHook;
@@ -77,19 +76,24 @@ public class PushConsumeMessageHookImpl implements ConsumeMessageHook, MQTraceCo
             boolean silence = PradarService.isSilence();
 
             List<MQTraceBean> beans = new ArrayList<MQTraceBean>();
+            MQTraceContextExtractor.Batch traceContexts = MQTraceContextExtractor.newBatch(context.getMsgList().size());
             for (MessageExt msg : context.getMsgList()) {
                 if (msg == null) {
                     continue;
                 }
+                // 按固定的上下文字段提取到整批共用的数组中，不持有消息属性 Map 的引用
+                Map<String, String> traceContext = traceContexts.extract(msg.getProperties());
+                // 先按消息属性中的压测标判断，没有时再按 topic 前缀判断
+                boolean isClusterTest = MQTraceContextExtractor.isClusterTest(msg.getTopic(),
+                        traceContext == null ? null : traceContext.get(PradarService.PRADAR_CLUSTER_TEST_KEY));
+                if (silence && isClusterTest) {
+                    throw new PressureMeasureError(this.getClass().getName() + ":silence module ! can not handle cluster test data");
+                }
                 MQTraceBean traceBean = new MQTraceBean();
-                Map<String, String> rpcContext = new HashMap<String, String>();
-                for (String key : Pradar.getInvokeContextTransformKeys()) {
-                    String value = msg.getProperty(key);
-                    if (value != null) {
-                        rpcContext.put(key, value);
-                    }
+                traceBean.setContext(traceContext);
+                if (isClusterTest) {
+                    traceBean.setClusterTest(Boolean.TRUE.toString());
                 }
-                traceBean.setContext(rpcContext);
                 traceBean.setTopic(msg.getTopic());
                 traceBean.setMsgId(msg.getMsgId());
                 traceBean.setOriginMsgId(MessageAccessor.getOriginMessageId(msg));
@@ -120,21 +124,6 @@ public class PushConsumeMessageHookImpl implements ConsumeMessageHook, MQTraceCo
                 traceBean.setOffset(msg.getQueueOffset());
                 traceBean.setRetryTimes(msg.getReconsumeTimes());
                 traceBean.setProps(context.getProps());
-                /**
-                 * 如果有压测标则设置压测标，没有则根据topic是否是PT_开头，如果是则设置为压测流量
-                 */
-                boolean isClusterTest = msg.getTopic() != null &&
-                        (Pradar.isClusterTestPrefix(msg.getTopic())
-                                || Pradar.isClusterTestPrefix(msg.getTopic(), RETRYSTR)
-                                || Pradar.isClusterTestPrefix(msg.getTopic(), DLQSTR));
-                // 消息的properties是否包含Pradar.PRADAR_CLUSTER_TEST_KEY
-                isClusterTest = isClusterTest || ClusterTestUtils.isClusterTestRequest(msg.getProperty(PradarService.PRADAR_CLUSTER_TEST_KEY));
-                if (isClusterTest) {
-                    traceBean.setClusterTest(Boolean.TRUE.toString());
-                }
-                if (silence && isClusterTest) {
-                    throw new PressureMeasureError(this.getClass().getName() + ":silence module ! can not handle cluster test data");
-                }
 
                 beans.add(traceBean);
             }
@@ -150,6 +150,8 @@ public class TomcatJdbcDataSourceProxyGetConnectionInterceptor extends CutoffInt
                             } catch (Throwable e) {
                                 logger.error("module-tomcat-jdbc: closed datasource err! target:{}, url:{} username:{}", entry.getKey().getDataSource().hashCode(), entry.getKey().getUrl(), entry.getKey().getUsername(), e);
                             }
+                            // 按新配置提前创建并预热影子数据源, 不等第一个压测请求
+                            DataSourceWrapUtil.initInBackground(entry.getKey());
                             break;
                         }
                     }
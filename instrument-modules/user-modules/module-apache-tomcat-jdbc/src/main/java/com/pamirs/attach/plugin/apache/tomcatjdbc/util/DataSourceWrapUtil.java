@@ -14,6 +14,8 @@
  */
 package com.pamirs.attach.plugin.apache.tomcatjdbc.util;
 
+import com.pamirs.attach.plugin.common.datasource.utils.DataSourceLocks;
+import com.pamirs.attach.plugin.common.datasource.warmup.ShadowPoolWarmer;
 import com.pamirs.attach.plugin.apache.tomcatjdbc.obj.TomcatJdbcMediatorDataSource;
 import com.pamirs.pradar.ErrorTypeEnum;
 import com.pamirs.pradar.pressurement.agent.shared.service.DataSourceMeta;
@@ -35,7 +37,12 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class DataSourceWrapUtil {
     private final static Logger LOGGER = LoggerFactory.getLogger(DataSourceWrapUtil.class.getName());
-    private final static Object lock = new Object();
+    private final static String MIDDLEWARE_NAME = "tomcat-jdbc";
+
+    /**
+     * 本插件的初始化锁, 销毁时只清除本插件的锁
+     */
+    private final static DataSourceLocks LOCKS = new DataSourceLocks();
 
     public static final ConcurrentHashMap<DataSourceMeta, TomcatJdbcMediatorDataSource> pressureDataSources = new ConcurrentHashMap<DataSourceMeta, TomcatJdbcMediatorDataSource>();
 
@@ -47,6 +54,22 @@ public class DataSourceWrapUtil {
             entry.getValue().close();
         }
         pressureDataSources.clear();
+        LOCKS.clear();
+        ShadowPoolWarmer.clear(MIDDLEWARE_NAME);
+    }
+
+    /**
+     * 配置生效后在后台重新创建业务数据源对应的影子数据源并预热
+     *
+     * @param dataSourceMeta 业务数据源
+     */
+    public static void initInBackground(final DataSourceMeta<DataSource> dataSourceMeta) {
+        ShadowPoolWarmer.execute(new Runnable() {
+            @Override
+            public void run() {
+                doWrap(dataSourceMeta);
+            }
+        });
     }
 
     public static void doWrap(DataSourceMeta<DataSource> dataSourceMeta) {
@@ -57,7 +80,8 @@ public class DataSourceWrapUtil {
         if (isPerformanceDataSource(target)) {
             return;
         }
-        synchronized (lock) {
+        // 按数据源加锁, 不同数据源之间互不阻塞
+        synchronized (LOCKS.lockOf(dataSourceMeta)) {
             if (pressureDataSources.containsKey(dataSourceMeta) && pressureDataSources.get(dataSourceMeta) != null) {
                 return;
             }
@@ -117,6 +141,7 @@ public class DataSourceWrapUtil {
                 if (LOGGER.isInfoEnabled()) {
                     LOGGER.info("[tomcat-jdbc] create shadow datasource success. target:{} url:{} ,username:{} shadow-url:{},shadow-username:{}", target.hashCode(), target.getUrl(), target.getUsername(), ptDataSource.getUrl(), ptDataSource.getUsername());
                 }
+                warmUp(ptDataSource);
             }
         }
     }
@@ -150,7 +175,21 @@ public class DataSourceWrapUtil {
             DataSource ptDataSource = TomcatJdbcDatasourceUtils.generateDatasourceFromConfiguration(mediaDataSource.getDataSourceBusiness(),GlobalConfig.getInstance().getShadowDatasourceConfigs());
             if (ptDataSource != null) {
                 mediaDataSource.setDataSourcePerformanceTest(ptDataSource);
+                warmUp(ptDataSource);
             }
         }
     }
+
+    /**
+     * 在后台预热影子连接池
+     *
+     * @param ptDataSource 影子数据源
+     */
+    private static void warmUp(DataSource ptDataSource) {
+        if (ptDataSource == null) {
+            return;
+        }
+        ShadowPoolWarmer.warmUp(MIDDLEWARE_NAME, ptDataSource.getUrl(), ptDataSource.getUsername(), ptDataSource,
+                Math.max(ptDataSource.getMinIdle(), ptDataSource.getInitialSize()));
+    }
 }
@@ -15,6 +15,8 @@
 package com.pamirs.attach.plugin.c3p0.utils;
 
 import com.mchange.v2.c3p0.ComboPooledDataSource;
+import com.pamirs.attach.plugin.common.datasource.utils.DataSourceLocks;
+import com.pamirs.attach.plugin.common.datasource.warmup.ShadowPoolWarmer;
 import com.pamirs.pradar.*;
 import com.pamirs.pradar.internal.config.ShadowDatabaseConfig;
 import com.pamirs.pradar.pressurement.agent.shared.service.DataSourceMeta;
@@ -40,7 +42,12 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class DataSourceWrapUtil {
     private static Logger logger = LoggerFactory.getLogger(DataSourceWrapUtil.class.getName());
-    private final static Object lock = new Object();
+    private final static String MIDDLEWARE_NAME = "c3p0";
+
+    /**
+     * 本插件的初始化锁, 销毁时只清除本插件的锁
+     */
+    private final static DataSourceLocks LOCKS = new DataSourceLocks();
 
     public static final ConcurrentHashMap<DataSourceMeta, C3p0MediaDataSource> pressureDataSources = new ConcurrentHashMap<DataSourceMeta, C3p0MediaDataSource>();
 
@@ -52,6 +59,22 @@ public class DataSourceWrapUtil {
             entry.getValue().close();
         }
         pressureDataSources.clear();
+        LOCKS.clear();
+        ShadowPoolWarmer.clear(MIDDLEWARE_NAME);
+    }
+
+    /**
+     * 配置生效后在后台重新创建业务数据源对应的影子数据源并预热
+     *
+     * @param dataSourceMeta 业务数据源
+     */
+    public static void initInBackground(final DataSourceMeta<ComboPooledDataSource> dataSourceMeta) {
+        ShadowPoolWarmer.execute(new Runnable() {
+            @Override
+            public void run() {
+                init(dataSourceMeta);
+            }
+        });
     }
 
     public static boolean validate(ComboPooledDataSource sourceDataSource) {
@@ -108,7 +131,8 @@ public class DataSourceWrapUtil {
         if (isPerformanceDataSource(target)) {
             return;
         }
-        synchronized (lock) {
+        // 按数据源加锁, 不同数据源之间互不阻塞
+        synchronized (LOCKS.lockOf(dataSourceMeta)) {
             if (pressureDataSources.containsKey(dataSourceMeta) && pressureDataSources.get(dataSourceMeta) != null) {
                 return;
             }
@@ -176,6 +200,7 @@ public class DataSourceWrapUtil {
                     if (logger.isInfoEnabled()) {
                         logger.info("[c3p0] create shadow datasource successful. target:{} url:{} ,username:{} shadow-url:{},shadow-username:{}", target.hashCode(), target.getJdbcUrl(), target.getUser(), ptDataSource.getJdbcUrl(), ptDataSource.getUser());
                     }
+                    warmUp(ptDataSource);
                 } catch (Throwable t) {
                     logger.error("[c3p0] init datasource err!", t);
                     ErrorReporter.buildError()
@@ -511,7 +536,21 @@ public class DataSourceWrapUtil {
             ComboPooledDataSource ptDataSource = copy(mediaDataSource.getDataSourceBusiness());
             if (ptDataSource != null) {
                 mediaDataSource.setDataSourcePerformanceTest(ptDataSource);
+                warmUp(ptDataSource);
             }
         }
     }
+
+    /**
+     * 在后台预热影子连接池
+     *
+     * @param ptDataSource 影子数据源
+     */
+    private static void warmUp(ComboPooledDataSource ptDataSource) {
+        if (ptDataSource == null) {
+            return;
+        }
+        ShadowPoolWarmer.warmUp(MIDDLEWARE_NAME, ptDataSource.getJdbcUrl(), ptDataSource.getUser(), ptDataSource,
+                Math.max(ptDataSource.getMinPoolSize(), ptDataSource.getInitialPoolSize()));
+    }
 }
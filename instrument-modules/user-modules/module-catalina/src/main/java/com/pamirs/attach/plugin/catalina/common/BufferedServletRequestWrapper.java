@@ -15,6 +15,7 @@
 package com.pamirs.attach.plugin.catalina.common;
 
 import com.pamirs.attach.plugin.common.web.IBufferedServletRequestWrapper;
+import com.pamirs.attach.plugin.common.web.RequestBodyCapture;
 import org.apache.catalina.Context;
 import org.apache.catalina.Host;
 import org.apache.catalina.Session;
@@ -44,7 +45,7 @@ import java.util.Map;
  */
 public class BufferedServletRequestWrapper extends Request implements IBufferedServletRequestWrapper {
 
-    private byte[] buffer;
+    private final RequestBodyCapture bodyCapture;
     private final Request request;
     protected RequestFacade facade;
     private ServletInputStream inputStream;
@@ -52,25 +53,11 @@ public class BufferedServletRequestWrapper extends Request implements IBufferedS
 
     public BufferedServletRequestWrapper(Request request) {
         this.request = request;
+        this.bodyCapture = new RequestBodyCapture(request);
         this.setCoyoteRequest(request.getCoyoteRequest());
         this.facade = new RequestFacade(this);
     }
 
-    private void initBuffer() {
-        try {
-            InputStream is = request.getInputStream();
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            byte buff[] = new byte[1024];
-            int read;
-            while ((read = is.read(buff)) > 0) {
-                baos.write(buff, 0, read);
-            }
-            this.buffer = baos.toByteArray();
-        } catch (IOException e) {
-            //ignore
-        }
-    }
-
     @Override
     public void setAsyncSupported(boolean asyncSupported) {
         request.setAsyncSupported(asyncSupported);
@@ -393,22 +380,14 @@ public class BufferedServletRequestWrapper extends Request implements IBufferedS
 
     @Override
     public ServletInputStream getInputStream() throws IOException {
-        if (buffer == null) {
-            initBuffer();
-        }
         if (this.inputStream == null) {
-            this.inputStream = new BufferedServletInputStream(this.buffer);
+            this.inputStream = bodyCapture.getInputStream();
         }
-
         return this.inputStream;
-//        return new BufferedServletInputStream(this.buffer);
     }
 
     @Override
     public BufferedReader getReader() throws IOException {
-        if (buffer == null) {
-            initBuffer();
-        }
         String characterEncoding = request.getCharacterEncoding();
         if (characterEncoding == null) {
             characterEncoding = "ISO8859-1";
@@ -416,13 +395,9 @@ public class BufferedServletRequestWrapper extends Request implements IBufferedS
         return new BufferedReader(new InputStreamReader(getInputStream(), characterEncoding));
     }
 
-
     @Override
     public byte[] getBody() {
-        if (null == this.buffer) {
-            return null;
-        }
-        return this.buffer;
+        return bodyCapture.getBody();
     }
 
     @Override
@@ -749,43 +724,4 @@ public class BufferedServletRequestWrapper extends Request implements IBufferedS
     public DispatcherType getDispatcherType() {
         return request.getDispatcherType();
     }
-
-    static class BufferedServletInputStream extends ServletInputStream {
-        private ByteArrayInputStream inputStream;
-
-        public BufferedServletInputStream(byte[] buffer) {
-            this.inputStream = new ByteArrayInputStream(buffer);
-        }
-
-        @Override
-        public int available() throws IOException {
-            return inputStream.available();
-        }
-
-        @Override
-        public int read() throws IOException {
-            return inputStream.read();
-        }
-
-        @Override
-        public int read(byte[] b, int off, int len) throws IOException {
-            return inputStream.read(b, off, len);
-        }
-
-        @Override
-        public boolean isFinished() {
-            return false;
-        }
-
-        @Override
-        public boolean isReady() {
-            return false;
-        }
-
-        @Override
-        public void setReadListener(ReadListener readListener) {
-
-        }
-
-    }
 }
@@ -14,10 +14,15 @@
  */
 package com.pamirs.attach.plugin.common.datasource;
 
+import com.pamirs.attach.plugin.common.datasource.warmup.ShadowPoolWarmer;
+import com.shulie.instrument.simulator.api.CommandResponse;
 import com.shulie.instrument.simulator.api.ExtensionModule;
 import com.shulie.instrument.simulator.api.ModuleInfo;
+import com.shulie.instrument.simulator.api.annotation.Command;
 import org.kohsuke.MetaInfServices;
 
+import java.util.Map;
+
 /**
  * @author xiaobin.zfb|xiaobin@shulie.io
  * @since 2020/10/11 7:17 下午
@@ -26,4 +31,14 @@ import org.kohsuke.MetaInfServices;
 @ModuleInfo(id = "datasource-common", version = "1.0.0", author = "xiaobin@shulie.io",description = "数据源通用依赖模块,提供给各个数据源模块依赖")
 public class DatasourceCommonModule implements ExtensionModule {
 
+    /**
+     * 查询影子连接池的预热状态
+     *
+     * @param args 参数
+     * @return 预热状态
+     */
+    @Command("shadowPoolStatus")
+    public CommandResponse shadowPoolStatus(Map<String, String> args) {
+        return CommandResponse.success(ShadowPoolWarmer.getStatuses());
+    }
 }
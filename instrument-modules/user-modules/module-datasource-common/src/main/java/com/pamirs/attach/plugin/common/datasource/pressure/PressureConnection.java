@@ -17,6 +17,7 @@ package com.pamirs.attach.plugin.common.datasource.pressure;
 import com.pamirs.attach.plugin.common.datasource.trace.CheckedTraceCallableStatement;
 import com.pamirs.attach.plugin.common.datasource.trace.CheckedTracePreparedStatement;
 import com.pamirs.attach.plugin.common.datasource.trace.CheckedTraceStatement;
+import com.pamirs.attach.plugin.common.datasource.trace.JdbcConnectionMeta;
 import com.pamirs.attach.plugin.common.datasource.utils.ProxyFlag;
 import com.pamirs.pradar.internal.config.ShadowDatabaseConfig;
 import com.pamirs.pradar.pressurement.agent.shared.service.GlobalConfig;
@@ -74,6 +75,11 @@ public class PressureConnection implements Connection {
      */
     protected SqlMetaData sqlMetaData;
 
+    /**
+     * 所有 Statement 共用的连接元数据
+     */
+    protected JdbcConnectionMeta connectionMeta;
+
     public PressureConnection(DataSource dataSource, Connection connection, String url, String username, String dbConnectionKey, String dbType) {
         this.dataSource = dataSource;
         this.connection = connection;
@@ -88,6 +94,7 @@ public class PressureConnection implements Connection {
             } catch (Throwable e) {
             }
         }
+        this.connectionMeta = new JdbcConnectionMeta(url, username, dbType, dbConnectionKey, true, sqlMetaData);
     }
 
     /**
@@ -235,7 +242,7 @@ public class PressureConnection implements Connection {
      */
     @Override
     public Statement createStatement() throws SQLException {
-        return new CheckedTraceStatement(new PressureStatment(connection.createStatement(), this.connection, this.dbConnectionKey, this.dbType), this.url, this.username, this.dbType, true, sqlMetaData);
+        return new CheckedTraceStatement(connection.createStatement(), connectionMeta);
     }
 
     /**
@@ -247,7 +254,7 @@ public class PressureConnection implements Connection {
      */
     @Override
     public Statement createStatement(int arg0, int arg1) throws SQLException {
-        return new CheckedTraceStatement(new PressureStatment(connection.createStatement(arg0, arg1), this.connection, this.dbConnectionKey, this.dbType), this.url, this.username, this.dbType, true, sqlMetaData);
+        return new CheckedTraceStatement(connection.createStatement(arg0, arg1), connectionMeta);
     }
 
     /**
@@ -260,7 +267,7 @@ public class PressureConnection implements Connection {
     @Override
     public Statement createStatement(int arg0, int arg1, int arg2)
             throws SQLException {
-        return new CheckedTraceStatement(new PressureStatment(connection.createStatement(arg0, arg1, arg2), this.connection, this.dbConnectionKey, this.dbType), this.url, this.username, this.dbType, true, sqlMetaData);
+        return new CheckedTraceStatement(connection.createStatement(arg0, arg1, arg2), connectionMeta);
     }
 
     /**
@@ -428,7 +435,7 @@ public class PressureConnection implements Connection {
      */
     @Override
     public CallableStatement prepareCall(String arg0) throws SQLException {
-        return new CheckedTraceCallableStatement(new PressureCallableStatement(connection.prepareCall(arg0), this.connection, this.dbConnectionKey, this.dbType), arg0, this.url, this.username, this.dbType, true, sqlMetaData);
+        return new CheckedTraceCallableStatement(connection.prepareCall(arg0), arg0, connectionMeta);
     }
 
     /**
@@ -441,7 +448,7 @@ public class PressureConnection implements Connection {
     @Override
     public CallableStatement prepareCall(String arg0, int arg1, int arg2)
             throws SQLException {
-        return new CheckedTraceCallableStatement(new PressureCallableStatement(connection.prepareCall(arg0, arg1, arg2), this.connection, this.dbConnectionKey, this.dbType), arg0, this.url, this.username, this.dbType, true, sqlMetaData);
+        return new CheckedTraceCallableStatement(connection.prepareCall(arg0, arg1, arg2), arg0, connectionMeta);
     }
 
     /**
@@ -454,7 +461,7 @@ public class PressureConnection implements Connection {
     @Override
     public CallableStatement prepareCall(String arg0, int arg1, int arg2,
                                          int arg3) throws SQLException {
-        return new CheckedTraceCallableStatement(new PressureCallableStatement(connection.prepareCall(arg0, arg1, arg2, arg3), this.connection, this.dbConnectionKey, this.dbType), arg0, this.url, this.username, this.dbType, true, sqlMetaData);
+        return new CheckedTraceCallableStatement(connection.prepareCall(arg0, arg1, arg2, arg3), arg0, connectionMeta);
     }
 
 
@@ -470,7 +477,7 @@ public class PressureConnection implements Connection {
         try {
             ProxyFlag.enter();
             arg0 = SqlParser.replaceSchema(arg0, this.dbConnectionKey, this.dbType);
-            return new CheckedTracePreparedStatement(new PressurePreparedStatement(connection.prepareStatement(arg0), this.connection, this.dbConnectionKey, this.dbType), arg0, this.url, this.username, this.dbType, true, sqlMetaData);
+            return new CheckedTracePreparedStatement(connection.prepareStatement(arg0), arg0, connectionMeta);
         } finally {
             ProxyFlag.exit();
         }
@@ -489,7 +496,7 @@ public class PressureConnection implements Connection {
         try {
             ProxyFlag.enter();
             arg0 = SqlParser.replaceSchema(arg0, this.dbConnectionKey, this.dbType);
-            return new CheckedTracePreparedStatement(new PressurePreparedStatement(connection.prepareStatement(arg0, arg1), this.connection, this.dbConnectionKey, this.dbType), arg0, this.url, this.username, this.dbType, true, sqlMetaData);
+            return new CheckedTracePreparedStatement(connection.prepareStatement(arg0, arg1), arg0, connectionMeta);
         } finally {
             ProxyFlag.exit();
         }
@@ -508,7 +515,7 @@ public class PressureConnection implements Connection {
         try {
             ProxyFlag.enter();
             arg0 = SqlParser.replaceSchema(arg0, this.dbConnectionKey, this.dbType);
-            return new CheckedTracePreparedStatement(new PressurePreparedStatement(connection.prepareStatement(arg0, arg1), this.connection, this.dbConnectionKey, this.dbType), arg0, this.url, this.username, this.dbType, true, sqlMetaData);
+            return new CheckedTracePreparedStatement(connection.prepareStatement(arg0, arg1), arg0, connectionMeta);
         } finally {
             ProxyFlag.exit();
         }
@@ -527,7 +534,7 @@ public class PressureConnection implements Connection {
         try {
             ProxyFlag.enter();
             arg0 = SqlParser.replaceSchema(arg0, this.dbConnectionKey, this.dbType);
-            return new CheckedTracePreparedStatement(new PressurePreparedStatement(connection.prepareStatement(arg0, arg1), this.connection, this.dbConnectionKey, this.dbType), arg0, this.url, this.username, this.dbType, true, sqlMetaData);
+            return new CheckedTracePreparedStatement(connection.prepareStatement(arg0, arg1), arg0, connectionMeta);
         } finally {
             ProxyFlag.exit();
         }
@@ -546,7 +553,7 @@ public class PressureConnection implements Connection {
         try {
             ProxyFlag.enter();
             arg0 = SqlParser.replaceSchema(arg0, this.dbConnectionKey, this.dbType);
-            return new CheckedTracePreparedStatement(new PressurePreparedStatement(connection.prepareStatement(arg0, arg1, arg2), this.connection, this.dbConnectionKey, this.dbType), arg0, this.url, this.username, this.dbType, true, sqlMetaData);
+            return new CheckedTracePreparedStatement(connection.prepareStatement(arg0, arg1, arg2), arg0, connectionMeta);
         } finally {
             ProxyFlag.exit();
         }
@@ -565,7 +572,7 @@ public class PressureConnection implements Connection {
         try {
             ProxyFlag.enter();
             arg0 = SqlParser.replaceSchema(arg0, this.dbConnectionKey, this.dbType);
-            return new CheckedTracePreparedStatement(new PressurePreparedStatement(connection.prepareStatement(arg0, arg1, arg2, arg3), this.connection, this.dbConnectionKey, this.dbType), arg0, this.url, this.username, this.dbType, true, sqlMetaData);
+            return new CheckedTracePreparedStatement(connection.prepareStatement(arg0, arg1, arg2, arg3), arg0, connectionMeta);
         } finally {
             ProxyFlag.exit();
         }
@@ -41,9 +41,11 @@ public class CheckedTraceCallableStatement extends CheckedTracePreparedStatement
     public CheckedTraceCallableStatement(CallableStatement callableStatement, String sql, String url, String username, String dbType, boolean isPressureConnection, boolean isChecked, SqlMetaData sqlMetaData) {
         super(callableStatement, sql, url, username, dbType, isPressureConnection, isChecked, sqlMetaData);
         this.targetStatement = callableStatement;
-        if (this.sqlMetaData != null) {
-            this.sqlMetaData.setSql(sql);
-        }
+    }
+
+    public CheckedTraceCallableStatement(CallableStatement callableStatement, String sql, JdbcConnectionMeta connectionMeta) {
+        super(callableStatement, sql, connectionMeta);
+        this.targetStatement = callableStatement;
     }
 
 
@@ -630,6 +632,9 @@ public class CheckedTraceCallableStatement extends CheckedTracePreparedStatement
     @Override
     public void clearParameters() throws SQLException {
         targetStatement.clearParameters();
+        if (sqlMetaData != null) {
+            sqlMetaData.clearParameters();
+        }
     }
 
     private boolean isPradarPrepareStatement() {
@@ -1142,7 +1147,7 @@ public class CheckedTraceCallableStatement extends CheckedTracePreparedStatement
 
     @Override
     public void addBatch(String sql) throws SQLException {
-        this.targetStatement.addBatch(sql);
+        this.targetStatement.addBatch(shadowSql(sql));
         try {
             sqlMetaData.setSql(sql);
         } catch (Throwable e) {
@@ -1257,7 +1262,7 @@ public class CheckedTraceCallableStatement extends CheckedTracePreparedStatement
 
     @Override
     public void setCursorName(String name) throws SQLException {
-        this.targetStatement.setCursorName(name);
+        this.targetStatement.setCursorName(shadowSql(name));
     }
 
     @Override
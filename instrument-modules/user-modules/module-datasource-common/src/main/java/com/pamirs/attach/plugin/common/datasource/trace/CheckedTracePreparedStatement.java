@@ -53,6 +53,14 @@ public class CheckedTracePreparedStatement extends CheckedTraceStatement impleme
         }
     }
 
+    public CheckedTracePreparedStatement(PreparedStatement preparedStatement, String sql, JdbcConnectionMeta connectionMeta) {
+        super(preparedStatement, connectionMeta);
+        this.targetStatement = preparedStatement;
+        if (sql != null) {
+            this.sqlMetaData.setSql(sql);
+        }
+    }
+
     @Override
     public void addBatch() throws SQLException {
         targetStatement.addBatch();
@@ -61,6 +69,9 @@ public class CheckedTracePreparedStatement extends CheckedTraceStatement impleme
     @Override
     public void clearParameters() throws SQLException {
         targetStatement.clearParameters();
+        if (sqlMetaData != null) {
+            sqlMetaData.clearParameters();
+        }
     }
 
     private boolean isPradarPrepareStatement() {
@@ -95,6 +106,7 @@ public class CheckedTracePreparedStatement extends CheckedTraceStatement impleme
         boolean isException = false;
         Object ex = null;
         try {
+            checkShadow();
             boolean result = targetStatement.execute();
             ex = true;
             return result;
@@ -146,6 +158,7 @@ public class CheckedTracePreparedStatement extends CheckedTraceStatement impleme
         Object ex = null;
         try {
             ProxyFlag.enter();
+            checkShadow();
             ResultSet resultSet = targetStatement.executeQuery();
             ex = true;
             return resultSet;
@@ -198,6 +211,7 @@ public class CheckedTracePreparedStatement extends CheckedTraceStatement impleme
         Object ex = null;
         try {
             ProxyFlag.enter();
+            checkShadow();
             int result = targetStatement.executeUpdate();
             ex = result;
             return result;
@@ -962,7 +976,7 @@ public class CheckedTracePreparedStatement extends CheckedTraceStatement impleme
 
     @Override
     public void addBatch(String sql) throws SQLException {
-        this.targetStatement.addBatch(sql);
+        this.targetStatement.addBatch(shadowSql(sql));
         try {
             sqlMetaData.setSql(sql);
         } catch (Throwable e) {
@@ -1069,7 +1083,7 @@ public class CheckedTracePreparedStatement extends CheckedTraceStatement impleme
 
     @Override
     public void setCursorName(String name) throws SQLException {
-        this.targetStatement.setCursorName(name);
+        this.targetStatement.setCursorName(shadowSql(name));
     }
 
     @Override
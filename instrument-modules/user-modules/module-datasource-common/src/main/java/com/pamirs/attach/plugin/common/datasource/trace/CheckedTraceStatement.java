@@ -42,6 +42,10 @@ public class CheckedTraceStatement implements Statement {
     protected SqlTraceMetaData sqlMetaData;
     protected boolean isClosed;
     protected boolean isPressureConnection;
+    /**
+     * 连接级别的元数据，使用旧的构造方法创建时为空
+     */
+    protected JdbcConnectionMeta connectionMeta;
 
     private static String serializeObject(Object target) {
         if (target == null) {
@@ -129,9 +133,36 @@ public class CheckedTraceStatement implements Statement {
         }
     }
 
+    /**
+     * 使用连接级别的元数据创建，压测连接在这一层直接完成影子库路由，不需要再包装 PressureStatment
+     */
+    public CheckedTraceStatement(Statement statement, JdbcConnectionMeta connectionMeta) {
+        this.targetStatement = statement;
+        this.connectionMeta = connectionMeta;
+        this.sqlMetaData = connectionMeta.newTraceMetaData();
+        this.isPressureConnection = connectionMeta.isPressureConnection();
+        check();
+    }
+
+    /**
+     * 影子库路由时校验是否是压测流量
+     */
+    protected void checkShadow() {
+        if (connectionMeta != null) {
+            connectionMeta.checkShadow();
+        }
+    }
+
+    /**
+     * 影子库路由时替换 sql 中的 schema
+     */
+    protected String shadowSql(String sql) throws SQLException {
+        return connectionMeta == null ? sql : connectionMeta.shadowSql(sql);
+    }
+
     @Override
     public void addBatch(String sql) throws SQLException {
-        this.targetStatement.addBatch(sql);
+        this.targetStatement.addBatch(shadowSql(sql));
         try {
             sqlMetaData.setSql(sql);
         } catch (Throwable e) {
@@ -191,7 +222,8 @@ public class CheckedTraceStatement implements Statement {
         Object ex = null;
         try {
             ProxyFlag.enter();
-            boolean result = targetStatement.execute(sql);
+            checkShadow();
+            boolean result = targetStatement.execute(shadowSql(sql));
             ex = true;
             return result;
         } catch (SQLException e) {
@@ -240,7 +272,8 @@ public class CheckedTraceStatement implements Statement {
         Object ex = null;
         try {
             ProxyFlag.enter();
-            boolean result = targetStatement.execute(sql, autoGeneratedKeys);
+            checkShadow();
+            boolean result = targetStatement.execute(shadowSql(sql), autoGeneratedKeys);
             ex = true;
             return result;
         } catch (SQLException e) {
@@ -289,7 +322,8 @@ public class CheckedTraceStatement implements Statement {
         Object ex = null;
         try {
             ProxyFlag.enter();
-            boolean result = targetStatement.execute(sql, columnIndexes);
+            checkShadow();
+            boolean result = targetStatement.execute(shadowSql(sql), columnIndexes);
             ex = true;
             return result;
         } catch (SQLException e) {
@@ -338,7 +372,8 @@ public class CheckedTraceStatement implements Statement {
         Object ex = null;
         try {
             ProxyFlag.enter();
-            boolean result = targetStatement.execute(sql, columnNames);
+            checkShadow();
+            boolean result = targetStatement.execute(shadowSql(sql), columnNames);
             ex = true;
             return result;
         } catch (SQLException e) {
@@ -387,6 +422,7 @@ public class CheckedTraceStatement implements Statement {
         Object ex = null;
         try {
             ProxyFlag.enter();
+            checkShadow();
             int[] result = targetStatement.executeBatch();
             ex = true;
             return result;
@@ -436,7 +472,8 @@ public class CheckedTraceStatement implements Statement {
         Object ex = null;
         try {
             ProxyFlag.enter();
-            ResultSet result = targetStatement.executeQuery(sql);
+            checkShadow();
+            ResultSet result = targetStatement.executeQuery(shadowSql(sql));
             ex = true;
             return result;
         } catch (SQLException e) {
@@ -485,7 +522,8 @@ public class CheckedTraceStatement implements Statement {
         Object ex = null;
         try {
             ProxyFlag.enter();
-            int result = targetStatement.executeUpdate(sql);
+            checkShadow();
+            int result = targetStatement.executeUpdate(shadowSql(sql));
             ex = true;
             return result;
         } catch (SQLException e) {
@@ -534,7 +572,8 @@ public class CheckedTraceStatement implements Statement {
         Object ex = null;
         try {
             ProxyFlag.enter();
-            int result = targetStatement.executeUpdate(sql, autoGeneratedKeys);
+            checkShadow();
+            int result = targetStatement.executeUpdate(shadowSql(sql), autoGeneratedKeys);
             ex = true;
             return result;
         } catch (SQLException e) {
@@ -583,7 +622,8 @@ public class CheckedTraceStatement implements Statement {
         Object ex = null;
         try {
             ProxyFlag.enter();
-            int result = targetStatement.executeUpdate(sql, columnIndexes);
+            checkShadow();
+            int result = targetStatement.executeUpdate(shadowSql(sql), columnIndexes);
             ex = true;
             return result;
         } catch (SQLException e) {
@@ -632,7 +672,8 @@ public class CheckedTraceStatement implements Statement {
         Object ex = null;
         try {
             ProxyFlag.enter();
-            int result = targetStatement.executeUpdate(sql, columnNames);
+            checkShadow();
+            int result = targetStatement.executeUpdate(shadowSql(sql), columnNames);
             ex = true;
             return result;
         } catch (SQLException e) {
@@ -736,7 +777,7 @@ public class CheckedTraceStatement implements Statement {
 
     @Override
     public void setCursorName(String name) throws SQLException {
-        this.targetStatement.setCursorName(name);
+        this.targetStatement.setCursorName(shadowSql(name));
     }
 
     @Override
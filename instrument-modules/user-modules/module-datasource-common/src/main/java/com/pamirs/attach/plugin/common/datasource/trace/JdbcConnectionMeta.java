@@ -0,0 +1,138 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.attach.plugin.common.datasource.trace;
+
+import com.pamirs.pradar.Pradar;
+import com.pamirs.pradar.exception.PressureMeasureError;
+import com.pamirs.pradar.pressurement.datasource.SqlParser;
+import com.pamirs.pradar.pressurement.datasource.util.SqlMetaData;
+
+import java.sql.SQLException;
+
+/**
+ * 连接级别的元数据，同一个连接创建的所有 Statement 共用一份，创建后不再修改
+ * <p>
+ * 压测连接会在 Statement 中直接完成影子库的 schema 替换和压测流量校验，
+ * 不再需要额外包装一层 PressureStatment
+ * </p>
+ */
+public final class JdbcConnectionMeta {
+    private final String url;
+    private final String username;
+    private final String dbType;
+    private final String dbConnectionKey;
+    private final boolean pressureConnection;
+    private final String dbName;
+    private final String host;
+    private final String port;
+
+    /**
+     * @param url                连接地址
+     * @param username           用户名
+     * @param dbType             数据库类型
+     * @param dbConnectionKey    影子库标识，压测连接执行的 sql 按这个标识做 schema 替换
+     * @param pressureConnection 是否是压测连接
+     * @param sqlMetaData        连接地址解析结果，可以为空
+     */
+    public JdbcConnectionMeta(String url, String username, String dbType, String dbConnectionKey, boolean pressureConnection, SqlMetaData sqlMetaData) {
+        this.url = url;
+        this.username = username;
+        this.dbType = dbType;
+        this.dbConnectionKey = dbConnectionKey;
+        this.pressureConnection = pressureConnection;
+        String dbName = null;
+        String host = null;
+        String port = null;
+        try {
+            if (sqlMetaData != null) {
+                dbName = sqlMetaData.getDbName();
+                host = sqlMetaData.getHost();
+                port = sqlMetaData.getPort();
+            }
+        } catch (Throwable e) {
+        }
+        this.dbName = dbName;
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * 创建 Statement 级别的 trace 元数据
+     *
+     * @return trace 元数据
+     */
+    SqlTraceMetaData newTraceMetaData() {
+        SqlTraceMetaData traceMetaData = new SqlTraceMetaData();
+        traceMetaData.setUrl(url);
+        traceMetaData.setUsername(username);
+        traceMetaData.setDbType(dbType);
+        traceMetaData.setDbName(dbName);
+        traceMetaData.setHost(host);
+        traceMetaData.setPort(port);
+        return traceMetaData;
+    }
+
+    /**
+     * 是否需要在 Statement 中做影子库路由
+     *
+     * @return 是否需要路由
+     */
+    boolean isShadowRouting() {
+        return pressureConnection;
+    }
+
+    /**
+     * 影子库只接受压测流量
+     */
+    void checkShadow() {
+        if (isShadowRouting() && !Pradar.isClusterTest()) {
+            throw new PressureMeasureError("pressure connection get a business request.");
+        }
+    }
+
+    /**
+     * 替换 sql 中的 schema
+     *
+     * @param sql sql
+     * @return 替换后的 sql
+     * @throws SQLException 替换失败
+     */
+    String shadowSql(String sql) throws SQLException {
+        if (!isShadowRouting()) {
+            return sql;
+        }
+        return SqlParser.replaceSchema(sql, dbConnectionKey, dbType);
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getDbType() {
+        return dbType;
+    }
+
+    public String getDbConnectionKey() {
+        return dbConnectionKey;
+    }
+
+    public boolean isPressureConnection() {
+        return pressureConnection;
+    }
+}
@@ -19,9 +19,13 @@ import com.shulie.instrument.simulator.api.util.CollectionUtils;
 import org.apache.commons.lang.StringUtils;
 
 import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.LinkedList;
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -32,6 +36,15 @@ import java.util.List;
  */
 public class SqlTraceMetaData implements Serializable {
     private final static long serialVersionUID = 1L;
+
+    /**
+     * 最多记录的参数个数，按参数下标计算，超过的参数忽略
+     */
+    private final static int MAX_PARAMETER_COUNT = Integer.getInteger("pradar.sql.parameter.max.count", 256);
+    /**
+     * 单个参数输出的最大长度，超过的部分截断
+     */
+    private final static int MAX_PARAMETER_LENGTH = Integer.getInteger("pradar.sql.parameter.max.length", 1024);
     private String url;
     private String username;
     private String host;
@@ -40,6 +53,15 @@ public class SqlTraceMetaData implements Serializable {
     private String dbType;
     private String sql;
     private List<String> parameters;
+    /**
+     * 按参数下标保存的参数值，下标从 1 开始。字符串、数字等不可变的值保存原始引用，
+     * 只有在输出 trace 时才转换成字符串，其他值在设置时就转换，见 {@link #toSlotValue(Object)}
+     */
+    private transient Object[] parameterSlots;
+    /**
+     * 已设置的最大参数下标
+     */
+    private transient int parameterCount;
     private List<String> tables = new ArrayList<String>();
 
     public static void checkAndAddParameter(SqlTraceMetaData sqlMetaData, int index, Object parameter) {
@@ -49,20 +71,59 @@ public class SqlTraceMetaData implements Serializable {
     }
 
     private void addParameter(int index, Object parameter) {
-        if (this.parameters == null) {
-            this.parameters = new LinkedList<String>();
+        if (index < 1 || index > MAX_PARAMETER_COUNT) {
+            return;
+        }
+        if (parameterSlots == null) {
+            parameterSlots = new Object[Math.min(Math.max(index, 8), MAX_PARAMETER_COUNT)];
+        } else if (index > parameterSlots.length) {
+            parameterSlots = Arrays.copyOf(parameterSlots, Math.min(Math.max(index, parameterSlots.length * 2), MAX_PARAMETER_COUNT));
+        }
+        parameterSlots[index - 1] = toSlotValue(parameter);
+        if (index > parameterCount) {
+            parameterCount = index;
+        }
+        this.parameters = null;
+    }
+
+    /**
+     * 参数槽只保存小的不可变值，日期保存副本，其他值(byte[]、流、业务对象等)在设置时就按长度限制转换成字符串，
+     * 避免 trace 持有大对象或者业务代码之后还会修改的对象
+     */
+    private static Object toSlotValue(Object parameter) {
+        if (parameter == null || parameter instanceof String || parameter instanceof Boolean
+                || parameter instanceof Character || parameter instanceof Integer || parameter instanceof Long
+                || parameter instanceof Short || parameter instanceof Byte || parameter instanceof Double
+                || parameter instanceof Float || parameter instanceof BigDecimal || parameter instanceof BigInteger) {
+            return parameter;
+        }
+        if (parameter instanceof Date) {
+            return ((Date) parameter).clone();
         }
+        return render(parameter);
+    }
+
+    private static String render(Object value) {
         try {
-            this.parameters.add(parameter == null ? null : parameter.toString());
+            String str = value.toString();
+            if (str != null && str.length() > MAX_PARAMETER_LENGTH) {
+                return str.substring(0, MAX_PARAMETER_LENGTH);
+            }
+            return str;
         } catch (Throwable e) {
-            //ignore
+            return null;
         }
     }
 
+    /**
+     * 清空已记录的参数，保留参数数组供下一次执行复用
+     */
     public void clearParameters() {
-        if (parameters != null) {
-            parameters = null;
+        if (parameterSlots != null) {
+            Arrays.fill(parameterSlots, 0, parameterCount, null);
         }
+        parameterCount = 0;
+        parameters = null;
     }
 
     public String getDbName() {
@@ -84,7 +145,15 @@ public class SqlTraceMetaData implements Serializable {
         }
     }
 
+    /**
+     * 获取参数列表，返回的列表持有调用时参数值的副本，元素在读取时才转换成字符串
+     *
+     * @return 参数列表，没有参数时返回 null
+     */
     public List<String> getParameters() {
+        if (parameters == null && parameterCount > 0) {
+            parameters = new ParameterList(Arrays.copyOf(parameterSlots, parameterCount));
+        }
         return parameters;
     }
 
@@ -149,4 +218,35 @@ public class SqlTraceMetaData implements Serializable {
     public void setDbType(String dbType) {
         this.dbType = dbType;
     }
+
+    /**
+     * 参数值的只读列表，每次读取元素时按长度限制转换成字符串
+     */
+    private static class ParameterList extends AbstractList<String> implements Serializable {
+        private final static long serialVersionUID = 1L;
+
+        private final Object[] values;
+
+        ParameterList(Object[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public String get(int index) {
+            Object value = values[index];
+            return value == null ? null : render(value);
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        /**
+         * 序列化时转换成普通的字符串列表，参数值本身不一定可以序列化
+         */
+        private Object writeReplace() {
+            return new ArrayList<String>(this);
+        }
+    }
 }
@@ -48,11 +48,7 @@ public class JdbcPradarImpl implements JdbcPradar {
         Pradar.middlewareName(sqlMetaData.getDbType());
         Pradar.remoteIp(sqlMetaData.getHost());
         Pradar.remotePort(sqlMetaData.getPort());
-        Object request = sqlMetaData.getParameters();
-        if (!Pradar.isRequestOn()) {
-            request = null;
-        }
-        Pradar.request(request);
+        Pradar.request(Pradar.isRequestOn() ? sqlMetaData.getParameters() : null);
     }
 
 
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pamirs.attach.plugin.common.datasource.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 按业务数据源分配的初始化锁，不同数据源的影子数据源可以并发初始化，
+ * 同一个数据源的并发初始化仍然互斥
+ * <p>
+ * 每个数据源插件持有各自的实例，插件销毁时只清除自己的锁，不影响其他插件
+ */
+public final class DataSourceLocks {
+
+    private final ConcurrentMap<Object, Object> locks = new ConcurrentHashMap<Object, Object>();
+
+    /**
+     * 获取数据源对应的锁
+     *
+     * @param key 数据源标识，一般为 DataSourceMeta
+     * @return 锁对象
+     */
+    public Object lockOf(Object key) {
+        Object lock = locks.get(key);
+        if (lock == null) {
+            lock = new Object();
+            Object old = locks.putIfAbsent(key, lock);
+            if (old != null) {
+                lock = old;
+            }
+        }
+        return lock;
+    }
+
+    /**
+     * 清除当前插件的所有锁，在插件的影子数据源全部销毁时调用
+     */
+    public void clear() {
+        locks.clear();
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pamirs.attach.plugin.common.datasource.warmup;
+
+import java.io.Serializable;
+
+/**
+ * 影子连接池的预热状态
+ */
+public class ShadowPoolStatus implements Serializable {
+    private final static long serialVersionUID = 1L;
+
+    public final static String PENDING = "PENDING";
+    public final static String WARMING = "WARMING";
+    public final static String READY = "READY";
+    public final static String FAILED = "FAILED";
+
+    private final String middleware;
+    private final String url;
+    private final String username;
+    private final int target;
+    private volatile int warmed;
+    private volatile String state = PENDING;
+    private volatile String message;
+    private final long submitTime;
+    private volatile long readyTime;
+
+    ShadowPoolStatus(String middleware, String url, String username, int target) {
+        this.middleware = middleware;
+        this.url = url;
+        this.username = username;
+        this.target = target;
+        this.submitTime = System.currentTimeMillis();
+    }
+
+    void warming(int warmed) {
+        this.warmed = warmed;
+        this.state = WARMING;
+    }
+
+    void ready() {
+        this.readyTime = System.currentTimeMillis();
+        this.state = READY;
+    }
+
+    void failed(String message) {
+        this.message = message;
+        this.state = FAILED;
+    }
+
+    public String getMiddleware() {
+        return middleware;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * 需要预热的连接数
+     */
+    public int getTarget() {
+        return target;
+    }
+
+    /**
+     * 已经建立的连接数
+     */
+    public int getWarmed() {
+        return warmed;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public boolean isReady() {
+        return READY.equals(state);
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public long getSubmitTime() {
+        return submitTime;
+    }
+
+    public long getReadyTime() {
+        return readyTime;
+    }
+
+    @Override
+    public String toString() {
+        return middleware + " " + url + " " + username + " " + state + " " + warmed + "/" + target
+                + (message == null ? "" : " " + message);
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pamirs.attach.plugin.common.datasource.warmup;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 影子连接池预热
+ * <p>
+ * 影子数据源创建后在后台线程中建立最小空闲数个连接再归还，连接池在压测流量到达前已经完成初始化，
+ * 避免压测开始时大量请求同时创建连接。预热进度和状态通过 {@link #getStatuses()} 查询。
+ * 可以通过 pradar.shadow.datasource.warmup.enabled=false 关闭，
+ * 每个连接池最多预热 pradar.shadow.datasource.warmup.max 个连接
+ * </p>
+ */
+public final class ShadowPoolWarmer {
+    private final static Logger LOGGER = LoggerFactory.getLogger(ShadowPoolWarmer.class);
+
+    private final static boolean ENABLED = Boolean.parseBoolean(
+            System.getProperty("pradar.shadow.datasource.warmup.enabled", "true"));
+
+    private final static int MAX_CONNECTIONS = Integer.getInteger("pradar.shadow.datasource.warmup.max", 32);
+
+    private final static ConcurrentHashMap<String, ShadowPoolStatus> STATUSES = new ConcurrentHashMap<String, ShadowPoolStatus>();
+
+    private final static ThreadPoolExecutor EXECUTOR;
+
+    static {
+        EXECUTOR = new ThreadPoolExecutor(2, 2, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    private final AtomicInteger sequence = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "Shadow-DataSource-Warmer-" + sequence.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    private ShadowPoolWarmer() {
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * 在后台线程中执行任务，用于配置生效后提前初始化影子数据源
+     *
+     * @param task 任务
+     */
+    public static void execute(final Runnable task) {
+        if (!ENABLED) {
+            return;
+        }
+        EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    task.run();
+                } catch (Throwable e) {
+                    LOGGER.error("[shadow-pool-warmer] execute task err!", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * 提交影子连接池预热
+     *
+     * @param middleware 连接池类型
+     * @param url        影子库地址
+     * @param username   影子库用户名
+     * @param dataSource 影子数据源
+     * @param minIdle    连接池最小空闲数
+     */
+    public static void warmUp(final String middleware, final String url, final String username,
+                              final DataSource dataSource, int minIdle) {
+        if (!ENABLED || dataSource == null) {
+            return;
+        }
+        final ShadowPoolStatus status = new ShadowPoolStatus(middleware, url, username,
+                Math.max(1, Math.min(minIdle, MAX_CONNECTIONS)));
+        STATUSES.put(keyOf(middleware, url, username), status);
+        EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                doWarmUp(dataSource, status);
+            }
+        });
+    }
+
+    private static void doWarmUp(DataSource dataSource, ShadowPoolStatus status) {
+        long start = System.currentTimeMillis();
+        List<Connection> connections = new ArrayList<Connection>(status.getTarget());
+        try {
+            for (int i = 0; i < status.getTarget(); i++) {
+                connections.add(dataSource.getConnection());
+                status.warming(i + 1);
+            }
+        } catch (Throwable e) {
+            status.failed(e.getClass().getName() + ": " + e.getMessage());
+            LOGGER.warn("[shadow-pool-warmer] warm up shadow pool failed. {}", status, e);
+        } finally {
+            for (Connection connection : connections) {
+                try {
+                    connection.close();
+                } catch (Throwable e) {
+                    // ignore
+                }
+            }
+        }
+        if (!ShadowPoolStatus.FAILED.equals(status.getState())) {
+            status.ready();
+            LOGGER.info("[shadow-pool-warmer] shadow pool is ready, cost {}ms. {}", System.currentTimeMillis() - start, status);
+        }
+    }
+
+    /**
+     * 获取所有影子连接池的预热状态
+     *
+     * @return 预热状态
+     */
+    public static List<ShadowPoolStatus> getStatuses() {
+        return new ArrayList<ShadowPoolStatus>(STATUSES.values());
+    }
+
+    /**
+     * 影子数据源全部销毁时清除预热状态
+     *
+     * @param middleware 连接池类型
+     */
+    public static void clear(String middleware) {
+        for (ShadowPoolStatus status : STATUSES.values()) {
+            if (status.getMiddleware().equals(middleware)) {
+                STATUSES.remove(keyOf(middleware, status.getUrl(), status.getUsername()));
+            }
+        }
+    }
+
+    private static String keyOf(String middleware, String url, String username) {
+        return middleware + '|' + url + '|' + username;
+    }
+}
@@ -0,0 +1,186 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.attach.plugin.common.datasource.trace;
+
+import com.pamirs.pradar.exception.PressureMeasureError;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 影子库路由合并进 CheckedTrace*Statement 之后, 每个调用仍然保持原来两层包装的顺序:
+ * 先校验压测流量, 再替换 schema, 最后调用驱动; addBatch 只替换 schema, executeBatch 只校验
+ */
+public class CheckedTraceShadowOrderTest {
+
+    private static final String SQL = "select * from t_user";
+
+    private final List<String> events = new ArrayList<String>();
+    private boolean rejectCheck;
+
+    @Before
+    public void setUp() {
+        events.clear();
+        rejectCheck = false;
+    }
+
+    @Test
+    public void executeChecksBeforeRewritingAndCallsDriverWithShadowSql() throws SQLException {
+        RecordingStatement statement = new RecordingStatement(driver(Statement.class));
+
+        statement.execute(SQL);
+        assertEvents("check", "shadow:" + SQL, "driver:execute:pt_" + SQL);
+        statement.execute(SQL, Statement.RETURN_GENERATED_KEYS);
+        assertEvents("check", "shadow:" + SQL, "driver:execute:pt_" + SQL);
+        statement.executeQuery(SQL);
+        assertEvents("check", "shadow:" + SQL, "driver:executeQuery:pt_" + SQL);
+        statement.executeUpdate(SQL);
+        assertEvents("check", "shadow:" + SQL, "driver:executeUpdate:pt_" + SQL);
+        statement.executeUpdate(SQL, new int[]{1});
+        assertEvents("check", "shadow:" + SQL, "driver:executeUpdate:pt_" + SQL);
+        statement.executeUpdate(SQL, new String[]{"id"});
+        assertEvents("check", "shadow:" + SQL, "driver:executeUpdate:pt_" + SQL);
+    }
+
+    @Test
+    public void batchRewritesOnAddAndChecksOnExecute() throws SQLException {
+        RecordingStatement statement = new RecordingStatement(driver(Statement.class));
+
+        statement.addBatch(SQL);
+        assertEvents("shadow:" + SQL, "driver:addBatch:pt_" + SQL);
+        statement.executeBatch();
+        assertEvents("check", "driver:executeBatch");
+    }
+
+    @Test
+    public void rejectedCheckNeverReachesDriver() {
+        RecordingStatement statement = new RecordingStatement(driver(Statement.class));
+        rejectCheck = true;
+        try {
+            statement.execute(SQL);
+            fail();
+        } catch (SQLException e) {
+            assertTrue(e.getCause() instanceof PressureMeasureError);
+        }
+        assertEvents("check");
+    }
+
+    @Test
+    public void preparedStatementChecksBeforeDriver() throws SQLException {
+        RecordingPreparedStatement statement = new RecordingPreparedStatement(driver(PreparedStatement.class));
+
+        statement.execute();
+        assertEvents("check", "driver:execute");
+        statement.executeQuery();
+        assertEvents("check", "driver:executeQuery");
+        statement.executeUpdate();
+        assertEvents("check", "driver:executeUpdate");
+        statement.execute(SQL);
+        assertEvents("check", "shadow:" + SQL, "driver:execute:pt_" + SQL);
+    }
+
+    private void assertEvents(String... expected) {
+        assertEquals(Arrays.asList(expected), events);
+        events.clear();
+    }
+
+    private <T extends Statement> T driver(Class<T> type) {
+        return type.cast(Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{type}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                if ("toString".equals(name) || "hashCode".equals(name)) {
+                    return name;
+                }
+                events.add(args != null && args[0] instanceof String ? "driver:" + name + ":" + args[0] : "driver:" + name);
+                Class<?> returnType = method.getReturnType();
+                if (returnType == boolean.class) {
+                    return false;
+                }
+                if (returnType == int.class) {
+                    return 0;
+                }
+                if (returnType == int[].class) {
+                    return new int[0];
+                }
+                return null;
+            }
+        }));
+    }
+
+    private static JdbcConnectionMeta meta() {
+        return new JdbcConnectionMeta("jdbc:mysql://127.0.0.1:3306/app", "app", "mysql", "key", false, null);
+    }
+
+    private void check() {
+        events.add("check");
+        if (rejectCheck) {
+            throw new PressureMeasureError("pressure connection get a business request.");
+        }
+    }
+
+    private String shadow(String sql) {
+        events.add("shadow:" + sql);
+        return "pt_" + sql;
+    }
+
+    /**
+     * 记录校验和 schema 替换的调用顺序, 不依赖压测上下文和影子库配置
+     */
+    private class RecordingStatement extends CheckedTraceStatement {
+        RecordingStatement(Statement statement) {
+            super(statement, meta());
+        }
+
+        @Override
+        protected void checkShadow() {
+            check();
+        }
+
+        @Override
+        protected String shadowSql(String sql) {
+            return shadow(sql);
+        }
+    }
+
+    private class RecordingPreparedStatement extends CheckedTracePreparedStatement {
+        RecordingPreparedStatement(PreparedStatement statement) {
+            super(statement, SQL, meta());
+        }
+
+        @Override
+        protected void checkShadow() {
+            check();
+        }
+
+        @Override
+        protected String shadowSql(String sql) {
+            return shadow(sql);
+        }
+    }
+}
@@ -148,6 +148,8 @@ public class DataSourceGetConnectionCutoffInterceptor extends CutoffInterceptorA
                             } catch (Throwable e) {
                                 logger.error("module-dbcp: closed datasource err! target:{}, url:{} username:{}", entry.getKey().getDataSource().hashCode(), entry.getKey().getUrl(), entry.getKey().getUsername(), e);
                             }
+                            // 按新配置提前创建并预热影子数据源, 不等第一个压测请求
+                            DataSourceWrapUtil.initInBackground(entry.getKey());
                             break;
                         }
                     }
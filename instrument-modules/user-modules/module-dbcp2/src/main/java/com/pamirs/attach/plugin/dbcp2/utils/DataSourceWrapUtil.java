@@ -14,6 +14,8 @@
  */
 package com.pamirs.attach.plugin.dbcp2.utils;
 
+import com.pamirs.attach.plugin.common.datasource.utils.DataSourceLocks;
+import com.pamirs.attach.plugin.common.datasource.warmup.ShadowPoolWarmer;
 import com.pamirs.attach.plugin.dynamic.Attachment;
 import com.pamirs.attach.plugin.dynamic.ResourceManager;
 import com.pamirs.attach.plugin.dynamic.Type;
@@ -42,7 +44,12 @@ import java.util.concurrent.ConcurrentHashMap;
 
 public class DataSourceWrapUtil {
     private static Logger logger = LoggerFactory.getLogger(DataSourceWrapUtil.class.getName());
-    private final static Object lock = new Object();
+    private final static String MIDDLEWARE_NAME = "dbcp2";
+
+    /**
+     * 本插件的初始化锁, 销毁时只清除本插件的锁
+     */
+    private final static DataSourceLocks LOCKS = new DataSourceLocks();
 
     public static final ConcurrentHashMap<DataSourceMeta, DbcpMediaDataSource> pressureDataSources = new ConcurrentHashMap<DataSourceMeta, DbcpMediaDataSource>();
 
@@ -54,6 +61,22 @@ public class DataSourceWrapUtil {
             entry.getValue().close();
         }
         pressureDataSources.clear();
+        LOCKS.clear();
+        ShadowPoolWarmer.clear(MIDDLEWARE_NAME);
+    }
+
+    /**
+     * 配置生效后在后台重新创建业务数据源对应的影子数据源并预热
+     *
+     * @param dataSourceMeta 业务数据源
+     */
+    public static void initInBackground(final DataSourceMeta<BasicDataSource> dataSourceMeta) {
+        ShadowPoolWarmer.execute(new Runnable() {
+            @Override
+            public void run() {
+                init(dataSourceMeta);
+            }
+        });
     }
 
     public static void attachment(Advice advice) {
@@ -126,7 +149,8 @@ public class DataSourceWrapUtil {
         if (isPerformanceDataSource(target)) {
             return;
         }
-        synchronized (lock) {
+        // 按数据源加锁, 不同数据源之间互不阻塞
+        synchronized (LOCKS.lockOf(dataSourceMeta)) {
             if (pressureDataSources.containsKey(dataSourceMeta) && pressureDataSources.get(dataSourceMeta) != null) {
                 return;
             }
@@ -190,6 +214,7 @@ public class DataSourceWrapUtil {
                     if (logger.isInfoEnabled()) {
                         logger.info("[dbcp2] create shadow datasource successful. target:{} url:{} ,username:{} shadow-url:{},shadow-username:{}", target.hashCode(), target.getUrl(), target.getUsername(), ptDataSource.getUrl(), ptDataSource.getUsername());
                     }
+                    warmUp(ptDataSource);
                 } catch (Throwable t) {
                     logger.error("[dbcp2] init datasource err!", t);
                     ErrorReporter.buildError()
@@ -455,7 +480,21 @@ public class DataSourceWrapUtil {
             BasicDataSource ptDataSource = copy(mediaDataSource.getDataSourceBusiness());
             if (ptDataSource != null) {
                 mediaDataSource.setDataSourcePerformanceTest(ptDataSource);
+                warmUp(ptDataSource);
             }
         }
     }
+
+    /**
+     * 在后台预热影子连接池
+     *
+     * @param ptDataSource 影子数据源
+     */
+    private static void warmUp(BasicDataSource ptDataSource) {
+        if (ptDataSource == null) {
+            return;
+        }
+        ShadowPoolWarmer.warmUp(MIDDLEWARE_NAME, ptDataSource.getUrl(), ptDataSource.getUsername(), ptDataSource,
+                Math.max(ptDataSource.getMinIdle(), ptDataSource.getInitialSize()));
+    }
 }
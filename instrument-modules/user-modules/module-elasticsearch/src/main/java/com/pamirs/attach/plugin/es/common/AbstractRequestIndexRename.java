@@ -51,7 +51,7 @@ public abstract class AbstractRequestIndexRename implements RequestIndexRename {
         for (int i = 0; i < indexes.length; i++) {
             newIndexes[i] = Pradar.isClusterTestPrefix(indexes[i]) ?
                     indexes[i]
-                    : Pradar.addClusterTestPrefixLower(indexes[i]);
+                    : ShadowIndexNames.shadowOf(indexes[i]);
         }
         return newIndexes;
     }
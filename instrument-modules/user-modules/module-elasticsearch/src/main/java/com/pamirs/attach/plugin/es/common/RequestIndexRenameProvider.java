@@ -18,6 +18,7 @@ import com.pamirs.attach.plugin.es.common.impl.*;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @Description
@@ -28,6 +29,13 @@ import java.util.Map;
 public final class RequestIndexRenameProvider {
     private static Map<String, RequestIndexRename> registry = new HashMap<String, RequestIndexRename>();
 
+    /**
+     * 请求类 -> 改名实现，每个请求类只按类名查找一次，不支持的请求类也会缓存
+     */
+    private static final ConcurrentHashMap<Class<?>, Object> resolved = new ConcurrentHashMap<Class<?>, Object>();
+
+    private static final Object UNSUPPORTED = new Object();
+
     static {
         registry.put("org.elasticsearch.client.indices.CreateIndexRequest", new CreateIndexRequestRename());
         registry.put("org.elasticsearch.client.indices.DeleteAliasRequest", new DeleteAliasRequestRename());
@@ -99,10 +107,21 @@ public final class RequestIndexRenameProvider {
         if (target == null) {
             return null;
         }
-        return registry.get(target.getClass().getName());
+        Class<?> clazz = target.getClass();
+        Object rename = resolved.get(clazz);
+        if (rename == null) {
+            rename = registry.get(clazz.getName());
+            if (rename == null) {
+                rename = UNSUPPORTED;
+            }
+            resolved.put(clazz, rename);
+        }
+        return rename == UNSUPPORTED ? null : (RequestIndexRename) rename;
     }
 
     public static void release() {
+        resolved.clear();
         registry.clear();
+        ShadowIndexNames.release();
     }
 }
@@ -0,0 +1,67 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.attach.plugin.es.common;
+
+import com.pamirs.pradar.Pradar;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 业务索引名 -> 影子索引名 缓存
+ * <p>
+ * 索引名的数量有限，同一个业务索引始终返回同一个影子索引名实例，
+ * 避免每次改名都重新计算压测前缀的小写形式并拼接字符串。
+ * 缓存数量超过上限后不再加入新的索引名，直接计算返回
+ * </p>
+ */
+public final class ShadowIndexNames {
+
+    private final static int MAX_SIZE = 4096;
+
+    private final static String PREFIX_LOWER = Pradar.CLUSTER_TEST_PREFIX.toLowerCase();
+
+    private final static ConcurrentHashMap<String, String> SHADOW_NAMES = new ConcurrentHashMap<String, String>();
+
+    private ShadowIndexNames() {
+    }
+
+    /**
+     * 获取业务索引对应的影子索引名，与 {@link Pradar#addClusterTestPrefixLower(String)} 结果一致
+     *
+     * @param index 业务索引名
+     * @return 影子索引名
+     */
+    public static String shadowOf(String index) {
+        if (index == null) {
+            return PREFIX_LOWER + index;
+        }
+        String shadow = SHADOW_NAMES.get(index);
+        if (shadow != null) {
+            return shadow;
+        }
+        shadow = PREFIX_LOWER + index;
+        if (SHADOW_NAMES.size() < MAX_SIZE) {
+            String old = SHADOW_NAMES.putIfAbsent(index, shadow);
+            if (old != null) {
+                return old;
+            }
+        }
+        return shadow;
+    }
+
+    public static void release() {
+        SHADOW_NAMES.clear();
+    }
+}
@@ -14,6 +14,7 @@
  */
 package com.pamirs.attach.plugin.es.common.impl;
 
+import com.pamirs.attach.plugin.es.common.ShadowIndexNames;
 import com.pamirs.attach.plugin.es.common.AbstractRequestIndexRename;
 import com.pamirs.pradar.Pradar;
 import com.pamirs.pradar.exception.PressureMeasureError;
@@ -56,7 +57,7 @@ public abstract class AbstractWriteRequestIndexRename extends AbstractRequestInd
             } else {
                 newIndexes[i] = Pradar.isClusterTestPrefix(indexes[i]) ?
                         indexes[i]
-                        : Pradar.addClusterTestPrefixLower(indexes[i]);
+                        : ShadowIndexNames.shadowOf(indexes[i]);
             }
         }
         return newIndexes;
@@ -14,6 +14,7 @@
  */
 package com.pamirs.attach.plugin.es.common.impl;
 
+import com.pamirs.attach.plugin.es.common.ShadowIndexNames;
 import com.pamirs.pradar.Pradar;
 import com.pamirs.pradar.pressurement.agent.shared.service.GlobalConfig;
 import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequest;
@@ -46,7 +47,7 @@ public class AnalyzeRequestIndexRename extends AbstractReadRequestIndexRename {
             return Arrays.asList(index);
         }
         if (!Pradar.isClusterTestPrefix(index)) {
-            index = Pradar.addClusterTestPrefixLower(index);
+            index = ShadowIndexNames.shadowOf(index);
         }
         req.index(index);
         return Arrays.asList(index);
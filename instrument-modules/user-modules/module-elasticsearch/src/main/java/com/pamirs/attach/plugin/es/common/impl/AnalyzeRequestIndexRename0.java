@@ -14,6 +14,7 @@
  */
 package com.pamirs.attach.plugin.es.common.impl;
 
+import com.pamirs.attach.plugin.es.common.ShadowIndexNames;
 import com.pamirs.pradar.Pradar;
 import com.pamirs.pradar.exception.PressureMeasureError;
 import com.pamirs.pradar.pressurement.agent.shared.service.GlobalConfig;
@@ -49,7 +50,7 @@ public class AnalyzeRequestIndexRename0 extends AbstractReadRequestIndexRename {
             return Arrays.asList(index);
         }
         if (!Pradar.isClusterTestPrefix(index)) {
-            index = Pradar.addClusterTestPrefixLower(index);
+            index = ShadowIndexNames.shadowOf(index);
         }
         try {
             Reflect.on(req).set("index", index);
@@ -19,7 +19,9 @@ import com.pamirs.attach.plugin.es.common.RequestIndexRenameProvider;
 import org.elasticsearch.action.bulk.BulkRequest;
 
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * @Description
@@ -64,16 +66,24 @@ public class BulkRequestIndexRename extends AbstractReadRequestIndexRename {
     public List<String> getIndex0(Object target) {
         BulkRequest req = (BulkRequest)target;
         List reqs = req.requests();
-        List<String> list = new ArrayList<String>();
+        /**
+         * 一个 bulk 中通常只有少量不同的索引，相同的索引只返回一次
+         */
+        Set<String> indexes = new LinkedHashSet<String>();
+        Class<?> lastClass = null;
+        RequestIndexRename requestIndexRename = null;
         for (Object r : reqs) {
             if (r == null) {
                 continue;
             }
-            RequestIndexRename requestIndexRename = RequestIndexRenameProvider.get(r);
+            if (r.getClass() != lastClass) {
+                lastClass = r.getClass();
+                requestIndexRename = RequestIndexRenameProvider.get(r);
+            }
             if (requestIndexRename != null) {
-                list.addAll(requestIndexRename.getIndex(r));
+                indexes.addAll(requestIndexRename.getIndex(r));
             }
         }
-        return list;
+        return new ArrayList<String>(indexes);
     }
 }
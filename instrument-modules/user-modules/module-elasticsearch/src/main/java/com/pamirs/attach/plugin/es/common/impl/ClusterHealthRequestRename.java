@@ -15,6 +15,7 @@
 
 package com.pamirs.attach.plugin.es.common.impl;
 
+import com.pamirs.attach.plugin.es.common.ShadowIndexNames;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -48,7 +49,7 @@ public class ClusterHealthRequestRename extends AbstractReadRequestIndexRename {
                 continue;
             }
             if (!Pradar.isClusterTestPrefix(index)) {
-                index = Pradar.addClusterTestPrefixLower(index);
+                index = ShadowIndexNames.shadowOf(index);
                 indexes[i] = index;
             }
         }
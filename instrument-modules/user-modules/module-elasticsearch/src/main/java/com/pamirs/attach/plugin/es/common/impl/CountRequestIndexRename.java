@@ -1,5 +1,6 @@
 package com.pamirs.attach.plugin.es.common.impl;
 
+import com.pamirs.attach.plugin.es.common.ShadowIndexNames;
 import com.pamirs.pradar.Pradar;
 import com.pamirs.pradar.pressurement.agent.shared.service.GlobalConfig;
 import com.shulie.instrument.simulator.api.reflect.Reflect;
@@ -31,7 +32,7 @@ public class CountRequestIndexRename extends AbstractReadRequestIndexRename{
                 continue;
             }
             if (!Pradar.isClusterTestPrefix(indices[i])) {
-                indices[i] = Pradar.addClusterTestPrefixLower(indices[i]);
+                indices[i] = ShadowIndexNames.shadowOf(indices[i]);
             }
         }
         Reflect.on(request).set("indices", indices);
@@ -14,6 +14,7 @@
  */
 package com.pamirs.attach.plugin.es.common.impl;
 
+import com.pamirs.attach.plugin.es.common.ShadowIndexNames;
 import com.pamirs.pradar.Pradar;
 import com.pamirs.pradar.exception.PressureMeasureError;
 import com.pamirs.pradar.pressurement.agent.shared.service.GlobalConfig;
@@ -46,7 +47,7 @@ public class CreateIndexRequestRename extends AbstractWriteRequestIndexRename {
             throw new PressureMeasureError("Cluster Test request can't write business index ! " + index);
         }
         if (!Pradar.isClusterTestPrefix(index)) {
-            index = Pradar.addClusterTestPrefixLower(index);
+            index = ShadowIndexNames.shadowOf(index);
         }
 
         Reflect.on(req).set("index", index);
@@ -14,6 +14,7 @@
  */
 package com.pamirs.attach.plugin.es.common.impl;
 
+import com.pamirs.attach.plugin.es.common.ShadowIndexNames;
 import java.util.Arrays;
 import java.util.List;
 
@@ -46,7 +47,7 @@ public class DeleteByQueryRequestIndexRename extends AbstractWriteRequestIndexRe
                 throw new PressureMeasureError("Cluster Test request can't write business index ! " + index);
             }
             if (!Pradar.isClusterTestPrefix(index)) {
-                renameIndices[i] = Pradar.addClusterTestPrefixLower(index);
+                renameIndices[i] = ShadowIndexNames.shadowOf(index);
             }
         }
         req.indices(renameIndices);
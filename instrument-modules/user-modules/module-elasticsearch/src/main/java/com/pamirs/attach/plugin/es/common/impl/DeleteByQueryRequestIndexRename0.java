@@ -14,6 +14,7 @@
  */
 package com.pamirs.attach.plugin.es.common.impl;
 
+import com.pamirs.attach.plugin.es.common.ShadowIndexNames;
 import com.pamirs.pradar.Pradar;
 import com.pamirs.pradar.exception.PressureMeasureError;
 import com.pamirs.pradar.pressurement.agent.shared.service.GlobalConfig;
@@ -49,7 +50,7 @@ public class DeleteByQueryRequestIndexRename0 extends AbstractWriteRequestIndexR
                 throw new PressureMeasureError("Cluster Test request can't write business index ! " + index);
             }
             if (!Pradar.isClusterTestPrefix(index)) {
-                renameIndices[i] = Pradar.addClusterTestPrefixLower(index);
+                renameIndices[i] = ShadowIndexNames.shadowOf(index);
             }
         }
         req.indices(renameIndices);
@@ -14,6 +14,7 @@
  */
 package com.pamirs.attach.plugin.es.common.impl;
 
+import com.pamirs.attach.plugin.es.common.ShadowIndexNames;
 import com.pamirs.pradar.Pradar;
 import com.pamirs.pradar.exception.PressureMeasureError;
 import com.pamirs.pradar.pressurement.agent.shared.service.GlobalConfig;
@@ -46,7 +47,7 @@ public class DeleteIndexTemplateRequestIndexRename extends AbstractWriteRequestI
             throw new PressureMeasureError("Cluster Test request can't delete index template ! " + name);
         }
         if (!Pradar.isClusterTestPrefix(name)) {
-            name = Pradar.addClusterTestPrefixLower(name);
+            name = ShadowIndexNames.shadowOf(name);
         }
         req.name(name);
         return Arrays.asList(name);
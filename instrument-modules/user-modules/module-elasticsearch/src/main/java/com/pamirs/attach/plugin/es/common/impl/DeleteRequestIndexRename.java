@@ -14,6 +14,7 @@
  */
 package com.pamirs.attach.plugin.es.common.impl;
 
+import com.pamirs.attach.plugin.es.common.ShadowIndexNames;
 import com.pamirs.pradar.Pradar;
 import com.pamirs.pradar.exception.PressureMeasureError;
 import com.pamirs.pradar.pressurement.agent.shared.service.GlobalConfig;
@@ -45,7 +46,7 @@ public class DeleteRequestIndexRename extends AbstractWriteRequestIndexRename {
             throw new PressureMeasureError("Cluster Test request can't write business index ! " + index);
         }
         if (!Pradar.isClusterTestPrefix(index)) {
-            index = Pradar.addClusterTestPrefixLower(req.index());
+            index = ShadowIndexNames.shadowOf(req.index());
         }
         req.index(index);
         return Arrays.asList(index);
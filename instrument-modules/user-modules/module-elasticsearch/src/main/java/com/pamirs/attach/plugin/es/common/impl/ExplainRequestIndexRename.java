@@ -14,6 +14,7 @@
  */
 package com.pamirs.attach.plugin.es.common.impl;
 
+import com.pamirs.attach.plugin.es.common.ShadowIndexNames;
 import com.pamirs.pradar.Pradar;
 import com.pamirs.pradar.pressurement.agent.shared.service.GlobalConfig;
 import org.elasticsearch.action.explain.ExplainRequest;
@@ -46,7 +47,7 @@ public class ExplainRequestIndexRename extends AbstractReadRequestIndexRename {
         }
 
         if (!Pradar.isClusterTestPrefix(index)) {
-            index = Pradar.addClusterTestPrefixLower(req.index());
+            index = ShadowIndexNames.shadowOf(req.index());
 
         }
         req.index(index);
@@ -14,6 +14,7 @@
  */
 package com.pamirs.attach.plugin.es.common.impl;
 
+import com.pamirs.attach.plugin.es.common.ShadowIndexNames;
 import com.pamirs.pradar.Pradar;
 import com.pamirs.pradar.pressurement.agent.shared.service.GlobalConfig;
 import org.elasticsearch.action.admin.indices.flush.FlushRequest;
@@ -47,7 +48,7 @@ public class FlushRequestIndexRename extends AbstractReadRequestIndexRename {
                 continue;
             }
             if (!Pradar.isClusterTestPrefix(index)) {
-                index = Pradar.addClusterTestPrefixLower(index);
+                index = ShadowIndexNames.shadowOf(index);
                 indexes[i] = index;
             }
         }
@@ -14,6 +14,7 @@
  */
 package com.pamirs.attach.plugin.es.common.impl;
 
+import com.pamirs.attach.plugin.es.common.ShadowIndexNames;
 import com.pamirs.pradar.Pradar;
 import com.pamirs.pradar.pressurement.agent.shared.service.GlobalConfig;
 import org.elasticsearch.client.indices.GetIndexTemplatesRequest;
@@ -45,7 +46,7 @@ public class GetIndexTemplatesRequestIndexRename extends AbstractReadRequestInde
                 continue;
             }
             if (!Pradar.isClusterTestPrefix(name)) {
-                name = Pradar.addClusterTestPrefixLower(name);
+                name = ShadowIndexNames.shadowOf(name);
             }
             names.set(i, name);
         }
@@ -14,6 +14,7 @@
  */
 package com.pamirs.attach.plugin.es.common.impl;
 
+import com.pamirs.attach.plugin.es.common.ShadowIndexNames;
 import com.pamirs.pradar.Pradar;
 import com.pamirs.pradar.pressurement.agent.shared.service.GlobalConfig;
 import org.elasticsearch.action.get.GetRequest;
@@ -44,7 +45,7 @@ public class GetRequestIndexRename extends AbstractReadRequestIndexRename {
             return Arrays.asList(req.index());
         }
         if (!Pradar.isClusterTestPrefix(index)) {
-            index = Pradar.addClusterTestPrefixLower(req.index());
+            index = ShadowIndexNames.shadowOf(req.index());
 
         }
         req.index(index);
@@ -14,6 +14,7 @@
  */
 package com.pamirs.attach.plugin.es.common.impl;
 
+import com.pamirs.attach.plugin.es.common.ShadowIndexNames;
 import com.pamirs.pradar.Pradar;
 import com.pamirs.pradar.exception.PressureMeasureError;
 import com.pamirs.pradar.pressurement.agent.shared.service.GlobalConfig;
@@ -51,7 +52,7 @@ public class IndicesAliasesRequestIndexRename extends AbstractWriteRequestIndexR
                     throw new PressureMeasureError("Cluster Test request can't refresh business index !");
                 }
                 if (!Pradar.isClusterTestPrefix(index)) {
-                    index = Pradar.addClusterTestPrefixLower(index);
+                    index = ShadowIndexNames.shadowOf(index);
                     indices[i] = index;
                 }
             }
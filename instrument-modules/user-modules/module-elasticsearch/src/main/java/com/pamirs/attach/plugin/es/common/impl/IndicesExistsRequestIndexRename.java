@@ -14,6 +14,7 @@
  */
 package com.pamirs.attach.plugin.es.common.impl;
 
+import com.pamirs.attach.plugin.es.common.ShadowIndexNames;
 import com.pamirs.pradar.Pradar;
 import com.pamirs.pradar.pressurement.agent.shared.service.GlobalConfig;
 import org.apache.commons.lang.ArrayUtils;
@@ -50,7 +51,7 @@ public class IndicesExistsRequestIndexRename extends AbstractReadRequestIndexRen
                 continue;
             }
             if (!Pradar.isClusterTestPrefix(indices[i])) {
-                indices[i] = Pradar.addClusterTestPrefixLower(indices[i]);
+                indices[i] = ShadowIndexNames.shadowOf(indices[i]);
             }
         }
         req.indices(indices);
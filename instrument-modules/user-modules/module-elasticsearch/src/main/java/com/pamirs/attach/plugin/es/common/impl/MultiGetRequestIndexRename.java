@@ -14,6 +14,7 @@
  */
 package com.pamirs.attach.plugin.es.common.impl;
 
+import com.pamirs.attach.plugin.es.common.ShadowIndexNames;
 import com.pamirs.pradar.Pradar;
 import com.pamirs.pradar.pressurement.agent.shared.service.GlobalConfig;
 import org.elasticsearch.action.get.MultiGetRequest;
@@ -47,7 +48,7 @@ public class MultiGetRequestIndexRename extends AbstractReadRequestIndexRename {
                 //do nothing
             } else {
                 if (!Pradar.isClusterTestPrefix(index)) {
-                    index = Pradar.addClusterTestPrefixLower(item.index());
+                    index = ShadowIndexNames.shadowOf(item.index());
                 }
             }
             item.index(index);
@@ -14,6 +14,7 @@
  */
 package com.pamirs.attach.plugin.es.common.impl;
 
+import com.pamirs.attach.plugin.es.common.ShadowIndexNames;
 import com.pamirs.attach.plugin.es.common.RequestIndexRename;
 import com.pamirs.attach.plugin.es.common.RequestIndexRenameProvider;
 import com.pamirs.pradar.Pradar;
@@ -62,7 +63,7 @@ public class MultiPercolateRequestIndexRename extends AbstractWriteRequestIndexR
                 throw new PressureMeasureError("Cluster Test request can't refresh business index ! " + index);
             }
             if (!Pradar.isClusterTestPrefix(index)) {
-                index = Pradar.addClusterTestPrefixLower(index);
+                index = ShadowIndexNames.shadowOf(index);
                 indices[i] = index;
             }
         }
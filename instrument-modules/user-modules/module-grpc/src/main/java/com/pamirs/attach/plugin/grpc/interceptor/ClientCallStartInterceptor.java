@@ -14,7 +14,7 @@
  */
 package com.pamirs.attach.plugin.grpc.interceptor;
 
-import com.pamirs.attach.plugin.dynamic.reflect.ReflectionUtils;
+import com.pamirs.attach.plugin.dynamic.reflect.FieldAccessor;
 import com.pamirs.attach.plugin.grpc.GrpcConstants;
 import com.pamirs.pradar.Pradar;
 import com.pamirs.pradar.PradarService;
@@ -52,6 +52,11 @@ public class ClientCallStartInterceptor extends TraceInterceptorAdaptor {
 
     private AtomicInteger warnTimes = new AtomicInteger(3);
 
+    private final FieldAccessor clientStreamProviderField = FieldAccessor.of("clientStreamProvider");
+    private final FieldAccessor outerChannelField = FieldAccessor.of("this$0");
+    private final FieldAccessor targetField = FieldAccessor.of("target");
+    private final FieldAccessor methodField = FieldAccessor.of("method");
+
     @Resource
     protected DynamicFieldManager manager;
 
@@ -212,9 +217,9 @@ public class ClientCallStartInterceptor extends TraceInterceptorAdaptor {
             return remoteAddress;
         }
         try {
-            Object clientStreamProvider = ReflectionUtils.get(target, "clientStreamProvider");
-            Object channel = ReflectionUtils.get(clientStreamProvider, "this$0");
-            String endPoint = ReflectionUtils.get(channel, "target");
+            Object clientStreamProvider = clientStreamProviderField.get(target);
+            Object channel = outerChannelField.get(clientStreamProvider);
+            String endPoint = targetField.get(channel);
             if (endPoint != null) {
                 manager.setDynamicField(target, GrpcConstants.DYNAMIC_FIELD_REMOTE_ADDRESS, endPoint);
                 return endPoint;
@@ -232,7 +237,7 @@ public class ClientCallStartInterceptor extends TraceInterceptorAdaptor {
         if (methodName != null) {
             return methodName;
         }
-        MethodDescriptor descriptor = ReflectionUtils.get(target, "method");
+        MethodDescriptor descriptor = methodField.get(target);
         if (descriptor != null) {
             manager.setDynamicField(target, GrpcConstants.DYNAMIC_FIELD_METHOD_NAME, descriptor.getFullMethodName());
             return descriptor.getFullMethodName();
@@ -105,6 +105,7 @@ public class HikaricpShadowActiveEventListener implements PradarEventListener {
             LOGGER.info("[module-hikariCP] destroyed shadow table datasource success. url:{} ,username:{}", dataSource.getJdbcUrl(), dataSource.getUsername());
             old.close();
         }
+        DataSourceWrapUtil.warmUp(ptDataSource);
     }
 
     /**
@@ -140,6 +141,7 @@ public class HikaricpShadowActiveEventListener implements PradarEventListener {
         LOGGER.info("[module-hikariCP] handler shadow datasource active event, refresh shadow datasource, url:{}, username:{}", dataSource.getJdbcUrl(), dataSource.getUsername());
         media.setDataSourcePerformanceTest(ptDataSource);
         media.resetIniStated();
+        DataSourceWrapUtil.warmUp(ptDataSource);
     }
 
     @Override
@@ -14,6 +14,8 @@
  */
 package com.pamirs.attach.plugin.hikariCP.utils;
 
+import com.pamirs.attach.plugin.common.datasource.utils.DataSourceLocks;
+import com.pamirs.attach.plugin.common.datasource.warmup.ShadowPoolWarmer;
 import com.pamirs.pradar.ConfigNames;
 import com.pamirs.pradar.ErrorTypeEnum;
 import com.pamirs.pradar.Throwables;
@@ -43,9 +45,14 @@ import java.util.concurrent.ConcurrentHashMap;
 public class DataSourceWrapUtil {
     private static Logger logger = LoggerFactory.getLogger(DataSourceWrapUtil.class.getName());
 
+    /**
+     * 本插件的初始化锁, 销毁时只清除本插件的锁
+     */
+    private final static DataSourceLocks LOCKS = new DataSourceLocks();
+
     public static final ConcurrentHashMap<DataSourceMeta, HikariMediaDataSource> pressureDataSources = new ConcurrentHashMap<DataSourceMeta, HikariMediaDataSource>();
 
-    private final static Object lock = new Object();
+    private final static String MIDDLEWARE_NAME = "hikari";
 
     public static void destroy() {
         Iterator<Map.Entry<DataSourceMeta, HikariMediaDataSource>> it = pressureDataSources.entrySet().iterator();
@@ -55,6 +62,8 @@ public class DataSourceWrapUtil {
             entry.getValue().close();
         }
         pressureDataSources.clear();
+        LOCKS.clear();
+        ShadowPoolWarmer.clear(MIDDLEWARE_NAME);
     }
 
     public static boolean validate(HikariDataSource sourceDataSource) {
@@ -110,8 +119,8 @@ public class DataSourceWrapUtil {
         if (isPerformanceDataSource(target)) {
             return;
         }
-        // 解决高并发情况下获取到 close 的连接
-        synchronized (lock) {
+        // 解决高并发情况下获取到 close 的连接, 按数据源加锁, 不同数据源之间互不阻塞
+        synchronized (LOCKS.lockOf(dataSourceMeta)) {
             if (pressureDataSources.get(dataSourceMeta) != null) {
                 return;
             }
@@ -172,6 +181,7 @@ public class DataSourceWrapUtil {
                     if (logger.isInfoEnabled()) {
                         logger.info("[hikariCP] create shadow datasource success. target:{} url:{} ,username:{} shadow-url:{},shadow-username:{}", target.hashCode(), target.getJdbcUrl(), target.getUsername(), ptDataSource.getJdbcUrl(), ptDataSource.getUsername());
                     }
+                    warmUp(ptDataSource);
                 } catch (Throwable t) {
                     logger.error("[hikariCP] init datasource err!", t);
                     ErrorReporter.buildError()
@@ -199,8 +209,36 @@ public class DataSourceWrapUtil {
             HikariDataSource ptDataSource = copy(mediaDataSource.getDataSourceBusiness());
             if (ptDataSource != null) {
                 mediaDataSource.setDataSourcePerformanceTest(ptDataSource);
+                warmUp(ptDataSource);
+            }
+        }
+    }
+
+    /**
+     * 配置生效后在后台重新创建业务数据源对应的影子数据源并预热
+     *
+     * @param dataSourceMeta 业务数据源
+     */
+    public static void initInBackground(final DataSourceMeta<HikariDataSource> dataSourceMeta) {
+        ShadowPoolWarmer.execute(new Runnable() {
+            @Override
+            public void run() {
+                init(dataSourceMeta);
             }
+        });
+    }
+
+    /**
+     * 在后台预热影子连接池
+     *
+     * @param ptDataSource 影子数据源
+     */
+    public static void warmUp(HikariDataSource ptDataSource) {
+        if (ptDataSource == null) {
+            return;
         }
+        ShadowPoolWarmer.warmUp(MIDDLEWARE_NAME, ptDataSource.getJdbcUrl(), ptDataSource.getUsername(),
+                ptDataSource, ptDataSource.getMinimumIdle());
     }
 
 
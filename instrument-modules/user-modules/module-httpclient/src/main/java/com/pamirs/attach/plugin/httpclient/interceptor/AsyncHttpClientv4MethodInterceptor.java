@@ -24,6 +24,7 @@ import com.pamirs.attach.plugin.httpclient.HttpClientConstants;
 import com.pamirs.attach.plugin.httpclient.utils.BlackHostChecker;
 import com.pamirs.attach.plugin.httpclient.utils.HttpClientAsyncFixJsonStrategies;
 import com.pamirs.attach.plugin.httpclient.utils.HttpClientAsyncMockStrategies;
+import com.pamirs.attach.plugin.httpclient.utils.HttpRequestUtil;
 import com.pamirs.pradar.Pradar;
 import com.pamirs.pradar.PradarService;
 import com.pamirs.pradar.ResultCode;
@@ -80,11 +81,9 @@ public class AsyncHttpClientv4MethodInterceptor extends AroundInterceptor {
         String host = httpHost.getHostName();
         int port = httpHost.getPort();
         String path = httpHost.getHostName();
-        String reqStr = request.toString();
-        String method = StringUtils.upperCase(reqStr.substring(0, reqStr.indexOf(" ")));
+        String method = HttpRequestUtil.findMethod(request);
         if (request instanceof HttpUriRequest) {
             path = ((HttpUriRequest)request).getURI().getPath();
-            method = ((HttpUriRequest)request).getMethod();
         }
         //判断是否在白名单中
         String url = getService(httpHost.getSchemeName(), host, port, path);
@@ -85,8 +85,7 @@ public class AsyncHttpClientv5MethodInterceptor extends AroundInterceptor {
         String host = httpHost.getHostName();
         int port = httpHost.getPort();
         String path = httpHost.getHostName();
-        String reqStr = request.toString();
-        String method = StringUtils.upperCase(reqStr.substring(0, reqStr.indexOf(" ")));
+        String method = StringUtils.upperCase(request.getMethod());
         //判断是否在白名单中
         String url = getService(httpHost.getSchemeName(), host, port, path);
         boolean isBlackHost = BlackHostChecker.isBlackHost(url);
@@ -18,6 +18,7 @@ import com.pamirs.attach.plugin.dynamic.reflect.ReflectionUtils;
 import com.pamirs.attach.plugin.httpclient.HttpClientConstants;
 import com.pamirs.attach.plugin.httpclient.utils.BlackHostChecker;
 import com.pamirs.attach.plugin.httpclient.utils.HttpRequestUtil;
+import com.pamirs.attach.plugin.httpclient.utils.HttpResponseCapture;
 import com.pamirs.attach.plugin.httpclient.utils.ResponseHandlerUtil;
 import com.pamirs.pradar.Pradar;
 import com.pamirs.pradar.PradarService;
@@ -41,12 +42,10 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.http.*;
 import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.methods.*;
-import org.apache.http.entity.BufferedHttpEntity;
 import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.message.BasicHttpResponse;
 import org.apache.http.message.BasicStatusLine;
-import org.apache.http.util.EntityUtils;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -63,8 +62,6 @@ public class HttpClientv4MethodInterceptor extends TraceInterceptorAdaptor {
 
     private Integer httpResponsePrintLengthLimit;
 
-    private List<String> printResponseContentType = Arrays.asList("application/json","text/plain");
-
     @Override
     public String getPluginName() {
         return HttpClientConstants.PLUGIN_NAME;
@@ -410,8 +407,7 @@ public class HttpClientv4MethodInterceptor extends TraceInterceptorAdaptor {
         String path = HttpRequestUtil.findPath(request);
         SpanRecord record = new SpanRecord();
         record.setService(path);
-        String reqStr = request.toString();
-        String httpType = StringUtils.upperCase(reqStr.substring(0, reqStr.indexOf(" ")));
+        String httpType = HttpRequestUtil.findMethod(request);
         record.setMethod(httpType);
         record.setRemoteIp(host);
         record.setPort(port);
@@ -445,10 +441,9 @@ public class HttpClientv4MethodInterceptor extends TraceInterceptorAdaptor {
                 }else{
                     long length = response.getEntity().getContentLength();
                     record.setResponseSize(length);
-                    if(length < httpResponsePrintLengthLimit && isContentTypeApplicable(response)){
-                        BufferedHttpEntity entity = new BufferedHttpEntity(response.getEntity());
-                        record.setResponse(EntityUtils.toString(entity));
-                        response.setEntity(entity);
+                    String captured = HttpResponseCapture.capture(response, httpResponsePrintLengthLimit);
+                    if (captured != null) {
+                        record.setResponse(captured);
                     }
                 }
             } catch (Throwable e) {
@@ -466,16 +461,6 @@ public class HttpClientv4MethodInterceptor extends TraceInterceptorAdaptor {
 
     }
 
-    private boolean isContentTypeApplicable(HttpResponse response){
-        String type = response.getHeaders("Content-Type")[0].getValue();
-        for (String s : printResponseContentType) {
-            if(type.contains(s)){
-                return true;
-            }
-        }
-        return false;
-    }
-
     @Override
     public SpanRecord exceptionTrace(Advice advice) {
         Object[] args = advice.getParameterArray();
@@ -17,6 +17,7 @@ package com.pamirs.attach.plugin.httpclient.interceptor;
 import com.pamirs.attach.plugin.dynamic.reflect.ReflectionUtils;
 import com.pamirs.attach.plugin.httpclient.HttpClientConstants;
 import com.pamirs.attach.plugin.httpclient.utils.BlackHostChecker;
+import com.pamirs.attach.plugin.httpclient.utils.HttpResponseCapture;
 import com.pamirs.attach.plugin.httpclient.utils.ResponseHandlerUtil;
 import com.pamirs.pradar.Pradar;
 import com.pamirs.pradar.PradarService;
@@ -40,12 +41,10 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.http.*;
 import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.methods.*;
-import org.apache.http.entity.BufferedHttpEntity;
 import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.message.BasicHttpResponse;
 import org.apache.http.message.BasicStatusLine;
-import org.apache.http.util.EntityUtils;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -60,8 +59,6 @@ public class HttpClientv4MethodInterceptor1 extends TraceInterceptorAdaptor {
 
     private Integer httpResponsePrintLengthLimit;
 
-    private List<String> printResponseContentType = Arrays.asList("application/json", "text/plain");
-
     @Override
     public String getPluginName() {
         return HttpClientConstants.PLUGIN_NAME;
@@ -413,10 +410,9 @@ public class HttpClientv4MethodInterceptor1 extends TraceInterceptorAdaptor {
                 } else {
                     long length = response.getEntity().getContentLength();
                     record.setResponseSize(length);
-                    if (length < httpResponsePrintLengthLimit && isContentTypeApplicable(response)) {
-                        BufferedHttpEntity entity = new BufferedHttpEntity(response.getEntity());
-                        record.setResponse(EntityUtils.toString(entity));
-                        response.setEntity(entity);
+                    String captured = HttpResponseCapture.capture(response, httpResponsePrintLengthLimit);
+                    if (captured != null) {
+                        record.setResponse(captured);
                     }
                 }
             } catch (Throwable e) {
@@ -438,16 +434,6 @@ public class HttpClientv4MethodInterceptor1 extends TraceInterceptorAdaptor {
 
     }
 
-    private boolean isContentTypeApplicable(HttpResponse response) {
-        String type = response.getHeaders("Content-Type")[0].getValue();
-        for (String s : printResponseContentType) {
-            if (type.contains(s)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     @Override
     public SpanRecord exceptionTrace(Advice advice) {
         Object[] args = advice.getParameterArray();
@@ -326,8 +326,7 @@ public class HttpClientv5MethodInterceptor extends TraceInterceptorAdaptor {
         String path = uri.getPath();
         SpanRecord record = new SpanRecord();
         record.setService(path);
-        String reqStr = request.toString();
-        String httpType = StringUtils.upperCase(reqStr.substring(0, reqStr.indexOf(" ")));
+        String httpType = StringUtils.upperCase(request.getMethod());
         record.setMethod(httpType);
         record.setRemoteIp(host);
         record.setPort(port);
@@ -2,6 +2,7 @@ package com.pamirs.attach.plugin.httpclient.utils;
 
 import com.pamirs.attach.plugin.dynamic.reflect.ReflectionUtils;
 import org.apache.http.HttpRequest;
+import org.apache.http.RequestLine;
 import org.apache.http.client.methods.HttpUriRequest;
 
 import java.net.URI;
@@ -29,11 +30,52 @@ public class HttpRequestUtil {
         if (request instanceof HttpUriRequest) {
             path = ((HttpUriRequest) request).getURI().getPath();
         } else {
-            path = reflectFieldVal(request);
+            RequestLine requestLine = request.getRequestLine();
+            if (requestLine != null && requestLine.getUri() != null) {
+                try {
+                    path = new URI(requestLine.getUri()).getPath();
+                } catch (URISyntaxException e) {
+                    path = reflectFieldVal(request);
+                }
+            } else {
+                path = reflectFieldVal(request);
+            }
         }
         return path;
     }
 
+    /**
+     * 获取httpRequest对象的请求方法，直接从请求行读取，不需要把整个请求转换成字符串
+     *
+     * @param request HttpRequest对象
+     * @return 大写的请求方法
+     */
+    public static String findMethod(HttpRequest request) {
+        if (request == null) {
+            return null;
+        }
+        if (request instanceof HttpUriRequest) {
+            return upperCase(((HttpUriRequest) request).getMethod());
+        }
+        RequestLine requestLine = request.getRequestLine();
+        return requestLine == null ? null : upperCase(requestLine.getMethod());
+    }
+
+    /**
+     * 请求方法通常已经是大写，这种情况下不创建新的字符串
+     */
+    public static String upperCase(String method) {
+        if (method == null) {
+            return null;
+        }
+        for (int i = 0; i < method.length(); i++) {
+            if (Character.isLowerCase(method.charAt(i))) {
+                return method.toUpperCase();
+            }
+        }
+        return method;
+    }
+
     /**
      * 反射获取path值
      *
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.pamirs.attach.plugin.httpclient.utils;
+
+import org.apache.http.Header;
+import org.apache.http.HeaderElement;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.NameValuePair;
+import org.apache.http.entity.HttpEntityWrapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.UnsupportedEncodingException;
+
+/**
+ * httpclient 4.x 响应体采集
+ * <p>
+ * 只读取响应流的前 limit 个字节用于 trace，读取的内容放回响应中，
+ * 业务继续从原始响应流读取剩余部分，不会把整个响应缓存到内存中
+ * </p>
+ */
+public final class HttpResponseCapture {
+
+    private final static String[] APPLICABLE_CONTENT_TYPES = {"application/json", "text/plain"};
+
+    private final static String DEFAULT_CHARSET = "ISO-8859-1";
+
+    private HttpResponseCapture() {
+    }
+
+    /**
+     * 采集响应体的前缀
+     *
+     * @param response 响应
+     * @param limit    最多采集的字节数
+     * @return 响应体前缀，不需要采集时返回 null
+     * @throws IOException 读取响应流失败
+     */
+    public static String capture(HttpResponse response, int limit) throws IOException {
+        HttpEntity entity = response.getEntity();
+        if (entity == null || limit <= 0) {
+            return null;
+        }
+        long length = entity.getContentLength();
+        if (length >= limit || !isContentTypeApplicable(entity.getContentType())) {
+            return null;
+        }
+        InputStream content = entity.getContent();
+        if (content == null) {
+            return null;
+        }
+        byte[] prefix = new byte[length < 0 ? limit : (int) length];
+        int read = 0;
+        int n;
+        while (read < prefix.length && (n = content.read(prefix, read, prefix.length - read)) != -1) {
+            read += n;
+        }
+        response.setEntity(new PrefixedHttpEntity(entity, prefix, read, content));
+        return decode(prefix, read, entity.getContentType());
+    }
+
+    private static boolean isContentTypeApplicable(Header contentType) {
+        if (contentType == null || contentType.getValue() == null) {
+            return false;
+        }
+        String type = contentType.getValue();
+        for (String applicable : APPLICABLE_CONTENT_TYPES) {
+            if (type.contains(applicable)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String decode(byte[] bytes, int length, Header contentType) {
+        String charset = null;
+        HeaderElement[] elements = contentType.getElements();
+        if (elements.length > 0) {
+            NameValuePair param = elements[0].getParameterByName("charset");
+            if (param != null) {
+                charset = param.getValue();
+            }
+        }
+        try {
+            return new String(bytes, 0, length, charset == null ? DEFAULT_CHARSET : charset);
+        } catch (UnsupportedEncodingException e) {
+            return new String(bytes, 0, length);
+        }
+    }
+
+    /**
+     * 已读取的前缀加上原始响应流的剩余部分
+     */
+    static class PrefixedHttpEntity extends HttpEntityWrapper {
+        private final byte[] prefix;
+        private final int prefixLength;
+        private final InputStream remaining;
+        private InputStream content;
+
+        PrefixedHttpEntity(HttpEntity wrappedEntity, byte[] prefix, int prefixLength, InputStream remaining) {
+            super(wrappedEntity);
+            this.prefix = prefix;
+            this.prefixLength = prefixLength;
+            this.remaining = remaining;
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return false;
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            // 与 BasicHttpEntity 一致，多次调用返回同一个流
+            if (content == null) {
+                content = new SequenceInputStream(new ByteArrayInputStream(prefix, 0, prefixLength), remaining);
+            }
+            return content;
+        }
+
+        @Override
+        public void writeTo(OutputStream outstream) throws IOException {
+            InputStream in = getContent();
+            try {
+                byte[] buffer = new byte[4096];
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    outstream.write(buffer, 0, n);
+                }
+            } finally {
+                in.close();
+            }
+        }
+    }
+}
@@ -20,8 +20,8 @@ import io.shulie.instrument.module.isolation.exception.IsolationRuntimeException
 import io.shulie.instrument.module.isolation.resource.ShadowResourceLifecycle;
 
 import java.lang.reflect.Method;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @Description
@@ -31,54 +31,74 @@ import java.util.concurrent.ConcurrentHashMap;
 public class ShadowResourceLifecycleModule {
 
     private final ShadowResourceLifecycle shadowResourceLifecycle;
-    private final Map<String, Method> methodMap;
+    /**
+     * 影子对象类中的方法表, 第一次调用时一次性解析所有方法, 之后的调用不再拼接 key;
+     * 影子对象的类型发生变化时重新解析
+     */
+    private volatile MethodTable methodTable;
 
     public ShadowResourceLifecycleModule(ShadowResourceLifecycle shadowResourceLifecycle) {
         this.shadowResourceLifecycle = shadowResourceLifecycle;
-        methodMap = new ConcurrentHashMap<String, Method>();
     }
 
     public Method fetchMethod(String method, String methodDesc) {
-        //todo@langyi 优化性能和内存.
         Object ptTarget = shadowResourceLifecycle.getTarget();
-        String key = toString(ptTarget);
-        String keyTemp = keyOfMethod(method, methodDesc);
-        String methodKey = key + keyTemp;
-        Method m = methodMap.get(methodKey);
+        Map<String, Method> overloads = methods(ptTarget.getClass()).get(method);
+        Method m = overloads == null ? null : overloads.get(methodDesc);
         if (m == null) {
-            prepareMethodMap(key, ptTarget.getClass());
-            m = methodMap.get(methodKey);
-        }
-        if (m == null) {
-            throw new IsolationRuntimeException("[isolation]can not found method {}" + methodKey + " in " + ptTarget);
+            throw new IsolationRuntimeException("[isolation]can not found method {}" + method + methodDesc + " in " + ptTarget);
         }
         return m;
     }
 
-    private void prepareMethodMap(String key, Class c) {
+    private Map<String, Map<String, Method>> methods(Class type) {
+        MethodTable table = methodTable;
+        if (table == null || table.type != type) {
+            Map<String, Map<String, Method>> methods = new HashMap<String, Map<String, Method>>();
+            prepareMethodMap(methods, type);
+            table = new MethodTable(type, methods);
+            methodTable = table;
+        }
+        return table.methods;
+    }
+
+    private void prepareMethodMap(Map<String, Map<String, Method>> result, Class c) {
         if (c == null) {
             return;
         }
         for (final Method temp : c.getDeclaredMethods()) {
-            temp.setAccessible(true);
-            methodMap.put(key + keyOfMethod(temp.getName(), new BehaviorDescriptor(temp).getDescriptor()), temp);
+            Map<String, Method> overloads = result.get(temp.getName());
+            if (overloads == null) {
+                overloads = new HashMap<String, Method>(4);
+                result.put(temp.getName(), overloads);
+            }
+            String desc = new BehaviorDescriptor(temp).getDescriptor();
+            /**
+             * 子类中的方法优先, 父类中相同签名的方法不覆盖
+             */
+            if (!overloads.containsKey(desc)) {
+                temp.setAccessible(true);
+                overloads.put(desc, temp);
+            }
         }
-        prepareMethodMap(key, c.getSuperclass());
-    }
-
-    private String keyOfMethod(String method, String methodDesc) {
-        return ":" + method + methodDesc;
+        prepareMethodMap(result, c.getSuperclass());
     }
 
     public ShadowResourceLifecycle getShadowResourceLifecycle() {
         return shadowResourceLifecycle;
     }
 
-    public Map<String, Method> getMethodMap() {
-        return methodMap;
-    }
-
     public String toString(Object obj) {
         return obj.getClass().getName() + "@" + Integer.toHexString(obj.hashCode());
     }
+
+    private static final class MethodTable {
+        private final Class type;
+        private final Map<String, Map<String, Method>> methods;
+
+        private MethodTable(Class type, Map<String, Map<String, Method>> methods) {
+            this.type = type;
+            this.methods = methods;
+        }
+    }
 }
@@ -20,8 +20,17 @@ import io.shulie.instrument.module.isolation.resource.ShadowResourceLifecycle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Map;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @Description
@@ -32,41 +41,194 @@ public class ShadowTargetCache {
 
     private static final Logger logger = LoggerFactory.getLogger(ShadowTargetCache.class);
 
-    private final static Map<Object, ShadowResourceLifecycleModule> shadowTargetMap = new ConcurrentHashMap<Object, ShadowResourceLifecycleModule>();
+    /**
+     * 业务对象不一定正确实现了 equals/hashCode, 所以按对象身份匹配;
+     * 业务对象只被弱引用, 业务对象被回收后对应的影子资源会在后续写入时移除, 并在后台线程中销毁
+     */
+    private final static ConcurrentMap<Object, ShadowResourceLifecycleModule> shadowTargetMap = new ConcurrentHashMap<Object, ShadowResourceLifecycleModule>();
+    private final static ReferenceQueue<Object> staleKeys = new ReferenceQueue<Object>();
+
+    /**
+     * 创建影子资源时按业务对象分段加锁, 不同业务对象之间互不阻塞
+     */
+    private final static Object[] locks = new Object[64];
+
+    /**
+     * 销毁影子资源可能耗时较长(最多等待 60s), 写入发生在业务线程的加锁区域内, 因此放到后台线程执行
+     */
+    private static ThreadPoolExecutor destroyExecutor;
+
+    static {
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
 
     public static ShadowResourceLifecycleModule get(Object obj) {
-        return shadowTargetMap.get(obj);
+        if (obj == null) {
+            return null;
+        }
+        return shadowTargetMap.get(new LookupKey(obj));
     }
 
     public static void put(Object key, ShadowResourceLifecycleModule value) {
-        shadowTargetMap.put(key, value);
+        List<ShadowResourceLifecycleModule> stale = expungeStaleEntries();
+        shadowTargetMap.put(new IdentityWeakKey(key, staleKeys), value);
+        if (stale != null) {
+            destroyInBackground(stale);
+        }
     }
 
-    public static Map<Object, ShadowResourceLifecycleModule> getAll() {
-        return shadowTargetMap;
+    /**
+     * 获取业务对象对应的锁, 创建影子资源时使用
+     *
+     * @param obj 业务对象
+     * @return 锁对象
+     */
+    public static Object lockOf(Object obj) {
+        return locks[System.identityHashCode(obj) & (locks.length - 1)];
     }
 
     public static void release() {
-        for (Map.Entry<Object, ShadowResourceLifecycleModule> entry : shadowTargetMap.entrySet()) {
-            boolean setClassLoad = false;
-            try {
-                ShadowResourceLifecycle resourceLifecycle = entry.getValue().getShadowResourceLifecycle();
-                if (resourceLifecycle == null || resourceLifecycle.getTarget() == null) {
-                    continue;
+        List<Runnable> pending;
+        synchronized (ShadowTargetCache.class) {
+            pending = destroyExecutor == null ? null : destroyExecutor.shutdownNow();
+            destroyExecutor = null;
+        }
+        if (pending != null) {
+            for (Runnable task : pending) {
+                task.run();
+            }
+        }
+        for (ShadowResourceLifecycleModule module : shadowTargetMap.values()) {
+            destroy(module);
+        }
+
+        shadowTargetMap.clear();
+        while (staleKeys.poll() != null) {
+            // 已经全部销毁, 丢弃残留的引用
+        }
+    }
+
+    /**
+     * 移除业务对象已经被回收的条目, 只收集不销毁
+     *
+     * @return 需要销毁的影子资源, 没有时返回 null
+     */
+    private static List<ShadowResourceLifecycleModule> expungeStaleEntries() {
+        List<ShadowResourceLifecycleModule> stale = null;
+        Reference<?> ref;
+        while ((ref = staleKeys.poll()) != null) {
+            ShadowResourceLifecycleModule module = shadowTargetMap.remove(ref);
+            if (module != null) {
+                if (stale == null) {
+                    stale = new ArrayList<ShadowResourceLifecycleModule>(2);
                 }
-                BizClassLoaderService.setBizClassLoader(resourceLifecycle.getTarget().getClass().getClassLoader());
-                setClassLoad = true;
-                resourceLifecycle.destroy(60);
-            } catch (Throwable t) {
-                logger.error("[isolation] destroy error", t);
-            } finally {
-                if (setClassLoad) {
-                    BizClassLoaderService.clearBizClassLoader();
+                stale.add(module);
+            }
+        }
+        return stale;
+    }
+
+    private static void destroyInBackground(final List<ShadowResourceLifecycleModule> modules) {
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                for (ShadowResourceLifecycleModule module : modules) {
+                    destroy(module);
                 }
             }
+        };
+        synchronized (ShadowTargetCache.class) {
+            if (destroyExecutor == null) {
+                destroyExecutor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                        new ThreadFactory() {
+                            @Override
+                            public Thread newThread(Runnable r) {
+                                Thread t = new Thread(r, "Isolation-Shadow-Resource-Destroyer");
+                                t.setDaemon(true);
+                                return t;
+                            }
+                        });
+                destroyExecutor.allowCoreThreadTimeOut(true);
+            }
+            destroyExecutor.execute(task);
         }
+    }
 
-        shadowTargetMap.clear();
+    private static void destroy(ShadowResourceLifecycleModule module) {
+        boolean setClassLoad = false;
+        try {
+            ShadowResourceLifecycle resourceLifecycle = module.getShadowResourceLifecycle();
+            if (resourceLifecycle == null || resourceLifecycle.getTarget() == null) {
+                return;
+            }
+            BizClassLoaderService.setBizClassLoader(resourceLifecycle.getTarget().getClass().getClassLoader());
+            setClassLoad = true;
+            resourceLifecycle.destroy(60);
+        } catch (Throwable t) {
+            logger.error("[isolation] destroy error", t);
+        } finally {
+            if (setClassLoad) {
+                BizClassLoaderService.clearBizClassLoader();
+            }
+        }
+    }
+
+    /**
+     * 按对象身份比较的弱引用 key
+     */
+    private static final class IdentityWeakKey extends WeakReference<Object> {
+        private final int hash;
+
+        IdentityWeakKey(Object referent, ReferenceQueue<Object> queue) {
+            super(referent, queue);
+            this.hash = System.identityHashCode(referent);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            Object referent = get();
+            if (referent == null) {
+                return false;
+            }
+            if (obj instanceof LookupKey) {
+                return referent == ((LookupKey) obj).referent;
+            }
+            return obj instanceof IdentityWeakKey && referent == ((IdentityWeakKey) obj).get();
+        }
+    }
+
+    /**
+     * 查询时使用的临时 key, 避免每次查询都创建弱引用
+     */
+    private static final class LookupKey {
+        private final Object referent;
+
+        LookupKey(Object referent) {
+            this.referent = referent;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(referent);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof IdentityWeakKey) {
+                return referent == ((IdentityWeakKey) obj).get();
+            }
+            return obj instanceof LookupKey && referent == ((LookupKey) obj).referent;
+        }
     }
 
 }
@@ -62,26 +62,31 @@ public class ShadowProxy {
         }
     }
 
-    private synchronized ShadowResourceLifecycleModule fetchShadowTarget(Object bizTarget) {
-        ShadowResourceLifecycleModule lifecycleModule = ShadowTargetCache.get(bizTarget);
-        if (lifecycleModule == null) {
-            ShadowResourceLifecycle shadowResource = resourceProxyFactory.createShadowResource(bizTarget);
-            if (shadowResource != null) {
-                if (!shadowResource.isRunning()) {
-                    shadowResource.start();
-                }
-                if (shadowResource.isRunning()) {
-                    lifecycleModule = new ShadowResourceLifecycleModule(shadowResource);
-                    ShadowTargetCache.put(bizTarget, lifecycleModule);
-                } else {
-                    throw new IsolationRuntimeException("can not start shadowResource with class:" + enhanceClass.getClassName() + " method:" + enhanceMethod.getMethod());
+    /**
+     * 只对同一个业务对象(按分段)加锁创建影子资源, 不同业务对象以及不同增强方法之间互不阻塞
+     */
+    private ShadowResourceLifecycleModule fetchShadowTarget(Object bizTarget) {
+        synchronized (ShadowTargetCache.lockOf(bizTarget)) {
+            ShadowResourceLifecycleModule lifecycleModule = ShadowTargetCache.get(bizTarget);
+            if (lifecycleModule == null) {
+                ShadowResourceLifecycle shadowResource = resourceProxyFactory.createShadowResource(bizTarget);
+                if (shadowResource != null) {
+                    if (!shadowResource.isRunning()) {
+                        shadowResource.start();
+                    }
+                    if (shadowResource.isRunning()) {
+                        lifecycleModule = new ShadowResourceLifecycleModule(shadowResource);
+                        ShadowTargetCache.put(bizTarget, lifecycleModule);
+                    } else {
+                        throw new IsolationRuntimeException("can not start shadowResource with class:" + enhanceClass.getClassName() + " method:" + enhanceMethod.getMethod());
+                    }
                 }
             }
+            if (lifecycleModule == null) {
+                throw new IsolationRuntimeException("can not init shadowResource with class:" + enhanceClass.getClassName() + " method:" + enhanceMethod.getMethod());
+            }
+            return lifecycleModule;
         }
-        if (lifecycleModule == null) {
-            throw new IsolationRuntimeException("can not init shadowResource with class:" + enhanceClass.getClassName() + " method:" + enhanceMethod.getMethod());
-        }
-        return lifecycleModule;
     }
 
     public EnhanceClass getEnhanceClass() {
@@ -113,6 +113,7 @@ public class LogDataPusherModule extends ModuleLifecycleAdapter implements Exten
         httpPushOptions.setHttpPath(simulatorConfig.getProperty("pradar.push.server.http.path", ""));
         httpPushOptions.setEnableGzip(simulatorConfig.getBooleanProperty("pradar.push.server.http.enable.gzip", true));
         pusherOptions.setHttpPushOptions(httpPushOptions);
+        pusherOptions.setLogReaderThreads(simulatorConfig.getIntProperty("pradar.log.pusher.reader.threads", 2));
 
         List<LogPusherOptions> logPusherOptionsList = new ArrayList<LogPusherOptions>();
         LogPusherOptions traceLogOptions = new LogPusherOptions();
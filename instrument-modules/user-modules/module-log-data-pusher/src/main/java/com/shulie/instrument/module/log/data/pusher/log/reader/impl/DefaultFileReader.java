@@ -28,7 +28,7 @@ import java.io.*;
 import java.nio.channels.ClosedChannelException;
 import java.util.Arrays;
 import java.util.Comparator;
-import java.util.concurrent.*;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -44,6 +44,14 @@ class DefaultFileReader implements FileReader {
      * 默认连续推送失败时的最大休眠间隔时长
      */
     private final static int DEFAULT_MAX_FAILURE_SLEEP_INTERVAL = 10000;
+    /**
+     * 无法监听目录时轮询日志目录的间隔
+     */
+    private final static long POLL_LIST_INTERVAL = 2000;
+    /**
+     * 监听目录时兜底全量 list 日志目录的间隔, 防止事件丢失
+     */
+    private final static long WATCH_LIST_INTERVAL = 60000;
     public static final long[] ZERO = {0L, 0L};
     private String path;
     private volatile long position = -1;
@@ -72,13 +80,21 @@ class DefaultFileReader implements FileReader {
     private int version;
 
     /**
-     * 范围
+     * 当前日志文件列表的快照,按照位点排序
+     */
+    private volatile File[] logFiles;
+    /**
+     * 日志文件列表是否有变更, 由目录监听事件置为 true
      */
-    private volatile long[] fileRange;
+    private volatile boolean filesChanged = true;
     /**
-     * 上次更新的范围
+     * 是否在监听日志目录,否则退化为轮询
      */
-    private volatile long lastTime;
+    private volatile boolean watching;
+    /**
+     * 上次 list 日志目录的时间
+     */
+    private volatile long lastListTime;
 
     /**
      * 统计连续推送失败的次数，随着连续推送失败次数的增大，休眠时间会越来越长
@@ -91,35 +107,41 @@ class DefaultFileReader implements FileReader {
     private int maxFailureSleepInterval;
 
     /**
-     * 推送日志线程使用单独的线程，避免公共线程池被占满时导致日志无法推送
+     * 所有 FileReader 共享的推送调度器
+     */
+    private final FileReaderScheduler scheduler;
+
+    /**
+     * 日志目录变更监听
      */
-    private ScheduledExecutorService service = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+    private final LogDirectoryWatcher.Listener dirListener = new LogDirectoryWatcher.Listener() {
         @Override
-        public Thread newThread(Runnable r) {
-            Thread t = new Thread(r, "Log-Data-Pusher-Service");
-            t.setDaemon(true);
-            t.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
-                @Override
-                public void uncaughtException(Thread t, Throwable e) {
-                    LOGGER.error("Thread {} caught a unknow exception with UncaughtExceptionHandler", t.getName(), e);
-                }
-            });
-            return t;
+        public void onChanged(String name) {
+            if (name == null || name.startsWith(new File(path).getName())) {
+                filesChanged = true;
+            }
+        }
+
+        @Override
+        public void onInvalid() {
+            watching = false;
         }
-    });
+    };
 
-    private Future future;
+    private volatile Future future;
 
-    public DefaultFileReader(byte dataType, int version, String path, LogCallback callback) {
-        this(dataType, version, path, callback, DEFAULT_MAX_FAILURE_SLEEP_INTERVAL);
+    public DefaultFileReader(byte dataType, int version, String path, LogCallback callback, FileReaderScheduler scheduler) {
+        this(dataType, version, path, callback, DEFAULT_MAX_FAILURE_SLEEP_INTERVAL, scheduler);
     }
 
-    public DefaultFileReader(byte dataType, int version, String path, LogCallback callback, int maxFailureSleepInterval) {
+    public DefaultFileReader(byte dataType, int version, String path, LogCallback callback, int maxFailureSleepInterval,
+                             FileReaderScheduler scheduler) {
         this.path = path;
         this.version = version;
         this.callback = callback;
         this.dataType = dataType;
         this.maxFailureSleepInterval = maxFailureSleepInterval;
+        this.scheduler = scheduler;
     }
 
     @Override
@@ -128,6 +150,14 @@ class DefaultFileReader implements FileReader {
         if (!file.getParentFile().exists()) {
             return false;
         }
+        if (!watching) {
+            /**
+             * 监听日志目录的文件创建、滚动事件，监听失败则退化为轮询
+             */
+            scheduler.getWatcher().unwatch(dirListener);
+            watching = scheduler.getWatcher().watch(file.getParentFile(), dirListener);
+            filesChanged = true;
+        }
         File idxFile = new File(getIdxPath());
         initPosition(idxFile);
 
@@ -139,7 +169,10 @@ class DefaultFileReader implements FileReader {
          * 将启动标识置成true
          */
         isStarting = true;
-        future = service.schedule(new Runnable() {
+        /**
+         * 每次只推送一批数据后重新入队，保证多个文件共享推送线程时的公平性
+         */
+        future = scheduler.schedule(new Runnable() {
             @Override
             public void run() {
                 if (isStarting) {
@@ -152,17 +185,19 @@ class DefaultFileReader implements FileReader {
                                 sleep = maxFailureSleepInterval;
                             }
                             //如果失败则休眠一会再进行下一次推送
-                            future = service.schedule(this, sleep, TimeUnit.MILLISECONDS);
+                            future = scheduler.schedule(this, sleep);
                         } else {
                             pushFailureCount.set(0);
-                            future = service.schedule(this, 0, TimeUnit.SECONDS);
+                            future = scheduler.schedule(this, 0);
                         }
                     } catch (Throwable e) {
-                        future = service.schedule(this, 0, TimeUnit.SECONDS);
+                        if (isStarting) {
+                            future = scheduler.schedule(this, 0);
+                        }
                     }
                 }
             }
-        }, 1, TimeUnit.SECONDS);
+        }, 1000);
         return true;
     }
 
@@ -225,19 +260,13 @@ class DefaultFileReader implements FileReader {
 
     /**
      * 推送数据
-     * 每两秒钟更新一次日志内容范围
+     * 日志文件列表只在目录变更时重新获取，无法监听目录时每两秒钟更新一次
      *
      * @return 返回是否下次不休眠继续推
      */
     private boolean push() {
         try {
-            if (fileRange == null) {
-                this.fileRange = getFileRange();
-                lastTime = System.currentTimeMillis();
-            } else if (System.currentTimeMillis() - lastTime > 2000) {
-                this.fileRange = getFileRange();
-                lastTime = System.currentTimeMillis();
-            }
+            long[] fileRange = getFileRange();
 
             /**
              * 如果位点比最小位点还小，重置读取的文件并且将位点置为当前最小位点,返回true则让其赶紧拉取
@@ -339,36 +368,15 @@ class DefaultFileReader implements FileReader {
     }
 
     private File getTarget(String path, long begin) {
-        File file = new File(path);
-        final String fileName = file.getName();
-        File dirFile = file.getParentFile();
-
-        File[] files = dirFile.listFiles(new FilenameFilter() {
-            @Override
-            public boolean accept(File dir, String name) {
-                if (name.indexOf('.') == -1) {
-                    return false;
-                }
-                String suffix = name.substring(name.lastIndexOf('.') + 1);
-                return name.startsWith(fileName) && NumberUtils.isDigits(suffix);
-            }
-        });
+        File[] files = getLogFiles();
         if (ArrayUtils.isEmpty(files)) {
             return null;
         }
-        Arrays.sort(files, new Comparator<File>() {
-            @Override
-            public int compare(File o1, File o2) {
-                long suffix1 = Long.valueOf(o1.getName().substring(o1.getName().lastIndexOf('.') + 1));
-                long suffix2 = Long.valueOf(o2.getName().substring(o2.getName().lastIndexOf('.') + 1));
-                return (int) (suffix1 - suffix2);
-            }
-        });
 
         File target = null;
         long lastFileSize = 0;
         for (File f : files) {
-            long suffix = Long.valueOf(f.getName().substring(f.getName().lastIndexOf('.') + 1));
+            long suffix = getSuffix(f);
             if (suffix == begin) {
                 return f;
             }
@@ -432,7 +440,8 @@ class DefaultFileReader implements FileReader {
         if (future != null && !future.isCancelled() && !future.isDone()) {
             future.cancel(true);
         }
-        service.shutdownNow();
+        scheduler.getWatcher().unwatch(dirListener);
+        watching = false;
         try {
             this.fileFetcher.close();
         } catch (IOException e) {
@@ -489,39 +498,15 @@ class DefaultFileReader implements FileReader {
      */
     private long[] getFileRange() {
         try {
-            File file = new File(path);
-            final String fileName = file.getName();
-            File dirFile = file.getParentFile();
-            if (dirFile == null || !dirFile.exists()) {
-                return ZERO;
-            }
-
-            File[] files = dirFile.listFiles(new FilenameFilter() {
-                @Override
-                public boolean accept(File dir, String name) {
-                    if (name.indexOf('.') == -1) {
-                        return false;
-                    }
-                    String suffix = name.substring(name.lastIndexOf('.') + 1);
-                    return name.startsWith(fileName) && NumberUtils.isDigits(suffix);
-                }
-            });
+            File[] files = getLogFiles();
             if (ArrayUtils.isEmpty(files)) {
                 return ZERO;
             }
-            Arrays.sort(files, new Comparator<File>() {
-                @Override
-                public int compare(File o1, File o2) {
-                    long suffix1 = Long.valueOf(o1.getName().substring(o1.getName().lastIndexOf('.') + 1));
-                    long suffix2 = Long.valueOf(o2.getName().substring(o2.getName().lastIndexOf('.') + 1));
-                    return (int) (suffix1 - suffix2);
-                }
-            });
 
             File first = files[0];
             File last = files[files.length - 1];
-            long start = Long.valueOf(first.getName().substring(first.getName().lastIndexOf('.') + 1));
-            long end = Long.valueOf(last.getName().substring(last.getName().lastIndexOf('.') + 1)) + last.length();
+            long start = getSuffix(first);
+            long end = getSuffix(last) + last.length();
             return new long[]{start, end};
         } catch (Throwable e) {
             return ZERO;
@@ -534,44 +519,65 @@ class DefaultFileReader implements FileReader {
      * @return
      */
     private long[] getSizeRange() {
-        try {
-            File file = new File(path);
-            final String fileName = file.getName();
-            File dirFile = file.getParentFile();
-            if (dirFile == null || !dirFile.exists()) {
-                return ZERO;
-            }
+        filesChanged = true;
+        return getFileRange();
+    }
 
-            File[] files = dirFile.listFiles(new FilenameFilter() {
-                @Override
-                public boolean accept(File dir, String name) {
-                    if (name.indexOf('.') == -1) {
-                        return false;
-                    }
-                    String suffix = name.substring(name.lastIndexOf('.') + 1);
-                    return name.startsWith(fileName) && NumberUtils.isDigits(suffix);
+    /**
+     * 获取日志文件列表，只有在目录发生变更或者超过刷新间隔时才重新 list 日志目录
+     *
+     * @return 按照位点排序的日志文件列表
+     */
+    private File[] getLogFiles() {
+        long now = System.currentTimeMillis();
+        File[] files = this.logFiles;
+        long interval = watching ? WATCH_LIST_INTERVAL : POLL_LIST_INTERVAL;
+        if (files == null || filesChanged || now - lastListTime > interval) {
+            /**
+             * 先清除标识再 list，list 期间发生的变更会在下次重新获取
+             */
+            filesChanged = false;
+            files = listLogFiles();
+            this.logFiles = files;
+            this.lastListTime = now;
+        }
+        return files;
+    }
+
+    private File[] listLogFiles() {
+        File file = new File(path);
+        final String fileName = file.getName();
+        File dirFile = file.getParentFile();
+        if (dirFile == null || !dirFile.exists()) {
+            return null;
+        }
+
+        File[] files = dirFile.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                if (name.indexOf('.') == -1) {
+                    return false;
                 }
-            });
-            if (ArrayUtils.isEmpty(files)) {
-                return ZERO;
+                String suffix = name.substring(name.lastIndexOf('.') + 1);
+                return name.startsWith(fileName) && NumberUtils.isDigits(suffix);
             }
-            Arrays.sort(files, new Comparator<File>() {
-                @Override
-                public int compare(File o1, File o2) {
-                    long suffix1 = Long.valueOf(o1.getName().substring(o1.getName().lastIndexOf('.') + 1));
-                    long suffix2 = Long.valueOf(o2.getName().substring(o2.getName().lastIndexOf('.') + 1));
-                    return (int) (suffix1 - suffix2);
-                }
-            });
-
-            File first = files[0];
-            File last = files[files.length - 1];
-            long start = Long.valueOf(first.getName().substring(first.getName().lastIndexOf('.') + 1));
-            long end = Long.valueOf(last.getName().substring(last.getName().lastIndexOf('.') + 1)) + last.length();
-            return new long[]{start, end};
-        } catch (Throwable e) {
-            return ZERO;
+        });
+        if (ArrayUtils.isEmpty(files)) {
+            return files;
         }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File o1, File o2) {
+                long suffix1 = getSuffix(o1);
+                long suffix2 = getSuffix(o2);
+                return suffix1 < suffix2 ? -1 : (suffix1 == suffix2 ? 0 : 1);
+            }
+        });
+        return files;
+    }
+
+    private static long getSuffix(File file) {
+        return Long.valueOf(file.getName().substring(file.getName().lastIndexOf('.') + 1));
     }
 
     @Override
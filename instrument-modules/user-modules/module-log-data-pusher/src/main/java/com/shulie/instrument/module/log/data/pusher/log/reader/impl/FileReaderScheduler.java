@@ -0,0 +1,87 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.shulie.instrument.module.log.data.pusher.log.reader.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 所有 FileReader 共享的调度器
+ * <p>
+ * 推送日志使用固定大小的独立线程池，避免公共线程池被占满时导致日志无法推送;
+ * 每个 FileReader 每次只推送一批数据后重新入队, 多个文件在少量线程上轮流推送
+ */
+class FileReaderScheduler {
+    private final static Logger LOGGER = LoggerFactory.getLogger(FileReaderScheduler.class.getName());
+
+    /**
+     * 默认推送线程数
+     */
+    final static int DEFAULT_THREADS = 2;
+
+    private final ScheduledExecutorService service;
+    private final LogDirectoryWatcher watcher;
+
+    FileReaderScheduler(int threads) {
+        final AtomicInteger index = new AtomicInteger();
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(threads <= 0 ? DEFAULT_THREADS : threads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "Log-Data-Pusher-Service-" + index.incrementAndGet());
+                t.setDaemon(true);
+                t.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+                    @Override
+                    public void uncaughtException(Thread t, Throwable e) {
+                        LOGGER.error("Thread {} caught a unknow exception with UncaughtExceptionHandler", t.getName(), e);
+                    }
+                });
+                return t;
+            }
+        });
+        /**
+         * FileReader 停止后取消的任务直接移除，避免积压在延迟队列中
+         */
+        executor.setRemoveOnCancelPolicy(true);
+        this.service = executor;
+        this.watcher = new LogDirectoryWatcher();
+    }
+
+    /**
+     * 提交推送任务, 相同延迟的任务按提交顺序执行
+     *
+     * @param task  任务
+     * @param delay 延迟时间,单位毫秒
+     * @return 任务 future
+     */
+    ScheduledFuture<?> schedule(Runnable task, long delay) {
+        return service.schedule(task, delay, TimeUnit.MILLISECONDS);
+    }
+
+    LogDirectoryWatcher getWatcher() {
+        return watcher;
+    }
+
+    void shutdown() {
+        watcher.close();
+        service.shutdownNow();
+    }
+}
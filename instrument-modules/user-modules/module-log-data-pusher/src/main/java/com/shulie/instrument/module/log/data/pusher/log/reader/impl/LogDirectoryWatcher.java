@@ -0,0 +1,190 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.shulie.instrument.module.log.data.pusher.log.reader.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 日志目录监听器，基于 {@link WatchService}(Linux 下为 inotify) 感知日志文件的创建、滚动和删除,
+ * 避免每个 FileReader 周期性地 list 日志目录
+ * <p>
+ * 所有 FileReader 共享一个监听线程，如果当前平台或目录不支持监听则由 FileReader 自行退化为轮询
+ */
+class LogDirectoryWatcher {
+    private final static Logger LOGGER = LoggerFactory.getLogger(LogDirectoryWatcher.class.getName());
+
+    /**
+     * 目录变更监听
+     */
+    interface Listener {
+        /**
+         * 目录下有文件被创建或删除时回调
+         *
+         * @param fileName 发生变更的文件名,如果为 null 则代表事件有丢失,需要全量刷新
+         */
+        void onChanged(String fileName);
+
+        /**
+         * 目录已经无法继续监听,需要退化为轮询
+         */
+        void onInvalid();
+    }
+
+    private final Map<Path, WatchKey> keys = new ConcurrentHashMap<Path, WatchKey>();
+    private final Map<WatchKey, List<Listener>> listeners = new ConcurrentHashMap<WatchKey, List<Listener>>();
+    private volatile WatchService watchService;
+    private Thread watchThread;
+    private volatile boolean isRunning;
+
+    /**
+     * 监听目录
+     *
+     * @param dir      目录
+     * @param listener 监听器
+     * @return 是否监听成功, 失败则需要使用轮询
+     */
+    synchronized boolean watch(File dir, Listener listener) {
+        if (dir == null || !dir.isDirectory()) {
+            return false;
+        }
+        try {
+            if (!ensureStarted()) {
+                return false;
+            }
+            Path path = dir.getAbsoluteFile().toPath();
+            WatchKey key = keys.get(path);
+            if (key == null || !key.isValid()) {
+                key = path.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE);
+                keys.put(path, key);
+            }
+            List<Listener> list = listeners.get(key);
+            if (list == null) {
+                list = new CopyOnWriteArrayList<Listener>();
+                listeners.put(key, list);
+            }
+            list.add(listener);
+            return true;
+        } catch (Throwable e) {
+            LOGGER.warn("watch log dir {} failed, fallback to polling.", dir.getAbsolutePath(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 取消监听
+     *
+     * @param listener 监听器
+     */
+    synchronized void unwatch(Listener listener) {
+        for (List<Listener> list : listeners.values()) {
+            list.remove(listener);
+        }
+    }
+
+    private boolean ensureStarted() throws IOException {
+        if (isRunning) {
+            return true;
+        }
+        /**
+         * 监听线程只使用自己启动时创建的 WatchService, close 时关闭它即可让线程退出
+         */
+        final WatchService service = FileSystems.getDefault().newWatchService();
+        watchService = service;
+        isRunning = true;
+        watchThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (isRunning) {
+                    WatchKey key;
+                    try {
+                        key = service.take();
+                    } catch (InterruptedException e) {
+                        return;
+                    } catch (ClosedWatchServiceException e) {
+                        return;
+                    }
+                    dispatch(key);
+                }
+            }
+        }, "Log-Data-Pusher-Watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+        return true;
+    }
+
+    private void dispatch(WatchKey key) {
+        List<Listener> list = listeners.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (list == null) {
+                continue;
+            }
+            String fileName = null;
+            if (event.kind() != StandardWatchEventKinds.OVERFLOW && event.context() instanceof Path) {
+                fileName = ((Path) event.context()).getFileName().toString();
+            }
+            for (Listener listener : list) {
+                try {
+                    listener.onChanged(fileName);
+                } catch (Throwable e) {
+                    LOGGER.error("dispatch log dir event err!", e);
+                }
+            }
+        }
+        if (!key.reset()) {
+            /**
+             * 目录被删除或者无法访问,通知 FileReader 退化为轮询
+             */
+            keys.values().remove(key);
+            listeners.remove(key);
+            if (list != null) {
+                for (Listener listener : list) {
+                    listener.onInvalid();
+                }
+            }
+        }
+    }
+
+    synchronized void close() {
+        isRunning = false;
+        keys.clear();
+        listeners.clear();
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                LOGGER.error("close log dir watch service err!", e);
+            }
+        }
+        if (watchThread != null) {
+            watchThread.interrupt();
+            watchThread = null;
+        }
+    }
+}
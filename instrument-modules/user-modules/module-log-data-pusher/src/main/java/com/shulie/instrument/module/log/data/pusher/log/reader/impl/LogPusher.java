@@ -39,18 +39,27 @@ public class LogPusher {
     private volatile boolean isStarted;
     private ScheduledFuture positionFuture;
     private ScheduledFuture failuresFuture;
+    /**
+     * 所有日志文件共享的推送调度器
+     */
+    private FileReaderScheduler scheduler;
 
     public LogPusher(List<LogPusherOptions> options) {
+        this(options, FileReaderScheduler.DEFAULT_THREADS);
+    }
+
+    public LogPusher(List<LogPusherOptions> options, int readerThreads) {
         if (CollectionUtils.isEmpty(options)) {
             return;
         }
         this.failures = new ArrayList<FileReader>();
+        this.scheduler = new FileReaderScheduler(Math.min(readerThreads, options.size()));
 
         this.fileReaders = new FileReader[options.size()];
         int idx = 0;
         for (LogPusherOptions logPusherOptions : options) {
             fileReaders[idx++] = new DefaultFileReader(logPusherOptions.getDataType(), logPusherOptions.getVersion(),
-                    logPusherOptions.getPath(), logPusherOptions.getLogCallback(), logPusherOptions.getMaxFailureSleepInterval());
+                    logPusherOptions.getPath(), logPusherOptions.getLogCallback(), logPusherOptions.getMaxFailureSleepInterval(), scheduler);
         }
 
     }
@@ -135,5 +144,7 @@ public class LogPusher {
             fileReader.stop();
         }
         this.fileReaders = null;
+        this.scheduler.shutdown();
+        this.scheduler = null;
     }
 }
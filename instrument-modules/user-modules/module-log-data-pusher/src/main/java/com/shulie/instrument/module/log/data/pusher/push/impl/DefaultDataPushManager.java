@@ -141,7 +141,7 @@ public class DefaultDataPushManager implements DataPushManager {
                 logPusherOptions.setLogCallback(dataPusher.buildLogCallback());
             }
 
-            this.logPusher = new LogPusher(logPusherOptionsList);
+            this.logPusher = new LogPusher(logPusherOptionsList, pusherOptions.getLogReaderThreads());
             logPusher.start();
 
         } catch (Throwable e) {
@@ -78,6 +78,19 @@ public class PusherOptions {
      */
     private List<LogPusherOptions> logPusherOptions;
 
+    /**
+     * 日志推送线程数，所有日志文件共享
+     */
+    private int logReaderThreads = 2;
+
+    public int getLogReaderThreads() {
+        return logReaderThreads;
+    }
+
+    public void setLogReaderThreads(int logReaderThreads) {
+        this.logReaderThreads = logReaderThreads;
+    }
+
     public List<LogPusherOptions> getLogPusherOptions() {
         return logPusherOptions;
     }
@@ -14,6 +14,7 @@
  */
 package com.pamirs.attach.plugin.log4j.destroy;
 
+import com.pamirs.attach.plugin.log4j.interceptor.v2.AppenderTypes;
 import com.pamirs.attach.plugin.log4j.interceptor.v2.holder.Cache;
 import com.shulie.instrument.simulator.api.listener.Destroyed;
 
@@ -25,5 +26,6 @@ public class Log4jDestroy implements Destroyed {
     @Override
     public void destroy() {
         Cache.release();
+        AppenderTypes.release();
     }
 }
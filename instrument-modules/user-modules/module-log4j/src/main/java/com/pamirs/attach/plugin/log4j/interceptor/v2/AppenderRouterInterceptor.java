@@ -56,13 +56,14 @@ public class AppenderRouterInterceptor extends CutoffInterceptorAdaptor {
         if (appender == null) {
             return CutOffResult.passed();
         }
-        if (AppenderTypes.isFileAppender(appender)) {
-            return fileRoute(logEvent, appender);
+        switch (AppenderTypes.routeOf(appender)) {
+            case FILE:
+                return fileRoute(logEvent, appender);
+            case REMOTE:
+                return testPropagate(logEvent, appender);
+            default:
+                return CutOffResult.passed();
         }
-        if (AppenderTypes.isRemoteAppender(appender)) {
-            return testPropagate(logEvent, appender);
-        }
-        return CutOffResult.passed();
     }
 
     public CutOffResult testPropagate(LogEvent logEvent, Appender appender) {
@@ -6,6 +6,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import com.shulie.instrument.simulator.message.ConcurrentWeakHashMap;
+
 /**
  * @author jirenhe | jirenhe@shulie.io
  * @since 2021/12/06 5:46 下午
@@ -14,6 +16,26 @@ public class AppenderTypes {
 
     private static final List<AppenderType> appenderTypeList = new ArrayList<>();
 
+    /**
+     * appender 类 -> 路由方式，每个 appender 类只判断一次，不需要每条日志都加载一遍注册的类
+     */
+    private static final ConcurrentWeakHashMap<Class<?>, Route> routes = new ConcurrentWeakHashMap<>();
+
+    public enum Route {
+        /**
+         * 文件 appender，按压测标识在业务/影子 appender 之间分流
+         */
+        FILE,
+        /**
+         * 远程 appender，把压测标识传递给 appender
+         */
+        REMOTE,
+        /**
+         * 不需要处理
+         */
+        NONE
+    }
+
     static {
         registerAppenderType(
             new ClassFileAppenderType(
@@ -31,6 +53,27 @@ public class AppenderTypes {
 
     public static void registerAppenderType(AppenderType appenderType) {
         appenderTypeList.add(appenderType);
+        routes.clear();
+    }
+
+    /**
+     * 获取 appender 的路由方式
+     *
+     * @param appender appender
+     * @return 路由方式
+     */
+    public static Route routeOf(Object appender) {
+        Class<?> appenderClass = appender.getClass();
+        Route route = routes.get(appenderClass);
+        if (route == null) {
+            route = isFileAppender(appender) ? Route.FILE : isRemoteAppender(appender) ? Route.REMOTE : Route.NONE;
+            routes.put(appenderClass, route);
+        }
+        return route;
+    }
+
+    public static void release() {
+        routes.clear();
     }
 
     public static boolean isFileAppender(Object appender) {
@@ -15,17 +15,12 @@
 package com.pamirs.attach.plugin.logback.interceptor;
 
 import java.lang.reflect.Field;
-import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
-import ch.qos.logback.core.Appender;
-import ch.qos.logback.core.util.COWArrayList;
 import com.pamirs.attach.plugin.logback.utils.AppenderHolder;
+import com.pamirs.attach.plugin.logback.utils.ShadowAppender;
 import com.pamirs.pradar.CutOffResult;
-import com.pamirs.pradar.InvokeContext;
-import com.pamirs.pradar.Pradar;
 import com.pamirs.pradar.interceptor.CutoffInterceptorAdaptor;
 import com.shulie.instrument.simulator.api.annotation.ListenerBehavior;
 import com.shulie.instrument.simulator.api.listener.ext.Advice;
@@ -43,9 +38,7 @@ public class LogInterceptor extends CutoffInterceptorAdaptor {
 
     protected String bizShadowLogPath;
     private static volatile Field appenderListField;
-    public static volatile Method doAppendMethod;
     public static String customizedAppenderClasses;
-    public static Map<Object, InvokeContext> logEventInvokeContextMappings = new ConcurrentHashMap<Object, InvokeContext>();
     private final Logger log = LoggerFactory.getLogger(LogInterceptor.class);
 
     public LogInterceptor(String bizShadowLogPath, String customizedAppenderClasses) {
@@ -66,18 +59,18 @@ public class LogInterceptor extends CutoffInterceptorAdaptor {
             return;
         }
         ClassLoader bizClassLoader = appenderAttachable.getClass().getClassLoader();
-        COWArrayList<Object> ptAppenderList = getPtAppenderList(appenderAttachable, appenderList, bizClassLoader);
-        appendLoopOnAppenders(ptAppenderList, event);
+        ShadowAppender[] ptAppenders = getPtAppenders(appenderAttachable, appenderList, bizClassLoader);
+        appendLoopOnAppenders(ptAppenders, event);
     }
 
-    private COWArrayList<Object> getPtAppenderList(Object appenderAttachable, List appenderList,
+    private ShadowAppender[] getPtAppenders(Object appenderAttachable, List appenderList,
         ClassLoader bizClassLoader) {
-        COWArrayList<Object> ptAppenderList = AppenderHolder.getPtAppenders(appenderAttachable);
-        if (ptAppenderList == null) {
+        ShadowAppender[] ptAppenders = AppenderHolder.getPtAppenders(appenderAttachable);
+        if (ptAppenders == null) {
             synchronized (appenderAttachable) {
-                ptAppenderList = AppenderHolder.getPtAppenders(appenderAttachable);
-                if (ptAppenderList == null) {
-                    ptAppenderList = new COWArrayList<Object>(new Object[0]);
+                ptAppenders = AppenderHolder.getPtAppenders(appenderAttachable);
+                if (ptAppenders == null) {
+                    List<ShadowAppender> ptAppenderList = new ArrayList<ShadowAppender>();
                     for (Object appender : appenderList) {
                         String appenderName;
                         try {
@@ -91,7 +84,7 @@ public class LogInterceptor extends CutoffInterceptorAdaptor {
                                 Object ptAppender = AppenderHolder.getOrCreatePtAppender(bizClassLoader, appender,
                                     bizShadowLogPath);
                                 if (ptAppender != null) {
-                                    ptAppenderList.add(ptAppender);
+                                    ptAppenderList.add(ShadowAppender.bind(ptAppender, isCarryInvokeContext(ptAppender)));
                                 }
                             } else {
                                 log.warn("[logback] appender {} is not started! skip create pt appender", appenderName);
@@ -100,23 +93,25 @@ public class LogInterceptor extends CutoffInterceptorAdaptor {
                             log.warn("[logback] create pt appender : {} fail!", appenderName, e);
                         }
                     }
-                    AppenderHolder.putPtAppenders(appenderAttachable, ptAppenderList);
+                    ptAppenders = ptAppenderList.toArray(new ShadowAppender[ptAppenderList.size()]);
+                    AppenderHolder.putPtAppenders(appenderAttachable, ptAppenders);
                 }
             }
         }
-        return ptAppenderList;
+        return ptAppenders;
     }
 
-    public void appendLoopOnAppenders(COWArrayList<Object> ptAppenderList, Object e) {
-        final Object[] appenderArray = ptAppenderList.asTypedArray();
-        for (Object objectAppender : appenderArray) {
+    /**
+     * 异步压测流量,传上下文
+     */
+    private static boolean isCarryInvokeContext(Object ptAppender) {
+        return customizedAppenderClasses != null && ptAppender.getClass().getSimpleName().equals("AsyncAppender");
+    }
+
+    public void appendLoopOnAppenders(ShadowAppender[] ptAppenders, Object e) {
+        for (ShadowAppender ptAppender : ptAppenders) {
             try {
-                initDoAppendMethod(objectAppender);
-                // 异步压测流量,传上下文
-                if (customizedAppenderClasses != null && objectAppender.getClass().getSimpleName().equals("AsyncAppender")) {
-                    logEventInvokeContextMappings.put(e, Pradar.getInvokeContext());
-                }
-                doAppendMethod.invoke(objectAppender, e);
+                ptAppender.append(e);
             } catch (Exception ex) {
                 throw new RuntimeException(ex);
             }
@@ -133,14 +128,4 @@ public class LogInterceptor extends CutoffInterceptorAdaptor {
         }
     }
 
-    private static void initDoAppendMethod(Object objectAppender) throws NoSuchMethodException, ClassNotFoundException {
-        if (doAppendMethod == null) {
-            synchronized (LogInterceptor.class) {
-                if (doAppendMethod == null) {
-                    doAppendMethod = objectAppender.getClass().getClassLoader().loadClass("ch.qos.logback.core.Appender").getDeclaredMethod("doAppend", new Class[] {Object.class});
-                }
-            }
-        }
-    }
-
 }
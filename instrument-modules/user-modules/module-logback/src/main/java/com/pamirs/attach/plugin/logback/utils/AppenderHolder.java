@@ -25,7 +25,6 @@ import java.util.Set;
 import ch.qos.logback.classic.AsyncAppender;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.core.Appender;
-import ch.qos.logback.core.util.COWArrayList;
 import com.pamirs.attach.plugin.logback.LogbackPlugin;
 import com.pamirs.attach.plugin.logback.interceptor.LogInterceptor;
 import com.pamirs.pradar.InvokeContext;
@@ -84,7 +83,8 @@ public class AppenderHolder {
         }
     }
 
-    private static Object tryCreateCustomizedAsyncAppender(ClassLoader bizClassLoader, final Object appender, final String appenderName) throws ClassNotFoundException {
+    private static Object tryCreateCustomizedAsyncAppender(ClassLoader bizClassLoader, final Object appender, final String appenderName) throws ClassNotFoundException, NoSuchMethodException {
+        final Method doAppendMethod = ShadowAppender.doAppendMethodOf(appender);
         return Proxy.newProxyInstance(bizClassLoader, new Class[]{bizClassLoader.loadClass("ch.qos.logback.core.Appender")}, new InvocationHandler() {
             @Override
             public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
@@ -95,15 +95,28 @@ public class AppenderHolder {
                 if (!methodName.equals("doAppend")) {
                     return Reflect.on(appender).call(method, args).get();
                 }
-                Pradar.setClusterTest(true);
-                if(LogInterceptor.logEventInvokeContextMappings.containsKey(appender.getClass().getName())){
-                    InvokeContext context = LogInterceptor.logEventInvokeContextMappings.remove(args[0]);
-                    if(context != null){
-                        Pradar.setInvokeContext(context);
+                /**
+                 * 一般由异步 appender 的工作线程调用，按写日志线程的上下文快照重建上下文，
+                 * 写完后恢复工作线程原来的上下文，避免压测标记残留到下一条业务日志
+                 */
+                InvokeContext previous = Pradar.getInvokeContext();
+                boolean previousClusterTest = Pradar.isClusterTest();
+                ShadowAppender.EventContext context = ShadowAppender.takeInvokeContext(args[0]);
+                try {
+                    if (context != null) {
+                        context.restore();
+                    }
+                    Pradar.setClusterTest(true);
+                    doAppendMethod.invoke(appender, args[0]);
+                    return null;
+                } finally {
+                    if (previous == null) {
+                        Pradar.clearInvokeContext();
+                    } else {
+                        Pradar.setInvokeContext(previous);
+                        Pradar.setClusterTest(previousClusterTest);
                     }
                 }
-                LogInterceptor.doAppendMethod.invoke(appender, args[0]);
-                return null;
             }
         });
     }
@@ -198,15 +211,16 @@ public class AppenderHolder {
     public static void release() {
         targetCache.clear();
         ptAppenderListCache.clear();
+        ShadowAppender.release();
     }
 
-    public static COWArrayList<Object> getPtAppenders(Object appenderAttachable) {
-        return (COWArrayList<Object>) ptAppenderListCache.get(appenderAttachable);
+    public static ShadowAppender[] getPtAppenders(Object appenderAttachable) {
+        return (ShadowAppender[]) ptAppenderListCache.get(appenderAttachable);
     }
 
     public static void putPtAppenders(Object appenderAttachable,
-                                      COWArrayList<Object> ptAppenderList) {
-        ptAppenderListCache.put(appenderAttachable, ptAppenderList);
+                                      ShadowAppender[] ptAppenders) {
+        ptAppenderListCache.put(appenderAttachable, ptAppenders);
     }
 
     private static void initCustomizedAppender() {
@@ -0,0 +1,147 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.attach.plugin.logback.utils;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.pamirs.pradar.Pradar;
+import com.pamirs.pradar.PradarService;
+import com.shulie.instrument.simulator.message.ConcurrentWeakHashMap;
+
+/**
+ * 绑定好 doAppend 方法的影子 appender
+ * <p>
+ * appender 由业务类加载器加载，只能反射调用。doAppend 方法在创建影子 appender 列表时
+ * 按 appender 自身的类加载器查找一次，之后每条日志直接调用，不再检查和查找方法
+ * </p>
+ */
+public final class ShadowAppender {
+
+    private static final String APPENDER_CLASS = "ch.qos.logback.core.Appender";
+
+    /**
+     * 日志事件 -> 写日志线程的调用上下文快照，异步 appender 的工作线程取出后恢复上下文
+     * 快照只保存 traceId、rpcId、压测标和 debug 标，不序列化完整的上下文，
+     * 也不引用业务线程正在使用的 InvokeContext，工作线程不会修改业务线程的上下文；
+     * 使用弱引用 key，被异步 appender 丢弃的日志事件不会残留
+     */
+    private static final ConcurrentWeakHashMap eventInvokeContexts = new ConcurrentWeakHashMap();
+
+    private final Object appender;
+    private final Method doAppendMethod;
+    private final boolean carryInvokeContext;
+
+    private ShadowAppender(Object appender, Method doAppendMethod, boolean carryInvokeContext) {
+        this.appender = appender;
+        this.doAppendMethod = doAppendMethod;
+        this.carryInvokeContext = carryInvokeContext;
+    }
+
+    /**
+     * 绑定影子 appender
+     *
+     * @param appender           影子 appender
+     * @param carryInvokeContext 是否需要把调用上下文带给异步 appender 的工作线程
+     * @return 绑定好的影子 appender
+     */
+    public static ShadowAppender bind(Object appender, boolean carryInvokeContext) throws Exception {
+        return new ShadowAppender(appender, doAppendMethodOf(appender), carryInvokeContext);
+    }
+
+    /**
+     * 查找 appender 所在类加载器中的 Appender#doAppend 方法
+     *
+     * @param appender appender
+     * @return doAppend 方法
+     */
+    public static Method doAppendMethodOf(Object appender) throws ClassNotFoundException, NoSuchMethodException {
+        ClassLoader classLoader = appender.getClass().getClassLoader();
+        Class<?> appenderClass = Class.forName(APPENDER_CLASS, false, classLoader);
+        return appenderClass.getMethod("doAppend", Object.class);
+    }
+
+    public void append(Object event) throws Exception {
+        if (carryInvokeContext) {
+            EventContext context = EventContext.capture();
+            if (context != null) {
+                eventInvokeContexts.put(event, context);
+            }
+        }
+        doAppendMethod.invoke(appender, event);
+    }
+
+    /**
+     * 取出写日志线程记录的调用上下文快照
+     *
+     * @param event 日志事件
+     * @return 调用上下文快照，没有记录时返回 null
+     */
+    public static EventContext takeInvokeContext(Object event) {
+        if (eventInvokeContexts.isEmpty()) {
+            return null;
+        }
+        return (EventContext) eventInvokeContexts.remove(event);
+    }
+
+    public static void release() {
+        eventInvokeContexts.clear();
+    }
+
+    /**
+     * 写日志线程的调用上下文快照，字段固定，只用于在工作线程中重建日志需要的上下文
+     */
+    public static final class EventContext {
+        private final String traceId;
+        private final String rpcId;
+        private final boolean clusterTest;
+        private final boolean debug;
+
+        private EventContext(String traceId, String rpcId, boolean clusterTest, boolean debug) {
+            this.traceId = traceId;
+            this.rpcId = rpcId;
+            this.clusterTest = clusterTest;
+            this.debug = debug;
+        }
+
+        /**
+         * 记录当前线程的调用上下文
+         *
+         * @return 快照，当前线程没有调用上下文时返回 null
+         */
+        static EventContext capture() {
+            String traceId = Pradar.getTraceId();
+            if (traceId == null) {
+                return null;
+            }
+            return new EventContext(traceId, Pradar.getInvokeId(), Pradar.isClusterTest(), Pradar.isDebug());
+        }
+
+        /**
+         * 在当前线程按快照重建调用上下文
+         */
+        public void restore() {
+            Map<String, String> context = new HashMap<String, String>(8);
+            context.put(PradarService.PRADAR_TRACE_ID_KEY, traceId);
+            if (rpcId != null) {
+                context.put(PradarService.PRADAR_INVOKE_ID_KEY, rpcId);
+            }
+            context.put(PradarService.PRADAR_CLUSTER_TEST_KEY, String.valueOf(clusterTest));
+            context.put(PradarService.PRADAR_DEBUG_KEY, String.valueOf(debug));
+            Pradar.setInvokeContext((Object) context);
+        }
+    }
+}
@@ -39,6 +39,7 @@ public class MessagingCommonPlugin extends ModuleLifecycleAdapter implements Ext
     @Override
     public void onUnload() throws Throwable {
         logger.info("[messaging-common] begin onUnload");
+        ConsumerManager.shutdown();
         ConsumerManager.releaseAll();
         logger.info("[messaging-common] end onUnload");
     }
@@ -5,6 +5,9 @@ import com.pamirs.pradar.bean.SyncObject;
 import com.pamirs.pradar.bean.SyncObjectData;
 import com.pamirs.pradar.gson.GsonFactory;
 import com.pamirs.pradar.pressurement.agent.event.IEvent;
+import com.pamirs.pradar.pressurement.agent.event.impl.ClusterTestSwitchOnEvent;
+import com.pamirs.pradar.pressurement.agent.event.impl.MqWhiteListConfigEvent;
+import com.pamirs.pradar.pressurement.agent.event.impl.SilenceSwitchOffEvent;
 import com.pamirs.pradar.pressurement.agent.event.impl.SilenceSwitchOnEvent;
 import com.pamirs.pradar.pressurement.agent.listener.EventResult;
 import com.pamirs.pradar.pressurement.agent.listener.PradarEventListener;
@@ -29,6 +32,8 @@ import org.slf4j.LoggerFactory;
 import java.lang.reflect.Field;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
@@ -40,15 +45,52 @@ public class ConsumerManager {
     private static final Set<Field> notNullList = new HashSet<Field>();
 
     //所有注册上来的消费者拉起信息
-    private final static List<ConsumerRegisterModule> registerList = new Vector<ConsumerRegisterModule>();
+    private final static List<ConsumerRegisterModule> registerList = new CopyOnWriteArrayList<ConsumerRegisterModule>();
 
     //按照业务server分组的影子消费者信息，
     private final static Map<String, ShadowConsumer> shadowConsumerMap = new ConcurrentHashMap<>();
 
-    private static ScheduledExecutorService taskService;
+    private static volatile ScheduledExecutorService taskService;
+    private static ExecutorService startService;
     private static final SyncObject EMPTY_SYNC_OBJECT = new SyncObject();
+    // 定时全量检查只作为兜底, 影子消费者的创建由注册和配置变更事件触发
     private static final int initialDelay = 30;
     private static final int delay = 60;
+    // 合并短时间内的多次触发, 单位毫秒
+    private static final int triggerDelay = 1000;
+    // 同时启动的影子消费者数量
+    private static final int startConcurrency = getIntProperty("messaging.shadow.consumer.start.concurrency", 4);
+    // 启动失败后的重试间隔, 单位毫秒
+    private static final long retryBaseDelay = 2000;
+    private static final long retryMaxDelay = 60000;
+
+    private static final AtomicBoolean triggered = new AtomicBoolean();
+    private static final Runnable triggerTask = new Runnable() {
+        @Override
+        public void run() {
+            triggered.set(false);
+            guardRunTask();
+        }
+    };
+    private static final Runnable retryTask = new Runnable() {
+        @Override
+        public void run() {
+            trigger();
+        }
+    };
+
+    private static final SyncObjectService.Listener syncObjectListener = new SyncObjectService.Listener() {
+        @Override
+        public void onSaved(String key) {
+            // 业务消费者创建或订阅后立即拉起影子消费者
+            for (ConsumerRegisterModule consumerRegisterModule : registerList) {
+                if (consumerRegisterModule.getSyncObjectMap().containsKey(key)) {
+                    trigger();
+                    return;
+                }
+            }
+        }
+    };
 
     static {
         PradarEventListener listener = new PradarEventListener() {
@@ -57,6 +99,10 @@ public class ConsumerManager {
                 // 静默时关闭所有影子消费者
                 if (event instanceof SilenceSwitchOnEvent) {
                     releaseAll();
+                } else if (event instanceof MqWhiteListConfigEvent
+                        || event instanceof ClusterTestSwitchOnEvent
+                        || event instanceof SilenceSwitchOffEvent) {
+                    trigger();
                 }
                 return EventResult.IGNORE;
             }
@@ -67,6 +113,7 @@ public class ConsumerManager {
             }
         };
         EventRouter.router().addListener(listener);
+        SyncObjectService.addListener(syncObjectListener);
     }
 
     static List<ShadowConsumer> runningShadowConsumer() {
@@ -95,6 +142,40 @@ public class ConsumerManager {
         registerList.add(consumerRegisterModule);
 
         startTask();
+        trigger();
+    }
+
+    /**
+     * 触发一次影子消费者的创建, 短时间内的多次触发会被合并
+     */
+    static void trigger() {
+        ScheduledExecutorService service = taskService;
+        if (service == null) {
+            return;
+        }
+        if (triggered.compareAndSet(false, true)) {
+            try {
+                service.schedule(triggerTask, triggerDelay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                triggered.set(false);
+            }
+        }
+    }
+
+    /**
+     * 关闭后台任务, 模块卸载时调用
+     */
+    public static synchronized void shutdown() {
+        SyncObjectService.removeListener(syncObjectListener);
+        if (taskService != null) {
+            taskService.shutdownNow();
+            taskService = null;
+        }
+        if (startService != null) {
+            startService.shutdownNow();
+            startService = null;
+        }
+        triggered.set(false);
     }
 
     /**
@@ -231,8 +312,7 @@ public class ConsumerManager {
         if (!PradarSwitcher.isClusterTestReady() || PradarService.isSilence()) {
             return;
         }
-        // 避免出现 ConcurrentModificationException
-        for (ConsumerRegisterModule consumerRegisterModule : new Vector<>(registerList)) {
+        for (ConsumerRegisterModule consumerRegisterModule : registerList) {
             Thread.currentThread().setContextClassLoader(consumerRegisterModule.getConsumerRegister().getClass().getClassLoader());
             refreshSyncObj(consumerRegisterModule);
         }
@@ -278,6 +358,9 @@ public class ConsumerManager {
                             entry.setValue(newData);
                             isRefreshed = true;
                         }
+                    } else if (!isRefreshed && hasUnregisteredData(consumerRegisterModule, entry.getValue())) {
+                        //已经获取到的同步对象中有新的业务消费者
+                        isRefreshed = true;
                     }
                 }
                 if (isRefreshed) {
@@ -290,46 +373,106 @@ public class ConsumerManager {
         }
     }
 
+    private static boolean hasUnregisteredData(ConsumerRegisterModule consumerRegisterModule, SyncObject syncObject) {
+        for (SyncObjectData objectData : syncObject.getDatas()) {
+            if (!consumerRegisterModule.getSyncObjectDataMap().containsKey(objectData)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 影子消费者之间并行启动, 并发数由 messaging.shadow.consumer.start.concurrency 控制,
+     * 处于失败退避中的影子消费者本次跳过
+     */
     private synchronized static void tryToStartConsumer() {
-        Set<String> mqWhiteList = GlobalConfig.getInstance().getMqWhiteList();
+        final Set<String> mqWhiteList = GlobalConfig.getInstance().getMqWhiteList();
+        long now = System.currentTimeMillis();
+        List<Future<?>> futures = new ArrayList<Future<?>>();
         for (Map.Entry<String, ShadowConsumer> entry : shadowConsumerMap.entrySet()) {
-            ShadowConsumer shadowConsumer = entry.getValue();
-            Thread.currentThread().setContextClassLoader(shadowConsumer.getConsumerExecute().getClass().getClassLoader());
-            String configs = null;
+            final ShadowConsumer shadowConsumer = entry.getValue();
+            if (shadowConsumer.getNextRetryTime() > now) {
+                continue;
+            }
+            futures.add(getStartService().submit(new Runnable() {
+                @Override
+                public void run() {
+                    SimulatorGuard.getInstance().doGuard(new Runnable() {
+                        @Override
+                        public void run() {
+                            tryToStartConsumer(shadowConsumer, mqWhiteList);
+                        }
+                    });
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
             try {
-                configs = shadowConsumer.getConfigSet().stream().map(ConsumerConfig::keyOfConfig).collect(Collectors.joining(","));
-                //todo@langyi 支持集群模式
-                Set<ConsumerConfig> enableConfigSet = new HashSet<>();
-                if (shadowConsumer.getConfigSet().isEmpty()) {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                logger.error("[messaging-common]try to start consumer server fail!", e.getCause());
+            }
+        }
+    }
+
+    private static void tryToStartConsumer(ShadowConsumer shadowConsumer, Set<String> mqWhiteList) {
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(shadowConsumer.getConsumerExecute().getClass().getClassLoader());
+        String configs = null;
+        try {
+            configs = shadowConsumer.getConfigSet().stream().map(ConsumerConfig::keyOfConfig).collect(Collectors.joining(","));
+            //todo@langyi 支持集群模式
+            Set<ConsumerConfig> enableConfigSet = new HashSet<>();
+            if (shadowConsumer.getConfigSet().isEmpty()) {
+                return;
+            }
+            for (ConsumerConfig consumerConfig : shadowConsumer.getConfigSet()) {
+                String key = consumerConfig.keyOfConfig();
+                if (key == null) {
                     continue;
                 }
-                for (ConsumerConfig consumerConfig : shadowConsumer.getConfigSet()) {
-                    String key = consumerConfig.keyOfConfig();
-                    if (key == null) {
-                        continue;
-                    }
-                    if (mqWhiteList.contains(key)) {
-                        enableConfigSet.add(consumerConfig);
-                    }
+                if (mqWhiteList.contains(key)) {
+                    enableConfigSet.add(consumerConfig);
                 }
-                if (isConfigDiff(enableConfigSet, shadowConsumer.getEnableConfigSet())) {
-                    try {
-                        BizClassLoaderService.setBizClassLoader(shadowConsumer.getBizTarget().getClass().getClassLoader());
-                        logger.info("[messaging-common]threadName: {}, bizClassLoad: {}", Thread.currentThread().getName(), shadowConsumer.getBizTarget().getClass().getClassLoader().toString());
-                        stopAndClearShadowServer(shadowConsumer);
-                        fetchShadowServer(shadowConsumer, configs, enableConfigSet);
-                        logger.info("[messaging-common]success fetch shadowServer with config:{}", configs);
-                        doStartShadowServer(shadowConsumer, enableConfigSet);
-                        logger.info("[messaging-common]success start shadowServer with config:{}", configs);
-                        shadowConsumer.setEnableConfigSet(enableConfigSet);
-                    } finally {
-                        BizClassLoaderService.clearBizClassLoader();
-                    }
-
+            }
+            if (isConfigDiff(enableConfigSet, shadowConsumer.getEnableConfigSet())) {
+                try {
+                    BizClassLoaderService.setBizClassLoader(shadowConsumer.getBizTarget().getClass().getClassLoader());
+                    logger.info("[messaging-common]threadName: {}, bizClassLoad: {}", Thread.currentThread().getName(), shadowConsumer.getBizTarget().getClass().getClassLoader().toString());
+                    stopAndClearShadowServer(shadowConsumer);
+                    fetchShadowServer(shadowConsumer, configs, enableConfigSet);
+                    logger.info("[messaging-common]success fetch shadowServer with config:{}", configs);
+                    doStartShadowServer(shadowConsumer, enableConfigSet);
+                    logger.info("[messaging-common]success start shadowServer with config:{}", configs);
+                    shadowConsumer.setEnableConfigSet(enableConfigSet);
+                    shadowConsumer.markSucceeded();
+                } finally {
+                    BizClassLoaderService.clearBizClassLoader();
                 }
-            } catch (Throwable e) {
-                logger.error("[messaging-common]try to start consumer server fail with key:" + configs, e);
+
             }
+        } catch (Throwable e) {
+            long retryDelay = shadowConsumer.markFailed(retryBaseDelay, retryMaxDelay);
+            logger.error("[messaging-common]try to start consumer server fail with key:" + configs + ", will retry after " + retryDelay + "ms", e);
+            scheduleRetry(retryDelay);
+        } finally {
+            Thread.currentThread().setContextClassLoader(contextClassLoader);
+        }
+    }
+
+    private static void scheduleRetry(long retryDelay) {
+        ScheduledExecutorService service = taskService;
+        if (service == null) {
+            return;
+        }
+        try {
+            service.schedule(retryTask, retryDelay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // 已关闭
         }
     }
 
@@ -396,19 +539,54 @@ public class ConsumerManager {
             taskService.scheduleWithFixedDelay(new Runnable() {
                 @Override
                 public void run() {
-                    try {
-                        SimulatorGuard.getInstance().doGuard(new Runnable() {
-                            @Override
-                            public void run() {
-                                runTask();
-                            }
-                        });
-                    } catch (Throwable e) {
-                        logger.error("run messaging task fail!", e);
-                    }
+                    guardRunTask();
                 }
             }, initialDelay, delay, TimeUnit.SECONDS);
         }
     }
 
+    private static void guardRunTask() {
+        try {
+            SimulatorGuard.getInstance().doGuard(new Runnable() {
+                @Override
+                public void run() {
+                    runTask();
+                }
+            });
+        } catch (Throwable e) {
+            logger.error("run messaging task fail!", e);
+        }
+    }
+
+    private synchronized static ExecutorService getStartService() {
+        if (startService == null) {
+            final AtomicInteger index = new AtomicInteger();
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(startConcurrency, startConcurrency, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "messaging-common-start-thread-" + index.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+            executor.allowCoreThreadTimeOut(true);
+            startService = executor;
+        }
+        return startService;
+    }
+
+    private static int getIntProperty(String key, int defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            int result = Integer.parseInt(value.trim());
+            return result > 0 ? result : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
 }
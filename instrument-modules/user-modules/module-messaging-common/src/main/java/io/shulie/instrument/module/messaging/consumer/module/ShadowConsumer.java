@@ -16,6 +16,11 @@ public class ShadowConsumer {
     private ShadowServer shadowServer;
     private Object bizTarget;
     private Set<ConsumerConfig> enableConfigSet;
+    /**
+     * 连续启动失败次数以及下次允许重试的时间
+     */
+    private int failures;
+    private volatile long nextRetryTime;
 
     public ShadowConsumer(ShadowConsumerExecute consumerExecute, Object bizTarget) {
         this.configSet = new HashSet<>();
@@ -68,4 +73,30 @@ public class ShadowConsumer {
         return shadowServer == null || shadowServer.isRunning();
     }
 
+    public long getNextRetryTime() {
+        return nextRetryTime;
+    }
+
+    /**
+     * 记录一次启动失败, 重试间隔按失败次数指数退避
+     *
+     * @param baseDelay 首次重试间隔,单位毫秒
+     * @param maxDelay  最大重试间隔,单位毫秒
+     * @return 本次重试间隔,单位毫秒
+     */
+    public long markFailed(long baseDelay, long maxDelay) {
+        failures++;
+        long delay = baseDelay << Math.min(failures - 1, 16);
+        if (delay <= 0 || delay > maxDelay) {
+            delay = maxDelay;
+        }
+        nextRetryTime = System.currentTimeMillis() + delay;
+        return delay;
+    }
+
+    public void markSucceeded() {
+        failures = 0;
+        nextRetryTime = 0;
+    }
+
 }
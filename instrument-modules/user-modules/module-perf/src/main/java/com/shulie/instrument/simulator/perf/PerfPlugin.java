@@ -25,12 +25,17 @@ import com.shulie.instrument.simulator.api.ModuleInfo;
 import com.shulie.instrument.simulator.api.ModuleLifecycleAdapter;
 import com.shulie.instrument.simulator.api.annotation.Command;
 import com.shulie.instrument.simulator.api.executors.ExecutorServiceFactory;
+import com.shulie.instrument.simulator.api.guard.ListenerCost;
+import com.shulie.instrument.simulator.api.guard.SimulatorOverhead;
 import com.shulie.instrument.simulator.api.resource.ModuleCommandInvoker;
 import com.shulie.instrument.simulator.module.model.gc.GcInfo;
 import com.shulie.instrument.simulator.module.model.memory.MemoryInfo;
 import com.shulie.instrument.simulator.module.model.thread.ThreadInfo;
 import com.shulie.instrument.simulator.perf.builder.PerfResponseBuilder;
+import com.shulie.instrument.simulator.perf.collector.InterceptorCostCollector;
+import com.shulie.instrument.simulator.perf.collector.ThreadCollector;
 import com.shulie.instrument.simulator.perf.entity.PerfResponse;
+import com.shulie.instrument.simulator.perf.entity.ThreadVO;
 import io.shulie.takin.sdk.kafka.HttpSender;
 import io.shulie.takin.sdk.kafka.MessageSendCallBack;
 import io.shulie.takin.sdk.kafka.MessageSendService;
@@ -42,6 +47,7 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.Resource;
 import java.text.SimpleDateFormat;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -66,6 +72,28 @@ public class PerfPlugin extends ModuleLifecycleAdapter implements ExtensionModul
 
     private ScheduledFuture future;
 
+    /**
+     * 定时推送使用的线程采集，cpu 占用按两次采集的差值计算
+     */
+    private ThreadCollector threadCollector;
+
+    /**
+     * 只推送有变化的线程时, 每隔多少次线程采集推送一次全部线程, 便于控制台重新对齐
+     */
+    private final static int THREAD_FULL_PUSH_INTERVAL = 12;
+
+    /**
+     * 是否只推送有变化的线程, 默认开启, 每隔 {@link #THREAD_FULL_PUSH_INTERVAL} 次推送一次全部线程;
+     * 控制台不支持增量合并时通过 pradar.perf.thread.push.mode=full 改回每次推送全部线程
+     */
+    private boolean threadChangedOnly;
+    private int threadCollectCount;
+
+    /**
+     * 定时推送使用的拦截器耗时采集，只推送区间内总耗时最高的前 N 个拦截器
+     */
+    private InterceptorCostCollector interceptorCostCollector;
+
     /**
      * 获取 thread 信息的参数，使用公共变量
      */
@@ -91,6 +119,11 @@ public class PerfPlugin extends ModuleLifecycleAdapter implements ExtensionModul
          * 默认 thread 统计 cpu 耗时占用的时间间隔
          */
         threadParams.put("interval", "100");
+        threadChangedOnly = "changed".equals(simulatorConfig.getProperty("pradar.perf.thread.push.mode", "changed"));
+        threadCollector = new ThreadCollector();
+        threadCollector.prime();
+        interceptorCostCollector = new InterceptorCostCollector(simulatorConfig.getIntProperty("pradar.perf.interceptor.cost.top", 20));
+        interceptorCostCollector.prime();
         future = ExecutorServiceFactory.getFactory().scheduleAtFixedRate(new Runnable() {
             @Override
             public void run() {
@@ -114,15 +147,14 @@ public class PerfPlugin extends ModuleLifecycleAdapter implements ExtensionModul
 
         // thread信息有可能数据量很大所以不需要每次都采集
         long threadCollectInterval = GlobalConfig.getInstance().getSimulatorDynamicConfig().perfThreadCollectInterval() * 1000;
-        List<ThreadInfo> threadInfos = Collections.EMPTY_LIST;
+        List<ThreadVO> threadVOS = Collections.EMPTY_LIST;
+        boolean threadCollected = false;
+        boolean threadChanged = false;
         if ((threadInfoCollectTime.get() + threadCollectInterval) <= System.currentTimeMillis()) {
             threadInfoCollectTime.set(System.currentTimeMillis());
-            CommandResponse<List<ThreadInfo>> threadResp = moduleCommandInvoker.invokeCommand(PerfConstants.MODULE_ID_THREAD, PerfConstants.MODULE_COMMAND_THREAD_INFO, threadParams);
-            if (!threadResp.isSuccess()) {
-                logger.error("Perf: collect perf thread info err! {}", threadResp.getMessage());
-            } else {
-                threadInfos = threadResp.getResult();
-            }
+            threadChanged = threadChangedOnly && ++threadCollectCount % THREAD_FULL_PUSH_INTERVAL != 0;
+            threadVOS = threadCollector.collect(threadChanged);
+            threadCollected = true;
         }
 
         CommandResponse<GcInfo> gcResp = moduleCommandInvoker.invokeCommand(PerfConstants.MODULE_ID_GC, PerfConstants.MODULE_COMMAND_GC_INFO);
@@ -142,14 +174,21 @@ public class PerfPlugin extends ModuleLifecycleAdapter implements ExtensionModul
             memoryInfo = memoryResp.getResult();
         }
 
-        PerfResponse response = PerfResponseBuilder.build(threadInfos, gcInfo, memoryInfo);
-        push(response);
+        PerfResponse response = PerfResponseBuilder.build(gcInfo, memoryInfo, threadVOS);
+        response.setInterceptorCosts(interceptorCostCollector.collect());
+        if (threadChanged) {
+            response.setThreadDataMode("changed");
+            response.setRemovedThreadIds(threadCollector.getRemovedThreadIds());
+        } else if (threadCollected && threadChangedOnly) {
+            response.setThreadDataMode("full");
+        }
+        push(GsonFactory.getGson().toJson(response));
     }
 
-    private void push(final PerfResponse response) {
+    private void push(final String body) {
         final String troControlWebUrl = PropertyUtil.getTroControlWebUrl();
         MessageSendService messageSendService = new PinpointSendServiceFactory().getKafkaMessageInstance();
-        messageSendService.send(PUSH_URL, HttpUtils.getHttpMustHeaders(), GsonFactory.getGson().toJson(response), new MessageSendCallBack() {
+        messageSendService.send(PUSH_URL, HttpUtils.getHttpMustHeaders(), body, new MessageSendCallBack() {
             @Override
             public void success() {
             }
@@ -161,7 +200,7 @@ public class PerfPlugin extends ModuleLifecycleAdapter implements ExtensionModul
         }, new HttpSender() {
             @Override
             public void sendMessage() {
-                HttpUtils.HttpResult result = HttpUtils.doPost(troControlWebUrl + PUSH_URL, GsonFactory.getGson().toJson(response));
+                HttpUtils.HttpResult result = HttpUtils.doPost(troControlWebUrl + PUSH_URL, body);
                 //TODO
                 if (!result.isSuccess()) {
                     logger.error("Perf: push perf info to tro error, status: {}, result: {}", result.getStatus(), result.getResult());
@@ -206,6 +245,37 @@ public class PerfPlugin extends ModuleLifecycleAdapter implements ExtensionModul
         }
     }
 
+    /**
+     * 查询各个拦截器的耗时统计，按估算总耗时倒序
+     *
+     * @param args 参数，top 为返回的条数，不传时返回全部
+     * @return 耗时统计
+     */
+    @Command("interceptorCost")
+    public CommandResponse interceptorCost(Map<String, String> args) {
+        try {
+            List<ListenerCost.Snapshot> costs = SimulatorOverhead.getListenerCosts();
+            Collections.sort(costs, new Comparator<ListenerCost.Snapshot>() {
+                @Override
+                public int compare(ListenerCost.Snapshot o1, ListenerCost.Snapshot o2) {
+                    long v1 = o1.getEstimatedTotalNanos();
+                    long v2 = o2.getEstimatedTotalNanos();
+                    return v1 < v2 ? 1 : (v1 == v2 ? 0 : -1);
+                }
+            });
+            String top = args == null ? null : args.get("top");
+            if (top != null && top.length() > 0) {
+                int n = Integer.parseInt(top);
+                if (n >= 0 && n < costs.size()) {
+                    costs = costs.subList(0, n);
+                }
+            }
+            return CommandResponse.success(costs);
+        } catch (Throwable e) {
+            logger.error("Perf: collect interceptor cost occurred a unknow error. ", e);
+            return CommandResponse.failure(e);
+        }
+    }
 
     @Override
     public void onFrozen() throws Throwable {
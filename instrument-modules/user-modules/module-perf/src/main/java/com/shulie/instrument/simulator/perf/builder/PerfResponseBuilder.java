@@ -41,6 +41,22 @@ public class PerfResponseBuilder {
 
     private final static Logger LOGGER = LoggerFactory.getLogger(PerfResponseBuilder.class);
 
+    /**
+     * 使用已经转换好的线程信息构建
+     *
+     * @param gcInfo     gc 信息
+     * @param memoryInfo 内存信息
+     * @param threadVOS  线程信息
+     * @return 性能数据
+     */
+    public static PerfResponse build(GcInfo gcInfo, MemoryInfo memoryInfo, List<ThreadVO> threadVOS) {
+        PerfResponse response = build(null, gcInfo, memoryInfo);
+        if (CollectionUtils.isNotEmpty(threadVOS)) {
+            response.setThreadDataList(threadVOS);
+        }
+        return response;
+    }
+
     public static PerfResponse build(List<ThreadInfo> threadInfoList, GcInfo gcInfo, MemoryInfo memoryInfo) {
         PerfResponse response = new PerfResponse();
         response.setAgentId(Pradar.AGENT_ID_NOT_CONTAIN_USER_INFO);
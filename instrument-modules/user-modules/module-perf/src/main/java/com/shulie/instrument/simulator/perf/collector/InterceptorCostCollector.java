@@ -0,0 +1,104 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.shulie.instrument.simulator.perf.collector;
+
+import com.shulie.instrument.simulator.api.guard.ListenerCost;
+import com.shulie.instrument.simulator.api.guard.SimulatorOverhead;
+import com.shulie.instrument.simulator.perf.entity.InterceptorCostVO;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 拦截器耗时采集, 推送与上一次采集之间的差值
+ * <p>
+ * 每个监听器保留上一次采集的累计快照, 本次快照与之做差得到区间内的次数、总耗时和 p99,
+ * 只返回区间内总耗时最高的前 N 个拦截器, 不推送累计的直方图, 推送内容的大小固定。
+ * 已经冻结的监听器不再出现在快照中, 对应的基准随之丢弃
+ * </p>
+ * 非线程安全，只在推送线程中调用
+ */
+public class InterceptorCostCollector {
+
+    private final static Comparator<ListenerCost.Snapshot> TOTAL_DESC = new Comparator<ListenerCost.Snapshot>() {
+        @Override
+        public int compare(ListenerCost.Snapshot o1, ListenerCost.Snapshot o2) {
+            long v1 = o1.getEstimatedTotalNanos();
+            long v2 = o2.getEstimatedTotalNanos();
+            return v1 < v2 ? 1 : (v1 == v2 ? 0 : -1);
+        }
+    };
+
+    private final int top;
+
+    /**
+     * 监听器 id -> 上一次采集的累计快照
+     */
+    private Map<Integer, ListenerCost.Snapshot> previous = new HashMap<Integer, ListenerCost.Snapshot>();
+
+    /**
+     * @param top 每次最多返回的拦截器个数
+     */
+    public InterceptorCostCollector(int top) {
+        this.top = top;
+    }
+
+    /**
+     * 记录当前的累计值作为基准，之后第一次采集的差值相对这个基准计算
+     */
+    public void prime() {
+        collect();
+    }
+
+    /**
+     * 采集与上一次采集之间的拦截器耗时
+     *
+     * @return 区间内总耗时最高的前 N 个拦截器, 按总耗时倒序
+     */
+    public List<InterceptorCostVO> collect() {
+        List<ListenerCost.Snapshot> snapshots = SimulatorOverhead.getListenerCosts();
+        Map<Integer, ListenerCost.Snapshot> current = new HashMap<Integer, ListenerCost.Snapshot>(snapshots.size() * 2);
+        List<ListenerCost.Snapshot> deltas = new ArrayList<ListenerCost.Snapshot>(snapshots.size());
+        for (ListenerCost.Snapshot snapshot : snapshots) {
+            current.put(snapshot.getListenerId(), snapshot);
+            ListenerCost.Snapshot delta = snapshot.since(previous.get(snapshot.getListenerId()));
+            if (delta.getSampledCount() > 0) {
+                deltas.add(delta);
+            }
+        }
+        previous = current;
+        if (deltas.isEmpty()) {
+            return Collections.EMPTY_LIST;
+        }
+        Collections.sort(deltas, TOTAL_DESC);
+        int size = Math.min(deltas.size(), top);
+        List<InterceptorCostVO> costs = new ArrayList<InterceptorCostVO>(size);
+        for (int i = 0; i < size; i++) {
+            ListenerCost.Snapshot delta = deltas.get(i);
+            InterceptorCostVO cost = new InterceptorCostVO();
+            cost.setListenerId(delta.getListenerId());
+            cost.setListenerClassName(delta.getListenerClassName());
+            cost.setCount(delta.getEstimatedCount());
+            cost.setTotalNanos(delta.getEstimatedTotalNanos());
+            cost.setP99Nanos(delta.getP99Nanos());
+            costs.add(cost);
+        }
+        return costs;
+    }
+}
@@ -0,0 +1,395 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.shulie.instrument.simulator.perf.collector;
+
+import com.shulie.instrument.simulator.perf.entity.ThreadVO;
+
+import java.lang.management.LockInfo;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 线程信息采集，直接从 ThreadMXBean 读取，不经过 thread 模块的命令调用
+ * <p>
+ * cpu 占用按与上一次采集的差值计算，不需要在采集线程中休眠采样；
+ * 每个线程保留上一次的采集结果，线程栈没有变化时直接复用上一次生成的栈文本，
+ * 相同的线程栈(例如空闲的线程池线程)在所有线程之间共用一份文本。
+ * 输出的 {@link ThreadVO} 与 thread 模块生成的内容保持一致。
+ * 可以只返回与上一次采集相比有变化的线程(cpu 占用、状态、栈、锁、trace 等), 已经结束的线程 id 通过
+ * {@link #getRemovedThreadIds()} 获取
+ * </p>
+ * 非线程安全，只在推送线程中调用
+ */
+public class ThreadCollector {
+
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    /**
+     * 线程 id -> 上一次的采集结果
+     */
+    private Map<Long, ThreadSlot> slots = new HashMap<Long, ThreadSlot>();
+
+    /**
+     * 上一次采集中出现过的线程栈，按栈的 hash 索引
+     */
+    private Map<Integer, StackText> stacks = new HashMap<Integer, StackText>();
+
+    private Thread[] threadBuffer = new Thread[256];
+
+    private final StringBuilder builder = new StringBuilder(1024);
+
+    private final TraceInfoReader traceInfoReader = new TraceInfoReader();
+
+    /**
+     * 记录当前所有线程的 cpu 时间作为基准，之后第一次采集的 cpu 占用相对这个基准计算
+     */
+    public void prime() {
+        collect();
+    }
+
+    /**
+     * 上一次采集后已经结束的线程 id
+     */
+    private List<Long> removedThreadIds = new ArrayList<Long>();
+
+    /**
+     * 采集所有线程的信息
+     *
+     * @return 线程信息
+     */
+    public List<ThreadVO> collect() {
+        return collect(false);
+    }
+
+    /**
+     * 采集线程信息
+     *
+     * @param changedOnly 是否只返回与上一次采集相比有变化的线程
+     * @return 线程信息
+     */
+    public List<ThreadVO> collect(boolean changedOnly) {
+        int count = enumerateThreads();
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = threadBuffer[i].getId();
+        }
+        ThreadInfo[] infos = threadMXBean.getThreadInfo(ids, Integer.MAX_VALUE);
+
+        Map<Long, ThreadSlot> currentSlots = new HashMap<Long, ThreadSlot>(count * 2);
+        Map<Integer, StackText> currentStacks = new HashMap<Integer, StackText>();
+        long totalDelta = 0;
+        for (int i = 0; i < count; i++) {
+            ThreadInfo info = infos[i];
+            if (info == null) {
+                continue;
+            }
+            Thread thread = threadBuffer[i];
+            ThreadSlot slot = slots.get(ids[i]);
+            long cpuTime = threadMXBean.getThreadCpuTime(ids[i]);
+            long delta = 0;
+            boolean created = slot == null;
+            if (created) {
+                slot = new ThreadSlot();
+            } else if (cpuTime != slot.lastCpuTime && slot.lastCpuTime != -1 && cpuTime != -1) {
+                delta = Math.max(0, cpuTime - slot.lastCpuTime);
+            }
+            slot.lastCpuTime = cpuTime;
+            slot.cpuDelta = delta;
+            totalDelta += delta;
+
+            ThreadVO vo = slot.vo;
+            String lastStatus = vo.getThreadStatus();
+            String lastStack = vo.getThreadStack();
+            long lastLockOwnerId = vo.getLockOwnerId();
+            long lastBlockedCount = vo.getBlockedCount();
+            long lastWaitedCount = vo.getWaitedCount();
+            String lastName = vo.getThreadName();
+            String lastTraceId = vo.getTraceId();
+            vo.setThreadId(info.getThreadId());
+            vo.setThreadName(info.getThreadName());
+            vo.setGroupName(thread.getThreadGroup() == null ? "main" : thread.getThreadGroup().getName());
+            vo.setCpuTime(delta);
+            vo.setInterrupted(thread.isInterrupted());
+            vo.setThreadStatus(info.getThreadState().name());
+            vo.setLockName(info.getLockName());
+            vo.setLockOwnerName(info.getLockOwnerName());
+            vo.setLockOwnerId(info.getLockOwnerId());
+            vo.setSuspended(info.isSuspended());
+            vo.setInNative(info.isInNative());
+            vo.setDaemon(thread.isDaemon());
+            vo.setPriority(thread.getPriority());
+            vo.setBlockedTime(info.getBlockedTime());
+            vo.setBlockedCount(info.getBlockedCount());
+            vo.setWaitedTime(info.getWaitedTime());
+            vo.setWaitedCount(info.getWaitedCount());
+            vo.setThreadStack(stackText(slot, info, currentStacks));
+            traceInfoReader.read(thread, vo);
+            slot.changed = created
+                    || !equals(lastStatus, vo.getThreadStatus())
+                    || !equals(lastStack, vo.getThreadStack())
+                    || lastLockOwnerId != vo.getLockOwnerId()
+                    || lastBlockedCount != vo.getBlockedCount()
+                    || lastWaitedCount != vo.getWaitedCount()
+                    || !equals(lastName, vo.getThreadName())
+                    || !equals(lastTraceId, vo.getTraceId());
+            currentSlots.put(ids[i], slot);
+        }
+
+        List<ThreadVO> result = new ArrayList<ThreadVO>(changedOnly ? 16 : currentSlots.size());
+        for (ThreadSlot slot : currentSlots.values()) {
+            long usage = totalDelta == 0 ? 0 : Math.round((slot.cpuDelta * 100) / totalDelta);
+            boolean changed = slot.changed || slot.cpuDelta != 0 || usage != slot.vo.getThreadCpuUsage();
+            slot.vo.setThreadCpuUsage(usage);
+            if (!changedOnly || changed) {
+                result.add(slot.vo);
+            }
+        }
+        List<Long> removed = new ArrayList<Long>();
+        for (Long id : slots.keySet()) {
+            if (!currentSlots.containsKey(id)) {
+                removed.add(id);
+            }
+        }
+        this.removedThreadIds = removed;
+        Arrays.fill(threadBuffer, 0, count, null);
+        this.slots = currentSlots;
+        this.stacks = currentStacks;
+        return result;
+    }
+
+    /**
+     * 最近一次采集时发现已经结束的线程 id
+     *
+     * @return 线程 id
+     */
+    public List<Long> getRemovedThreadIds() {
+        return removedThreadIds;
+    }
+
+    private static boolean equals(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private int enumerateThreads() {
+        ThreadGroup root = Thread.currentThread().getThreadGroup();
+        while (root.getParent() != null) {
+            root = root.getParent();
+        }
+        int count;
+        while ((count = root.enumerate(threadBuffer, true)) == threadBuffer.length) {
+            threadBuffer = new Thread[threadBuffer.length * 2];
+        }
+        return count;
+    }
+
+    /**
+     * 获取线程栈文本，依次尝试复用该线程上一次的结果、本次和上一次采集中相同的栈，都没有时才重新生成
+     */
+    private String stackText(ThreadSlot slot, ThreadInfo info, Map<Integer, StackText> currentStacks) {
+        StackTraceElement[] elements = info.getStackTrace();
+        Thread.State state = info.getThreadState();
+        LockInfo lockInfo = lockInfoOf(info);
+        int hash = Arrays.hashCode(elements);
+        if (lockInfo != null) {
+            hash = hash * 31 + state.hashCode();
+            hash = hash * 31 + lockInfo.getIdentityHashCode();
+        }
+
+        StackText stack = slot.stack;
+        if (stack == null || !stack.matches(hash, elements, state, lockInfo)) {
+            stack = currentStacks.get(hash);
+            if (stack == null || !stack.matches(hash, elements, state, lockInfo)) {
+                stack = stacks.get(hash);
+                if (stack == null || !stack.matches(hash, elements, state, lockInfo)) {
+                    stack = new StackText(hash, elements, state, lockInfo, render(elements, state, lockInfo));
+                }
+            }
+        }
+        if (!currentStacks.containsKey(hash)) {
+            currentStacks.put(hash, stack);
+        }
+        slot.stack = stack;
+        return stack.text;
+    }
+
+    /**
+     * 与 thread 模块一致，只有阻塞和等待状态才输出锁信息
+     */
+    private static LockInfo lockInfoOf(ThreadInfo info) {
+        if (info.getLockInfo() == null) {
+            return null;
+        }
+        switch (info.getThreadState()) {
+            case BLOCKED:
+            case WAITING:
+            case TIMED_WAITING:
+                return info.getLockInfo();
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 生成与 ThreadStack#toString 拼接结果相同的栈文本
+     */
+    private String render(StackTraceElement[] elements, Thread.State state, LockInfo lockInfo) {
+        builder.setLength(0);
+        for (int i = 0; i < elements.length; i++) {
+            StackTraceElement ste = elements[i];
+            builder.append("\tat ").append(ste.getClassName()).append('.').append(ste.getMethodName()).append('(');
+            if (ste.isNativeMethod()) {
+                builder.append("Native Method)");
+            } else if (ste.getFileName() != null && ste.getLineNumber() >= 0) {
+                builder.append(ste.getFileName()).append(':').append(ste.getLineNumber()).append(')');
+            } else if (ste.getFileName() != null) {
+                builder.append(ste.getFileName()).append(')');
+            } else {
+                builder.append("Unknown Source)");
+            }
+            builder.append('\n');
+            if (i == 0 && lockInfo != null) {
+                String lock = lockInfo.getClassName() + '@' + Integer.toHexString(lockInfo.getIdentityHashCode());
+                builder.append(state == Thread.State.BLOCKED ? "\t-  blocked on " : "\t-  waiting on ")
+                        .append(lock).append('\n').append(lock);
+            }
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+
+    private static class ThreadSlot {
+        private final ThreadVO vo = new ThreadVO();
+        private long lastCpuTime = -1;
+        private long cpuDelta;
+        private boolean changed;
+        private StackText stack;
+    }
+
+    private static class StackText {
+        private final int hash;
+        private final StackTraceElement[] elements;
+        private final Thread.State state;
+        private final String lockClassName;
+        private final int lockIdentityHashCode;
+        private final String text;
+
+        StackText(int hash, StackTraceElement[] elements, Thread.State state, LockInfo lockInfo, String text) {
+            this.hash = hash;
+            this.elements = elements;
+            this.state = lockInfo == null ? null : state;
+            this.lockClassName = lockInfo == null ? null : lockInfo.getClassName();
+            this.lockIdentityHashCode = lockInfo == null ? 0 : lockInfo.getIdentityHashCode();
+            this.text = text;
+        }
+
+        boolean matches(int hash, StackTraceElement[] elements, Thread.State state, LockInfo lockInfo) {
+            if (this.hash != hash || !Arrays.equals(this.elements, elements)) {
+                return false;
+            }
+            if (lockInfo == null) {
+                return lockClassName == null;
+            }
+            return this.state == state && lockIdentityHashCode == lockInfo.getIdentityHashCode()
+                    && lockInfo.getClassName().equals(lockClassName);
+        }
+    }
+
+    /**
+     * 读取其他线程当前的 trace 信息，反射对象只查找一次，失败后不再尝试
+     */
+    private static class TraceInfoReader {
+        private final static String RPC_CONTEXT_CLASS = "com.pamirs.pradar.RpcContext_inner";
+
+        private boolean disabled;
+        private Field threadLocalsField;
+        private Field tableField;
+        private Field valueField;
+        private Class rpcContextClass;
+        private Method getTraceId;
+        private Method getRpcId;
+        private Method isClusterTest;
+
+        void read(Thread thread, ThreadVO vo) {
+            vo.setTraceId(null);
+            vo.setRpcId(null);
+            vo.setClusterTest(false);
+            if (disabled) {
+                return;
+            }
+            try {
+                Object context = findRpcContext(thread);
+                if (context != null) {
+                    vo.setTraceId((String) getTraceId.invoke(context));
+                    vo.setRpcId((String) getRpcId.invoke(context));
+                    vo.setClusterTest((Boolean) isClusterTest.invoke(context));
+                }
+            } catch (Throwable e) {
+                disabled = true;
+            }
+        }
+
+        private Object findRpcContext(Thread thread) throws Exception {
+            if (threadLocalsField == null) {
+                threadLocalsField = Thread.class.getDeclaredField("threadLocals");
+                threadLocalsField.setAccessible(true);
+            }
+            Object threadLocalMap = threadLocalsField.get(thread);
+            if (threadLocalMap == null) {
+                return null;
+            }
+            if (tableField == null) {
+                tableField = threadLocalMap.getClass().getDeclaredField("table");
+                tableField.setAccessible(true);
+            }
+            Object[] entries = (Object[]) tableField.get(threadLocalMap);
+            for (Object entry : entries) {
+                if (entry == null) {
+                    continue;
+                }
+                if (valueField == null) {
+                    valueField = entry.getClass().getDeclaredField("value");
+                    valueField.setAccessible(true);
+                }
+                Object value = valueField.get(entry);
+                if (value == null) {
+                    continue;
+                }
+                Class clazz = value.getClass();
+                if (clazz != rpcContextClass) {
+                    if (!RPC_CONTEXT_CLASS.equals(clazz.getName())) {
+                        continue;
+                    }
+                    getTraceId = clazz.getMethod("getTraceId");
+                    getRpcId = clazz.getMethod("getRpcId");
+                    isClusterTest = clazz.getMethod("isClusterTest");
+                    getTraceId.setAccessible(true);
+                    getRpcId.setAccessible(true);
+                    isClusterTest.setAccessible(true);
+                    rpcContextClass = clazz;
+                }
+                return value;
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.shulie.instrument.simulator.perf.entity;
+
+import java.io.Serializable;
+
+/**
+ * 单个拦截器在两次推送之间的耗时统计, 次数与总耗时为按抽样率放大后的估算值
+ */
+public class InterceptorCostVO implements Serializable {
+    private final static long serialVersionUID = 1L;
+
+    /**
+     * 监听器 id
+     */
+    private int listenerId;
+
+    /**
+     * 拦截器类名
+     */
+    private String listenerClassName;
+
+    /**
+     * 区间内的调用次数
+     */
+    private long count;
+
+    /**
+     * 区间内的总耗时, 单位纳秒
+     */
+    private long totalNanos;
+
+    /**
+     * 区间内耗时的 p99, 为所在直方图桶的上限, 单位纳秒
+     */
+    private long p99Nanos;
+
+    public int getListenerId() {
+        return listenerId;
+    }
+
+    public void setListenerId(int listenerId) {
+        this.listenerId = listenerId;
+    }
+
+    public String getListenerClassName() {
+        return listenerClassName;
+    }
+
+    public void setListenerClassName(String listenerClassName) {
+        this.listenerClassName = listenerClassName;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public void setTotalNanos(long totalNanos) {
+        this.totalNanos = totalNanos;
+    }
+
+    public long getP99Nanos() {
+        return p99Nanos;
+    }
+
+    public void setP99Nanos(long p99Nanos) {
+        this.p99Nanos = p99Nanos;
+    }
+
+    @Override
+    public String toString() {
+        return "InterceptorCostVO{" +
+                "listenerId=" + listenerId +
+                ", listenerClassName='" + listenerClassName + '\'' +
+                ", count=" + count +
+                ", totalNanos=" + totalNanos +
+                ", p99Nanos=" + p99Nanos +
+                '}';
+    }
+}
@@ -121,6 +121,22 @@ public class PerfResponse implements Serializable {
      */
     private List<ThreadVO> threadDataList = Collections.EMPTY_LIST;
 
+    /**
+     * 线程信息的推送方式, 为空时 threadDataList 是全部线程; 为 changed 时只包含有变化的线程,
+     * 已经结束的线程在 removedThreadIds 中
+     */
+    private String threadDataMode;
+
+    /**
+     * 上一次推送后已经结束的线程 id, 只在 threadDataMode 为 changed 时有值
+     */
+    private List<Long> removedThreadIds;
+
+    /**
+     * 上一次推送后拦截器耗时最高的前 N 个拦截器, 只包含区间内的差值
+     */
+    private List<InterceptorCostVO> interceptorCosts = Collections.EMPTY_LIST;
+
     /**
      * 堆内存
      */
@@ -337,6 +353,30 @@ public class PerfResponse implements Serializable {
         this.threadDataList = threadDataList;
     }
 
+    public String getThreadDataMode() {
+        return threadDataMode;
+    }
+
+    public void setThreadDataMode(String threadDataMode) {
+        this.threadDataMode = threadDataMode;
+    }
+
+    public List<Long> getRemovedThreadIds() {
+        return removedThreadIds;
+    }
+
+    public void setRemovedThreadIds(List<Long> removedThreadIds) {
+        this.removedThreadIds = removedThreadIds;
+    }
+
+    public List<InterceptorCostVO> getInterceptorCosts() {
+        return interceptorCosts;
+    }
+
+    public void setInterceptorCosts(List<InterceptorCostVO> interceptorCosts) {
+        this.interceptorCosts = interceptorCosts;
+    }
+
     @Override
     public String toString() {
         return "{" +
@@ -359,6 +399,9 @@ public class PerfResponse implements Serializable {
                 ", youngGcCost=" + youngGcCost +
                 ", youngGcCount=" + youngGcCount +
                 ", threadDataList=" + threadDataList +
+                ", threadDataMode='" + threadDataMode + '\'' +
+                ", removedThreadIds=" + removedThreadIds +
+                ", interceptorCosts=" + interceptorCosts +
                 ", heapMemory=" + heapMemory +
                 ", heapMemories=" + heapMemories +
                 ", nonheapMemory=" + nonheapMemory +
@@ -89,7 +89,9 @@ public abstract class AbstractConfig<T> implements IConfig<T> {
             // 有变更才进行事件通知
             // 默认直接替换，不处理 init  和 clear 事件
             String listenerKey = ConfigManager.getListenerKey(type.getName(), field.getConfigName(), ConfigEventEnum.CHANGE.name());
-            List<ConfigListener> configListeners = ConfigManager.getInstance().getListenerHolder().get(listenerKey);
+            // 从本地快照恢复配置时 ConfigManager 还在初始化中, 此时不会有监听者
+            ConfigManager configManager = ConfigManager.getInstance();
+            List<ConfigListener> configListeners = configManager == null ? null : configManager.getListenerHolder().get(listenerKey);
             if (CollectionUtils.isNotEmpty(configListeners)) {
                 for (ConfigListener configListener : configListeners) {
                     configListener.onEvent(newValue);
@@ -56,8 +56,9 @@ import java.io.IOException;
 import java.text.NumberFormat;
 import java.util.*;
 import java.util.Map.Entry;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author shiyajian
@@ -71,7 +72,7 @@ public class ApplicationConfigHttpResolver extends AbstractHttpResolver<Applicat
     public static final String PRADAR_AGENT_VERSION_CONFIG_ENV = "agent.version";
     public static final String PRADAR_SIMULATOR_VERSION_CONFIG_ENV = "simulator.version";
 
-    private boolean uploadEntranceRule = false;
+    private volatile boolean uploadEntranceRule = false;
     private static final String REGISTER_URL = "/api/agent/api/register";
     /**
      * 配置拉取接口
@@ -168,6 +169,34 @@ public class ApplicationConfigHttpResolver extends AbstractHttpResolver<Applicat
     private static final String INTERFACE_NAME = "INTERFACE_NAME";
     private static final String PLUGIN_MAX_REDIS_EXPIRE_TIME = "maxRedisExpireTime";
 
+    /**
+     * 各配置接口的标识, 用于记录配置版本
+     */
+    private static final String SECTION_PLUGIN = "plugin";
+    private static final String SECTION_WHITE_LIST = "whiteList";
+    private static final String SECTION_SHADOW_DB = "shadowDb";
+    private static final String SECTION_SHADOW_JOB = "shadowJob";
+    private static final String SECTION_MOCK = "mock";
+    private static final String SECTION_SHADOW_REDIS = "shadowRedis";
+    private static final String SECTION_SHADOW_ES = "shadowEs";
+    private static final String SECTION_SHADOW_HBASE = "shadowHbase";
+    private static final String SECTION_TRACE_RULE = "traceRule";
+    private static final String SECTION_DYNAMIC_CONFIG = "dynamicConfig";
+    private static final String SECTION_SHADOW_CONSUMER = "shadowConsumer";
+
+    /**
+     * 并发拉取配置的线程数
+     */
+    private static final int FETCH_CONCURRENCY = Math.max(1, Integer.getInteger("pradar.config.fetch.concurrency", 6));
+    /**
+     * 单次拉取所有配置的总超时时间,单位毫秒
+     */
+    private static final long FETCH_DEADLINE = Long.getLong("pradar.config.fetch.deadline", 20000L);
+    /**
+     * 每隔多少次拉取做一次全量拉取, 全量拉取时不使用 ETag/摘要 跳过处理
+     */
+    private static final int FULL_FETCH_ROUNDS = 10;
+
     private final ExecutionStrategy forwardStrategy = new ForwardStrategy();
     private final ExecutionStrategy mockStrategy = new MockStrategy();
     private final ExecutionStrategy whiteListStrategy = new WhiteListStrategy();
@@ -203,9 +232,39 @@ public class ApplicationConfigHttpResolver extends AbstractHttpResolver<Applicat
     private AtomicBoolean shadowConfigPullSwitch = new AtomicBoolean(Boolean.TRUE);
     protected SwitcherManager switcherManager;
 
+    private final HttpConfigVersions versions = new HttpConfigVersions();
+    private final ThreadPoolExecutor fetchExecutor;
+    private int fetchRounds;
+    /**
+     * 上次成功处理的白名单和影子消费者中的 mq 列表, 其中一个未变更时用于合并 mq 列表
+     */
+    private Set<String> lastWhiteListMqs;
+    private Set<String> lastConsumerMqs;
+    /**
+     * 最近一次成功应用的配置的本地快照, 为 null 时不使用快照
+     */
+    private final File snapshotFile;
+
     public ApplicationConfigHttpResolver(SwitcherManager switcherManager, int interval, TimeUnit timeUnit) {
         super("application-config-fetch-scheduled", interval, timeUnit);
         this.switcherManager = switcherManager;
+        final AtomicInteger index = new AtomicInteger();
+        this.fetchExecutor = new ThreadPoolExecutor(FETCH_CONCURRENCY, FETCH_CONCURRENCY, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "Pradar-Fetch-Config-Worker-" + index.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        /**
+         * 拉取间隔一般较长, 空闲时回收线程
+         */
+        this.fetchExecutor.allowCoreThreadTimeOut(true);
+        String snapshotPath = PropertyUtil.getConfigSnapshotFilePath();
+        this.snapshotFile = snapshotPath == null || !Boolean.parseBoolean(System.getProperty("pradar.config.snapshot.enabled", "true"))
+                ? null : new File(snapshotPath);
         EventRouter.router().addListener(new PradarEventListener() {
 
             @Override
@@ -245,26 +304,161 @@ public class ApplicationConfigHttpResolver extends AbstractHttpResolver<Applicat
     }
 
     @Override
-    public ApplicationConfig fetch() {
+    public synchronized ApplicationConfig fetch() {
         if (isInfoEnabled) {
             logger.info("SIMULATOR: prepare to fetch config....");
         }
         PradarSwitcher.turnConfigSyncSwitchOn();
         // 获取配置
-        String troControlWebUrl = PropertyUtil.getTroControlWebUrl();
+        final String troControlWebUrl = PropertyUtil.getTroControlWebUrl();
+        /**
+         * 所有配置接口并发拉取, 整体不超过 FETCH_DEADLINE;
+         * 配置未变更(304 或者内容摘要一致)时跳过解析, 对应字段置为 null, 刷新配置时不做处理.
+         * 每隔 FULL_FETCH_ROUNDS 次做一次全量拉取, 避免服务端 ETag 异常时配置一直得不到更新
+         */
+        final HttpConfigVersions.Round round = versions.newRound(fetchRounds++ % FULL_FETCH_ROUNDS != 0);
+        final long deadline = System.currentTimeMillis() + FETCH_DEADLINE;
+
+        /**
+         * 拉取插件配置
+         */
+        final ApplicationConfig pluginConfig = new ApplicationConfig(this);
+        Future<Boolean> pluginFuture = submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return getPluginConfig(troControlWebUrl, pluginConfig, round);
+            }
+        });
+        /**
+         * 从服务端获取白名单列表
+         */
+        final ApplicationConfig whiteListConfig = new ApplicationConfig(this);
+        Future<Boolean> whiteListFuture = null;
+        if (whiteListPullSwitch.get()) {
+            whiteListFuture = submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return getWhiteList(troControlWebUrl, whiteListConfig, round);
+                }
+            });
+        }
+        /**
+         * 读取压测的影子数据源配置
+         */
+        final ApplicationConfig shadowDbConfig = new ApplicationConfig(this);
+        Future<Boolean> shadowDbFuture = null;
+        if (shadowConfigPullSwitch.get()) {
+            shadowDbFuture = submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return getPressureTable4AccessSimple(troControlWebUrl, shadowDbConfig, round);
+                }
+            });
+        }
+        /**
+         * 获取影子job配置
+         */
+        final ApplicationConfig shadowJobConfig = new ApplicationConfig(this);
+        final GlobalConfigUpdates shadowJobUpdates = new GlobalConfigUpdates();
+        Future<Boolean> shadowJobFuture = submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return getShadowJobConfig(troControlWebUrl, shadowJobConfig, round, shadowJobUpdates);
+            }
+        });
+        /**
+         * 获取挡板配置
+         */
+        final ApplicationConfig mockConfig = new ApplicationConfig(this);
+        Future<Boolean> mockFuture = submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return getMockSet(troControlWebUrl, mockConfig, round);
+            }
+        });
+        /**
+         * 抓取影子server的配置
+         */
+        final ApplicationConfig shadowRedisConfig = new ApplicationConfig(this);
+        final GlobalConfigUpdates shadowRedisUpdates = new GlobalConfigUpdates();
+        Future<Boolean> shadowRedisFuture = submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return getShadowRedisServerConfig(troControlWebUrl, shadowRedisConfig, round, shadowRedisUpdates);
+            }
+        });
+        final ApplicationConfig shadowEsConfig = new ApplicationConfig(this);
+        final GlobalConfigUpdates shadowEsUpdates = new GlobalConfigUpdates();
+        Future<Boolean> shadowEsFuture = submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return getShadowEsServerConfig(troControlWebUrl, shadowEsConfig, round, shadowEsUpdates);
+            }
+        });
+        final ApplicationConfig shadowHbaseConfig = new ApplicationConfig(this);
+        final GlobalConfigUpdates shadowHbaseUpdates = new GlobalConfigUpdates();
+        Future<Boolean> shadowHbaseFuture = submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return getHbaseShadowConfig(troControlWebUrl, shadowHbaseConfig, round, shadowHbaseUpdates);
+            }
+        });
+        /**
+         * 获取 trace 规则入口配置
+         */
+        final GlobalConfigUpdates traceRuleUpdates = new GlobalConfigUpdates();
+        Future<Boolean> traceRuleFuture = submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return getTraceRegularRules(troControlWebUrl, round, traceRuleUpdates);
+            }
+        });
         /**
-         * 上传入口规则
+         * 拉取探针动态配置参数
          */
-        uploadEntranceRule(troControlWebUrl);
+        final GlobalConfigUpdates dynamicConfigUpdates = new GlobalConfigUpdates();
+        Future<Boolean> dynamicConfigFuture = submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return getDynamicSimulatorConfig(troControlWebUrl, round, dynamicConfigUpdates);
+            }
+        });
         /**
-         * 上传应用接入状态,如果上报失败可以忽略
+         * 拉取mq影子消费者信息
          */
-        uploadAccessStatus(troControlWebUrl);
+        final ApplicationConfig shadowConsumerConfig = new ApplicationConfig(this);
+        Future<Boolean> shadowConsumerFuture = submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return fetchMqShadowConsumer(troControlWebUrl, shadowConsumerConfig, round);
+            }
+        });
 
         /**
-         * 上传应用信息,如果失败可以忽略
+         * 上传入口规则、应用接入状态、应用信息, 如果失败可以忽略
          */
-        uploadAppInfo(troControlWebUrl);
+        List<Future<Boolean>> reportFutures = new ArrayList<Future<Boolean>>();
+        reportFutures.add(submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                uploadEntranceRule(troControlWebUrl);
+                return Boolean.TRUE;
+            }
+        }));
+        reportFutures.add(submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                uploadAccessStatus(troControlWebUrl);
+                return Boolean.TRUE;
+            }
+        }));
+        reportFutures.add(submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                uploadAppInfo(troControlWebUrl);
+                return Boolean.TRUE;
+            }
+        }));
 
         /**
          * 拉取es名单信息
@@ -273,19 +467,19 @@ public class ApplicationConfigHttpResolver extends AbstractHttpResolver<Applicat
 
         ApplicationConfig applicationConfig = new ApplicationConfig(this);
 
-        /**
-         * 拉取插件配置
-         */
-        if (getPluginConfig(troControlWebUrl, applicationConfig)) {
+        boolean isSuccess = await(SECTION_PLUGIN, pluginFuture, deadline);
+        round.complete(SECTION_PLUGIN, isSuccess);
+        if (isSuccess) {
             ApplicationConfig.getPlugin = Boolean.TRUE;
         }
+        if (isDone(pluginFuture)) {
+            applicationConfig.setPluginMaxRedisExpireTime(round.wasUnchanged(SECTION_PLUGIN) ? null : pluginConfig.getPluginMaxRedisExpireTime());
+        }
 
-        boolean isSuccess;
-        if (whiteListPullSwitch.get()) {
-            /**
-             * 从服务端获取白名单列表,如果失败则启动失败
-             */
-            isSuccess = getWhiteList(troControlWebUrl, applicationConfig);
+        boolean whiteListUnchanged = false;
+        if (whiteListFuture != null) {
+            isSuccess = await(SECTION_WHITE_LIST, whiteListFuture, deadline);
+            round.complete(SECTION_WHITE_LIST, isSuccess);
             if (!isSuccess) {
                 PradarSwitcher.turnConfigSyncSwitchOff();
                 if (ApplicationConfig.getWhiteList) {
@@ -300,13 +494,28 @@ public class ApplicationConfigHttpResolver extends AbstractHttpResolver<Applicat
                 logger.error("SIMULATOR: get white list from server failed");
             } else {
                 ApplicationConfig.getWhiteList = Boolean.TRUE;
+                whiteListUnchanged = round.wasUnchanged(SECTION_WHITE_LIST);
+                if (whiteListUnchanged) {
+                    applicationConfig.setUrlWhiteList(null);
+                    applicationConfig.setRpcNameWhiteList(null);
+                    applicationConfig.setCacheKeyAllowList(null);
+                    applicationConfig.setContextPathBlockList(null);
+                    applicationConfig.setSearchWhiteList(null);
+                } else {
+                    applicationConfig.setUrlWhiteList(whiteListConfig.getUrlWhiteList());
+                    applicationConfig.setRpcNameWhiteList(whiteListConfig.getRpcNameWhiteList());
+                    applicationConfig.setCacheKeyAllowList(whiteListConfig.getCacheKeyAllowList());
+                    applicationConfig.setContextPathBlockList(whiteListConfig.getContextPathBlockList());
+                    applicationConfig.setSearchWhiteList(whiteListConfig.getSearchWhiteList());
+                    lastWhiteListMqs = whiteListConfig.getMqList();
+                }
+                applicationConfig.setMqList(lastWhiteListMqs == null ? null : new HashSet<String>(lastWhiteListMqs));
             }
         }
-        if (shadowConfigPullSwitch.get()) {
-            /**
-             * 读取压测的影子数据源配置
-             */
-            isSuccess = getPressureTable4AccessSimple(troControlWebUrl, applicationConfig);
+
+        if (shadowDbFuture != null) {
+            isSuccess = await(SECTION_SHADOW_DB, shadowDbFuture, deadline);
+            round.complete(SECTION_SHADOW_DB, isSuccess);
             if (!isSuccess) {
                 PradarSwitcher.turnConfigSyncSwitchOff();
                 if (ApplicationConfig.getPressureTable4AccessSimple) {
@@ -315,58 +524,92 @@ public class ApplicationConfigHttpResolver extends AbstractHttpResolver<Applicat
                 logger.error("SIMULATOR: get shadow db config from server failed");
             } else {
                 ApplicationConfig.getPressureTable4AccessSimple = Boolean.TRUE;
+                applicationConfig.setShadowDatabaseConfigs(round.wasUnchanged(SECTION_SHADOW_DB) ? null : shadowDbConfig.getShadowDatabaseConfigs());
             }
         }
+
         /**
-         * 获取影子job配置
+         * 影子job和挡板配置只有在影子库配置拉取成功过后才会生效, 生效后才能记录版本
          */
-        isSuccess = getShadowJobConfig(troControlWebUrl, applicationConfig);
+        isSuccess = await(SECTION_SHADOW_JOB, shadowJobFuture, deadline);
+        applyUpdates(shadowJobFuture, shadowJobUpdates);
+        round.complete(SECTION_SHADOW_JOB, isSuccess && ApplicationConfig.getPressureTable4AccessSimple);
         if (!isSuccess) {
             PradarSwitcher.turnConfigSyncSwitchOff();
             logger.error("SIMULATOR: get shadow job config from server failed");
         } else {
             ApplicationConfig.getShadowJobConfig = Boolean.TRUE;
+            applicationConfig.setShadowJobs(round.wasUnchanged(SECTION_SHADOW_JOB) ? null : shadowJobConfig.getShadowJobs());
         }
 
         /**
          * 上报错误的影子job配置,如果失败则可以忽略
          */
-        reportErrorShadowJobConfig(troControlWebUrl);
-
-
-        Set<MockConfig> mockConfigs = getMockSet(troControlWebUrl);
-        applicationConfig.setMockConfigs(mockConfigs);
-
-        /**
-         * 抓取影子server的配置
-         */
-        getShadowRedisServerConfig(troControlWebUrl, applicationConfig);
-
-//        if(!ConfigFetcherModule.shadowPreparationEnabled){
-        getShadowEsServerConfig(troControlWebUrl, applicationConfig);
-        getHbaseShadowConfig(troControlWebUrl, applicationConfig);
-//        }
-
-        /**
-         * 获取 trace 规则入口配置
-         */
-        getTraceRegularRules(troControlWebUrl);
+        reportFutures.add(submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                reportErrorShadowJobConfig(troControlWebUrl);
+                return Boolean.TRUE;
+            }
+        }));
 
-        /**
-         * 拉取探针动态配置参数
-         */
-        getDynamicSimulatorConfig(troControlWebUrl);
+        isSuccess = await(SECTION_MOCK, mockFuture, deadline);
+        round.complete(SECTION_MOCK, isSuccess && ApplicationConfig.getPressureTable4AccessSimple);
+        if (isDone(mockFuture)) {
+            applicationConfig.setMockConfigs(round.wasUnchanged(SECTION_MOCK) ? null : mockConfig.getMockConfigs());
+        }
 
         /**
-         * 拉取mq影子消费者信息
+         * 影子server配置拉取超时时不做处理, 保持原有配置
          */
-//        if(!ConfigFetcherModule.shadowPreparationEnabled ){
-        isSuccess = fetchMqShadowConsumer(troControlWebUrl, applicationConfig);
+        isSuccess = await(SECTION_SHADOW_REDIS, shadowRedisFuture, deadline);
+        round.complete(SECTION_SHADOW_REDIS, isSuccess);
+        applyUpdates(shadowRedisFuture, shadowRedisUpdates);
+        applicationConfig.setShadowRedisConfigs(!isDone(shadowRedisFuture) || round.wasUnchanged(SECTION_SHADOW_REDIS) ? null : shadowRedisConfig.getShadowRedisConfigs());
+
+        isSuccess = await(SECTION_SHADOW_ES, shadowEsFuture, deadline);
+        round.complete(SECTION_SHADOW_ES, isSuccess);
+        applyUpdates(shadowEsFuture, shadowEsUpdates);
+        applicationConfig.setShadowEsServerConfigs(!isDone(shadowEsFuture) || round.wasUnchanged(SECTION_SHADOW_ES) ? null : shadowEsConfig.getShadowEsServerConfigs());
+
+        isSuccess = await(SECTION_SHADOW_HBASE, shadowHbaseFuture, deadline);
+        round.complete(SECTION_SHADOW_HBASE, isSuccess);
+        applyUpdates(shadowHbaseFuture, shadowHbaseUpdates);
+        applicationConfig.setShadowHbaseConfigs(!isDone(shadowHbaseFuture) || round.wasUnchanged(SECTION_SHADOW_HBASE) ? null : shadowHbaseConfig.getShadowHbaseConfigs());
+
+        round.complete(SECTION_TRACE_RULE, await(SECTION_TRACE_RULE, traceRuleFuture, deadline));
+        applyUpdates(traceRuleFuture, traceRuleUpdates);
+        round.complete(SECTION_DYNAMIC_CONFIG, await(SECTION_DYNAMIC_CONFIG, dynamicConfigFuture, deadline));
+        applyUpdates(dynamicConfigFuture, dynamicConfigUpdates);
+
+        isSuccess = await(SECTION_SHADOW_CONSUMER, shadowConsumerFuture, deadline);
+        round.complete(SECTION_SHADOW_CONSUMER, isSuccess);
         if (!isSuccess) {
             PradarSwitcher.turnConfigSyncSwitchOff();
             logger.error("[pradar] get shadow consumer from server failed");
+        } else {
+            boolean consumerUnchanged = round.wasUnchanged(SECTION_SHADOW_CONSUMER);
+            if (!consumerUnchanged) {
+                lastConsumerMqs = shadowConsumerConfig.getMqList();
+            }
+            if (whiteListUnchanged && consumerUnchanged) {
+                /**
+                 * 白名单和影子消费者都未变更, mq 列表不需要处理
+                 */
+                applicationConfig.setMqList(null);
+            } else if (lastConsumerMqs != null && !lastConsumerMqs.isEmpty()) {
+                Set<String> mqList = applicationConfig.getMqList();
+                if (mqList == null) {
+                    mqList = new HashSet<String>();
+                    applicationConfig.setMqList(mqList);
+                }
+                mqList.addAll(lastConsumerMqs);
+            }
+        }
+
+        for (Future<Boolean> future : reportFutures) {
+            await("report", future, deadline);
         }
-//        }
 
         if (PradarSwitcher.configSyncSwitchOn()
                 || (ApplicationConfig.getWhiteList && ApplicationConfig.getPressureTable4AccessSimple
@@ -387,29 +630,244 @@ public class ApplicationConfigHttpResolver extends AbstractHttpResolver<Applicat
             PradarSwitcher.clusterTestPrepare();
             switcherManager.switchOff(ConfigFetcherConstants.MODULE_NAME);
         }
+        /**
+         * 配置有变更时更新本地快照
+         */
+        versions.store(snapshotFile);
+        return applicationConfig;
+    }
+
+    @Override
+    public void resolve(ApplicationConfig refreshConfig) {
+        /**
+         * 先同步应用本地快照, 不需要等待第一次从控制台拉取配置, 后续定时拉取时再以控制台为准
+         */
+        if (versions.restore(snapshotFile)) {
+            try {
+                ApplicationConfig snapshotConfig = fetchSnapshot();
+                refreshConfig.refresh(snapshotConfig);
+                if (ApplicationConfig.getWhiteList && ApplicationConfig.getPressureTable4AccessSimple
+                        && ApplicationConfig.getShadowJobConfig) {
+                    PradarSwitcher.clusterTestReady();
+                    switcherManager.switchOn(ConfigFetcherConstants.MODULE_NAME);
+                }
+                if (isInfoEnabled) {
+                    logger.info("SIMULATOR: apply config snapshot from {} successful.", snapshotFile.getAbsolutePath());
+                }
+            } catch (Throwable e) {
+                logger.warn("SIMULATOR: apply config snapshot from {} failed.", snapshotFile.getAbsolutePath(), e);
+            }
+        }
+        super.resolve(refreshConfig);
+    }
+
+    /**
+     * 从本地快照中解析配置, 快照中不存在的配置字段为 null, 刷新配置时不做处理
+     */
+    private ApplicationConfig fetchSnapshot() {
+        final String troControlWebUrl = PropertyUtil.getTroControlWebUrl();
+        HttpConfigVersions.Round round = versions.newSnapshotRound();
+        ApplicationConfig applicationConfig = new ApplicationConfig(this);
+        applicationConfig.setUrlWhiteList(null);
+        applicationConfig.setRpcNameWhiteList(null);
+        applicationConfig.setCacheKeyAllowList(null);
+        applicationConfig.setContextPathBlockList(null);
+        applicationConfig.setSearchWhiteList(null);
+        applicationConfig.setMqList(null);
+        applicationConfig.setShadowDatabaseConfigs(null);
+        applicationConfig.setShadowJobs(null);
+        applicationConfig.setMockConfigs(null);
+        applicationConfig.setShadowRedisConfigs(null);
+        applicationConfig.setShadowEsServerConfigs(null);
+        applicationConfig.setShadowHbaseConfigs(null);
+        applicationConfig.setPluginMaxRedisExpireTime(null);
+
+        ApplicationConfig config = new ApplicationConfig(this);
+        if (round.hasSnapshot(SECTION_PLUGIN) && loadSnapshot(round, SECTION_PLUGIN, getPluginConfig(troControlWebUrl, config, round))) {
+            ApplicationConfig.getPlugin = Boolean.TRUE;
+            applicationConfig.setPluginMaxRedisExpireTime(config.getPluginMaxRedisExpireTime());
+        }
+        config = new ApplicationConfig(this);
+        if (round.hasSnapshot(SECTION_WHITE_LIST) && loadSnapshot(round, SECTION_WHITE_LIST, getWhiteList(troControlWebUrl, config, round))) {
+            ApplicationConfig.getWhiteList = Boolean.TRUE;
+            applicationConfig.setUrlWhiteList(config.getUrlWhiteList());
+            applicationConfig.setRpcNameWhiteList(config.getRpcNameWhiteList());
+            applicationConfig.setCacheKeyAllowList(config.getCacheKeyAllowList());
+            applicationConfig.setContextPathBlockList(config.getContextPathBlockList());
+            applicationConfig.setSearchWhiteList(config.getSearchWhiteList());
+            lastWhiteListMqs = config.getMqList();
+            applicationConfig.setMqList(lastWhiteListMqs == null ? null : new HashSet<String>(lastWhiteListMqs));
+        }
+        config = new ApplicationConfig(this);
+        if (round.hasSnapshot(SECTION_SHADOW_DB) && loadSnapshot(round, SECTION_SHADOW_DB, getPressureTable4AccessSimple(troControlWebUrl, config, round))) {
+            ApplicationConfig.getPressureTable4AccessSimple = Boolean.TRUE;
+            applicationConfig.setShadowDatabaseConfigs(config.getShadowDatabaseConfigs());
+        }
+        config = new ApplicationConfig(this);
+        GlobalConfigUpdates updates = new GlobalConfigUpdates();
+        if (round.hasSnapshot(SECTION_SHADOW_JOB) && loadSnapshot(round, SECTION_SHADOW_JOB, getShadowJobConfig(troControlWebUrl, config, round, updates))) {
+            ApplicationConfig.getShadowJobConfig = Boolean.TRUE;
+            applicationConfig.setShadowJobs(config.getShadowJobs());
+        }
+        config = new ApplicationConfig(this);
+        if (round.hasSnapshot(SECTION_MOCK) && loadSnapshot(round, SECTION_MOCK, getMockSet(troControlWebUrl, config, round))) {
+            applicationConfig.setMockConfigs(config.getMockConfigs());
+        }
+        config = new ApplicationConfig(this);
+        if (round.hasSnapshot(SECTION_SHADOW_REDIS) && loadSnapshot(round, SECTION_SHADOW_REDIS, getShadowRedisServerConfig(troControlWebUrl, config, round, updates))) {
+            applicationConfig.setShadowRedisConfigs(config.getShadowRedisConfigs());
+        }
+        config = new ApplicationConfig(this);
+        if (round.hasSnapshot(SECTION_SHADOW_ES) && loadSnapshot(round, SECTION_SHADOW_ES, getShadowEsServerConfig(troControlWebUrl, config, round, updates))) {
+            applicationConfig.setShadowEsServerConfigs(config.getShadowEsServerConfigs());
+        }
+        config = new ApplicationConfig(this);
+        if (round.hasSnapshot(SECTION_SHADOW_HBASE) && loadSnapshot(round, SECTION_SHADOW_HBASE, getHbaseShadowConfig(troControlWebUrl, config, round, updates))) {
+            applicationConfig.setShadowHbaseConfigs(config.getShadowHbaseConfigs());
+        }
+        if (round.hasSnapshot(SECTION_TRACE_RULE)) {
+            loadSnapshot(round, SECTION_TRACE_RULE, getTraceRegularRules(troControlWebUrl, round, updates));
+        }
+        if (round.hasSnapshot(SECTION_DYNAMIC_CONFIG)) {
+            loadSnapshot(round, SECTION_DYNAMIC_CONFIG, getDynamicSimulatorConfig(troControlWebUrl, round, updates));
+        }
+        updates.apply();
+        config = new ApplicationConfig(this);
+        if (round.hasSnapshot(SECTION_SHADOW_CONSUMER) && loadSnapshot(round, SECTION_SHADOW_CONSUMER, fetchMqShadowConsumer(troControlWebUrl, config, round))) {
+            lastConsumerMqs = config.getMqList();
+            if (lastConsumerMqs != null && !lastConsumerMqs.isEmpty()) {
+                Set<String> mqList = applicationConfig.getMqList();
+                if (mqList == null) {
+                    mqList = new HashSet<String>();
+                    applicationConfig.setMqList(mqList);
+                }
+                mqList.addAll(lastConsumerMqs);
+            }
+        }
         return applicationConfig;
     }
 
-    private Set<MockConfig> getMockSet(String troControlWebUrl) {
+    /**
+     * 提交快照中的配置, 解析失败的配置不再保留在快照中
+     */
+    private boolean loadSnapshot(HttpConfigVersions.Round round, String section, boolean success) {
+        round.complete(section, success);
+        return success;
+    }
+
+    /**
+     * 提交拉取任务, 线程池已经关闭时在当前线程执行
+     */
+    private Future<Boolean> submit(Callable<Boolean> task) {
+        try {
+            return fetchExecutor.submit(task);
+        } catch (RejectedExecutionException e) {
+            FutureTask<Boolean> future = new FutureTask<Boolean>(task);
+            future.run();
+            return future;
+        }
+    }
+
+    /**
+     * 在总超时时间内等待拉取结果, 超时的任务会被取消并视为拉取失败
+     */
+    private boolean await(String section, Future<Boolean> future, long deadline) {
+        try {
+            Boolean result = future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            return result != null && result;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            logger.error("SIMULATOR: [FetchConfig] fetch {} config timeout, deadline={}ms", section, FETCH_DEADLINE);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.error("SIMULATOR: [FetchConfig] fetch {} config err!", section, e.getCause());
+        }
+        return false;
+    }
+
+    /**
+     * 解析任务执行完成后在拉取线程中写入解析出的 GlobalConfig 变更, 超时被取消的任务不写入
+     */
+    private void applyUpdates(Future<Boolean> future, GlobalConfigUpdates updates) {
+        if (isDone(future)) {
+            updates.apply();
+        }
+    }
+
+    /**
+     * 任务是否已经执行完成(没有因为超时被取消)
+     */
+    private boolean isDone(Future<Boolean> future) {
+        return future.isDone() && !future.isCancelled();
+    }
+
+    /**
+     * 发起配置请求, 条件拉取时携带上次的 ETag
+     */
+    private HttpUtils.HttpResult doGet(HttpConfigVersions.Round round, String section, String url) {
+        if (round != null && round.isSnapshot()) {
+            return snapshotResult(round, section);
+        }
+        return HttpUtils.doGet(url, round == null ? null : round.headers(section));
+    }
+
+    private HttpUtils.HttpResult doPost(HttpConfigVersions.Round round, String section, String url, String body) {
+        if (round != null && round.isSnapshot()) {
+            return snapshotResult(round, section);
+        }
+        return HttpUtils.doPost(url, body);
+    }
+
+    /**
+     * 快照中只会加载存在的配置, 不存在时按照请求失败处理
+     */
+    private HttpUtils.HttpResult snapshotResult(HttpConfigVersions.Round round, String section) {
+        HttpUtils.HttpResult httpResult = round.snapshotResult(section);
+        return httpResult == null ? HttpUtils.HttpResult.result(404, "") : httpResult;
+    }
+
+    /**
+     * 判断配置是否未变更, 必须在判断响应是否成功之前调用
+     */
+    private boolean isUnchanged(HttpConfigVersions.Round round, String section, HttpUtils.HttpResult httpResult) {
+        return round != null && round.isUnchanged(section, httpResult);
+    }
+
+    @Override
+    public void destroy() {
+        super.destroy();
+        fetchExecutor.shutdownNow();
+    }
+
+    /**
+     * 获取挡板配置, 失败时挡板配置为空
+     */
+    private boolean getMockSet(String troControlWebUrl, ApplicationConfig applicationConfig, HttpConfigVersions.Round round) {
+        applicationConfig.setMockConfigs(Collections.EMPTY_SET);
         try {
             String projectName = AppNameUtils.appName();
             String linkGuardUrl = String.format(MOCK_URL, projectName);
             final StringBuilder url = new StringBuilder(troControlWebUrl).append(linkGuardUrl);
-            final HttpUtils.HttpResult httpResult = HttpUtils.doGet(url.toString());
+            final HttpUtils.HttpResult httpResult = doGet(round, SECTION_MOCK, url.toString());
+            if (isUnchanged(round, SECTION_MOCK, httpResult)) {
+                return true;
+            }
             if (!httpResult.isSuccess()) {
                 logger.warn("SIMULATOR: [FetchConfig] get mock config error. status: {}, result: {}",
                         httpResult.getStatus(), httpResult.getResult());
-                return Collections.EMPTY_SET;
+                return false;
             }
 
             JsonObject response = GsonFactory.getGson().fromJson(httpResult.getResult(), JsonObject.class);
             JsonElement elements = response.get(DATA);
             if (elements == null && elements.isJsonNull()) {
-                return Collections.EMPTY_SET;
+                return true;
             }
             JsonArray mapList = elements.getAsJsonArray();
             if (mapList == null || mapList.size() == 0) {
-                return Collections.EMPTY_SET;
+                return true;
             }
 
             Set<MockConfig> mockConfigs = new HashSet<MockConfig>();
@@ -463,7 +921,8 @@ public class ApplicationConfigHttpResolver extends AbstractHttpResolver<Applicat
 
                 mockConfigs.add(mockConfig);
             }
-            return mockConfigs;
+            applicationConfig.setMockConfigs(mockConfigs);
+            return true;
         } catch (Throwable e) {
             logger.warn("link guard config parse err!", e);
             ErrorReporter.buildError()
@@ -473,18 +932,21 @@ public class ApplicationConfigHttpResolver extends AbstractHttpResolver<Applicat
                     .setDetail("获取挡板列表失败:" + e.getMessage())
                     .report();
         }
-        return Collections.EMPTY_SET;
+        return false;
     }
 
     /**
      * 拉取mq影子消费者
      */
-    private boolean fetchMqShadowConsumer(String troControlWebUrl, ApplicationConfig applicationConfig) {
+    private boolean fetchMqShadowConsumer(String troControlWebUrl, ApplicationConfig applicationConfig, HttpConfigVersions.Round round) {
         try {
 
             StringBuilder url = new StringBuilder(troControlWebUrl)
                     .append(TRO_SHADOW_MQ_CONSUMER_URL).append("?appName=").append(AppNameUtils.appName());
-            final HttpUtils.HttpResult httpResult = HttpUtils.doGet(url.toString());
+            final HttpUtils.HttpResult httpResult = doGet(round, SECTION_SHADOW_CONSUMER, url.toString());
+            if (isUnchanged(round, SECTION_SHADOW_CONSUMER, httpResult)) {
+                return true;
+            }
             if (!httpResult.isSuccess()) {
                 logger.warn("SIMULATOR: [FetchConfig] get shadow consumer config error. status: {}, result: {}",
                         httpResult.getStatus(), httpResult.getResult());
@@ -561,19 +1023,20 @@ public class ApplicationConfigHttpResolver extends AbstractHttpResolver<Applicat
     }
 
     @Override
-    public ApplicationConfig fetch(FIELDS... fields) {
+    public synchronized ApplicationConfig fetch(FIELDS... fields) {
         ApplicationConfig applicationConfig = new ApplicationConfig(this);
         if (fields == null || fields.length == 0) {
             return applicationConfig;
         }
         String troControlWebUrl = PropertyUtil.getTroControlWebUrl();
+        GlobalConfigUpdates updates = new GlobalConfigUpdates();
         for (FIELDS field : fields) {
             switch (field) {
                 case WHITE_LIST:
                     /**
                      * 从服务端获取白名单列表,如果失败则启动失败
                      */
-                    boolean isSuccess = getWhiteList(troControlWebUrl, applicationConfig);
+                    boolean isSuccess = getWhiteList(troControlWebUrl, applicationConfig, null);
                     if (!isSuccess) {
                         PradarSwitcher.turnConfigSyncSwitchOff();
                         if (ApplicationConfig.getWhiteList) {
@@ -594,7 +1057,7 @@ public class ApplicationConfigHttpResolver extends AbstractHttpResolver<Applicat
                     /**
                      * 读取压测的影子数据源配置
                      */
-                    isSuccess = getPressureTable4AccessSimple(troControlWebUrl, applicationConfig);
+                    isSuccess = getPressureTable4AccessSimple(troControlWebUrl, applicationConfig, null);
                     if (!isSuccess) {
                         PradarSwitcher.turnConfigSyncSwitchOff();
                         if (ApplicationConfig.getPressureTable4AccessSimple) {
@@ -611,7 +1074,9 @@ public class ApplicationConfigHttpResolver extends AbstractHttpResolver<Applicat
                     /**
                      * 获取影子job配置
                      */
-                    isSuccess = getShadowJobConfig(troControlWebUrl, applicationConfig);
+                    GlobalConfigUpdates shadowJobUpdates = new GlobalConfigUpdates();
+                    isSuccess = getShadowJobConfig(troControlWebUrl, applicationConfig, null, shadowJobUpdates);
+                    shadowJobUpdates.apply();
                     if (!isSuccess) {
                         PradarSwitcher.turnConfigSyncSwitchOff();
                         logger.error("SIMULATOR: get shadow job config from server failed");
@@ -625,24 +1090,23 @@ public class ApplicationConfigHttpResolver extends AbstractHttpResolver<Applicat
                     reportErrorShadowJobConfig(troControlWebUrl);
                     break;
                 case MOCK_CONFIGS:
-                    Set<MockConfig> mockConfigs = getMockSet(troControlWebUrl);
-                    applicationConfig.setMockConfigs(mockConfigs);
+                    getMockSet(troControlWebUrl, applicationConfig, null);
                     break;
                 case SHADOW_REDIS_SERVER_CONFIG:
 
                     /**
                      * 抓取redis 影子server配置信息
                      */
-                    getShadowRedisServerConfig(troControlWebUrl, applicationConfig);
+                    getShadowRedisServerConfig(troControlWebUrl, applicationConfig, null, updates);
                     break;
                 case SHADOW_ES_SERVER_CONFIG:
-                    getShadowEsServerConfig(troControlWebUrl, applicationConfig);
+                    getShadowEsServerConfig(troControlWebUrl, applicationConfig, null, updates);
                     break;
                 case SHADOW_HBASE_SERVER_CONFIG:
-                    getHbaseShadowConfig(troControlWebUrl, applicationConfig);
+                    getHbaseShadowConfig(troControlWebUrl, applicationConfig, null, updates);
                     break;
                 case PLUGIN_MAX_REDIS_EXPIRE_TIME:
-                    boolean pluginConfig = getPluginConfig(troControlWebUrl, applicationConfig);
+                    boolean pluginConfig = getPluginConfig(troControlWebUrl, applicationConfig, null);
                     if (pluginConfig) {
                         ApplicationConfig.getPlugin = true;
                     }
@@ -651,13 +1115,14 @@ public class ApplicationConfigHttpResolver extends AbstractHttpResolver<Applicat
 
             }
         }
+        updates.apply();
         return applicationConfig;
     }
 
     /**
      * 从服务端获取redis最大过期时间
      */
-    private boolean getPluginConfig(String troWebUrl, ApplicationConfig applicationConfig) {
+    private boolean getPluginConfig(String troWebUrl, ApplicationConfig applicationConfig, HttpConfigVersions.Round round) {
         try {
             final StringBuilder url = new StringBuilder(troWebUrl)
                     .append(TRO_PLUGIN_CONIFG)
@@ -665,7 +1130,7 @@ public class ApplicationConfigHttpResolver extends AbstractHttpResolver<Applicat
                     .append(AppNameUtils.appName())
                     .append("&configKey=redis_expire");
 
-            return loadPluginConfig(url, applicationConfig);
+            return loadPluginConfig(url, applicationConfig, round);
         } catch (Throwable e) {
             ErrorReporter.buildError()
                     .setErrorType(ErrorTypeEnum.AgentError)
@@ -678,8 +1143,11 @@ public class ApplicationConfigHttpResolver extends AbstractHttpResolver<Applicat
     }
 
     private boolean loadPluginConfig(final StringBuilder url,
-                                     ApplicationConfig applicationConfig) {
-        final HttpUtils.HttpResult httpResult = HttpUtils.doGet(url.toString());
+                                     ApplicationConfig applicationConfig, HttpConfigVersions.Round round) {
+        final HttpUtils.HttpResult httpResult = doGet(round, SECTION_PLUGIN, url.toString());
+        if (isUnchanged(round, SECTION_PLUGIN, httpResult)) {
+            return true;
+        }
         if (!httpResult.isSuccess() || !GsonFactory.getGson().fromJson(httpResult.getResult(), JsonObject.class).get("success").getAsBoolean()) {
             logger.error("[pradar] pull plugin configs error,url:{},httpResult:{}", url, GsonFactory.getGson().toJson(httpResult));
             ErrorReporter.buildError()
@@ -707,16 +1175,20 @@ public class ApplicationConfigHttpResolver extends AbstractHttpResolver<Applicat
         return true;
     }
 
-    private void getShadowEsServerConfig(String troControlWebUrl, ApplicationConfig applicationConfig) {
+    private boolean getShadowEsServerConfig(String troControlWebUrl, ApplicationConfig applicationConfig, HttpConfigVersions.Round round,
+                                            GlobalConfigUpdates updates) {
         String appName = AppNameUtils.appName();
         String accessUrl = String.format("%s%s?appName=%s", troControlWebUrl, ES_SHADOW_SERVER_URL, appName);
         try {
             String response = System.getProperty("shadow.es.config");
             if (StringUtils.isBlank(response)) {
-                HttpUtils.HttpResult httpResult = HttpUtils.doGet(accessUrl);
+                HttpUtils.HttpResult httpResult = doGet(round, SECTION_SHADOW_ES, accessUrl);
+                if (isUnchanged(round, SECTION_SHADOW_ES, httpResult)) {
+                    return true;
+                }
                 if (!httpResult.isSuccess()) {
-                    GlobalConfig.getInstance().setShadowEsServer(Boolean.FALSE);
-                    return;
+                    updates.setShadowEsServer(Boolean.FALSE);
+                    return false;
                 }
                 response = httpResult.getResult();
             }
@@ -733,16 +1205,16 @@ public class ApplicationConfigHttpResolver extends AbstractHttpResolver<Applicat
                         .setMessage("get es shadow config error.")
                         .setDetail("获取影子es配置失败,接口返回查询状态success为false")
                         .report();
-                return;
+                return false;
             }
             JsonElement jsonElement = jsonObject.get(DATA);
             if (jsonElement == null || jsonElement.isJsonNull()) {
-                return;
+                return true;
             }
             JsonArray datas = jsonElement.getAsJsonArray();
             if (datas == null || datas.size() == 0) {
-                GlobalConfig.getInstance().setShadowEsServer(Boolean.FALSE);
-                return;
+                updates.setShadowEsServer(Boolean.FALSE);
+                return true;
             }
             for (JsonElement object : datas) {
                 JsonObject data = object.getAsJsonObject();
@@ -769,26 +1241,31 @@ public class ApplicationConfigHttpResolver extends AbstractHttpResolver<Applicat
                 shadowEsConfigMap.put(shadowEsServerConfig.identifyKey(), shadowEsServerConfig);
             }
             applicationConfig.setShadowEsServerConfigs(shadowEsConfigMap);
-            GlobalConfig.getInstance().setShadowEsServer(Boolean.TRUE);
+            updates.setShadowEsServer(Boolean.TRUE);
         } catch (Throwable e) {
             logger.error("fetch es server config error. url={}", accessUrl, e);
+            return false;
         }
-
+        return true;
     }
 
-    private void getShadowRedisServerConfig(String troControlWebUrl, ApplicationConfig applicationConfig) {
+    private boolean getShadowRedisServerConfig(String troControlWebUrl, ApplicationConfig applicationConfig, HttpConfigVersions.Round round,
+                                               GlobalConfigUpdates updates) {
         String appName = AppNameUtils.appName();
         StringBuilder builder = new StringBuilder(troControlWebUrl)
                 .append(REDIS_SHADOW_SERVER_URL)
                 .append("?appName=")
                 .append(appName);
         try {
-            HttpUtils.HttpResult httpResult = HttpUtils.doGet(builder.toString());
+            HttpUtils.HttpResult httpResult = doGet(round, SECTION_SHADOW_REDIS, builder.toString());
+            if (isUnchanged(round, SECTION_SHADOW_REDIS, httpResult)) {
+                return true;
+            }
             if (!httpResult.isSuccess()) {
                 logger.warn(
                         "SIMULATOR: [FetchConfig] get shadow redis server config error. url={}, status={}, result={}",
                         builder.toString(), httpResult.getStatus(), httpResult.getResult());
-                return;
+                return false;
             }
 
             //没有配置默认为影子表
@@ -805,16 +1282,16 @@ public class ApplicationConfigHttpResolver extends AbstractHttpResolver<Applicat
                         .setMessage("get redis shadow config error.")
                         .setDetail("获取影子redis配置失败,接口返回查询状态success为false")
                         .report();
-                return;
+                return false;
             }
             JsonElement elements = result.get(DATA);
             if (elements == null || elements.isJsonNull()) {
-                return;
+                return true;
             }
             JsonArray jsonArray = elements.getAsJsonArray();
             if (jsonArray == null || jsonArray.size() == 0) {
-                GlobalConfig.getInstance().setShadowDbRedisServer(false);
-                return;
+                updates.setShadowDbRedisServer(false);
+                return true;
             }
             for (JsonElement element : jsonArray) {
                 JsonObject data = element.getAsJsonObject();
@@ -864,13 +1341,14 @@ public class ApplicationConfigHttpResolver extends AbstractHttpResolver<Applicat
                 shadowRedisConfigMap.put(keyBuilder.toString(), config);
             }
             applicationConfig.setShadowRedisConfigs(shadowRedisConfigMap);
-            GlobalConfig.getInstance().setShadowDbRedisServer(true);
+            updates.setShadowDbRedisServer(true);
 
         } catch (Throwable e) {
             logger.error("fetch redis server config error. url={}", builder.toString()
                     , e);
+            return false;
         }
-
+        return true;
     }
 
     private boolean notEmpty(Object obj) {
@@ -928,27 +1406,35 @@ public class ApplicationConfigHttpResolver extends AbstractHttpResolver<Applicat
     /**
      * 拉取探针动态参数
      */
-    private void getDynamicSimulatorConfig(String troWeb) {
+    private boolean getDynamicSimulatorConfig(String troWeb, HttpConfigVersions.Round round, GlobalConfigUpdates updates) {
         final StringBuilder url = new StringBuilder(troWeb).append(AGENT_CONFIG_URL);
 
         Map<String, String> params = new HashMap<String, String>();
         params.put("projectName", AppNameUtils.appName());
         params.put("version", getSimulatorVersion());
         params.put("effectMechanism", "1");//动态参数
-        HttpUtils.HttpResult httpResult = HttpUtils.doPost(url.toString(), GsonFactory.getGson().toJson(params));
+        HttpUtils.HttpResult httpResult = doPost(round, SECTION_DYNAMIC_CONFIG, url.toString(), GsonFactory.getGson().toJson(params));
+        /**
+         * POST 请求不支持条件请求, 只比较响应内容摘要
+         */
+        if (isUnchanged(round, SECTION_DYNAMIC_CONFIG, httpResult)) {
+            return true;
+        }
         if (!httpResult.isSuccess()) {
             logger.error("获取控制台动态配置信息失败 url={}, result={}", url, httpResult.getResult());
-            return;
+            return false;
         }
         Map<String, String> configs = GsonFactory.getGson().fromJson(httpResult.getResult(), Map.class);
         if (configs != null && configs.get("data") != null) {
             // 中止拉app配置时不更新
             if (!SimulatorDynamicConfig.isAbortPollingAppConfig()) {
-                GlobalConfig.getInstance().setSimulatorDynamicConfig(new SimulatorDynamicConfig(GsonFactory.getGson().fromJson(GsonFactory.getGson().toJson(configs.get("data")), Map.class)));
+                updates.setSimulatorDynamicConfig(new SimulatorDynamicConfig(GsonFactory.getGson().fromJson(GsonFactory.getGson().toJson(configs.get("data")), Map.class)));
             }
         } else {
             logger.error("获取探针动态参数异常");
+            return false;
         }
+        return true;
     }
 
     /**
@@ -1068,11 +1554,14 @@ public class ApplicationConfigHttpResolver extends AbstractHttpResolver<Applicat
      *
      * @param troControlWebUrl
      */
-    private boolean getTraceRegularRules(String troControlWebUrl) {
+    private boolean getTraceRegularRules(String troControlWebUrl, HttpConfigVersions.Round round, GlobalConfigUpdates updates) {
         StringBuilder url = new StringBuilder(troControlWebUrl)
                 .append(TRACE_REGULAR_RULE_URL).append("?appName=").append(AppNameUtils.appName());
         try {
-            HttpUtils.HttpResult httpResult = HttpUtils.doGet(url.toString());
+            HttpUtils.HttpResult httpResult = doGet(round, SECTION_TRACE_RULE, url.toString());
+            if (isUnchanged(round, SECTION_TRACE_RULE, httpResult)) {
+                return true;
+            }
             if (!httpResult.isSuccess()) {
                 logger.error(
                         "SIMULATOR: [FetchConfig] get trace regular rules config from server with error response. url={},"
@@ -1112,7 +1601,7 @@ public class ApplicationConfigHttpResolver extends AbstractHttpResolver<Applicat
                     }
                 }
                 if (!sets.isEmpty()) {
-                    GlobalConfig.getInstance().setTraceRules(sets);
+                    updates.setTraceRules(sets);
                 }
             }
         } catch (Throwable e) {
@@ -1133,12 +1622,16 @@ public class ApplicationConfigHttpResolver extends AbstractHttpResolver<Applicat
      *
      * @param troControlWebUrl
      */
-    private boolean getShadowJobConfig(String troControlWebUrl, ApplicationConfig applicationConfig) {
+    private boolean getShadowJobConfig(String troControlWebUrl, ApplicationConfig applicationConfig, HttpConfigVersions.Round round, GlobalConfigUpdates updates) {
         StringBuilder url = new StringBuilder(troControlWebUrl)
                 .append(TRO_SHADOW_JOB_URL).append("?appName=").append(AppNameUtils.appName());
         try {
             Set<ShadowJob> shadowJobs = new HashSet<ShadowJob>();
-            HttpUtils.HttpResult httpResult = HttpUtils.doGet(url.toString());
+            HttpUtils.HttpResult httpResult = doGet(round, SECTION_SHADOW_JOB, url.toString());
+            if (isUnchanged(round, SECTION_SHADOW_JOB, httpResult)) {
+                updates.setClearErrorRegisteredJobs();
+                return true;
+            }
             if (!httpResult.isSuccess()) {
                 logger.error(
                         "SIMULATOR: [FetchConfig] get shadow job config from server with error response. url={}, "
@@ -1213,7 +1706,7 @@ public class ApplicationConfigHttpResolver extends AbstractHttpResolver<Applicat
                     shadowJobs.add(shaDowJob);
                 }
             }
-            GlobalConfig.getInstance().clearErrorRegisteredJobs();
+            updates.setClearErrorRegisteredJobs();
             applicationConfig.setShadowJobs(shadowJobs);
         } catch (Throwable e) {
             logger.error("SIMULATOR: get shadow job config from server with err response. url={}", url, e);
@@ -1233,10 +1726,13 @@ public class ApplicationConfigHttpResolver extends AbstractHttpResolver<Applicat
      *
      * @param troWebUrl
      */
-    private boolean getPressureTable4AccessSimple(String troWebUrl, ApplicationConfig applicationConfig) {
+    private boolean getPressureTable4AccessSimple(String troWebUrl, ApplicationConfig applicationConfig, HttpConfigVersions.Round round) {
         final String getShadowDatasourceUrl = troWebUrl + SHADOW_DB_TABLE_URL + "?appName=" + AppNameUtils.appName();
         try {
-            HttpUtils.HttpResult httpResult = HttpUtils.doGet(getShadowDatasourceUrl);
+            HttpUtils.HttpResult httpResult = doGet(round, SECTION_SHADOW_DB, getShadowDatasourceUrl);
+            if (isUnchanged(round, SECTION_SHADOW_DB, httpResult)) {
+                return true;
+            }
             if (!httpResult.isSuccess()) {
                 logger.warn("SIMULATOR: [FetchConfig] get datasource config error. url={}, status={}, result={}"
                         , getShadowDatasourceUrl, httpResult.getStatus(), httpResult.getResult());
@@ -1341,13 +1837,13 @@ public class ApplicationConfigHttpResolver extends AbstractHttpResolver<Applicat
     /**
      * 从服务端获取白名单列表
      */
-    private boolean getWhiteList(String troWebUrl, ApplicationConfig applicationConfig) {
+    private boolean getWhiteList(String troWebUrl, ApplicationConfig applicationConfig, HttpConfigVersions.Round round) {
         final StringBuilder url = new StringBuilder(troWebUrl)
                 .append(WHITELIST_FILE_URL)
                 .append("?appName=")
                 .append(AppNameUtils.appName());
         try {
-            return loadList(url, applicationConfig);
+            return loadList(url, applicationConfig, round);
         } catch (Throwable e) {
             logger.error("SIMULATOR: [FetchConfig] get whitelist config error. url={}", troWebUrl, e);
             ErrorReporter.buildError()
@@ -1367,8 +1863,11 @@ public class ApplicationConfigHttpResolver extends AbstractHttpResolver<Applicat
      * @param applicationConfig
      */
     private boolean loadList(final StringBuilder url,
-                             ApplicationConfig applicationConfig) {
-        final HttpUtils.HttpResult httpResult = HttpUtils.doGet(url.toString());
+                             ApplicationConfig applicationConfig, HttpConfigVersions.Round round) {
+        final HttpUtils.HttpResult httpResult = doGet(round, SECTION_WHITE_LIST, url.toString());
+        if (isUnchanged(round, SECTION_WHITE_LIST, httpResult)) {
+            return true;
+        }
         if (!httpResult.isSuccess()) {
             logger.warn("SIMULATOR: [FetchConfig] get whitelist config error. status: {}, result: {}",
                     httpResult.getStatus(), httpResult.getResult());
@@ -1507,10 +2006,14 @@ public class ApplicationConfigHttpResolver extends AbstractHttpResolver<Applicat
      *
      * @param troWebUrl
      */
-    private boolean getHbaseShadowConfig(String troWebUrl, ApplicationConfig applicationConfig) {
+    private boolean getHbaseShadowConfig(String troWebUrl, ApplicationConfig applicationConfig, HttpConfigVersions.Round round,
+                                         GlobalConfigUpdates updates) {
         final String url = troWebUrl + SHADOW_HBASE_SERVER_URL + "?appName=" + AppNameUtils.appName();
         try {
-            HttpUtils.HttpResult result = HttpUtils.doGet(url);
+            HttpUtils.HttpResult result = doGet(round, SECTION_SHADOW_HBASE, url);
+            if (isUnchanged(round, SECTION_SHADOW_HBASE, result)) {
+                return true;
+            }
 
             if (!result.isSuccess()) {
                 logger.error("pull shadow hbase config error {}, url={}", result.getResult(),
@@ -1584,7 +2087,7 @@ public class ApplicationConfigHttpResolver extends AbstractHttpResolver<Applicat
                     }
                 }
                 if (shadowHbaseConfigMap.size() > 0) {
-                    GlobalConfig.getInstance().setShadowHbaseServer(true);
+                    updates.setShadowHbaseServer(true);
                 }
 
                 applicationConfig.setShadowHbaseConfigs(shadowHbaseConfigMap);
@@ -0,0 +1,86 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.shulie.instrument.module.config.fetcher.config.resolver.http;
+
+import com.pamirs.pradar.pressurement.agent.shared.service.GlobalConfig;
+import com.pamirs.pradar.pressurement.agent.shared.service.SimulatorDynamicConfig;
+
+import java.util.Set;
+
+/**
+ * 配置解析过程中需要写入 {@link GlobalConfig} 的变更
+ * <p>
+ * 配置接口在拉取线程池中并发解析, GlobalConfig 的写操作不支持并发,
+ * 因此解析时只记录变更, 由拉取线程在等待到解析结果后调用 {@link #apply()} 串行写入。
+ * 每个配置接口使用单独的实例, 超时被取消的解析任务不会影响已经写入的配置
+ * </p>
+ */
+final class GlobalConfigUpdates {
+    private Boolean shadowEsServer;
+    private Boolean shadowDbRedisServer;
+    private Boolean shadowHbaseServer;
+    private Set<String> traceRules;
+    private SimulatorDynamicConfig simulatorDynamicConfig;
+    private boolean clearErrorRegisteredJobs;
+
+    void setShadowEsServer(boolean shadowEsServer) {
+        this.shadowEsServer = shadowEsServer;
+    }
+
+    void setShadowDbRedisServer(boolean shadowDbRedisServer) {
+        this.shadowDbRedisServer = shadowDbRedisServer;
+    }
+
+    void setShadowHbaseServer(boolean shadowHbaseServer) {
+        this.shadowHbaseServer = shadowHbaseServer;
+    }
+
+    void setTraceRules(Set<String> traceRules) {
+        this.traceRules = traceRules;
+    }
+
+    void setSimulatorDynamicConfig(SimulatorDynamicConfig simulatorDynamicConfig) {
+        this.simulatorDynamicConfig = simulatorDynamicConfig;
+    }
+
+    void setClearErrorRegisteredJobs() {
+        this.clearErrorRegisteredJobs = true;
+    }
+
+    /**
+     * 将记录的变更写入 GlobalConfig, 只在拉取线程中调用
+     */
+    void apply() {
+        GlobalConfig globalConfig = GlobalConfig.getInstance();
+        if (shadowEsServer != null) {
+            globalConfig.setShadowEsServer(shadowEsServer);
+        }
+        if (shadowDbRedisServer != null) {
+            globalConfig.setShadowDbRedisServer(shadowDbRedisServer);
+        }
+        if (shadowHbaseServer != null) {
+            globalConfig.setShadowHbaseServer(shadowHbaseServer);
+        }
+        if (traceRules != null) {
+            globalConfig.setTraceRules(traceRules);
+        }
+        if (simulatorDynamicConfig != null) {
+            globalConfig.setSimulatorDynamicConfig(simulatorDynamicConfig);
+        }
+        if (clearErrorRegisteredJobs) {
+            globalConfig.clearErrorRegisteredJobs();
+        }
+    }
+}
@@ -0,0 +1,448 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.shulie.instrument.module.config.fetcher.config.resolver.http;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.reflect.TypeToken;
+import com.pamirs.pradar.AppNameUtils;
+import com.pamirs.pradar.common.HttpUtils;
+import com.pamirs.pradar.gson.GsonFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 记录每个配置接口上一次成功应用的版本(ETag 和响应内容摘要)
+ * <p>
+ * 拉取时携带 If-None-Match, 服务端返回 304 或者响应内容摘要与上次一致时认为配置未变更,
+ * 跳过解析以及配置变更的通知。每次拉取的版本先记录在 {@link Round} 中, 只有配置处理成功后才提交,
+ * 否则下次仍然全量处理
+ * <p>
+ * 已提交的响应内容会持久化为本地快照, 探针重启时先从快照恢复配置, 不需要等待控制台返回。
+ * 快照文件只有当前用户可以读写, 影子库、影子 redis、影子 es 等包含密码等凭证的配置也写入快照;
+ * 无法限制文件权限的平台上包含凭证的配置不写入快照, 这些配置仍然需要等待控制台返回
+ */
+class HttpConfigVersions {
+    private final static Logger LOGGER = LoggerFactory.getLogger(HttpConfigVersions.class.getName());
+
+    private final static Charset UTF_8 = Charset.forName("UTF-8");
+    private final static String IF_NONE_MATCH = "If-None-Match";
+    private final static String ETAG = "ETag";
+
+    private final static String SNAPSHOT_APP_NAME = "appName";
+    private final static String SNAPSHOT_ETAG = "etag";
+    private final static String SNAPSHOT_CONTENT = "content";
+
+    /**
+     * 字段名包含这些内容时认为是凭证, 快照文件无法限制为只有当前用户读写时所在的配置不写入快照
+     */
+    private final static String[] SECRET_KEYS = {"password", "passwd", "pwd", "secret", "token", "accesskey"};
+
+    private final Map<String, Version> committed = new ConcurrentHashMap<String, Version>();
+    /**
+     * 上次持久化后是否有新的版本提交
+     */
+    private volatile boolean changed;
+
+    /**
+     * 开始一次拉取
+     *
+     * @param conditional 是否使用条件请求, 为 false 时只记录版本不跳过处理
+     * @return 本次拉取
+     */
+    Round newRound(boolean conditional) {
+        return new Round(conditional, false);
+    }
+
+    /**
+     * 开始一次从快照恢复的拉取, 响应内容直接使用已提交的内容
+     *
+     * @return 本次拉取
+     */
+    Round newSnapshotRound() {
+        return new Round(false, true);
+    }
+
+    /**
+     * 一次配置拉取, 各个配置接口可以在不同线程中并发使用
+     */
+    class Round {
+        private final boolean conditional;
+        private final boolean snapshot;
+        private final Map<String, Version> pending = new ConcurrentHashMap<String, Version>();
+        private final Set<String> unchanged = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+        private Round(boolean conditional, boolean snapshot) {
+            this.conditional = conditional;
+            this.snapshot = snapshot;
+        }
+
+        /**
+         * 是否是从快照恢复
+         *
+         * @return 是否是从快照恢复
+         */
+        boolean isSnapshot() {
+            return snapshot;
+        }
+
+        /**
+         * 快照中是否存在该配置
+         *
+         * @param key 配置接口标识
+         * @return 是否存在
+         */
+        boolean hasSnapshot(String key) {
+            Version version = committed.get(key);
+            return snapshot && version != null && version.content != null;
+        }
+
+        /**
+         * 获取快照中的响应
+         *
+         * @param key 配置接口标识
+         * @return 快照中的响应, 不存在则返回 null
+         */
+        HttpUtils.HttpResult snapshotResult(String key) {
+            Version version = committed.get(key);
+            if (version == null || version.content == null) {
+                return null;
+            }
+            return HttpUtils.HttpResult.result(200, version.content);
+        }
+
+        /**
+         * 获取条件请求头
+         *
+         * @param key 配置接口标识
+         * @return 请求头, 非条件拉取或者没有 ETag 时返回 null
+         */
+        Map<String, String> headers(String key) {
+            if (!conditional) {
+                return null;
+            }
+            Version version = committed.get(key);
+            if (version == null || version.etag == null) {
+                return null;
+            }
+            Map<String, String> headers = new HashMap<String, String>(2);
+            headers.put(IF_NONE_MATCH, version.etag);
+            return headers;
+        }
+
+        /**
+         * 判断配置是否未变更, 需要在判断响应是否成功之前调用, 因为 304 不属于成功响应
+         *
+         * @param key    配置接口标识
+         * @param result 响应结果
+         * @return 是否可以跳过处理
+         */
+        boolean isUnchanged(String key, HttpUtils.HttpResult result) {
+            Version last = committed.get(key);
+            if (result.isNotModified()) {
+                if (last == null) {
+                    return false;
+                }
+                unchanged.add(key);
+                return true;
+            }
+            if (!result.isSuccess() || result.getResult() == null) {
+                return false;
+            }
+            String etag = snapshot && last != null ? last.etag : result.getHeader(ETAG);
+            Version current = new Version(etag, digest(result.getResult()), result.getResult());
+            pending.put(key, current);
+            if (conditional && last != null && last.digest.equals(current.digest)) {
+                unchanged.add(key);
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * 本次拉取中该配置是否未变更
+         *
+         * @param key 配置接口标识
+         * @return 是否未变更
+         */
+        boolean wasUnchanged(String key) {
+            return unchanged.contains(key);
+        }
+
+        /**
+         * 配置处理完成后提交或者丢弃本次拉取的版本
+         *
+         * @param key     配置接口标识
+         * @param success 是否处理成功
+         */
+        void complete(String key, boolean success) {
+            Version version = pending.remove(key);
+            if (version == null) {
+                return;
+            }
+            if (success) {
+                Version last = committed.put(key, version);
+                if (last == null || !last.digest.equals(version.digest)) {
+                    changed = true;
+                }
+            } else if (committed.remove(key) != null) {
+                changed = true;
+            }
+        }
+    }
+
+    /**
+     * 从本地快照恢复已提交的版本
+     *
+     * @param file 快照文件
+     * @return 是否恢复成功
+     */
+    boolean restore(File file) {
+        if (file == null || !file.isFile()) {
+            return false;
+        }
+        Reader reader = null;
+        try {
+            reader = new InputStreamReader(new FileInputStream(file), UTF_8);
+            Map<String, Map<String, String>> sections = GsonFactory.getGson().fromJson(reader, new TypeToken<Map<String, Map<String, String>>>() {
+            }.getType());
+            if (sections == null) {
+                return false;
+            }
+            Map<String, String> meta = sections.remove(SNAPSHOT_APP_NAME);
+            /**
+             * 快照按应用存放, 应用名不一致时说明快照不可信
+             */
+            if (meta == null || !AppNameUtils.appName().equals(meta.get(SNAPSHOT_CONTENT))) {
+                return false;
+            }
+            for (Map.Entry<String, Map<String, String>> entry : sections.entrySet()) {
+                String content = entry.getValue() == null ? null : entry.getValue().get(SNAPSHOT_CONTENT);
+                if (content == null) {
+                    continue;
+                }
+                committed.put(entry.getKey(), new Version(entry.getValue().get(SNAPSHOT_ETAG), digest(content), content));
+            }
+            return !committed.isEmpty();
+        } catch (Throwable e) {
+            LOGGER.warn("SIMULATOR: restore config snapshot from {} failed.", file.getAbsolutePath(), e);
+            committed.clear();
+            return false;
+        } finally {
+            closeQuietly(reader);
+        }
+    }
+
+    /**
+     * 有新的版本提交时持久化为本地快照, 先写临时文件再重命名, 避免进程退出时留下不完整的快照
+     *
+     * @param file 快照文件
+     */
+    void store(File file) {
+        if (file == null || !changed) {
+            return;
+        }
+        changed = false;
+        File tmp = null;
+        Writer writer = null;
+        try {
+            File dir = file.getAbsoluteFile().getParentFile();
+            if (!dir.exists() && !dir.mkdirs() && !dir.exists()) {
+                throw new IOException("can't create dir " + dir.getAbsolutePath());
+            }
+            tmp = File.createTempFile(file.getName(), ".tmp", dir);
+            boolean ownerOnly = ownerOnly(tmp);
+            if (!ownerOnly) {
+                LOGGER.warn("SIMULATOR: can't restrict config snapshot {} to owner, skip sections with credentials.", file.getAbsolutePath());
+            }
+            Map<String, Map<String, String>> sections = new HashMap<String, Map<String, String>>();
+            Map<String, String> meta = new HashMap<String, String>(2);
+            meta.put(SNAPSHOT_CONTENT, AppNameUtils.appName());
+            sections.put(SNAPSHOT_APP_NAME, meta);
+            for (Map.Entry<String, Version> entry : committed.entrySet()) {
+                if (!ownerOnly && containsSecret(entry.getValue().content)) {
+                    continue;
+                }
+                Map<String, String> section = new HashMap<String, String>(4);
+                section.put(SNAPSHOT_ETAG, entry.getValue().etag);
+                section.put(SNAPSHOT_CONTENT, entry.getValue().content);
+                sections.put(entry.getKey(), section);
+            }
+            FileOutputStream out = new FileOutputStream(tmp);
+            writer = new OutputStreamWriter(out, UTF_8);
+            GsonFactory.getGson().toJson(sections, writer);
+            writer.flush();
+            out.getFD().sync();
+            writer.close();
+            writer = null;
+            if (!tmp.renameTo(file)) {
+                /**
+                 * 部分平台不支持覆盖已存在的文件
+                 */
+                file.delete();
+                if (!tmp.renameTo(file)) {
+                    throw new IOException("can't rename " + tmp.getAbsolutePath() + " to " + file.getAbsolutePath());
+                }
+            }
+            tmp = null;
+        } catch (Throwable e) {
+            changed = true;
+            LOGGER.warn("SIMULATOR: store config snapshot to {} failed.", file.getAbsolutePath(), e);
+        } finally {
+            closeQuietly(writer);
+            if (tmp != null) {
+                tmp.delete();
+            }
+        }
+    }
+
+    /**
+     * 快照文件只允许当前用户读写
+     *
+     * @return 是否设置成功, 不支持设置权限的平台返回 false
+     */
+    private static boolean ownerOnly(File file) {
+        boolean success = file.setReadable(false, false);
+        success &= file.setReadable(true, true);
+        success &= file.setWritable(false, false);
+        success &= file.setWritable(true, true);
+        success &= file.setExecutable(false, false);
+        return success;
+    }
+
+    /**
+     * 响应内容中是否包含非空的凭证字段, 字段值是 json 字符串时继续检查其中的内容
+     */
+    static boolean containsSecret(String content) {
+        if (content == null) {
+            return false;
+        }
+        try {
+            return containsSecret(new JsonParser().parse(content));
+        } catch (Throwable e) {
+            /**
+             * 无法解析时按包含凭证处理
+             */
+            return true;
+        }
+    }
+
+    private static boolean containsSecret(JsonElement element) {
+        if (element == null || element.isJsonNull()) {
+            return false;
+        }
+        if (element.isJsonArray()) {
+            for (JsonElement child : element.getAsJsonArray()) {
+                if (containsSecret(child)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (element.isJsonObject()) {
+            JsonObject object = element.getAsJsonObject();
+            for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+                JsonElement value = entry.getValue();
+                if (isSecretKey(entry.getKey()) && value != null && !value.isJsonNull()
+                        && !(value.isJsonPrimitive() && value.getAsString().length() == 0)) {
+                    return true;
+                }
+                if (containsSecret(value)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (element.isJsonPrimitive() && element.getAsJsonPrimitive().isString()) {
+            String value = element.getAsString().trim();
+            if (value.startsWith("{") || value.startsWith("[")) {
+                try {
+                    return containsSecret(new JsonParser().parse(value));
+                } catch (Throwable e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isSecretKey(String key) {
+        String lower = key.toLowerCase(Locale.ENGLISH);
+        for (String secret : SECRET_KEYS) {
+            if (lower.contains(secret)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    private static String digest(String content) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("MD5");
+            byte[] bytes = md.digest(content.getBytes(UTF_8));
+            StringBuilder builder = new StringBuilder(bytes.length * 2);
+            for (byte b : bytes) {
+                builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return builder.toString();
+        } catch (Throwable e) {
+            /**
+             * MD5 不可用时退化为长度加 hashCode
+             */
+            return content.length() + "-" + content.hashCode();
+        }
+    }
+
+    private static class Version {
+        private final String etag;
+        private final String digest;
+        private final String content;
+
+        private Version(String etag, String digest, String content) {
+            this.etag = etag;
+            this.digest = digest;
+            this.content = content;
+        }
+    }
+}
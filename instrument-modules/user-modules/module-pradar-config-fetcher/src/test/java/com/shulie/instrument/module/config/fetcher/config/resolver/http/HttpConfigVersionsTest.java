@@ -0,0 +1,246 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.shulie.instrument.module.config.fetcher.config.resolver.http;
+
+import com.pamirs.pradar.common.HttpUtils;
+import com.pamirs.pradar.internal.config.ShadowJob;
+import com.pamirs.pradar.pressurement.agent.shared.service.GlobalConfig;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 使用本地 http 服务模拟控制台, 验证配置的条件拉取以及 GlobalConfig 变更的延迟写入
+ */
+public class HttpConfigVersionsTest {
+
+    private static final String SECTION = "whiteList";
+
+    private HttpServer server;
+    private String baseUrl;
+    private volatile String etag;
+    private volatile String content;
+    private volatile String lastIfNoneMatch;
+    private Set<String> previousTraceRules;
+
+    @Before
+    public void setUp() throws IOException {
+        previousTraceRules = GlobalConfig.getInstance().getTraceRules();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/config", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                lastIfNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+                if (etag != null && etag.equals(lastIfNoneMatch)) {
+                    exchange.sendResponseHeaders(304, -1);
+                    exchange.close();
+                    return;
+                }
+                if (etag != null) {
+                    exchange.getResponseHeaders().add("ETag", etag);
+                }
+                byte[] body = content.getBytes("UTF-8");
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/config";
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        GlobalConfig.getInstance().setTraceRules(previousTraceRules);
+        GlobalConfig.getInstance().clearErrorRegisteredJobs();
+    }
+
+    @Test
+    public void notModifiedSectionIsSkipped() {
+        etag = "\"v1\"";
+        content = "{\"success\":true,\"data\":[]}";
+        HttpConfigVersions versions = new HttpConfigVersions();
+
+        HttpConfigVersions.Round first = versions.newRound(true);
+        assertNull(first.headers(SECTION));
+        HttpUtils.HttpResult result = HttpUtils.doGet(baseUrl, first.headers(SECTION));
+        assertFalse(first.isUnchanged(SECTION, result));
+        first.complete(SECTION, true);
+
+        HttpConfigVersions.Round second = versions.newRound(true);
+        result = HttpUtils.doGet(baseUrl, second.headers(SECTION));
+        assertEquals("\"v1\"", lastIfNoneMatch);
+        assertTrue(result.isNotModified());
+        assertTrue(second.isUnchanged(SECTION, result));
+        assertTrue(second.wasUnchanged(SECTION));
+    }
+
+    @Test
+    public void sameContentWithoutEtagIsSkippedByDigest() {
+        content = "{\"success\":true,\"data\":[\"a\"]}";
+        HttpConfigVersions versions = new HttpConfigVersions();
+
+        HttpConfigVersions.Round first = versions.newRound(true);
+        assertFalse(first.isUnchanged(SECTION, HttpUtils.doGet(baseUrl, first.headers(SECTION))));
+        first.complete(SECTION, true);
+
+        HttpConfigVersions.Round second = versions.newRound(true);
+        assertNull(second.headers(SECTION));
+        assertTrue(second.isUnchanged(SECTION, HttpUtils.doGet(baseUrl, second.headers(SECTION))));
+
+        /**
+         * 全量拉取时即使内容一致也需要重新处理
+         */
+        HttpConfigVersions.Round full = versions.newRound(false);
+        assertFalse(full.isUnchanged(SECTION, HttpUtils.doGet(baseUrl, full.headers(SECTION))));
+
+        content = "{\"success\":true,\"data\":[\"b\"]}";
+        HttpConfigVersions.Round changed = versions.newRound(true);
+        assertFalse(changed.isUnchanged(SECTION, HttpUtils.doGet(baseUrl, changed.headers(SECTION))));
+    }
+
+    @Test
+    public void failedSectionIsNotCommitted() {
+        etag = "\"v1\"";
+        content = "{\"success\":true,\"data\":[]}";
+        HttpConfigVersions versions = new HttpConfigVersions();
+
+        HttpConfigVersions.Round first = versions.newRound(true);
+        assertFalse(first.isUnchanged(SECTION, HttpUtils.doGet(baseUrl, first.headers(SECTION))));
+        first.complete(SECTION, false);
+
+        HttpConfigVersions.Round second = versions.newRound(true);
+        assertNull(second.headers(SECTION));
+        assertFalse(second.isUnchanged(SECTION, HttpUtils.doGet(baseUrl, second.headers(SECTION))));
+    }
+
+    @Test
+    public void snapshotKeepsSectionsWithCredentialsOwnerOnly() throws IOException {
+        content = "{\"success\":true,\"data\":[{\"url\":\"jdbc:mysql://db/app\",\"username\":\"app\",\"shadowDbConfig\":"
+                + "\"{\\\"dataSources\\\":[{\\\"id\\\":\\\"pt\\\",\\\"username\\\":\\\"pt_app\\\",\\\"password\\\":\\\"s3cret\\\"}]}\"}]}";
+        HttpConfigVersions versions = new HttpConfigVersions();
+        HttpConfigVersions.Round round = versions.newRound(true);
+        assertFalse(round.isUnchanged("shadowDb", HttpUtils.doGet(baseUrl, round.headers("shadowDb"))));
+        round.complete("shadowDb", true);
+
+        content = "{\"success\":true,\"data\":[\"/api/.*\"]}";
+        assertFalse(round.isUnchanged(SECTION, HttpUtils.doGet(baseUrl, round.headers(SECTION))));
+        round.complete(SECTION, true);
+
+        File dir = File.createTempFile("config-snapshot", "");
+        assertTrue(dir.delete() && dir.mkdirs());
+        File file = new File(dir, "config_snapshot.json");
+        try {
+            versions.store(file);
+            String stored = read(file);
+            assertTrue(stored.contains(SECTION));
+            if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+                assertEquals(PosixFilePermissions.fromString("rw-------"), Files.getPosixFilePermissions(file.toPath()));
+                assertTrue(stored.contains("shadowDb"));
+            }
+
+            HttpConfigVersions restored = new HttpConfigVersions();
+            assertTrue(restored.restore(file));
+            HttpConfigVersions.Round snapshot = restored.newSnapshotRound();
+            assertTrue(snapshot.hasSnapshot(SECTION));
+            if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+                assertTrue(snapshot.hasSnapshot("shadowDb"));
+                assertTrue(snapshot.snapshotResult("shadowDb").getResult().contains("s3cret"));
+            }
+        } finally {
+            for (File f : dir.listFiles()) {
+                f.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void secretsInNestedJsonAreDetected() {
+        assertTrue(HttpConfigVersions.containsSecret("{\"data\":[{\"config\":\"{\\\"ptPassword\\\":\\\"x\\\"}\"}]}"));
+        assertFalse(HttpConfigVersions.containsSecret("{\"data\":[{\"config\":\"{\\\"ptPassword\\\":\\\"\\\"}\"}]}"));
+        assertFalse(HttpConfigVersions.containsSecret("{\"data\":[{\"url\":\"jdbc:mysql://db/app\",\"username\":\"app\"}]}"));
+    }
+
+    private static String read(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            byte[] bytes = new byte[(int) file.length()];
+            int read = 0;
+            while (read < bytes.length) {
+                int n = in.read(bytes, read, bytes.length - read);
+                if (n < 0) {
+                    break;
+                }
+                read += n;
+            }
+            return new String(bytes, 0, read, "UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test
+    public void globalConfigIsWrittenOnlyOnApply() throws Exception {
+        final Set<String> rules = new HashSet<String>(Collections.singleton("/api/.*"));
+        final GlobalConfigUpdates updates = new GlobalConfigUpdates();
+        Set<String> before = GlobalConfig.getInstance().getTraceRules();
+        ShadowJob errorJob = new ShadowJob();
+        errorJob.setClassName("com.example.ErrorJob");
+        GlobalConfig.getInstance().addErrorRegisteredJob(errorJob);
+
+        Thread worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                updates.setTraceRules(rules);
+                updates.setClearErrorRegisteredJobs();
+            }
+        });
+        worker.start();
+        worker.join();
+        assertSame(before, GlobalConfig.getInstance().getTraceRules());
+        assertTrue(GlobalConfig.getInstance().getErrorRegisterJobs().contains(errorJob));
+
+        updates.apply();
+        assertSame(rules, GlobalConfig.getInstance().getTraceRules());
+        assertNotSame(before, GlobalConfig.getInstance().getTraceRules());
+        assertTrue(GlobalConfig.getInstance().getErrorRegisterJobs().isEmpty());
+    }
+}
@@ -288,6 +288,11 @@ public final class Pradar {
      */
     private static boolean isSilenceDegraded;
 
+    /**
+     * 是否降级为不记录请求、响应内容
+     */
+    private static volatile boolean isTraceDetailDegraded;
+
     /**
      * 用于记录当前时段内是否有压测流量请求
      */
@@ -2652,7 +2657,7 @@ public final class Pradar {
      * @return true/false
      */
     public static boolean isRequestOn() {
-        return getBooleanProperty("plugin.request.on", true);
+        return !isTraceDetailDegraded && getBooleanProperty("plugin.request.on", true);
     }
 
     /**
@@ -2661,7 +2666,7 @@ public final class Pradar {
      * @return true/false
      */
     public static boolean isResponseOn() {
-        return getBooleanProperty("plugin.response.on", true);
+        return !isTraceDetailDegraded && getBooleanProperty("plugin.response.on", true);
     }
 
     /**
@@ -2815,4 +2820,12 @@ public final class Pradar {
     public static void setSilenceDegradeStatus(boolean degraded){
         isSilenceDegraded = degraded;
     }
+
+    public static boolean isTraceDetailDegraded() {
+        return isTraceDetailDegraded;
+    }
+
+    public static void setTraceDetailDegradeStatus(boolean degraded) {
+        isTraceDetailDegraded = degraded;
+    }
 }
@@ -15,59 +15,137 @@
 package com.pamirs.pradar;
 
 import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
+import com.pamirs.pradar.pressurement.base.util.PropertyUtil;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * jar包信息扫描工具类
+ * <p>
+ * jar 包路径可以是普通的 jar 文件, 也可以是 {@link #listNestedJars(String)} 返回的
+ * fat jar 内嵌 jar 路径(外层路径!/内嵌 entry), 内嵌 jar 直接从外层 jar 中流式读取, 不会解压到临时目录。
+ * 扫描在一个小线程池中并行执行, 结果按 jar 路径、大小、修改时间缓存到磁盘, jar 包没有变化时不再打开
  *
  * @author liqiyu
  */
 public class ScanJarPomUtils {
     public final static Logger LOGGER = LoggerFactory.getLogger(ScanJarPomUtils.class);
 
+    /**
+     * 内嵌 jar 路径中外层 jar 和内嵌 entry 的分隔符
+     */
+    public final static String NESTED_SEPARATOR = "!/";
+
+    private final static int SCAN_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
     public static Set<String> scanByJarPaths(Set<String> jarPaths) {
-        final Set<String> result = new HashSet<String>(jarPaths.size());
+        final Set<String> result = Collections.synchronizedSet(new HashSet<String>(jarPaths.size()));
+        final JarPomCache cache = new JarPomCache(PropertyUtil.getJarPomCacheFilePath());
+        final List<String> jars = new ArrayList<String>();
+        final Map<String, List<String>> nestedJars = new LinkedHashMap<String, List<String>>();
         try {
             for (String jarPath : jarPaths) {
-                String jarName = jarPath.substring(jarPath.lastIndexOf(File.separator) + 1);
-                if (jarPath.endsWith(".jar") && jarName.matches(".*-[0-9].*\\.jar")) {
-                    JarFile jarFile = null;
-                    try {
-                        jarFile = new JarFile(jarPath);
-                        final String pomInfo = readPomPropertiesFromJarFile(jarFile);
-                        if (pomInfo != null && pomInfo.split(":").length == 3) {
-                            result.add(pomInfo);
+                if (!isVersionedJar(jarPath)) {
+                    continue;
+                }
+                String pomInfo = cache.get(jarPath);
+                if (pomInfo != null) {
+                    addPomInfo(result, pomInfo);
+                    continue;
+                }
+                int index = jarPath.indexOf(NESTED_SEPARATOR);
+                if (index < 0) {
+                    jars.add(jarPath);
+                } else {
+                    String outer = jarPath.substring(0, index);
+                    List<String> entries = nestedJars.get(outer);
+                    if (entries == null) {
+                        entries = new ArrayList<String>();
+                        nestedJars.put(outer, entries);
+                    }
+                    entries.add(jarPath.substring(index + NESTED_SEPARATOR.length()));
+                }
+            }
+
+            final List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+            for (final String jarPath : jars) {
+                tasks.add(new Callable<Object>() {
+                    @Override
+                    public Object call() {
+                        scanJar(jarPath, cache, result);
+                        return null;
+                    }
+                });
+            }
+            for (Map.Entry<String, List<String>> entry : nestedJars.entrySet()) {
+                /**
+                 * 同一个 fat jar 的内嵌 jar 分成若干组, 每组只打开一次外层 jar
+                 */
+                final String outer = entry.getKey();
+                final List<String> entries = entry.getValue();
+                int chunk = (entries.size() + SCAN_THREADS - 1) / SCAN_THREADS;
+                for (int i = 0; i < entries.size(); i += chunk) {
+                    final List<String> part = entries.subList(i, Math.min(entries.size(), i + chunk));
+                    tasks.add(new Callable<Object>() {
+                        @Override
+                        public Object call() {
+                            scanNestedJars(outer, part, cache, result);
+                            return null;
                         }
-                    } catch (Exception e) {
-                        LOGGER.error("处理jar包版本信息失败", e);
-                    } finally {
-                        if (jarFile != null) {
-                            try {
-                                jarFile.close();
-                            } catch (IOException e) {
-                                e.printStackTrace();
-                            }
+                    });
+                }
+            }
+            if (!tasks.isEmpty()) {
+                ExecutorService executorService = Executors.newFixedThreadPool(Math.min(SCAN_THREADS, tasks.size()),
+                    new ThreadFactory() {
+                        private final AtomicInteger sequence = new AtomicInteger();
+
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread t = new Thread(r, "Scan-Jar-Pom-Worker-" + sequence.incrementAndGet());
+                            t.setDaemon(true);
+                            return t;
                         }
-                    }
+                    });
+                try {
+                    executorService.invokeAll(tasks);
+                } finally {
+                    executorService.shutdownNow();
                 }
             }
+            cache.store();
         } catch (Exception e) {
-            e.printStackTrace();
+            LOGGER.error("扫描jar包版本信息失败", e);
         }
         return result;
     }
@@ -78,6 +156,94 @@ public class ScanJarPomUtils {
         return scanByJarPaths(new HashSet<String>(Arrays.asList(jarPaths)));
     }
 
+    /**
+     * 列出 fat jar(spring boot jar/war) 中内嵌的 jar 包, 只读取 jar 的目录, 不解压
+     *
+     * @param file jar 或 war 文件路径
+     * @return 内嵌 jar 路径, 格式为 外层路径!/内嵌 entry, 没有内嵌 jar 时返回空集合
+     */
+    public static List<String> listNestedJars(String file) {
+        List<String> nested = new ArrayList<String>();
+        JarFile jarFile = null;
+        try {
+            jarFile = new JarFile(file);
+            final Enumeration<JarEntry> entries = jarFile.entries();
+            while (entries.hasMoreElements()) {
+                final JarEntry jarEntry = entries.nextElement();
+                if (!jarEntry.isDirectory() && jarEntry.getName().endsWith(".jar")) {
+                    nested.add(file + NESTED_SEPARATOR + jarEntry.getName());
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("读取jar包目录失败:{}", file, e);
+        } finally {
+            closeQuietly(jarFile);
+        }
+        return nested;
+    }
+
+    private static boolean isVersionedJar(String jarPath) {
+        return jarPath.endsWith(".jar") && jarNameOf(jarPath).matches(".*-[0-9].*\\.jar");
+    }
+
+    private static String jarNameOf(String jarPath) {
+        return jarPath.substring(Math.max(jarPath.lastIndexOf(File.separatorChar), jarPath.lastIndexOf('/')) + 1);
+    }
+
+    private static void addPomInfo(Set<String> result, String pomInfo) {
+        if (pomInfo != null && pomInfo.split(":").length == 3) {
+            result.add(pomInfo);
+        }
+    }
+
+    private static void scanJar(String jarPath, JarPomCache cache, Set<String> result) {
+        JarFile jarFile = null;
+        try {
+            File file = new File(jarPath);
+            long size = file.length();
+            long lastModified = file.lastModified();
+            jarFile = new JarFile(file);
+            final String pomInfo = readPomPropertiesFromJarFile(jarFile);
+            cache.put(jarPath, size, lastModified, pomInfo);
+            addPomInfo(result, pomInfo);
+        } catch (Exception e) {
+            LOGGER.error("处理jar包版本信息失败", e);
+        } finally {
+            closeQuietly(jarFile);
+        }
+    }
+
+    private static void scanNestedJars(String outer, List<String> entryNames, JarPomCache cache, Set<String> result) {
+        JarFile jarFile = null;
+        try {
+            File file = new File(outer);
+            long size = file.length();
+            long lastModified = file.lastModified();
+            jarFile = new JarFile(file);
+            for (String entryName : entryNames) {
+                ZipEntry entry = jarFile.getEntry(entryName);
+                if (entry == null) {
+                    continue;
+                }
+                InputStream inputStream = null;
+                try {
+                    inputStream = jarFile.getInputStream(entry);
+                    final String pomInfo = readPomPropertiesFromNestedJar(inputStream, entryName);
+                    cache.put(outer + NESTED_SEPARATOR + entryName, size, lastModified, pomInfo);
+                    addPomInfo(result, pomInfo);
+                } catch (Exception e) {
+                    LOGGER.error("处理jar包版本信息失败:{}", entryName, e);
+                } finally {
+                    closeQuietly(inputStream);
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.error("处理jar包版本信息失败", e);
+        } finally {
+            closeQuietly(jarFile);
+        }
+    }
+
     /**
      * 从jar文件中读取pom信息
      *
@@ -94,19 +260,11 @@ public class ScanJarPomUtils {
                     inputStream = jarFile.getInputStream(jarEntry);
                     return readPomName(inputStream);
                 } catch (Exception e) {
-                    e.printStackTrace();
                     // 如果找到 pom.properties但是读取处理报错了。就从jar包名字中获取。
                     LOGGER.error("读取JAR失败", e);
                     break;
                 } finally {
-                    if (inputStream != null) {
-                        try {
-                            inputStream.close();
-                        } catch (IOException ioException) {
-                            ioException.printStackTrace();
-                            LOGGER.error("文件关闭失败", ioException);
-                        }
-                    }
+                    closeQuietly(inputStream);
                 }
             }
         }
@@ -115,6 +273,40 @@ public class ScanJarPomUtils {
         return analysisPomInfoWithoutPomInfo(jarName);
     }
 
+    /**
+     * 从内嵌jar的数据流中读取pom信息, 找到第一个 pom.properties 即停止读取
+     *
+     * @param inputStream 内嵌jar数据流
+     * @param entryName   内嵌jar在外层jar中的名称
+     * @return pom信息
+     */
+    private static String readPomPropertiesFromNestedJar(InputStream inputStream, String entryName) {
+        try {
+            ZipInputStream zipInputStream = new ZipInputStream(inputStream);
+            ZipEntry entry;
+            while ((entry = zipInputStream.getNextEntry()) != null) {
+                if (entry.getName().endsWith("pom.properties")) {
+                    return readPomName(zipInputStream);
+                }
+            }
+        } catch (Exception e) {
+            // 如果找到 pom.properties但是读取处理报错了。就从jar包名字中获取。
+            LOGGER.error("读取JAR失败", e);
+        }
+        final String jarName = jarNameOf(entryName);
+        return analysisPomInfoWithoutPomInfo(jarName.substring(0, jarName.lastIndexOf(".")));
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                LOGGER.error("文件关闭失败", e);
+            }
+        }
+    }
+
     private static final Pattern VERSION_PATTERN = Pattern.compile("(-\\d+.?)");
 
     /**
@@ -176,4 +368,98 @@ public class ScanJarPomUtils {
         }
         return pomName;
     }
+
+    /**
+     * pom 信息的磁盘缓存, key 为 jar 路径, value 为 大小,修改时间,pom信息
+     * <p>
+     * 内嵌 jar 使用外层 jar 的大小和修改时间, 外层 jar 没有变化时内嵌 jar 也不会变化。
+     * 写回时只保留本次扫描用到的 jar, 已经不在 classpath 中的 jar 会被清理掉
+     */
+    static class JarPomCache {
+        private final File file;
+        private final Properties entries = new Properties();
+        private final Properties current = new Properties();
+        private volatile boolean changed;
+
+        JarPomCache(String path) {
+            this.file = path == null ? null : new File(path);
+            if (file == null || !file.exists()) {
+                return;
+            }
+            InputStream in = null;
+            try {
+                in = new FileInputStream(file);
+                entries.load(in);
+            } catch (IOException e) {
+                LOGGER.warn("读取jar包版本信息缓存失败:{}", file, e);
+                entries.clear();
+            } finally {
+                closeQuietly(in);
+            }
+        }
+
+        /**
+         * 获取缓存的 pom 信息
+         *
+         * @param jarPath jar 路径
+         * @return pom 信息, 没有缓存或者 jar 包已经变化时返回 null, 解析不到 pom 信息时返回空字符串
+         */
+        String get(String jarPath) {
+            String value = entries.getProperty(jarPath);
+            if (value == null) {
+                return null;
+            }
+            String[] parts = value.split(",", 3);
+            if (parts.length != 3) {
+                return null;
+            }
+            int index = jarPath.indexOf(NESTED_SEPARATOR);
+            File jar = new File(index < 0 ? jarPath : jarPath.substring(0, index));
+            if (!parts[0].equals(String.valueOf(jar.length())) || !parts[1].equals(String.valueOf(jar.lastModified()))) {
+                return null;
+            }
+            current.setProperty(jarPath, value);
+            return parts[2];
+        }
+
+        void put(String jarPath, long size, long lastModified, String pomInfo) {
+            if (size <= 0 || lastModified <= 0) {
+                return;
+            }
+            current.setProperty(jarPath, size + "," + lastModified + "," + (pomInfo == null ? "" : pomInfo));
+            changed = true;
+        }
+
+        /**
+         * 先写临时文件再重命名, 避免写入过程中进程退出导致缓存文件损坏
+         */
+        void store() {
+            if (file == null || (!changed && current.size() == entries.size())) {
+                return;
+            }
+            File dir = file.getParentFile();
+            if (dir != null && !dir.exists() && !dir.mkdirs()) {
+                return;
+            }
+            File tmp = new File(file.getPath() + ".tmp");
+            FileOutputStream out = null;
+            try {
+                out = new FileOutputStream(tmp);
+                current.store(out, null);
+                out.getFD().sync();
+                out.close();
+                out = null;
+                if (!tmp.renameTo(file)) {
+                    file.delete();
+                    if (!tmp.renameTo(file)) {
+                        LOGGER.warn("写入jar包版本信息缓存失败:{}", file);
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.warn("写入jar包版本信息缓存失败:{}", file, e);
+            } finally {
+                closeQuietly(out);
+            }
+        }
+    }
 }
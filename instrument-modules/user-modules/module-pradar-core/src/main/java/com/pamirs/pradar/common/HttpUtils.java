@@ -39,8 +39,19 @@ public abstract class HttpUtils {
     private static final String POLL_APP_CONFIG_FAILED_ABORTED = System.getProperty("poll.app.config.failed.aborted");
 
     public static HttpResult doGet(String url) {
+        return doGet(url, null);
+    }
+
+    /**
+     * 携带额外请求头的 GET 请求, 例如 If-None-Match 条件请求
+     *
+     * @param url     请求地址
+     * @param headers 额外请求头
+     * @return 请求结果
+     */
+    public static HttpResult doGet(String url, Map<String, String> headers) {
         HostPort hostPort = getHostPortUrlFromUrl(url);
-        HttpResult httpResult = doGet(hostPort.host, hostPort.port, hostPort.url);
+        HttpResult httpResult = doGet(hostPort.host, hostPort.port, hostPort.url, headers);
         if (httpResult.status == 511 && POLL_APP_CONFIG_FAILED_ABORTED != null) {
             SimulatorDynamicConfig.setAbortPollingAppConfig(true);
         }
@@ -48,6 +59,10 @@ public abstract class HttpUtils {
     }
 
     public static HttpResult doGet(String host, int port, String url) {
+        return doGet(host, port, url, null);
+    }
+
+    public static HttpResult doGet(String host, int port, String url, Map<String, String> extraHeaders) {
         InputStream input = null;
         OutputStream output = null;
         Socket socket = null;
@@ -66,6 +81,13 @@ public abstract class HttpUtils {
                     }
                 }
             }
+            if (extraHeaders != null) {
+                for (Map.Entry<String, String> entry : extraHeaders.entrySet()) {
+                    if (!StringUtils.isBlank(entry.getValue())) {
+                        request.append(entry.getKey()).append(": ").append(entry.getValue()).append("\r\n");
+                    }
+                }
+            }
             request.append("\r\n");
 
             socket = new Socket();
@@ -87,9 +109,15 @@ public abstract class HttpUtils {
             }
 
             Map<String, List<String>> headers = readHeaders(input);
+            /**
+             * 304 没有响应体, 不能继续读取否则会阻塞到读超时
+             */
+            if (status == HttpResult.NOT_MODIFIED) {
+                return HttpResult.result(status, "", headers);
+            }
             input = wrapperInput(headers, input);
             String result = toString(input);
-            return HttpResult.result(status, result);
+            return HttpResult.result(status, result, headers);
         } catch (Throwable e) {
             return HttpResult.result(511, Throwables.getStackTraceAsString(e));
         } finally {
@@ -375,6 +403,7 @@ public abstract class HttpUtils {
     }
 
     public static class HttpResult {
+        public final static int NOT_MODIFIED = 304;
         /**
          * 是否成功
          */
@@ -383,6 +412,10 @@ public abstract class HttpUtils {
          * 结果
          */
         private String result;
+        /**
+         * 响应头, key 为小写
+         */
+        private transient Map<String, List<String>> headers;
 
         public static HttpResult result(int status, String result) {
             HttpResult httpResult = new HttpResult();
@@ -391,6 +424,35 @@ public abstract class HttpUtils {
             return httpResult;
         }
 
+        public static HttpResult result(int status, String result, Map<String, List<String>> headers) {
+            HttpResult httpResult = result(status, result);
+            httpResult.headers = headers;
+            return httpResult;
+        }
+
+        /**
+         * 获取响应头
+         *
+         * @param name 响应头名称
+         * @return 第一个响应头的值, 不存在则返回 null
+         */
+        public String getHeader(String name) {
+            if (headers == null || name == null) {
+                return null;
+            }
+            List<String> values = headers.get(name.toLowerCase());
+            return values == null || values.isEmpty() ? null : values.get(0);
+        }
+
+        /**
+         * 条件请求时服务端返回内容未变更
+         *
+         * @return 是否未变更
+         */
+        public boolean isNotModified() {
+            return status == NOT_MODIFIED;
+        }
+
         public int getStatus() {
             return status;
         }
@@ -456,6 +456,9 @@ public class ReflectionToStringBuilder extends ToStringBuilder {
         final Field[] fields = clazz.getDeclaredFields();
         AccessibleObject.setAccessible(fields, true);
         for (final Field field : fields) {
+            if (this.getStyle().isOverLimit(this.getStringBuffer())) {
+                return;
+            }
             final String fieldName = field.getName();
             if (this.accept(field)) {
                 try {
@@ -597,7 +600,8 @@ public class ReflectionToStringBuilder extends ToStringBuilder {
         }
         Class<?> clazz = this.getObject().getClass();
         this.appendFieldsIn(clazz);
-        while (clazz.getSuperclass() != null && clazz != this.getUpToClass()) {
+        while (clazz.getSuperclass() != null && clazz != this.getUpToClass()
+                && !this.getStyle().isOverLimit(this.getStringBuffer())) {
             clazz = clazz.getSuperclass();
             this.appendFieldsIn(clazz);
         }
@@ -431,6 +431,9 @@ public abstract class ToStringStyle implements Serializable {
      * @param detail    output detail or not
      */
     protected void appendInternal(final StringBuffer buffer, final String fieldName, final Object value, final boolean detail) {
+        if (isOverLimit(buffer)) {
+            return;
+        }
         if (isRegistered(value)
                 && !(value instanceof Number || value instanceof Boolean || value instanceof Character)) {
             appendCyclicObject(buffer, fieldName, value);
@@ -556,7 +559,7 @@ public abstract class ToStringStyle implements Serializable {
      * @param value     the value to add to the <code>toString</code>, not <code>null</code>
      */
     protected void appendDetail(final StringBuffer buffer, final String fieldName, final Object value) {
-        if (limitSize != -1 && totalSize > limitSize) {
+        if (isOverLimit(buffer)) {
             return;
         }
 
@@ -564,8 +567,9 @@ public abstract class ToStringStyle implements Serializable {
             if (ClassUtils.isPrimitiveOrWrapper(value.getClass())) {
                 buffer.append(value);
             } else if (value instanceof String) {
-                if (limitSize != -1 && totalSize + ((String) value).length() > limitSize && limitSize - totalSize > 0) {
-                    buffer.append((String) value, 0, (int) (limitSize - totalSize));
+                long remaining = limitSize - buffer.length();
+                if (limitSize != -1 && ((String) value).length() > remaining) {
+                    buffer.append((String) value, 0, (int) remaining);
                 } else {
                     buffer.append(value);
                 }
@@ -585,7 +589,7 @@ public abstract class ToStringStyle implements Serializable {
      *                  <code>null</code>
      */
     protected void appendDetail(final StringBuffer buffer, final String fieldName, final Collection<?> coll) {
-        if (limitSize != -1 && totalSize > limitSize) {
+        if (isOverLimit(buffer)) {
             return;
         }
         if (null != coll && !coll.isEmpty()) {
@@ -593,7 +597,7 @@ public abstract class ToStringStyle implements Serializable {
             buffer.append(arrayStart);
             for (Object item : coll) {
                 if (i > 0) {
-                    if (limitSize != -1 && totalSize > limitSize) {
+                    if (isOverLimit(buffer)) {
                         return;
                     }
                     buffer.append(arraySeparator);
@@ -618,7 +622,7 @@ public abstract class ToStringStyle implements Serializable {
      *                  <code>null</code>
      */
     protected void appendDetail(final StringBuffer buffer, final String fieldName, final Map<?, ?> map) {
-        if (limitSize != -1 && totalSize > limitSize) {
+        if (isOverLimit(buffer)) {
             return;
         }
         buffer.append(arrayStart);
@@ -626,7 +630,7 @@ public abstract class ToStringStyle implements Serializable {
             int i = 0;
             for (Map.Entry<?, ?> item : map.entrySet()) {
                 if (i > 0) {
-                    if (limitSize != -1 && totalSize > limitSize) {
+                    if (isOverLimit(buffer)) {
                         break;
                     }
                     buffer.append(arraySeparator);
@@ -680,7 +684,7 @@ public abstract class ToStringStyle implements Serializable {
      * @param value     the value to add to the <code>toString</code>
      */
     protected void appendDetail(final StringBuffer buffer, final String fieldName, final long value) {
-        if (limitSize != -1 && totalSize > limitSize) {
+        if (isOverLimit(buffer)) {
             return;
         }
         buffer.append(value);
@@ -710,7 +714,7 @@ public abstract class ToStringStyle implements Serializable {
      * @param value     the value to add to the <code>toString</code>
      */
     protected void appendDetail(final StringBuffer buffer, final String fieldName, final int value) {
-        if (limitSize != -1 && totalSize > limitSize) {
+        if (isOverLimit(buffer)) {
             return;
         }
         buffer.append(value);
@@ -740,7 +744,7 @@ public abstract class ToStringStyle implements Serializable {
      * @param value     the value to add to the <code>toString</code>
      */
     protected void appendDetail(final StringBuffer buffer, final String fieldName, final short value) {
-        if (limitSize != -1 && totalSize > limitSize) {
+        if (isOverLimit(buffer)) {
             return;
         }
         buffer.append(value);
@@ -770,7 +774,7 @@ public abstract class ToStringStyle implements Serializable {
      * @param value     the value to add to the <code>toString</code>
      */
     protected void appendDetail(final StringBuffer buffer, final String fieldName, final byte value) {
-        if (limitSize != -1 && totalSize > limitSize) {
+        if (isOverLimit(buffer)) {
             return;
         }
         buffer.append(value);
@@ -800,7 +804,7 @@ public abstract class ToStringStyle implements Serializable {
      * @param value     the value to add to the <code>toString</code>
      */
     protected void appendDetail(final StringBuffer buffer, final String fieldName, final char value) {
-        if (limitSize != -1 && totalSize > limitSize) {
+        if (isOverLimit(buffer)) {
             return;
         }
         buffer.append(value);
@@ -830,7 +834,7 @@ public abstract class ToStringStyle implements Serializable {
      * @param value     the value to add to the <code>toString</code>
      */
     protected void appendDetail(final StringBuffer buffer, final String fieldName, final double value) {
-        if (limitSize != -1 && totalSize > limitSize) {
+        if (isOverLimit(buffer)) {
             return;
         }
         buffer.append(value);
@@ -860,7 +864,7 @@ public abstract class ToStringStyle implements Serializable {
      * @param value     the value to add to the <code>toString</code>
      */
     protected void appendDetail(final StringBuffer buffer, final String fieldName, final float value) {
-        if (limitSize != -1 && totalSize > limitSize) {
+        if (isOverLimit(buffer)) {
             return;
         }
         buffer.append(value);
@@ -890,7 +894,7 @@ public abstract class ToStringStyle implements Serializable {
      * @param value     the value to add to the <code>toString</code>
      */
     protected void appendDetail(final StringBuffer buffer, final String fieldName, final boolean value) {
-        if (limitSize != -1 && totalSize > limitSize) {
+        if (isOverLimit(buffer)) {
             return;
         }
         buffer.append(value);
@@ -932,14 +936,14 @@ public abstract class ToStringStyle implements Serializable {
      * @param array     the array to add to the <code>toString</code>, not <code>null</code>
      */
     protected void appendDetail(final StringBuffer buffer, final String fieldName, final Object[] array) {
-        if (limitSize != -1 && totalSize > limitSize) {
+        if (isOverLimit(buffer)) {
             return;
         }
         buffer.append(arrayStart);
         for (int i = 0; i < array.length; i++) {
             final Object item = array[i];
             if (i > 0) {
-                if (limitSize != -1 && totalSize > limitSize) {
+                if (isOverLimit(buffer)) {
                     break;
                 }
                 buffer.append(arraySeparator);
@@ -966,7 +970,7 @@ public abstract class ToStringStyle implements Serializable {
         for (int i = 0; i < length; i++) {
             final Object item = Array.get(array, i);
             if (i > 0) {
-                if (limitSize != -1 && totalSize > limitSize) {
+                if (isOverLimit(buffer)) {
                     break;
                 }
                 buffer.append(arraySeparator);
@@ -1024,13 +1028,13 @@ public abstract class ToStringStyle implements Serializable {
      * @param array     the array to add to the <code>toString</code>, not <code>null</code>
      */
     protected void appendDetail(final StringBuffer buffer, final String fieldName, final long[] array) {
-        if (limitSize != -1 && totalSize > limitSize) {
+        if (isOverLimit(buffer)) {
             return;
         }
         buffer.append(arrayStart);
         for (int i = 0; i < array.length; i++) {
             if (i > 0) {
-                if (limitSize != -1 && totalSize > limitSize) {
+                if (isOverLimit(buffer)) {
                     break;
                 }
                 buffer.append(arraySeparator);
@@ -1087,13 +1091,13 @@ public abstract class ToStringStyle implements Serializable {
      * @param array     the array to add to the <code>toString</code>, not <code>null</code>
      */
     protected void appendDetail(final StringBuffer buffer, final String fieldName, final int[] array) {
-        if (limitSize != -1 && totalSize > limitSize) {
+        if (isOverLimit(buffer)) {
             return;
         }
         buffer.append(arrayStart);
         for (int i = 0; i < array.length; i++) {
             if (i > 0) {
-                if (limitSize != -1 && totalSize > limitSize) {
+                if (isOverLimit(buffer)) {
                     break;
                 }
                 buffer.append(arraySeparator);
@@ -1150,13 +1154,13 @@ public abstract class ToStringStyle implements Serializable {
      * @param array     the array to add to the <code>toString</code>, not <code>null</code>
      */
     protected void appendDetail(final StringBuffer buffer, final String fieldName, final short[] array) {
-        if (limitSize != -1 && totalSize > limitSize) {
+        if (isOverLimit(buffer)) {
             return;
         }
         buffer.append(arrayStart);
         for (int i = 0; i < array.length; i++) {
             if (i > 0) {
-                if (limitSize != -1 && totalSize > limitSize) {
+                if (isOverLimit(buffer)) {
                     break;
                 }
                 buffer.append(arraySeparator);
@@ -1213,12 +1217,15 @@ public abstract class ToStringStyle implements Serializable {
      * @param array     the array to add to the <code>toString</code>, not <code>null</code>
      */
     protected void appendDetail(final StringBuffer buffer, final String fieldName, final byte[] array) {
-        if (limitSize != -1 && totalSize > limitSize) {
+        if (isOverLimit(buffer)) {
             return;
         }
-        String string = new String(array);
-        int index = limitSize < string.length() ? (int) limitSize : string.length();
-        buffer.append(string, 0, index);
+        int length = array.length;
+        if (limitSize != -1) {
+            length = (int) Math.min(length, limitSize - buffer.length());
+        }
+        String string = new String(array, 0, length);
+        buffer.append(string);
         totalSize = buffer.length();
     }
 
@@ -1268,13 +1275,13 @@ public abstract class ToStringStyle implements Serializable {
      * @param array     the array to add to the <code>toString</code>, not <code>null</code>
      */
     protected void appendDetail(final StringBuffer buffer, final String fieldName, final char[] array) {
-        if (limitSize != -1 && totalSize > limitSize) {
+        if (isOverLimit(buffer)) {
             return;
         }
         buffer.append(arrayStart);
         for (int i = 0; i < array.length; i++) {
             if (i > 0) {
-                if (limitSize != -1 && totalSize > limitSize) {
+                if (isOverLimit(buffer)) {
                     break;
                 }
                 buffer.append(arraySeparator);
@@ -1331,13 +1338,13 @@ public abstract class ToStringStyle implements Serializable {
      * @param array     the array to add to the <code>toString</code>, not <code>null</code>
      */
     protected void appendDetail(final StringBuffer buffer, final String fieldName, final double[] array) {
-        if (limitSize != -1 && totalSize > limitSize) {
+        if (isOverLimit(buffer)) {
             return;
         }
         buffer.append(arrayStart);
         for (int i = 0; i < array.length; i++) {
             if (i > 0) {
-                if (limitSize != -1 && totalSize > limitSize) {
+                if (isOverLimit(buffer)) {
                     break;
                 }
                 buffer.append(arraySeparator);
@@ -1394,13 +1401,13 @@ public abstract class ToStringStyle implements Serializable {
      * @param array     the array to add to the <code>toString</code>, not <code>null</code>
      */
     protected void appendDetail(final StringBuffer buffer, final String fieldName, final float[] array) {
-        if (limitSize != -1 && totalSize > limitSize) {
+        if (isOverLimit(buffer)) {
             return;
         }
         buffer.append(arrayStart);
         for (int i = 0; i < array.length; i++) {
             if (i > 0) {
-                if (limitSize != -1 && totalSize > limitSize) {
+                if (isOverLimit(buffer)) {
                     break;
                 }
                 buffer.append(arraySeparator);
@@ -1457,13 +1464,13 @@ public abstract class ToStringStyle implements Serializable {
      * @param array     the array to add to the <code>toString</code>, not <code>null</code>
      */
     protected void appendDetail(final StringBuffer buffer, final String fieldName, final boolean[] array) {
-        if (limitSize != -1 && totalSize > limitSize) {
+        if (isOverLimit(buffer)) {
             return;
         }
         buffer.append(arrayStart);
         for (int i = 0; i < array.length; i++) {
             if (i > 0) {
-                if (limitSize != -1 && totalSize > limitSize) {
+                if (isOverLimit(buffer)) {
                     break;
                 }
                 buffer.append(arraySeparator);
@@ -2558,6 +2565,16 @@ public abstract class ToStringStyle implements Serializable {
 
     }
 
+    /**
+     * 输出是否已经达到长度限制, 达到后不再继续遍历对象、集合和数组
+     *
+     * @param buffer 输出缓冲区
+     * @return 是否达到长度限制
+     */
+    boolean isOverLimit(final StringBuffer buffer) {
+        return limitSize != -1 && buffer.length() >= limitSize;
+    }
+
     public ToStringStyle setLimitSize(long limitSize) {
         this.limitSize = limitSize;
         return this;
@@ -0,0 +1,79 @@
+package com.pamirs.pradar.degrade.action;
+
+/**
+ * 多个降级检测共用同一个全局降级动作(采样率、静默等)时按引用计数执行
+ * <p>
+ * 每个检测通过 {@link #newHolder()} 持有自己的降级动作实例, 第一个持有者降级时才真正执行降级,
+ * 最后一个持有者恢复时才真正恢复, 避免一个检测恢复时撤销了另一个检测仍然需要的降级
+ */
+public final class SharedDegradeAction {
+
+    private final DegradeAction action;
+
+    /**
+     * 当前处于降级状态的持有者数量
+     */
+    private int holders;
+
+    public SharedDegradeAction(DegradeAction action) {
+        this.action = action;
+    }
+
+    /**
+     * 创建一个新的持有者, 每个降级检测使用各自的持有者
+     *
+     * @return 降级动作
+     */
+    public DegradeAction newHolder() {
+        return new Holder();
+    }
+
+    private class Holder implements DegradeAction {
+
+        private boolean degraded;
+
+        @Override
+        public void degrade(String msg) {
+            synchronized (SharedDegradeAction.this) {
+                if (degraded) {
+                    return;
+                }
+                if (holders == 0) {
+                    action.degrade(msg);
+                }
+                holders++;
+                degraded = true;
+            }
+        }
+
+        @Override
+        public void unDegrade() {
+            synchronized (SharedDegradeAction.this) {
+                if (!degraded) {
+                    return;
+                }
+                degraded = false;
+                if (--holders == 0) {
+                    action.unDegrade();
+                }
+            }
+        }
+
+        @Override
+        public boolean isDegraded() {
+            synchronized (SharedDegradeAction.this) {
+                return degraded;
+            }
+        }
+
+        /**
+         * 其他持有者已经降级时可以直接加入, 否则由被包装的动作判断(例如控制台已经手动静默时不再降级)
+         */
+        @Override
+        public boolean canDegrade() {
+            synchronized (SharedDegradeAction.this) {
+                return !degraded && (holders > 0 || action.canDegrade());
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.pamirs.pradar.degrade.action;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 逐级降级, 每次触发降级执行下一级, 每次恢复撤销最近执行的一级
+ * <p>
+ * 恢复时只撤销自己执行过的级别; 和主机资源检测共用的级别需要通过 {@link SharedDegradeAction}
+ * 持有各自的实例, 任何一方恢复都不会撤销另一方仍然需要的降级
+ */
+public class StepwiseDegradeAction implements DegradeAction {
+
+    private final List<DegradeAction> steps;
+
+    /**
+     * 已经执行的级别, 按执行顺序
+     */
+    private final List<DegradeAction> applied = new ArrayList<DegradeAction>();
+
+    public StepwiseDegradeAction(DegradeAction... steps) {
+        this.steps = Arrays.asList(steps);
+    }
+
+    @Override
+    public synchronized void degrade(String msg) {
+        DegradeAction next = nextStep();
+        if (next != null) {
+            next.degrade(msg);
+            applied.add(next);
+        }
+    }
+
+    @Override
+    public synchronized void unDegrade() {
+        if (!applied.isEmpty()) {
+            applied.remove(applied.size() - 1).unDegrade();
+        }
+    }
+
+    @Override
+    public synchronized boolean isDegraded() {
+        return !applied.isEmpty();
+    }
+
+    @Override
+    public synchronized boolean canDegrade() {
+        return nextStep() != null;
+    }
+
+    private DegradeAction nextStep() {
+        for (int i = applied.isEmpty() ? 0 : steps.indexOf(applied.get(applied.size() - 1)) + 1; i < steps.size(); i++) {
+            DegradeAction step = steps.get(i);
+            if (step.canDegrade()) {
+                return step;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,45 @@
+package com.pamirs.pradar.degrade.action;
+
+import com.pamirs.pradar.ErrorTypeEnum;
+import com.pamirs.pradar.Pradar;
+import com.pamirs.pradar.pressurement.agent.shared.service.ErrorReporter;
+
+/**
+ * 降级为不记录请求、响应内容, trace 的调用关系和采样率不变
+ */
+public enum TraceDetailDegradeAction implements DegradeAction {
+
+    INSTANCE;
+
+    @Override
+    public void degrade(String msg) {
+        Pradar.setTraceDetailDegradeStatus(true);
+        ErrorReporter.buildError()
+                .setErrorType(ErrorTypeEnum.DEGRADE)
+                .setErrorCode("degrade-0001")
+                .setMessage("资源紧张触发降级,不再记录请求响应内容")
+                .setDetail(msg)
+                .report();
+    }
+
+    @Override
+    public void unDegrade() {
+        Pradar.setTraceDetailDegradeStatus(false);
+        ErrorReporter.buildError()
+                .setErrorType(ErrorTypeEnum.DEGRADE)
+                .setErrorCode("degrade-0002")
+                .setMessage("资源充足降级恢复，恢复记录请求响应内容")
+                .setDetail("")
+                .report();
+    }
+
+    @Override
+    public boolean isDegraded() {
+        return Pradar.isTraceDetailDegraded();
+    }
+
+    @Override
+    public boolean canDegrade() {
+        return !Pradar.isTraceDetailDegraded();
+    }
+}
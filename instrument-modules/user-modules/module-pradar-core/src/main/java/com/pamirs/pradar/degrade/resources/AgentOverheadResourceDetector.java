@@ -0,0 +1,175 @@
+package com.pamirs.pradar.degrade.resources;
+
+import com.shulie.instrument.simulator.api.guard.SimulatorOverhead;
+import com.sun.management.OperatingSystemMXBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 探针自身开销检测
+ * <p>
+ * 探针开销 = 探针自有线程(日志异步写入、日志推送、配置拉取、影子消费者等)的 cpu 时间
+ * + 业务线程中拦截器的抽样耗时, 与进程 cpu 时间的比值超过阈值时认为资源不足。
+ * 每次检测与上一次检测做差值, 进程 cpu 时间太少时不做判断, 避免空闲时误判
+ */
+public class AgentOverheadResourceDetector implements ResourceDetector {
+
+    private final static String DEFAULT_THREAD_PREFIXES = "Simulator-Event-Router-Service,Async-Log-Appender-Service,"
+            + "ASYNC-,Log-Data-Pusher-Service-,Pradar-Fetch-Config-,messaging-common-,shadow-consumer-register-,"
+            + "Command-Channel-Heartbeat,Simulator-Pool-,Invalidated-Resources-Evictor-Job";
+
+    /**
+     * 进程 cpu 时间少于该值(纳秒)时不做判断
+     */
+    private final static long MIN_PROCESS_CPU_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private volatile double maxRatio;
+
+    private volatile String[] threadPrefixes;
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    private final OperatingSystemMXBean osBean = ManagementFactory.getPlatformMXBean(OperatingSystemMXBean.class);
+    private final boolean threadCpuTimeEnabled;
+
+    /**
+     * 每隔多少次检测重新遍历一次全部线程
+     */
+    private final static int RESCAN_PERIODS = 12;
+
+    /**
+     * 探针线程 id -> 上一次采样的 cpu 时间, 新发现还没有采样的线程为 null
+     */
+    private Map<Long, Long> lastThreadCpuTimes = new HashMap<Long, Long>();
+    private long lastProcessCpuTime;
+    private int samples;
+    private long lastInterceptorNanos;
+
+    public AgentOverheadResourceDetector() {
+        refreshThreshold();
+        this.threadCpuTimeEnabled = threadBean.isThreadCpuTimeSupported() && threadBean.isThreadCpuTimeEnabled();
+        if (!threadCpuTimeEnabled) {
+            logger.warn("thread cpu time is not enabled, agent overhead only includes interceptor cost");
+        }
+        overheadRatio();
+    }
+
+    @Override
+    public boolean hasResource() {
+        try {
+            double v = overheadRatio();
+            boolean result = v < maxRatio;
+            if (!result) {
+                logger.info("{} detect result : {}", this.getClass(), v);
+            }
+            return result;
+        } catch (Throwable e) {
+            return true;
+        }
+    }
+
+    @Override
+    public String name() {
+        return "agent overhead";
+    }
+
+    @Override
+    public double threshold() {
+        return maxRatio;
+    }
+
+    @Override
+    public String configName() {
+        return "degrade.agent.overhead.detect.ratio";
+    }
+
+    @Override
+    public void refreshThreshold() {
+        String value = System.getProperty(configName(), "0.2");
+        this.maxRatio = Double.parseDouble(value);
+        value = System.getProperty("degrade.agent.overhead.thread.prefixes", DEFAULT_THREAD_PREFIXES);
+        this.threadPrefixes = value.split(",");
+    }
+
+    /**
+     * 计算距离上一次检测探针开销占进程 cpu 时间的比例
+     *
+     * @return 比例, 第一次检测或者进程 cpu 时间太少时返回 -1
+     */
+    public synchronized double overheadRatio() {
+        long processCpuTime = osBean.getProcessCpuTime();
+        long interceptorNanos = SimulatorOverhead.getInterceptorNanos();
+        long threadCpuDelta = sampleAgentThreads();
+
+        long processCpuDelta = processCpuTime - lastProcessCpuTime;
+        long interceptorDelta = interceptorNanos - lastInterceptorNanos;
+        boolean first = lastProcessCpuTime <= 0;
+        lastProcessCpuTime = processCpuTime;
+        lastInterceptorNanos = interceptorNanos;
+        if (first || processCpuTime < 0 || processCpuDelta < MIN_PROCESS_CPU_NANOS) {
+            return -1;
+        }
+        return (double) (threadCpuDelta + interceptorDelta) / processCpuDelta;
+    }
+
+    /**
+     * 采样探针线程的 cpu 时间, 返回与上一次采样的差值, 新出现的线程按从 0 开始计算
+     * <p>
+     * 只对已知的探针线程 id 读取 cpu 时间, 每 {@link #RESCAN_PERIODS} 次检测才遍历一次全部线程名称发现新的探针线程
+     */
+    private long sampleAgentThreads() {
+        if (!threadCpuTimeEnabled) {
+            return 0;
+        }
+        if (samples++ % RESCAN_PERIODS == 0) {
+            rescanAgentThreads();
+        }
+        Map<Long, Long> current = new HashMap<Long, Long>(lastThreadCpuTimes.size() * 2);
+        long delta = 0;
+        for (Map.Entry<Long, Long> entry : lastThreadCpuTimes.entrySet()) {
+            long cpuTime = threadBean.getThreadCpuTime(entry.getKey());
+            if (cpuTime < 0) {
+                // 线程已经结束
+                continue;
+            }
+            current.put(entry.getKey(), cpuTime);
+            Long last = entry.getValue();
+            delta += last == null ? cpuTime : Math.max(0, cpuTime - last);
+        }
+        lastThreadCpuTimes = current;
+        return delta;
+    }
+
+    /**
+     * 按线程名称找出探针线程, 新发现的线程记为还没有采样
+     */
+    private void rescanAgentThreads() {
+        ThreadInfo[] infos = threadBean.getThreadInfo(threadBean.getAllThreadIds());
+        for (ThreadInfo info : infos) {
+            if (info != null && !lastThreadCpuTimes.containsKey(info.getThreadId())
+                    && isAgentThread(info.getThreadName())) {
+                lastThreadCpuTimes.put(info.getThreadId(), null);
+            }
+        }
+    }
+
+    private boolean isAgentThread(String threadName) {
+        if (threadName == null) {
+            return false;
+        }
+        for (String prefix : threadPrefixes) {
+            if (prefix.length() > 0 && threadName.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,22 +1,20 @@
 package com.pamirs.pradar.degrade.resources;
 
-import com.sun.management.OperatingSystemMXBean;
+import com.pamirs.pradar.utils.CgroupReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.lang.management.ManagementFactory;
-import java.math.BigDecimal;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
+ * 容器 cpu 使用率检测, 同时支持 cgroup v1 和 cgroup v2
+ * <p>
+ * 每次检测与上一次检测的采样做差值, 不需要在检测线程中休眠;
+ * 使用率按容器 cpu 配额计算, 没有配额时按 cpuset 计算。
+ * 除了使用率, 调度周期中被限流的比例或者 cpu 压力(PSI, 只有 cgroup v2 支持)超过阈值时同样认为资源不足
+ *
  * @author angju
  * @date 2022/3/9 14:50
  */
@@ -24,19 +22,46 @@ public class ContainerCpuUsageResourceDetector implements ResourceDetector {
 
     private volatile double maxUsage;
 
+    private volatile double maxThrottledRatio;
+
+    private volatile double maxPressure;
+
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
     private final AtomicBoolean warnAlready = new AtomicBoolean(false);
-    private final int cpuCores;
+    private final CgroupReader cgroup;
     private final double containerCores;
-    private final int userHz;
+
+    /**
+     * 两次采样的最小间隔, 间隔太短时 cpu 时间的差值没有意义
+     */
+    private final static long MIN_SAMPLE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /**
+     * 上一次采样
+     */
+    private long lastSampleTime;
+    private long lastCpuUsage = -1;
+    private long lastPeriods = -1;
+    private long lastThrottledPeriods = -1;
+
+    /**
+     * 上一次的有效检测结果
+     */
+    private volatile double lastUsage;
 
     public ContainerCpuUsageResourceDetector() throws IOException {
-        String value = System.getProperty(configName(), "0.7");
-        this.maxUsage = Double.parseDouble(value);
-        cpuCores = getTotalCpuCores();
-        containerCores = getContainerCores();
-        userHz = Integer.parseInt(execCommand("getconf CLK_TCK").get(0));
+        this(CgroupReader.create());
+    }
+
+    public ContainerCpuUsageResourceDetector(CgroupReader cgroup) throws IOException {
+        this.cgroup = cgroup;
+        refreshThreshold();
+        if (cgroup.cpuUsageNanos() < 0) {
+            throw new IOException("can't read container cpu usage from cgroup" + (cgroup.isV2() ? " v2" : " v1"));
+        }
+        containerCores = getContainerCores(cgroup);
+        sample(System.nanoTime(), cgroup.cpuUsageNanos());
     }
 
     @Override
@@ -72,79 +97,78 @@ public class ContainerCpuUsageResourceDetector implements ResourceDetector {
     public void refreshThreshold() {
         String value = System.getProperty(configName(), "0.7");
         this.maxUsage = Double.parseDouble(value);
+        value = System.getProperty("degrade.container.cpu.throttled.detect.ratio", "0.5");
+        this.maxThrottledRatio = Double.parseDouble(value);
+        value = System.getProperty("degrade.container.cpu.pressure.detect.ratio", "0.8");
+        this.maxPressure = Double.parseDouble(value);
     }
 
-
-    public static List<String> readFile(String filename) throws IOException {
-        return Files.readAllLines(Paths.get(filename), StandardCharsets.UTF_8);
-    }
-
-    public double cpuInfo() {
+    /**
+     * 计算距离上一次检测的容器 cpu 使用率, 被限流的比例或者 cpu 压力超过阈值时直接返回 1
+     * <p>
+     * 采集失败或者两次检测间隔太短无法计算时沿用上一次的有效结果, 并且不覆盖上一次的采样,
+     * 下一次检测仍然和最后一次成功的采样做差值
+     *
+     * @return 使用率, 还没有有效结果时返回 0
+     */
+    public synchronized double cpuInfo() {
         try {
-            List<String> prfContents = readFile("/proc/stat");
-            String[] prfSplits = prfContents.get(0).split("\\s+");
-            long prfSystemCpuValue = Long.parseLong(prfSplits[1]) + Long.parseLong(prfSplits[2]) + Long.parseLong(
-                prfSplits[3]) + Long.parseLong(prfSplits[4]) + Long.parseLong(prfSplits[5]) + Long.parseLong(
-                prfSplits[6]) + Long.parseLong(prfSplits[7]) + Long.parseLong(prfSplits[8]);
-            BigDecimal prfContainerCpuValue = new BigDecimal(readFile("/sys/fs/cgroup/cpuacct/cpuacct.usage").get(0));
-
-            Thread.sleep(1000);
-
-            List<String> afterContents = readFile("/proc/stat");
-            String[] afterSplits = afterContents.get(0).split("\\s+");
-            long systemCpuValue = Long.parseLong(afterSplits[1]) + Long.parseLong(afterSplits[2]) + Long.parseLong(
-                afterSplits[3]) + Long.parseLong(afterSplits[4]) + Long.parseLong(afterSplits[5]) + Long.parseLong(
-                afterSplits[6]) + Long.parseLong(afterSplits[7]) + Long.parseLong(afterSplits[8]);
-            BigDecimal containerCpuValue = new BigDecimal(readFile("/sys/fs/cgroup/cpuacct/cpuacct.usage").get(0));
-
-            // 100% * 容器使用cpu时间 / 系统使用cpu时间
-            //cpu使用率是整体的, 上限就是100，所以不乘核数
-            BigDecimal containerCpuDelta = containerCpuValue.subtract(prfContainerCpuValue);
-            BigDecimal systemCpuDelta = new BigDecimal(systemCpuValue - prfSystemCpuValue).multiply(
-                new BigDecimal(1000 * 1000 * 1000 / userHz));
-
-            double cpuUsagePercent = 0.0;
-            if (containerCpuDelta.doubleValue() > 0 && systemCpuDelta.doubleValue() > 0) {
-                cpuUsagePercent = containerCpuDelta.multiply(new BigDecimal(100)).divide(systemCpuDelta, 2,
-                    BigDecimal.ROUND_HALF_UP).doubleValue();
-                if (cpuUsagePercent < 2) {
-                    OperatingSystemMXBean osBean = ManagementFactory.getPlatformMXBean(OperatingSystemMXBean.class);
-                    cpuUsagePercent = osBean.getSystemCpuLoad();
+            long sampleTime = System.nanoTime();
+            long cpuUsage = cgroup.cpuUsageNanos();
+            if (cpuUsage < 0 || lastCpuUsage < 0 || sampleTime - lastSampleTime < MIN_SAMPLE_INTERVAL_NANOS) {
+                if (lastCpuUsage < 0) {
+                    sample(sampleTime, cpuUsage);
+                }
+                return lastUsage;
+            }
+            long previousTime = lastSampleTime;
+            long previousCpuUsage = lastCpuUsage;
+            long previousPeriods = lastPeriods;
+            long previousThrottledPeriods = lastThrottledPeriods;
+            sample(sampleTime, cpuUsage);
+
+            if (maxThrottledRatio > 0 && previousPeriods >= 0 && lastPeriods > previousPeriods && previousThrottledPeriods >= 0) {
+                double throttledRatio = (double) (lastThrottledPeriods - previousThrottledPeriods) / (lastPeriods - previousPeriods);
+                if (throttledRatio >= maxThrottledRatio) {
+                    logger.info("{} container cpu throttled ratio : {}", this.getClass(), throttledRatio);
+                    return lastUsage = 1;
+                }
+            }
+            if (maxPressure > 0) {
+                double pressure = cgroup.cpuPressure();
+                if (pressure >= 0 && pressure / 100 >= maxPressure) {
+                    logger.info("{} container cpu pressure : {}%", this.getClass(), pressure);
+                    return lastUsage = 1;
                 }
             }
-            cpuUsagePercent = cpuUsagePercent * cpuCores; //cpu占用率
-            cpuUsagePercent = cpuUsagePercent / containerCores;
-            cpuUsagePercent = cpuUsagePercent / 100.0;
-            return cpuUsagePercent;
+
+            // 容器使用cpu时间 / (采集间隔 * 容器可用核数)
+            return lastUsage = (double) (lastCpuUsage - previousCpuUsage) / ((lastSampleTime - previousTime) * containerCores);
         } catch (Throwable e) {
             if (warnAlready.compareAndSet(false, true)) {
                 logger.error("cpuInfo fail!", e);
             }
-            return -1;
+            return lastUsage;
         }
     }
 
-    private static double getContainerCores() throws IOException {
-        int quota = Integer.parseInt(readFile("/sys/fs/cgroup/cpuacct/cpu.cfs_quota_us").get(0));
-        int period = Integer.parseInt(readFile("/sys/fs/cgroup/cpuacct/cpu.cfs_period_us").get(0));
-        return ((double)quota) / ((double)period);
+    private void sample(long sampleTime, long cpuUsage) {
+        lastSampleTime = sampleTime;
+        lastCpuUsage = cpuUsage;
+        lastPeriods = cgroup.cpuPeriods();
+        lastThrottledPeriods = cgroup.cpuThrottledPeriods();
     }
 
-    private static int getTotalCpuCores() throws IOException {
-        List<String> cores = readFile("/sys/fs/cgroup/cpuacct/cpuacct.usage_percpu");
-        String[] tmp = cores.get(0).split("\\s");
-        return tmp.length;
-    }
-
-    private static List<String> execCommand(String cmd) throws IOException {
-        List<String> result = new ArrayList<String>();
-        Process ps = Runtime.getRuntime().exec(new String[] {"/bin/sh", "-c", cmd});
-        BufferedReader br = new BufferedReader(new InputStreamReader(ps.getInputStream()));
-        String line;
-        while ((line = br.readLine()) != null) {
-            result.add(line);
+    private static double getContainerCores(CgroupReader cgroup) {
+        double cores = cgroup.cpuLimitCores();
+        if (cores > 0) {
+            return cores;
+        }
+        int cpuset = cgroup.cpusetCount();
+        if (cpuset > 0) {
+            return cpuset;
         }
-        return result;
+        return Runtime.getRuntime().availableProcessors();
     }
 
-}
\ No newline at end of file
+}
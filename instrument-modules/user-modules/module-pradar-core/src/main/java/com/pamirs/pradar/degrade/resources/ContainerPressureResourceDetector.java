@@ -0,0 +1,87 @@
+package com.pamirs.pradar.degrade.resources;
+
+import com.pamirs.pradar.utils.CgroupReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+/**
+ * 容器内存、io 压力检测, 只支持 cgroup v2
+ * <p>
+ * 读取 &lt;resource&gt;.pressure(PSI) 中 some 行的 avg10, 即最近 10 秒内有任务因为等待该资源而停顿的时间占比,
+ * 超过阈值时认为资源不足。cpu 使用率没有达到阈值时, 内存回收、磁盘读写的停顿同样会拖慢业务
+ */
+public class ContainerPressureResourceDetector implements ResourceDetector {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final String resource;
+    private final String defaultThreshold;
+    private final CgroupReader cgroup;
+
+    private volatile double maxPressure;
+
+    /**
+     * @param resource         memory 或 io
+     * @param defaultThreshold 默认阈值, 停顿时间占比
+     */
+    public ContainerPressureResourceDetector(String resource, String defaultThreshold) throws IOException {
+        this(resource, defaultThreshold, CgroupReader.create());
+    }
+
+    public ContainerPressureResourceDetector(String resource, String defaultThreshold, CgroupReader cgroup) throws IOException {
+        this.resource = resource;
+        this.defaultThreshold = defaultThreshold;
+        this.cgroup = cgroup;
+        refreshThreshold();
+        if (pressure() < 0) {
+            throw new IOException("can't read container " + resource + " pressure from cgroup" + (cgroup.isV2() ? " v2" : " v1"));
+        }
+    }
+
+    @Override
+    public boolean hasResource() {
+        try {
+            double v = pressure();
+            boolean result = v < maxPressure;
+            if (!result) {
+                logger.info("{} {} detect result : {}", this.getClass(), resource, v);
+            }
+            return result;
+        } catch (Throwable e) {
+            return true;
+        }
+    }
+
+    @Override
+    public String name() {
+        return "container " + resource + " pressure";
+    }
+
+    @Override
+    public double threshold() {
+        return maxPressure;
+    }
+
+    @Override
+    public String configName() {
+        return "degrade.container." + resource + ".pressure.detect.ratio";
+    }
+
+    @Override
+    public void refreshThreshold() {
+        String value = System.getProperty(configName(), defaultThreshold);
+        this.maxPressure = Double.parseDouble(value);
+    }
+
+    /**
+     * 最近 10 秒的停顿时间占比, CgroupReader 不是线程安全的, 检测和刷新阈值的任务可能并发调用
+     *
+     * @return 占比, 读取失败返回 -1
+     */
+    public synchronized double pressure() {
+        double percent = cgroup.pressure(resource);
+        return percent < 0 ? -1 : percent / 100;
+    }
+}
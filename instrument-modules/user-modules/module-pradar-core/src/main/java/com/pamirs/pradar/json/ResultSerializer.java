@@ -18,6 +18,7 @@ import com.pamirs.pradar.common.ToStringStyle;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.io.Writer;
 import java.lang.reflect.Field;
 import java.text.SimpleDateFormat;
 import java.util.*;
@@ -664,13 +665,7 @@ public abstract class ResultSerializer {
         }
         try {
             if (Throwable.class.isAssignableFrom(request.getClass())) {
-                StringWriter stringWriter = new StringWriter();
-                ((Throwable) request).printStackTrace(new PrintWriter(stringWriter));
-                String stack = stringWriter.toString();
-                if (stack.length() > limitedSize) {
-                    stack = stack.substring(0, (int) limitedSize);
-                }
-                return stack;
+                return stackTraceOf((Throwable) request, limitedSize);
             }
             ToStringStyle toStringStyle = new ToStringStyle.ShortPrefixToStringStyle().setLimitSize(limitedSize);
             StringBuffer content = new StringBuffer();
@@ -678,13 +673,92 @@ public abstract class ResultSerializer {
             if (content.length() < 1) {
                 return "";
             }
-            return content.deleteCharAt(content.length() - 1).toString();
+            content.deleteCharAt(content.length() - 1);
+            if (limitedSize >= 0 && content.length() > limitedSize) {
+                content.setLength((int) limitedSize);
+            }
+            return content.toString();
         } catch (Throwable e) {
             //ignore
         }
         return "";
     }
 
+    /**
+     * 输出异常堆栈, 达到长度限制后立即停止, 不会先完整输出再截断
+     *
+     * @param throwable   异常
+     * @param limitedSize 长度限制, -1 表示不限制
+     * @return 异常堆栈
+     */
+    private static String stackTraceOf(Throwable throwable, long limitedSize) {
+        LimitedWriter writer = new LimitedWriter(limitedSize < 0 ? Integer.MAX_VALUE : (int) Math.min(limitedSize, Integer.MAX_VALUE));
+        try {
+            throwable.printStackTrace(new PrintWriter(writer));
+        } catch (LimitReachedException e) {
+            //ignore
+        }
+        return writer.toString();
+    }
+
+    /**
+     * 写满后抛出 {@link LimitReachedException} 中断输出的 Writer
+     */
+    private static class LimitedWriter extends Writer {
+        private final StringBuilder buf;
+        private final int limit;
+
+        LimitedWriter(int limit) {
+            this.limit = limit;
+            this.buf = new StringBuilder(Math.min(limit, 1024));
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            int remaining = limit - buf.length();
+            if (len >= remaining) {
+                buf.append(cbuf, off, remaining);
+                throw LimitReachedException.INSTANCE;
+            }
+            buf.append(cbuf, off, len);
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            int remaining = limit - buf.length();
+            if (len >= remaining) {
+                buf.append(str, off, off + remaining);
+                throw LimitReachedException.INSTANCE;
+            }
+            buf.append(str, off, off + len);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public String toString() {
+            return buf.toString();
+        }
+    }
+
+    /**
+     * 输出达到长度限制, 只用于中断输出, 不记录堆栈
+     */
+    private static class LimitReachedException extends RuntimeException {
+        static final LimitReachedException INSTANCE = new LimitReachedException();
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
     private static class ObjectTooLargeException extends Exception {
 
         public ObjectTooLargeException(String message) {
@@ -52,6 +52,32 @@ public class PropertyUtil {
         return str + File.separator + AppNameUtils.appName() + File.separator + "es_white_list";
     }
 
+    /**
+     * 应用配置本地快照文件路径, 未设置 simulator.home 时返回 null
+     *
+     * @return 快照文件路径
+     */
+    public static String getConfigSnapshotFilePath() {
+        String str = System.getProperty("simulator.home");
+        if (str == null || str.isEmpty()) {
+            return null;
+        }
+        return str + File.separator + AppNameUtils.appName() + File.separator + "config_snapshot.json";
+    }
+
+    /**
+     * jar 包 pom 信息扫描结果缓存文件路径, 未设置 simulator.home 时返回 null
+     *
+     * @return 缓存文件路径
+     */
+    public static String getJarPomCacheFilePath() {
+        String str = System.getProperty("simulator.home");
+        if (str == null || str.isEmpty()) {
+            return null;
+        }
+        return str + File.separator + AppNameUtils.appName() + File.separator + "jar_pom_cache.properties";
+    }
+
     public static String getAgentManagerUrl(){
         String url = System.getenv("shulie.agent.manager.url");
         if (url == null || url.isEmpty()) {
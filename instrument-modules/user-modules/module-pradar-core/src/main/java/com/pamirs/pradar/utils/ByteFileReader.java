@@ -0,0 +1,178 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.pradar.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 读取 /proc、/sys 下的小文件, 文件内容读入同一个复用的缓冲区后直接按字节解析数字,
+ * 不按行读取也不拆分字符串。实例不是线程安全的
+ */
+abstract class ByteFileReader {
+
+    protected final byte[] buffer = new byte[16 * 1024];
+    protected int length;
+
+    /**
+     * 把文件内容读入复用的缓冲区, 超出缓冲区的部分丢弃
+     */
+    protected boolean read(File file) {
+        length = 0;
+        InputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            int n;
+            while (length < buffer.length && (n = in.read(buffer, length, buffer.length - length)) > 0) {
+                length += n;
+            }
+            return length > 0;
+        } catch (IOException e) {
+            length = 0;
+            return false;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    /**
+     * 在 "key value" 格式的内容中查找 key 对应的值, key 后面可以有多个空白
+     */
+    protected long findKey(byte[] key) {
+        int i = 0;
+        while (i < length) {
+            int end = lineEnd(i);
+            if (end - i > key.length && startsWith(i, key)
+                    && (buffer[i + key.length] == ' ' || buffer[i + key.length] == '\t')) {
+                return parseLong(i + key.length + 1);
+            }
+            i = end + 1;
+        }
+        return -1;
+    }
+
+    protected long findInLine(int start, int end, byte[] key) {
+        int pos = indexOf(start, end, key);
+        return pos < 0 ? -1 : parseLong(pos + key.length);
+    }
+
+    protected int indexOf(int start, int end, byte[] key) {
+        for (int i = start; i <= end - key.length; i++) {
+            if (startsWith(i, key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    protected boolean startsWith(int pos, byte[] key) {
+        if (pos + key.length > length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (buffer[pos + i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected int lineEnd(int pos) {
+        while (pos < length && buffer[pos] != '\n') {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * 跳过当前 token 以及后面的空白, 返回下一个 token 的起始位置
+     */
+    protected int nextToken(int pos) {
+        while (pos < length && buffer[pos] != ' ' && buffer[pos] != '\t' && buffer[pos] != '\n') {
+            pos++;
+        }
+        return skipSpaces(pos);
+    }
+
+    protected int skipSpaces(int pos) {
+        while (pos < length && (buffer[pos] == ' ' || buffer[pos] == '\t')) {
+            pos++;
+        }
+        return pos;
+    }
+
+    protected int skipDigits(int pos) {
+        while (pos < length && isDigit(buffer[pos])) {
+            pos++;
+        }
+        return pos;
+    }
+
+    protected static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    protected long parseLong(int pos) {
+        pos = skipSpaces(pos);
+        boolean negative = pos < length && buffer[pos] == '-';
+        if (negative) {
+            pos++;
+        }
+        if (pos >= length || !isDigit(buffer[pos])) {
+            return -1;
+        }
+        long value = 0;
+        while (pos < length && isDigit(buffer[pos])) {
+            value = value * 10 + (buffer[pos] - '0');
+            pos++;
+        }
+        return negative ? -value : value;
+    }
+
+    protected double parseDecimal(int pos) {
+        long integer = parseLong(pos);
+        if (integer < 0) {
+            return -1;
+        }
+        pos = skipDigits(skipSpaces(pos));
+        double value = integer;
+        if (pos < length && buffer[pos] == '.') {
+            double scale = 0.1;
+            pos++;
+            while (pos < length && isDigit(buffer[pos])) {
+                value += (buffer[pos] - '0') * scale;
+                scale /= 10;
+                pos++;
+            }
+        }
+        return value;
+    }
+
+    protected static byte[] bytes(String s) {
+        byte[] bytes = new byte[s.length()];
+        for (int i = 0; i < s.length(); i++) {
+            bytes[i] = (byte) s.charAt(i);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,336 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.pradar.utils;
+
+import java.io.File;
+
+/**
+ * 容器 cgroup 指标读取, 同时支持 cgroup v1 和 cgroup v2(unified hierarchy)
+ * <p>
+ * 所有文件都读入同一个复用的缓冲区直接解析数字(见 {@link ByteFileReader}), 适合周期性的增量采集;
+ * 读取失败或者当前 cgroup 版本不支持的指标返回 -1。
+ * 实例不是线程安全的, 每个采集线程持有自己的实例。
+ * <p>
+ * cgroup 根目录可以通过构造函数指定, 便于使用伪造的 sysfs 目录验证
+ */
+public class CgroupReader extends ByteFileReader {
+
+    public final static String DEFAULT_ROOT = "/sys/fs/cgroup";
+
+    private final static byte[] USAGE_USEC = bytes("usage_usec");
+    private final static byte[] NR_PERIODS = bytes("nr_periods");
+    private final static byte[] NR_THROTTLED = bytes("nr_throttled");
+    private final static byte[] INACTIVE_FILE = bytes("inactive_file");
+    private final static byte[] RSS = bytes("rss");
+    private final static byte[] MAPPED_FILE = bytes("mapped_file");
+    private final static byte[] HIERARCHICAL_MEMORY_LIMIT = bytes("hierarchical_memory_limit");
+    private final static byte[] RBYTES = bytes("rbytes=");
+    private final static byte[] WBYTES = bytes("wbytes=");
+    private final static byte[] READ = bytes("Read");
+    private final static byte[] WRITE = bytes("Write");
+    private final static byte[] MAX = bytes("max");
+    private final static byte[] SOME = bytes("some");
+    private final static byte[] AVG10 = bytes("avg10=");
+
+    private final File root;
+    private final boolean v2;
+
+    public CgroupReader(File root, boolean v2) {
+        this.root = root;
+        this.v2 = v2;
+    }
+
+    /**
+     * 按当前进程所在的 cgroup 创建
+     *
+     * @return cgroup 读取器
+     */
+    public static CgroupReader create() {
+        return create(new File(DEFAULT_ROOT), new File("/proc/self/cgroup"));
+    }
+
+    /**
+     * 按指定的 cgroup 挂载点创建, 挂载点下存在 cgroup.controllers 时认为是 cgroup v2
+     *
+     * @param mountPoint cgroup 挂载点
+     * @param selfCgroup /proc/self/cgroup 文件, 用于没有开启 cgroup namespace 时定位当前进程的 cgroup
+     * @return cgroup 读取器
+     */
+    public static CgroupReader create(File mountPoint, File selfCgroup) {
+        if (!new File(mountPoint, "cgroup.controllers").exists()) {
+            return new CgroupReader(mountPoint, false);
+        }
+        File dir = mountPoint;
+        if (!new File(dir, "cpu.stat").exists() && selfCgroup != null && selfCgroup.exists()) {
+            CgroupReader reader = new CgroupReader(mountPoint, true);
+            if (reader.read(selfCgroup)) {
+                String content = new String(reader.buffer, 0, reader.length);
+                for (String line : content.split("\n")) {
+                    if (line.startsWith("0::")) {
+                        File self = new File(mountPoint, line.substring(3).trim());
+                        if (new File(self, "cpu.stat").exists()) {
+                            dir = self;
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        return new CgroupReader(dir, true);
+    }
+
+    public boolean isV2() {
+        return v2;
+    }
+
+    /**
+     * 容器累计使用的 cpu 时间
+     *
+     * @return 纳秒
+     */
+    public long cpuUsageNanos() {
+        if (v2) {
+            long usec = readKey("cpu.stat", USAGE_USEC);
+            return usec < 0 ? -1 : usec * 1000;
+        }
+        if (read("cpuacct/cpuacct.usage") || read("cpu,cpuacct/cpuacct.usage")) {
+            return parseLong(0);
+        }
+        return -1;
+    }
+
+    /**
+     * 累计调度周期数
+     */
+    public long cpuPeriods() {
+        return readKey(v2 ? "cpu.stat" : v1Cpu("cpu.stat"), NR_PERIODS);
+    }
+
+    /**
+     * 累计被限流的调度周期数
+     */
+    public long cpuThrottledPeriods() {
+        return readKey(v2 ? "cpu.stat" : v1Cpu("cpu.stat"), NR_THROTTLED);
+    }
+
+    /**
+     * 容器 cpu 配额, 按核数计算
+     *
+     * @return 核数, 没有限制时返回 -1
+     */
+    public double cpuLimitCores() {
+        long quota;
+        long period;
+        if (v2) {
+            if (!read("cpu.max")) {
+                return -1;
+            }
+            if (startsWith(0, MAX)) {
+                return -1;
+            }
+            quota = parseLong(0);
+            period = parseLong(nextToken(0));
+        } else {
+            quota = read(v1Cpu("cpu.cfs_quota_us")) ? parseLong(0) : -1;
+            period = read(v1Cpu("cpu.cfs_period_us")) ? parseLong(0) : -1;
+        }
+        if (quota <= 0 || period <= 0) {
+            return -1;
+        }
+        return (double) quota / period;
+    }
+
+    /**
+     * 容器可以使用的 cpu 个数(cpuset)
+     *
+     * @return cpu 个数, 读取失败返回 -1
+     */
+    public int cpusetCount() {
+        if (!(v2 ? read("cpuset.cpus.effective") : read("cpuset/cpuset.cpus"))) {
+            return -1;
+        }
+        int count = 0;
+        int i = 0;
+        while (i < length) {
+            int start = skipSpaces(i);
+            if (start >= length || !isDigit(buffer[start])) {
+                break;
+            }
+            long from = parseLong(start);
+            int end = skipDigits(start);
+            long to = from;
+            if (end < length && buffer[end] == '-') {
+                to = parseLong(end + 1);
+                end = skipDigits(end + 1);
+            }
+            count += (int) (to - from + 1);
+            i = end < length && buffer[end] == ',' ? end + 1 : length;
+        }
+        return count == 0 ? -1 : count;
+    }
+
+    /**
+     * 容器内存上限
+     *
+     * @return 字节, 没有限制时返回 {@link Long#MAX_VALUE}, 读取失败返回 -1
+     */
+    public long memoryLimit() {
+        if (v2) {
+            if (!read("memory.max")) {
+                return -1;
+            }
+            return startsWith(0, MAX) ? Long.MAX_VALUE : parseLong(0);
+        }
+        return readKey("memory/memory.stat", HIERARCHICAL_MEMORY_LIMIT);
+    }
+
+    /**
+     * 容器使用的内存, cgroup v2 为 memory.current 去掉不活跃的文件缓存(即 working set),
+     * cgroup v1 保持原有的 rss + mapped_file 口径
+     *
+     * @return 字节, 读取失败返回 -1
+     */
+    public long memoryUsage() {
+        if (v2) {
+            if (!read("memory.current")) {
+                return -1;
+            }
+            long current = parseLong(0);
+            long inactiveFile = readKey("memory.stat", INACTIVE_FILE);
+            return inactiveFile > 0 && inactiveFile < current ? current - inactiveFile : current;
+        }
+        if (!read("memory/memory.stat")) {
+            return -1;
+        }
+        long rss = findKey(RSS);
+        long mappedFile = findKey(MAPPED_FILE);
+        if (rss < 0) {
+            return -1;
+        }
+        return rss + Math.max(mappedFile, 0);
+    }
+
+    /**
+     * 容器累计磁盘读写字节数
+     *
+     * @return [读字节, 写字节], 读取失败返回 null
+     */
+    public long[] ioBytes() {
+        long read = 0;
+        long write = 0;
+        if (v2) {
+            if (!read("io.stat")) {
+                return null;
+            }
+            int i = 0;
+            while (i < length) {
+                int end = lineEnd(i);
+                long r = findInLine(i, end, RBYTES);
+                long w = findInLine(i, end, WBYTES);
+                read += Math.max(r, 0);
+                write += Math.max(w, 0);
+                i = end + 1;
+            }
+            return new long[]{read, write};
+        }
+        if (!read("blkio/blkio.throttle.io_service_bytes")) {
+            return null;
+        }
+        /**
+         * 每行格式为 "8:0 Read 1024", 最后一行 "Total 2048" 不统计
+         */
+        int i = 0;
+        while (i < length) {
+            int end = lineEnd(i);
+            int op = nextToken(i);
+            if (op < end) {
+                if (startsWith(op, READ)) {
+                    read += parseLong(nextToken(op));
+                } else if (startsWith(op, WRITE)) {
+                    write += parseLong(nextToken(op));
+                }
+            }
+            i = end + 1;
+        }
+        return new long[]{read, write};
+    }
+
+    /**
+     * cpu 压力(PSI), 即最近 10 秒内有任务因为等待 cpu 而停顿的时间占比, 只有 cgroup v2 支持
+     *
+     * @return 百分比, 不支持时返回 -1
+     */
+    public double cpuPressure() {
+        return pressure("cpu");
+    }
+
+    /**
+     * 内存压力(PSI), 即最近 10 秒内有任务因为等待内存回收而停顿的时间占比
+     *
+     * @return 百分比, 不支持时返回 -1
+     */
+    public double memoryPressure() {
+        return pressure("memory");
+    }
+
+    /**
+     * io 压力(PSI), 即最近 10 秒内有任务因为等待 io 而停顿的时间占比
+     *
+     * @return 百分比, 不支持时返回 -1
+     */
+    public double ioPressure() {
+        return pressure("io");
+    }
+
+    /**
+     * 读取 &lt;resource&gt;.pressure 中 "some" 行的 avg10
+     *
+     * @param resource cpu、memory 或 io
+     * @return 百分比, 不支持时返回 -1
+     */
+    public double pressure(String resource) {
+        if (!v2 || !read(resource + ".pressure")) {
+            return -1;
+        }
+        int i = 0;
+        while (i < length) {
+            int end = lineEnd(i);
+            if (startsWith(i, SOME)) {
+                int pos = indexOf(i, end, AVG10);
+                return pos < 0 ? -1 : parseDecimal(pos + AVG10.length);
+            }
+            i = end + 1;
+        }
+        return -1;
+    }
+
+    private String v1Cpu(String file) {
+        if (new File(root, "cpu/" + file).exists()) {
+            return "cpu/" + file;
+        }
+        return "cpuacct/" + file;
+    }
+
+    private long readKey(String file, byte[] key) {
+        if (!read(file)) {
+            return -1;
+        }
+        return findKey(key);
+    }
+
+    private boolean read(String file) {
+        return read(new File(root, file));
+    }
+}
@@ -17,20 +17,17 @@ package com.pamirs.pradar.utils;
 import com.sun.management.OperatingSystemMXBean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import oshi.util.FileUtil;
 import oshi.util.Util;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.lang.management.GarbageCollectorMXBean;
 import java.lang.management.ManagementFactory;
 import java.math.BigDecimal;
 import java.math.MathContext;
 import java.math.RoundingMode;
+import java.nio.ByteOrder;
 import java.text.DecimalFormat;
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -63,9 +60,12 @@ public class ContainerStatsInfoCollector {
     private volatile int coresNum;
 
     /**
-     * 用户时钟
+     * /proc/stat 中 cpu 时间的单位 USER_HZ, 类加载时从 /proc/self/auxv 读取一次, 不再启动 getconf 进程获取;
+     * 读取失败时使用内核对用户态通常导出的 100
      */
-    private volatile int userHz;
+    private final static int USER_HZ = userHz();
+
+    private final static File ROOT = new File("/");
 
     /**
      * 网卡速度, 默认1000Mbs, 会在控制台配置覆盖这个值
@@ -74,6 +74,18 @@ public class ContainerStatsInfoCollector {
 
     private static long lastErrorTime;
 
+    /**
+     * 容器 cgroup 指标, 兼容 cgroup v1 和 v2
+     */
+    private final CgroupReader cgroup = CgroupReader.create();
+
+    /**
+     * /proc、/sys 指标, 与 cgroup 一样复用缓冲区按字节解析, 每次采集不启动外部进程
+     */
+    private final ProcStatReader proc = new ProcStatReader();
+    private final long[] longs = new long[2];
+    private final double[] loads = new double[3];
+
     public ContainerStatsInfoCollector() {
         this.previousRecord = collectContainerStatsInfo();
     }
@@ -108,7 +120,7 @@ public class ContainerStatsInfoCollector {
         if (k8sCpuLimit != null) {
             systemCpuDelta = new BigDecimal(statsInfo.coresNum * timeDiff).multiply(new BigDecimal(1000 * 1000));
         } else {
-            systemCpuDelta = new BigDecimal(latest.systemCpuValue - previous.systemCpuValue).multiply(new BigDecimal(1000 * 1000 * 1000 / userHz));
+            systemCpuDelta = new BigDecimal(latest.systemCpuValue - previous.systemCpuValue).multiply(new BigDecimal(1000 * 1000 * 1000 / USER_HZ));
         }
 
         statsInfo.cpuUsagePercent = containerCpuDelta.multiply(new BigDecimal(100)).divide(systemCpuDelta, 2, BigDecimal.ROUND_HALF_UP).doubleValue();
@@ -166,132 +178,70 @@ public class ContainerStatsInfoCollector {
         return null;
     }
 
-    private StatsInfo doCollectContainerStatsInfo() throws IOException {
+    private synchronized StatsInfo doCollectContainerStatsInfo() throws IOException {
         StatsInfo statsInfo = new StatsInfo();
         statsInfo.collectingTime = System.currentTimeMillis();
         // CPU
-        List<String> contents = FileUtil.readFile("/proc/stat");
-        String[] splits = contents.get(0).split("\\s+");
-        statsInfo.systemIoWaitCpuValue = Long.parseLong(splits[5]);
-        statsInfo.systemCpuValue = Long.parseLong(splits[1]) + Long.parseLong(splits[2]) + Long.parseLong(splits[3]) + Long.parseLong(splits[4]) + Long.parseLong(splits[5]) + Long.parseLong(splits[6]) + Long.parseLong(splits[7]) + Long.parseLong(splits[8]);
+        if (!proc.cpuTicks(longs)) {
+            throw new IOException("can't read cpu time from /proc/stat");
+        }
+        statsInfo.systemCpuValue = longs[0];
+        statsInfo.systemIoWaitCpuValue = longs[1];
 
-        statsInfo.containerCpuValue = new BigDecimal(FileUtil.readFile("/sys/fs/cgroup/cpuacct/cpuacct.usage").get(0));
+        long containerCpuNanos = cgroup.cpuUsageNanos();
+        if (containerCpuNanos < 0) {
+            throw new IOException("can't read container cpu usage from cgroup" + (cgroup.isV2() ? " v2" : " v1"));
+        }
+        statsInfo.containerCpuValue = new BigDecimal(containerCpuNanos);
         // 网口
         if (this.eth == null) {
-            List<String> eths = execCommand("ip -o -4 route show to default | awk '{print $5}'");
-            if (!eths.isEmpty()) {
-                this.eth = eths.get(0);
-            } else if (new File("/sys/class/net/eth0/speed").exists()) {
+            this.eth = proc.defaultInterface();
+            if (this.eth == null && new File("/sys/class/net/eth0/speed").exists()) {
                 // 看看是否存在eth0网口,存在则用这个
                 this.eth = "eth0";
             }
         }
-
-        // 用户赫兹
-        if (this.userHz == 0) {
-            this.userHz = Integer.parseInt(execCommand("getconf CLK_TCK").get(0));
-        }
         // 网络
-        if (eth != null) {
-            statsInfo.rxBytesValue = Long.parseLong(FileUtil.readFile(String.format("/sys/class/net/%s/statistics/rx_bytes", eth)).get(0));
-            statsInfo.txBytesValue = Long.parseLong(FileUtil.readFile(String.format("/sys/class/net/%s/statistics/tx_bytes", eth)).get(0));
+        if (eth != null && proc.netBytes(eth, longs)) {
+            statsInfo.rxBytesValue = longs[0];
+            statsInfo.txBytesValue = longs[1];
         }
         // CPU核心
         if (coresNum == 0) {
-            String coreNumLine = FileUtil.readFile("/sys/fs/cgroup/cpuset/cpuset.cpus").get(0);
-            int coreNum = 0;
-            for (String split : coreNumLine.split(",")) {
-                if (split == null || split.trim().length() == 0) {
-                    continue;
-                }
-                if (!split.contains("-")) {
-                    coreNum++;
-                }
-                String[] coreSplit = split.split("-", 2);
-                coreNum += Integer.parseInt(coreSplit[1]) - Integer.parseInt(coreSplit[0]) + 1;
-            }
-            this.coresNum = coreNum;
+            int coreNum = cgroup.cpusetCount();
+            this.coresNum = coreNum > 0 ? coreNum : Runtime.getRuntime().availableProcessors();
         }
         // 负载
-        String loadavgLine = FileUtil.readFile("/proc/loadavg").get(0);
-        String[] loadavgs = loadavgLine.split(" ");
-        statsInfo.latest1MinLoadAvg = Float.parseFloat(loadavgs[0].trim());
-        statsInfo.latest5MinLoadAvg = Float.parseFloat(loadavgs[1].trim());
-        statsInfo.latest15MinLoadAvg = Float.parseFloat(loadavgs[2].trim());
-        // 内存
-        List<String> meminfoLines = FileUtil.readFile("/sys/fs/cgroup/memory/memory.stat");
-        long limit = Long.MAX_VALUE;
-        long rss = 0, mappedFile = 0;
-        for (String line : meminfoLines) {
-            line = line.trim();
-            if (line.startsWith("hierarchical_memory_limit ")) {
-                limit = Long.parseLong(line.split(" ", 2)[1]);
-                continue;
-            }
-            if (line.startsWith("rss ")) {
-                rss = Long.parseLong(line.split(" ", 2)[1]);
-                continue;
-            }
-            if (line.startsWith("mapped_file ")) {
-                mappedFile = Long.parseLong(line.split(" ", 2)[1]);
-            }
+        if (proc.loadAvg(loads)) {
+            statsInfo.latest1MinLoadAvg = loads[0];
+            statsInfo.latest5MinLoadAvg = loads[1];
+            statsInfo.latest15MinLoadAvg = loads[2];
         }
-
-        List<String> memInfo = FileUtil.readFile("/proc/meminfo");
-        boolean found = false;
-        long memAvailable = 0, memFree = 0, activeFile = 0, inactiveFile = 0, sReclaimable = 0, memTotal = 0;
-
-        for (String line : memInfo) {
-            String[] memorySplit = line.split("\\s+");
-            if (memorySplit.length > 1) {
-                if ("MemTotal:".equals(memorySplit[0])) {
-                    memTotal = this.parseMeminfo(memorySplit);
-                } else if ("MemFree:".equals(memorySplit[0])) {
-                    memFree = this.parseMeminfo(memorySplit);
-                } else if ("MemAvailable:".equals(memorySplit[0])) {
-                    memAvailable = this.parseMeminfo(memorySplit);
-                    found = true;
-                } else if ("Active(file):".equals(memorySplit[0])) {
-                    activeFile = this.parseMeminfo(memorySplit);
-                } else if ("Inactive(file):".equals(memorySplit[0])) {
-                    inactiveFile = this.parseMeminfo(memorySplit);
-                } else if ("SReclaimable:".equals(memorySplit[0])) {
-                    sReclaimable = this.parseMeminfo(memorySplit);
-                }
-            }
+        // 内存
+        long limit = cgroup.memoryLimit();
+        if (limit <= 0) {
+            limit = Long.MAX_VALUE;
         }
-        if (!found) {
-            memAvailable = memFree + activeFile + inactiveFile + sReclaimable;
+        long used = Math.max(cgroup.memoryUsage(), 0);
+        if (!proc.memInfo(longs)) {
+            throw new IOException("can't read memory info from /proc/meminfo");
         }
-        statsInfo.totalMemoryValue = Math.min(limit, memTotal);
-        statsInfo.usedMemoryValue = rss + mappedFile;
-        statsInfo.memAvailableValue = memAvailable;
+        statsInfo.totalMemoryValue = Math.min(limit, longs[0]);
+        statsInfo.usedMemoryValue = used;
+        statsInfo.memAvailableValue = longs[1];
 
         // IO
-        List<String> ioInfos = FileUtil.readFile("/sys/fs/cgroup/blkio/blkio.throttle.io_service_bytes");
-        long read = 0, write = 0;
-        for (String line : ioInfos) {
-            if (line.contains("Read")) {
-                read += Long.parseLong(line.trim().substring(line.lastIndexOf(" ")).trim());
-            }
-            if (line.contains("Write")) {
-                write += Long.parseLong(line.trim().substring(line.lastIndexOf(" ")).trim());
-            }
-        }
-        statsInfo.diskWriteBytesValue = write;
-        statsInfo.diskReadBytesValue = read;
-
-        List<String> cmdResult = execCommand("df");
-        for (String line : cmdResult) {
-            if (line.trim().endsWith("/")) {
-                String[] split = line.split("\\s+");
-                statsInfo.totalDiskSpaceValue = Long.parseLong(split[1]) * 1024;
-                statsInfo.usedDiskSpaceValue = Long.parseLong(split[2]) * 1024;
-                statsInfo.availableDiskSpaceValue = Long.parseLong(split[3]) * 1024;
-                break;
-            }
+        long[] ioBytes = cgroup.ioBytes();
+        if (ioBytes != null) {
+            statsInfo.diskReadBytesValue = ioBytes[0];
+            statsInfo.diskWriteBytesValue = ioBytes[1];
         }
 
+        // 根分区, 与 df 中挂载点为 / 的一行口径一致
+        statsInfo.totalDiskSpaceValue = ROOT.getTotalSpace();
+        statsInfo.usedDiskSpaceValue = statsInfo.totalDiskSpaceValue - ROOT.getFreeSpace();
+        statsInfo.availableDiskSpaceValue = ROOT.getUsableSpace();
+
         List<GarbageCollectorMXBean> garbageCollectorMXBeans = ManagementFactory.getGarbageCollectorMXBeans();
         statsInfo.youngGcCount = garbageCollectorMXBeans.get(0).getCollectionCount();
         statsInfo.youngGcCost = garbageCollectorMXBeans.get(0).getCollectionTime();
@@ -301,30 +251,6 @@ public class ContainerStatsInfoCollector {
         return statsInfo;
     }
 
-    private List<String> execCommand(String cmd) throws IOException {
-        List<String> result = new ArrayList<String>();
-        Process ps = Runtime.getRuntime().exec(new String[]{"/bin/sh", "-c", cmd});
-        BufferedReader br = new BufferedReader(new InputStreamReader(ps.getInputStream()));
-        String line;
-        while ((line = br.readLine()) != null) {
-            result.add(line);
-        }
-        return result;
-    }
-
-    private long parseMeminfo(String[] memorySplit) {
-        if (memorySplit.length < 2) {
-            return 0L;
-        } else {
-            long memory = Long.parseLong(memorySplit[1]);
-            if (memorySplit.length > 2 && "kB".equals(memorySplit[2])) {
-                memory *= 1024L;
-            }
-
-            return memory;
-        }
-    }
-
     private Double getK8sCpuNum() {
         String k8sCpuLimit = System.getProperty(k8s_container_cpu_limit_key);
         try {
@@ -337,6 +263,12 @@ public class ContainerStatsInfoCollector {
         return null;
     }
 
+    private static int userHz() {
+        int wordSize = "32".equals(System.getProperty("sun.arch.data.model")) ? 4 : 8;
+        long userHz = new ProcStatReader().clockTicks(wordSize, ByteOrder.nativeOrder());
+        return userHz > 0 && userHz <= Integer.MAX_VALUE ? (int) userHz : 100;
+    }
+
     private static class StatsInfo {
 
         /**
@@ -412,9 +344,9 @@ public class ContainerStatsInfoCollector {
         /**
          * 负载
          */
-        private float latest1MinLoadAvg;
-        private float latest5MinLoadAvg;
-        private float latest15MinLoadAvg;
+        private double latest1MinLoadAvg;
+        private double latest5MinLoadAvg;
+        private double latest15MinLoadAvg;
 
         /**
          * gc次数和耗时
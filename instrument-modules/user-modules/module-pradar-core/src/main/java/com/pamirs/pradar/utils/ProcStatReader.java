@@ -0,0 +1,201 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.pradar.utils;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 容器水位采集用到的 /proc、/sys 指标读取, 与 {@link CgroupReader} 一样直接解析字节,
+ * 每次采集只读文件, 不启动外部进程。实例不是线程安全的
+ */
+final class ProcStatReader extends ByteFileReader {
+
+    private final static byte[] CPU = bytes("cpu ");
+    private final static byte[] MEM_TOTAL = bytes("MemTotal:");
+    private final static byte[] MEM_FREE = bytes("MemFree:");
+    private final static byte[] MEM_AVAILABLE = bytes("MemAvailable:");
+    private final static byte[] ACTIVE_FILE = bytes("Active(file):");
+    private final static byte[] INACTIVE_FILE = bytes("Inactive(file):");
+    private final static byte[] S_RECLAIMABLE = bytes("SReclaimable:");
+    private final static byte[] DEFAULT_DESTINATION = bytes("00000000");
+
+    /**
+     * auxv 中 AT_CLKTCK 的类型, 对应的值即 USER_HZ
+     */
+    private final static long AT_CLKTCK = 17;
+
+    private final File proc;
+    private final File sysClassNet;
+
+    ProcStatReader() {
+        this(new File("/proc"), new File("/sys/class/net"));
+    }
+
+    ProcStatReader(File proc, File sysClassNet) {
+        this.proc = proc;
+        this.sysClassNet = sysClassNet;
+    }
+
+    /**
+     * 读取 /proc/stat 第一行的 cpu 时间
+     *
+     * @param ticks [user+nice+system+idle+iowait+irq+softirq+steal, iowait], 单位为 USER_HZ
+     * @return 是否读取成功
+     */
+    boolean cpuTicks(long[] ticks) {
+        if (!read(new File(proc, "stat")) || !startsWith(0, CPU)) {
+            return false;
+        }
+        long total = 0;
+        long ioWait = 0;
+        int pos = nextToken(0);
+        for (int i = 0; i < 8; i++) {
+            long value = parseLong(pos);
+            if (value < 0) {
+                return false;
+            }
+            total += value;
+            if (i == 4) {
+                ioWait = value;
+            }
+            pos = nextToken(pos);
+        }
+        ticks[0] = total;
+        ticks[1] = ioWait;
+        return true;
+    }
+
+    /**
+     * 从 /proc/self/auxv 读取 USER_HZ(AT_CLKTCK)
+     * <p>
+     * auxv 是按本机字节序存放的 (类型, 值) 对, 每项为一个机器字, 以类型 0(AT_NULL) 结束
+     *
+     * @param wordSize 机器字长, 64 位 jvm 为 8, 32 位为 4
+     * @param order    字节序
+     * @return USER_HZ, 读取失败返回 -1
+     */
+    long clockTicks(int wordSize, ByteOrder order) {
+        if (!read(new File(proc, "self/auxv"))) {
+            return -1;
+        }
+        ByteBuffer auxv = ByteBuffer.wrap(buffer, 0, length).order(order);
+        while (auxv.remaining() >= wordSize * 2) {
+            long type = wordSize == 8 ? auxv.getLong() : auxv.getInt() & 0xFFFFFFFFL;
+            long value = wordSize == 8 ? auxv.getLong() : auxv.getInt() & 0xFFFFFFFFL;
+            if (type == 0) {
+                break;
+            }
+            if (type == AT_CLKTCK) {
+                return value > 0 ? value : -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 读取 /proc/loadavg
+     *
+     * @param loads [1 分钟, 5 分钟, 15 分钟]
+     * @return 是否读取成功
+     */
+    boolean loadAvg(double[] loads) {
+        if (!read(new File(proc, "loadavg"))) {
+            return false;
+        }
+        int pos = 0;
+        for (int i = 0; i < 3; i++) {
+            double value = parseDecimal(pos);
+            if (value < 0) {
+                return false;
+            }
+            loads[i] = value;
+            pos = nextToken(pos);
+        }
+        return true;
+    }
+
+    /**
+     * 读取 /proc/meminfo, 老内核没有 MemAvailable 时按 MemFree + 文件缓存 + 可回收 slab 估算
+     *
+     * @param memory [MemTotal, MemAvailable], 单位为字节
+     * @return 是否读取成功
+     */
+    boolean memInfo(long[] memory) {
+        if (!read(new File(proc, "meminfo"))) {
+            return false;
+        }
+        long total = findKey(MEM_TOTAL);
+        if (total < 0) {
+            return false;
+        }
+        long available = findKey(MEM_AVAILABLE);
+        if (available < 0) {
+            available = Math.max(findKey(MEM_FREE), 0) + Math.max(findKey(ACTIVE_FILE), 0)
+                    + Math.max(findKey(INACTIVE_FILE), 0) + Math.max(findKey(S_RECLAIMABLE), 0);
+        }
+        memory[0] = total * 1024;
+        memory[1] = available * 1024;
+        return true;
+    }
+
+    /**
+     * 网卡累计收发字节数
+     *
+     * @param eth   网卡
+     * @param bytes [接收字节, 发送字节]
+     * @return 是否读取成功
+     */
+    boolean netBytes(String eth, long[] bytes) {
+        File statistics = new File(new File(sysClassNet, eth), "statistics");
+        long rx = read(new File(statistics, "rx_bytes")) ? parseLong(0) : -1;
+        long tx = read(new File(statistics, "tx_bytes")) ? parseLong(0) : -1;
+        if (rx < 0 || tx < 0) {
+            return false;
+        }
+        bytes[0] = rx;
+        bytes[1] = tx;
+        return true;
+    }
+
+    /**
+     * 从 /proc/net/route 中找到默认路由所在的网卡
+     *
+     * @return 网卡名称, 没有默认路由时返回 null
+     */
+    String defaultInterface() {
+        if (!read(new File(proc, "net/route"))) {
+            return null;
+        }
+        /**
+         * 第一行为表头, 之后每行格式为 "eth0 00000000 0101A8C0 0003 ...", 目标地址为 00000000 的是默认路由
+         */
+        int i = lineEnd(0) + 1;
+        while (i < length) {
+            int end = lineEnd(i);
+            int destination = nextToken(i);
+            if (destination < end && startsWith(destination, DEFAULT_DESTINATION)) {
+                int nameEnd = i;
+                while (nameEnd < end && buffer[nameEnd] != ' ' && buffer[nameEnd] != '\t') {
+                    nameEnd++;
+                }
+                return new String(buffer, i, nameEnd - i);
+            }
+            i = end + 1;
+        }
+        return null;
+    }
+}
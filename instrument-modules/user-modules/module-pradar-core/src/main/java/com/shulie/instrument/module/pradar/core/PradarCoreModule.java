@@ -21,8 +21,13 @@ import com.pamirs.pradar.common.ClassUtils;
 import com.pamirs.pradar.debug.DebugHelper;
 import com.pamirs.pradar.degrade.CombineResourceLimitDegradeDetect;
 import com.pamirs.pradar.degrade.action.ReduceSamplingRateDegradeAction;
+import com.pamirs.pradar.degrade.action.SharedDegradeAction;
 import com.pamirs.pradar.degrade.action.SilenceDegradeAction;
+import com.pamirs.pradar.degrade.action.StepwiseDegradeAction;
+import com.pamirs.pradar.degrade.action.TraceDetailDegradeAction;
+import com.pamirs.pradar.degrade.resources.AgentOverheadResourceDetector;
 import com.pamirs.pradar.degrade.resources.ContainerCpuUsageResourceDetector;
+import com.pamirs.pradar.degrade.resources.ContainerPressureResourceDetector;
 import com.pamirs.pradar.degrade.resources.CpuUsageResourceDetector;
 import com.pamirs.pradar.degrade.resources.LoadResourceDetector;
 import com.pamirs.pradar.degrade.resources.MemoryResourceDetector;
@@ -74,6 +79,7 @@ public class PradarCoreModule extends ModuleLifecycleAdapter implements Extensio
     private ModuleCommandInvoker moduleCommandInvoker;
 
     private CombineResourceLimitDegradeDetect degradeDetect;
+    private CombineResourceLimitDegradeDetect overheadDegradeDetect;
 
     @Override
     public boolean onActive() throws Throwable {
@@ -159,6 +165,15 @@ public class PradarCoreModule extends ModuleLifecycleAdapter implements Extensio
                     logger.error("ContainerCpuUseageDegradeDetect init fail!, maybe is not docker container", e);
                 }
             }
+            /**
+             * 内存、io 压力只有 cgroup v2 提供, cgroup v1 下初始化失败直接跳过
+             */
+            if (simulatorConfig.getBooleanProperty("degrade.container.memory.pressure.detect.enable", true)) {
+                addPressureDetect("memory", "0.3");
+            }
+            if (simulatorConfig.getBooleanProperty("degrade.container.io.pressure.detect.enable", true)) {
+                addPressureDetect("io", "0.5");
+            }
         } else {
             logger.info("current environment is not docker, using normal degrade strategy");
             if (simulatorConfig.getBooleanProperty("degrade.load.detect.enable", true)) {
@@ -180,8 +195,39 @@ public class PradarCoreModule extends ModuleLifecycleAdapter implements Extensio
             logger.info("[degrade] MemoryResourceDetect active max is {}", resourceDetect.threshold());
         }
 
+        /**
+         * 主机资源检测和探针开销检测共用采样率、静默两个全局降级, 各自持有引用计数,
+         * 只有两边都恢复后才真正恢复
+         */
+        SharedDegradeAction sampling = new SharedDegradeAction(ReduceSamplingRateDegradeAction.INSTANCE);
+        SharedDegradeAction silence = new SharedDegradeAction(SilenceDegradeAction.INSTANCE);
+
         String strategy = simulatorConfig.getProperty("degrade.strategy", "sampling");
-        degradeDetect.startDetect("sampling".equals(strategy) ? ReduceSamplingRateDegradeAction.INSTANCE : SilenceDegradeAction.INSTANCE);
+        degradeDetect.startDetect("sampling".equals(strategy) ? sampling.newHolder() : silence.newHolder());
+
+        /**
+         * 探针自身开销单独检测, 超过阈值时逐级降级: 不记录请求响应内容 -> 降低采样率 -> 静默
+         */
+        if (simulatorConfig.getBooleanProperty("degrade.agent.overhead.detect.enable", true)) {
+            overheadDegradeDetect = new CombineResourceLimitDegradeDetect(
+                    simulatorConfig.getIntProperty("degrade.detect.duration", 60),
+                    simulatorConfig.getIntProperty("degrade.detect.period", 5));
+            AgentOverheadResourceDetector resourceDetect = new AgentOverheadResourceDetector();
+            overheadDegradeDetect.addResourceDetect(resourceDetect);
+            logger.info("[degrade] AgentOverheadResourceDetect active max is {}", resourceDetect.threshold());
+            overheadDegradeDetect.startDetect(new StepwiseDegradeAction(TraceDetailDegradeAction.INSTANCE,
+                    sampling.newHolder(), silence.newHolder()));
+        }
+    }
+
+    private void addPressureDetect(String resource, String defaultThreshold) {
+        try {
+            ContainerPressureResourceDetector resourceDetect = new ContainerPressureResourceDetector(resource, defaultThreshold);
+            degradeDetect.addResourceDetect(resourceDetect);
+            logger.info("[degrade] ContainerPressureResourceDetect {} active max is {}", resource, resourceDetect.threshold());
+        } catch (Throwable e) {
+            logger.info("[degrade] ContainerPressureResourceDetect {} is not supported: {}", resource, e.getMessage());
+        }
     }
 
     @Override
@@ -206,6 +252,11 @@ public class PradarCoreModule extends ModuleLifecycleAdapter implements Extensio
         ClassUtils.release();
         PradarSpringUtil.release();
         SqlMetadataParser.clear();
-        degradeDetect.stopDetect();
+        if (degradeDetect != null) {
+            degradeDetect.stopDetect();
+        }
+        if (overheadDegradeDetect != null) {
+            overheadDegradeDetect.stopDetect();
+        }
     }
 }
@@ -0,0 +1,260 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.pradar.utils;
+
+import com.pamirs.pradar.degrade.resources.ContainerPressureResourceDetector;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 使用伪造的 sysfs、procfs 目录验证 cgroup v1/v2 以及 /proc 指标的解析和两次读取之间的差值
+ */
+public class CgroupReaderTest {
+
+    private File root;
+
+    @Before
+    public void setUp() throws IOException {
+        root = File.createTempFile("fake-sysfs", "");
+        assertTrue(root.delete() && root.mkdirs());
+    }
+
+    @After
+    public void tearDown() {
+        delete(root);
+    }
+
+    @Test
+    public void readsCgroupV2() throws IOException {
+        write("cgroup.controllers", "cpu io memory");
+        write("cpu.stat", "usage_usec 1000000\nuser_usec 600000\nsystem_usec 400000\n"
+                + "nr_periods 100\nnr_throttled 10\nthrottled_usec 5000\n");
+        write("cpu.max", "200000 100000\n");
+        write("cpuset.cpus.effective", "0-3,6\n");
+        write("memory.current", "104857600\n");
+        write("memory.max", "max\n");
+        write("memory.stat", "anon 52428800\nfile 41943040\nactive_file 20971520\ninactive_file 10485760\n");
+        write("io.stat", "8:0 rbytes=4096 wbytes=8192 rios=1 wios=2 dbytes=0 dios=0\n"
+                + "8:16 rbytes=1024 wbytes=2048 rios=1 wios=1 dbytes=0 dios=0\n");
+        write("cpu.pressure", "some avg10=1.50 avg60=0.80 avg300=0.20 total=123456\n"
+                + "full avg10=0.00 avg60=0.00 avg300=0.00 total=0\n");
+        write("memory.pressure", "some avg10=25.75 avg60=10.00 avg300=2.00 total=999\n"
+                + "full avg10=12.00 avg60=5.00 avg300=1.00 total=500\n");
+        write("io.pressure", "some avg10=0.00 avg60=0.00 avg300=0.00 total=0\n"
+                + "full avg10=0.00 avg60=0.00 avg300=0.00 total=0\n");
+
+        CgroupReader reader = CgroupReader.create(root, null);
+        assertTrue(reader.isV2());
+        assertEquals(1000000000L, reader.cpuUsageNanos());
+        assertEquals(100, reader.cpuPeriods());
+        assertEquals(10, reader.cpuThrottledPeriods());
+        assertEquals(2.0, reader.cpuLimitCores(), 0.0001);
+        assertEquals(5, reader.cpusetCount());
+        assertEquals(Long.MAX_VALUE, reader.memoryLimit());
+        assertEquals(104857600L - 10485760L, reader.memoryUsage());
+        assertArrayEquals(new long[]{5120, 10240}, reader.ioBytes());
+        assertEquals(1.5, reader.cpuPressure(), 0.0001);
+        assertEquals(25.75, reader.memoryPressure(), 0.0001);
+        assertEquals(0.0, reader.ioPressure(), 0.0001);
+
+        write("cpu.stat", "usage_usec 1250000\nnr_periods 150\nnr_throttled 40\n");
+        write("memory.max", "209715200\n");
+        write("io.stat", "8:0 rbytes=8192 wbytes=8192 rios=2 wios=2 dbytes=0 dios=0\n"
+                + "8:16 rbytes=1024 wbytes=6144 rios=1 wios=2 dbytes=0 dios=0\n");
+        write("io.pressure", "some avg10=60.25 avg60=20.00 avg300=5.00 total=777\n");
+
+        assertEquals(250000000L, reader.cpuUsageNanos() - 1000000000L);
+        assertEquals(50, reader.cpuPeriods() - 100);
+        assertEquals(30, reader.cpuThrottledPeriods() - 10);
+        assertEquals(209715200L, reader.memoryLimit());
+        long[] io = reader.ioBytes();
+        assertEquals(4096, io[0] - 5120);
+        assertEquals(4096, io[1] - 10240);
+        assertEquals(60.25, reader.ioPressure(), 0.0001);
+    }
+
+    @Test
+    public void readsCgroupV1() throws IOException {
+        write("cpuacct/cpuacct.usage", "2000000000\n");
+        write("cpu/cpu.stat", "nr_periods 20\nnr_throttled 5\nthrottled_time 1000\n");
+        write("cpu/cpu.cfs_quota_us", "-1\n");
+        write("cpu/cpu.cfs_period_us", "100000\n");
+        write("cpuset/cpuset.cpus", "0,2,4-5\n");
+        write("memory/memory.stat", "cache 100\nrss 4096\nmapped_file 1024\nhierarchical_memory_limit 1073741824\n");
+        write("blkio/blkio.throttle.io_service_bytes", "8:0 Read 100\n8:0 Write 200\n8:0 Sync 300\n"
+                + "8:0 Async 0\n8:0 Total 300\nTotal 300\n");
+        write("memory.pressure", "some avg10=90.00 avg60=0.00 avg300=0.00 total=0\n");
+
+        CgroupReader reader = CgroupReader.create(root, null);
+        assertFalse(reader.isV2());
+        assertEquals(2000000000L, reader.cpuUsageNanos());
+        assertEquals(20, reader.cpuPeriods());
+        assertEquals(5, reader.cpuThrottledPeriods());
+        assertEquals(-1, reader.cpuLimitCores(), 0.0001);
+        assertEquals(4, reader.cpusetCount());
+        assertEquals(1073741824L, reader.memoryLimit());
+        assertEquals(5120, reader.memoryUsage());
+        assertArrayEquals(new long[]{100, 200}, reader.ioBytes());
+        assertEquals(-1, reader.memoryPressure(), 0.0001);
+
+        write("cpuacct/cpuacct.usage", "2500000000\n");
+        write("cpu/cpu.cfs_quota_us", "50000\n");
+        write("blkio/blkio.throttle.io_service_bytes", "8:0 Read 160\n8:0 Write 260\nTotal 420\n");
+        assertEquals(500000000L, reader.cpuUsageNanos() - 2000000000L);
+        assertEquals(0.5, reader.cpuLimitCores(), 0.0001);
+        long[] io = reader.ioBytes();
+        assertEquals(60, io[0] - 100);
+        assertEquals(60, io[1] - 200);
+    }
+
+    @Test
+    public void missingFilesReturnMinusOne() {
+        CgroupReader reader = new CgroupReader(root, true);
+        assertEquals(-1, reader.cpuUsageNanos());
+        assertEquals(-1, reader.memoryLimit());
+        assertEquals(-1, reader.memoryUsage());
+        assertNull(reader.ioBytes());
+        assertEquals(-1, reader.cpuPressure(), 0.0001);
+    }
+
+    @Test
+    public void pressureDetectorUsesRatioOfStallTime() throws IOException {
+        write("memory.pressure", "some avg10=25.00 avg60=0.00 avg300=0.00 total=0\n");
+        CgroupReader reader = new CgroupReader(root, true);
+        ContainerPressureResourceDetector detector = new ContainerPressureResourceDetector("memory", "0.3", reader);
+        assertEquals(0.25, detector.pressure(), 0.0001);
+        assertTrue(detector.hasResource());
+
+        write("memory.pressure", "some avg10=31.00 avg60=0.00 avg300=0.00 total=0\n");
+        assertFalse(detector.hasResource());
+
+        try {
+            new ContainerPressureResourceDetector("io", "0.5", reader);
+            fail("io.pressure doesn't exist");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void readsProcStat() throws IOException {
+        write("proc/stat", "cpu  100 20 30 400 50 6 7 8 0 0\ncpu0 50 10 15 200 25 3 3 4 0 0\n");
+        write("proc/loadavg", "0.52 1.25 2.00 1/234 5678\n");
+        write("proc/meminfo", "MemTotal:        2048 kB\nMemFree:          512 kB\nMemAvailable:    1024 kB\n");
+        write("proc/net/route", "Iface\tDestination\tGateway \tFlags\n"
+                + "eth1\t0000A8C0\t00000000\t0001\neth0\t00000000\t0101A8C0\t0003\n");
+        write("net/eth0/statistics/rx_bytes", "1000\n");
+        write("net/eth0/statistics/tx_bytes", "2000\n");
+
+        ProcStatReader reader = new ProcStatReader(new File(root, "proc"), new File(root, "net"));
+        long[] ticks = new long[2];
+        assertTrue(reader.cpuTicks(ticks));
+        assertArrayEquals(new long[]{621, 50}, ticks);
+        double[] loads = new double[3];
+        assertTrue(reader.loadAvg(loads));
+        assertEquals(0.52, loads[0], 0.0001);
+        assertEquals(1.25, loads[1], 0.0001);
+        assertEquals(2.0, loads[2], 0.0001);
+        long[] memory = new long[2];
+        assertTrue(reader.memInfo(memory));
+        assertArrayEquals(new long[]{2048 * 1024, 1024 * 1024}, memory);
+        assertEquals("eth0", reader.defaultInterface());
+        long[] net = new long[2];
+        assertTrue(reader.netBytes("eth0", net));
+        assertArrayEquals(new long[]{1000, 2000}, net);
+        assertFalse(reader.netBytes("eth1", net));
+
+        write("proc/stat", "cpu  150 20 40 500 60 6 7 8 0 0\n");
+        write("proc/meminfo", "MemTotal:        2048 kB\nMemFree:          256 kB\nActive(file):     128 kB\n"
+                + "Inactive(file):    64 kB\nSReclaimable:      32 kB\n");
+        write("net/eth0/statistics/rx_bytes", "1500\n");
+        write("net/eth0/statistics/tx_bytes", "2100\n");
+        long[] previous = ticks.clone();
+        assertTrue(reader.cpuTicks(ticks));
+        assertEquals(170, ticks[0] - previous[0]);
+        assertEquals(10, ticks[1] - previous[1]);
+        assertTrue(reader.memInfo(memory));
+        assertEquals(480 * 1024, memory[1]);
+        assertTrue(reader.netBytes("eth0", net));
+        assertEquals(500, net[0] - 1000);
+        assertEquals(100, net[1] - 2000);
+    }
+
+    @Test
+    public void readsClockTicksFromAuxv() throws IOException {
+        ByteBuffer auxv = ByteBuffer.allocate(8 * 8).order(ByteOrder.LITTLE_ENDIAN);
+        auxv.putLong(6).putLong(4096);
+        auxv.putLong(17).putLong(250);
+        auxv.putLong(0).putLong(0);
+        write("proc/self/auxv", auxv.array());
+        ProcStatReader reader = new ProcStatReader(new File(root, "proc"), new File(root, "net"));
+        assertEquals(250, reader.clockTicks(8, ByteOrder.LITTLE_ENDIAN));
+
+        ByteBuffer auxv32 = ByteBuffer.allocate(4 * 6).order(ByteOrder.BIG_ENDIAN);
+        auxv32.putInt(17).putInt(1000);
+        auxv32.putInt(0).putInt(0);
+        write("proc/self/auxv", auxv32.array());
+        assertEquals(1000, reader.clockTicks(4, ByteOrder.BIG_ENDIAN));
+
+        ByteBuffer noClockTicks = ByteBuffer.allocate(8 * 4).order(ByteOrder.LITTLE_ENDIAN);
+        noClockTicks.putLong(6).putLong(4096);
+        noClockTicks.putLong(0).putLong(0);
+        write("proc/self/auxv", noClockTicks.array());
+        assertEquals(-1, reader.clockTicks(8, ByteOrder.LITTLE_ENDIAN));
+
+        assertTrue(new File(root, "proc/self/auxv").delete());
+        assertEquals(-1, reader.clockTicks(8, ByteOrder.LITTLE_ENDIAN));
+    }
+
+    private void write(String path, String content) throws IOException {
+        write(path, content.getBytes("UTF-8"));
+    }
+
+    private void write(String path, byte[] content) throws IOException {
+        File file = new File(root, path);
+        file.getParentFile().mkdirs();
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
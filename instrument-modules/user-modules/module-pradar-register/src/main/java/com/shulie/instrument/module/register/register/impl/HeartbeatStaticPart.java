@@ -0,0 +1,100 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.shulie.instrument.module.register.register.impl;
+
+import com.pamirs.pradar.gson.GsonFactory;
+import com.shulie.instrument.simulator.api.obj.ModuleLoadInfo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 心跳数据中很少变化的部分(jar 列表、配置文件、模块加载详情)
+ * <p>
+ * 序列化后的 json 连同生成它时各部分内容的副本一起缓存, 每次心跳逐项比较内容,
+ * 任何一项不相等时才重新序列化。ModuleLoadInfo 是可变对象, 因此只保存其 id、状态、错误信息的副本
+ */
+final class HeartbeatStaticPart {
+
+    private Set<String> jars;
+    private Map<String, String> simulatorFileConfigs;
+    private Map<String, String> agentFileConfigs;
+    private List<List<String>> moduleLoadStates;
+    private String json;
+
+    /**
+     * 获取 json, 内容与上一次相同时返回缓存的字符串
+     *
+     * @return json 对象字符串
+     */
+    synchronized String toJson(Set<String> jars, Map<String, String> simulatorFileConfigs,
+                               Map<String, String> agentFileConfigs, Collection<ModuleLoadInfo> moduleLoadInfos) {
+        List<List<String>> moduleLoadStates = toStates(moduleLoadInfos);
+        if (json != null
+                && equals(this.jars, jars)
+                && equals(this.simulatorFileConfigs, simulatorFileConfigs)
+                && equals(this.agentFileConfigs, agentFileConfigs)
+                && this.moduleLoadStates.equals(moduleLoadStates)) {
+            return json;
+        }
+        Map<String, String> map = new HashMap<String, String>();
+        map.put("jars", toJarFileString(jars));
+        map.put("simulatorFileConfigs", GsonFactory.getGson().toJson(simulatorFileConfigs));
+        map.put("agentFileConfigs", GsonFactory.getGson().toJson(agentFileConfigs));
+        map.put("moduleLoadDetail", GsonFactory.getGson().toJson(moduleLoadInfos));
+        this.json = GsonFactory.getGson().toJson(map);
+        this.jars = jars == null ? null : new HashSet<String>(jars);
+        this.simulatorFileConfigs = simulatorFileConfigs == null ? null : new HashMap<String, String>(simulatorFileConfigs);
+        this.agentFileConfigs = agentFileConfigs == null ? null : new HashMap<String, String>(agentFileConfigs);
+        this.moduleLoadStates = moduleLoadStates;
+        return json;
+    }
+
+    private static List<List<String>> toStates(Collection<ModuleLoadInfo> moduleLoadInfos) {
+        if (moduleLoadInfos == null || moduleLoadInfos.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<List<String>> states = new ArrayList<List<String>>(moduleLoadInfos.size());
+        for (ModuleLoadInfo moduleLoadInfo : moduleLoadInfos) {
+            List<String> state = new ArrayList<String>(3);
+            state.add(moduleLoadInfo.getModuleId());
+            state.add(moduleLoadInfo.getStatus() == null ? null : moduleLoadInfo.getStatus().name());
+            state.add(moduleLoadInfo.getErrorMsg());
+            states.add(state);
+        }
+        return states;
+    }
+
+    private static boolean equals(Object cached, Object current) {
+        return cached == null ? current == null : cached.equals(current);
+    }
+
+    private static String toJarFileString(Set<String> jars) {
+        if (jars == null || jars.isEmpty()) {
+            return "";
+        }
+        StringBuilder builder = new StringBuilder();
+        for (String jar : jars) {
+            builder.append(jar).append(';');
+        }
+        return builder.toString();
+    }
+}
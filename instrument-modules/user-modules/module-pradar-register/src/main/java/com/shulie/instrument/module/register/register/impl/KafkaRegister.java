@@ -2,7 +2,6 @@ package com.shulie.instrument.module.register.register.impl;
 
 import com.pamirs.pradar.*;
 import com.pamirs.pradar.common.HttpUtils;
-import com.pamirs.pradar.common.IOUtils;
 import com.pamirs.pradar.common.RuntimeUtils;
 import com.pamirs.pradar.gson.GsonFactory;
 import com.pamirs.pradar.pressurement.base.util.PropertyUtil;
@@ -23,9 +22,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
 import java.lang.management.ManagementFactory;
 import java.lang.management.RuntimeMXBean;
 import java.util.*;
@@ -34,8 +30,6 @@ import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
 
 public class KafkaRegister implements Register {
 
@@ -292,78 +286,15 @@ public class KafkaRegister implements Register {
     }
 
     private boolean processSpringBootProject(Set<String> list, String file) {
-        boolean hasDependencies = false;
-        if (file.endsWith(".jar") || file.endsWith(".war")) {
-            JarFile jarFile = null;
-            try {
-                jarFile = new JarFile(file);
-                final Enumeration<JarEntry> entries = jarFile.entries();
-                final String tempPath = System.getProperty("java.io.tmpdir");
-                final String randomPath = UUID.randomUUID().toString().replaceAll("-", "");
-                final String filePath = (tempPath.endsWith(File.separator) ? tempPath : tempPath + File.separator)
-                        + randomPath;
-                final File fileDir = new File(filePath);
-                if (!fileDir.exists()) {
-                    final boolean mkdirs = fileDir.mkdirs();
-                    if (!mkdirs) {
-                        LOGGER.error("中间件信息上报：创建临时目录失败。");
-                        return false;
-                    }
-                    for (File listFile : fileDir.listFiles()) {
-                        listFile.deleteOnExit();
-                    }
-                    fileDir.deleteOnExit();
-                }
-                while (entries.hasMoreElements()) {
-                    final JarEntry jarEntry = entries.nextElement();
-                    String jarPath = "";
-                    if (jarEntry.getName().endsWith(".jar")) {
-                        InputStream inputStream = null;
-                        FileOutputStream fileOutputStream = null;
-                        try {
-                            inputStream = jarFile.getInputStream(jarEntry);
-                            final String[] split = jarEntry.getName().split(File.separator);
-                            jarPath = (filePath.endsWith(File.separator) ? filePath : filePath + File.separator)
-                                    + split[
-                                    split.length - 1];
-                            fileOutputStream = new FileOutputStream(jarPath);
-                            IOUtils.copy(inputStream, fileOutputStream);
-                        } catch (IOException e) {
-                            e.printStackTrace();
-                        } finally {
-                            if (inputStream != null) {
-                                try {
-                                    inputStream.close();
-                                } catch (Exception e) {
-                                    e.printStackTrace();
-                                }
-                            }
-                            if (fileOutputStream != null) {
-                                try {
-                                    fileOutputStream.close();
-                                } catch (Exception e) {
-                                    e.printStackTrace();
-                                }
-                            }
-                        }
-                        list.add(jarPath);
-                        hasDependencies = true;
-                    }
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-                return false;
-            } finally {
-                if (jarFile != null) {
-                    try {
-                        jarFile.close();
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                    }
-                }
-            }
+        if (!file.endsWith(".jar") && !file.endsWith(".war")) {
+            return false;
         }
-        return hasDependencies;
+        /**
+         * 内嵌的 jar 包不再解压到临时目录, 直接记录为 外层路径!/内嵌 entry, 由 ScanJarPomUtils 流式读取
+         */
+        List<String> nestedJars = ScanJarPomUtils.listNestedJars(file);
+        list.addAll(nestedJars);
+        return !nestedJars.isEmpty();
     }
 
     private static final String PUSH_MIDDLEWARE_URL = "/agent/push/application/middleware";
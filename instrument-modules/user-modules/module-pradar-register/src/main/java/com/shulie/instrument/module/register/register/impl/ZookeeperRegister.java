@@ -17,7 +17,6 @@ package com.shulie.instrument.module.register.register.impl;
 import com.pamirs.pradar.*;
 import com.pamirs.pradar.common.HttpUtils;
 import com.pamirs.pradar.common.HttpUtils.HttpResult;
-import com.pamirs.pradar.common.IOUtils;
 import com.pamirs.pradar.common.RuntimeUtils;
 import com.pamirs.pradar.event.ErrorEvent;
 import com.pamirs.pradar.event.Event;
@@ -49,8 +48,6 @@ import java.util.*;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
 
 /**
  * @Description
@@ -74,7 +71,23 @@ public class ZookeeperRegister implements Register {
     private ScheduledFuture scanJarFuture;
     private ScheduledFuture syncStatusFuture;
 
-    private byte[] getHeartbeatDatas() {
+    /**
+     * 心跳数据没有变化时最长多久强制写一次 zk
+     */
+    private final static long HEARTBEAT_FORCE_WRITE_INTERVAL = TimeUnit.SECONDS.toMillis(60);
+
+    /**
+     * 心跳数据中很少变化的部分(jar 列表、配置文件、模块加载详情)序列化后的 json, 内容不变时复用
+     */
+    private final HeartbeatStaticPart staticPart = new HeartbeatStaticPart();
+
+    /**
+     * 上一次写入 zk 的心跳数据
+     */
+    private byte[] lastHeartbeatData;
+    private long lastHeartbeatWriteTime;
+
+    private synchronized byte[] getHeartbeatDatas() {
         Map<String, String> map = new HashMap<String, String>();
         map.put("address", PradarCoreUtils.getLocalAddress());
         map.put("host", PradarCoreUtils.getHostName());
@@ -100,9 +113,6 @@ public class ZookeeperRegister implements Register {
         }
         map.put("agentLanguage", "JAVA");
         map.put("userId", Pradar.PRADAR_USER_ID);
-        map.put("jars", toJarFileString(jars));
-        map.put("simulatorFileConfigs", GsonFactory.getGson().toJson(simulatorConfig.getSimulatorFileConfigs()));
-        map.put("agentFileConfigs", GsonFactory.getGson().toJson(simulatorConfig.getAgentFileConfigs()));
 
         if (!SimulatorStatus.statusCalculated()) {
             boolean moduleLoadResult = getModuleLoadResult();
@@ -120,9 +130,9 @@ public class ZookeeperRegister implements Register {
         map.put("tenantAppKey", Pradar.PRADAR_TENANT_KEY);
         map.put("envCode", Pradar.PRADAR_ENV_CODE);
         map.put("moduleLoadResult", String.valueOf(getModuleLoadResult()));
-        map.put("moduleLoadDetail",
-                GsonFactory.getGson().toJson(NodeRegisterModule.moduleLoadInfoManager.getModuleLoadInfos().values()));
-        String str = GsonFactory.getGson().toJson(map);
+        String str = mergeJson(GsonFactory.getGson().toJson(map),
+                staticPart.toJson(jars, simulatorConfig.getSimulatorFileConfigs(), simulatorConfig.getAgentFileConfigs(),
+                        NodeRegisterModule.moduleLoadInfoManager.getModuleLoadInfos().values()));
         try {
             return str.getBytes("UTF-8");
         } catch (UnsupportedEncodingException e) {
@@ -130,6 +140,35 @@ public class ZookeeperRegister implements Register {
         }
     }
 
+    /**
+     * 合并两个非空的 json 对象字符串
+     */
+    private static String mergeJson(String json, String other) {
+        return new StringBuilder(json.length() + other.length())
+                .append(json, 0, json.length() - 1)
+                .append(',')
+                .append(other, 1, other.length())
+                .toString();
+    }
+
+    /**
+     * 定时更新心跳数据, 数据没有变化时跳过写入, 但至少每 {@link #HEARTBEAT_FORCE_WRITE_INTERVAL} 写一次
+     */
+    private synchronized void updateHeartbeatData() throws Exception {
+        byte[] data = getHeartbeatDatas();
+        long now = System.currentTimeMillis();
+        if (Arrays.equals(data, lastHeartbeatData) && now - lastHeartbeatWriteTime < HEARTBEAT_FORCE_WRITE_INTERVAL) {
+            return;
+        }
+        writeHeartbeatData(data);
+    }
+
+    private synchronized void writeHeartbeatData(byte[] data) throws Exception {
+        heartbeatNode.setData(data);
+        lastHeartbeatData = data;
+        lastHeartbeatWriteTime = System.currentTimeMillis();
+    }
+
     /**
      * 动态参数不需要校验参数是否生效，
      */
@@ -160,17 +199,6 @@ public class ZookeeperRegister implements Register {
         return "zookeeper";
     }
 
-    private String toJarFileString(Set<String> jars) {
-        if (jars == null || jars.isEmpty()) {
-            return "";
-        }
-        StringBuilder builder = new StringBuilder();
-        for (String jar : jars) {
-            builder.append(jar).append(';');
-        }
-        return builder.toString();
-    }
-
     /**
      * 清除过期的节点,防止 zookeeper 低版本时有版本不致的 bug 导致过期的心跳节点删除不掉的问题
      *
@@ -249,78 +277,15 @@ public class ZookeeperRegister implements Register {
     }
 
     private boolean processSpringBootProject(Set<String> list, String file) {
-        boolean hasDependencies = false;
-        if (file.endsWith(".jar") || file.endsWith(".war")) {
-            JarFile jarFile = null;
-            try {
-                jarFile = new JarFile(file);
-                final Enumeration<JarEntry> entries = jarFile.entries();
-                final String tempPath = System.getProperty("java.io.tmpdir");
-                final String randomPath = UUID.randomUUID().toString().replaceAll("-", "");
-                final String filePath = (tempPath.endsWith(File.separator) ? tempPath : tempPath + File.separator)
-                        + randomPath;
-                final File fileDir = new File(filePath);
-                if (!fileDir.exists()) {
-                    final boolean mkdirs = fileDir.mkdirs();
-                    if (!mkdirs) {
-                        LOGGER.error("中间件信息上报：创建临时目录失败。");
-                        return false;
-                    }
-                    for (File listFile : fileDir.listFiles()) {
-                        listFile.deleteOnExit();
-                    }
-                    fileDir.deleteOnExit();
-                }
-                while (entries.hasMoreElements()) {
-                    final JarEntry jarEntry = entries.nextElement();
-                    String jarPath = "";
-                    if (jarEntry.getName().endsWith(".jar")) {
-                        InputStream inputStream = null;
-                        FileOutputStream fileOutputStream = null;
-                        try {
-                            inputStream = jarFile.getInputStream(jarEntry);
-                            final String[] split = jarEntry.getName().split(File.separator);
-                            jarPath = (filePath.endsWith(File.separator) ? filePath : filePath + File.separator)
-                                    + split[
-                                    split.length - 1];
-                            fileOutputStream = new FileOutputStream(jarPath);
-                            IOUtils.copy(inputStream, fileOutputStream);
-                        } catch (IOException e) {
-                            e.printStackTrace();
-                        } finally {
-                            if (inputStream != null) {
-                                try {
-                                    inputStream.close();
-                                } catch (Exception e) {
-                                    e.printStackTrace();
-                                }
-                            }
-                            if (fileOutputStream != null) {
-                                try {
-                                    fileOutputStream.close();
-                                } catch (Exception e) {
-                                    e.printStackTrace();
-                                }
-                            }
-                        }
-                        list.add(jarPath);
-                        hasDependencies = true;
-                    }
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-                return false;
-            } finally {
-                if (jarFile != null) {
-                    try {
-                        jarFile.close();
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                    }
-                }
-            }
+        if (!file.endsWith(".jar") && !file.endsWith(".war")) {
+            return false;
         }
-        return hasDependencies;
+        /**
+         * 内嵌的 jar 包不再解压到临时目录, 直接记录为 外层路径!/内嵌 entry, 由 ScanJarPomUtils 流式读取
+         */
+        List<String> nestedJars = ScanJarPomUtils.listNestedJars(file);
+        list.addAll(nestedJars);
+        return !nestedJars.isEmpty();
     }
 
     @Override
@@ -403,7 +368,7 @@ public class ZookeeperRegister implements Register {
                 zkClient.deleteQuietly(heartbeatPath);
             }
             this.heartbeatNode.start();
-            this.heartbeatNode.setData(getHeartbeatDatas());
+            writeHeartbeatData(getHeartbeatDatas());
             if (LOGGER.isInfoEnabled()) {
                 LOGGER.info("[pradar-register] register zookeeper node successful. {}", Pradar.AGENT_ID_CONTAIN_USER_INFO);
             }
@@ -438,7 +403,7 @@ public class ZookeeperRegister implements Register {
                 }
 
                 try {
-                    heartbeatNode.setData(getHeartbeatDatas());
+                    updateHeartbeatData();
                 } catch (Throwable e) {
                     LOGGER.error("[pradar-register] update heartbeat node agent data err: {}!", heartbeatPath, e);
                 }
@@ -530,7 +495,7 @@ public class ZookeeperRegister implements Register {
         }
         if (isStarted.get()) {
             try {
-                heartbeatNode.setData(getHeartbeatDatas());
+                writeHeartbeatData(getHeartbeatDatas());
             } catch (Throwable e) {
                 LOGGER.error("[pradar-register] refresh node data to zk for heartbeat node err: {}!", heartbeatPath, e);
             }
@@ -539,7 +504,7 @@ public class ZookeeperRegister implements Register {
                 @Override
                 public void run() {
                     try {
-                        heartbeatNode.setData(getHeartbeatDatas());
+                        writeHeartbeatData(getHeartbeatDatas());
                     } catch (Throwable e) {
                         LOGGER.error("[pradar-register] refresh node data to zk for heartbeat node err: {}!",
                                 heartbeatPath, e);
@@ -0,0 +1,120 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.shulie.instrument.module.register.register.impl;
+
+import com.shulie.instrument.simulator.api.obj.ModuleLoadInfo;
+import com.shulie.instrument.simulator.api.obj.ModuleLoadStatusEnum;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 验证心跳静态部分只在内容真正变化时重新序列化
+ */
+public class HeartbeatStaticPartTest {
+
+    private HeartbeatStaticPart staticPart;
+    private Set<String> jars;
+    private Map<String, String> simulatorFileConfigs;
+    private Map<String, String> agentFileConfigs;
+    private List<ModuleLoadInfo> moduleLoadInfos;
+
+    @Before
+    public void setUp() {
+        staticPart = new HeartbeatStaticPart();
+        jars = new HashSet<String>();
+        jars.add("/app/lib/a.jar");
+        simulatorFileConfigs = new HashMap<String, String>();
+        simulatorFileConfigs.put("simulator.log.level", "info");
+        agentFileConfigs = new HashMap<String, String>();
+        agentFileConfigs.put("agent.sync.module.enable", "true");
+        moduleLoadInfos = new ArrayList<ModuleLoadInfo>();
+        moduleLoadInfos.add(moduleLoadInfo("pradar-core", ModuleLoadStatusEnum.LOAD_SUCCESS, null));
+    }
+
+    @Test
+    public void unchangedContentReusesJson() {
+        String first = toJson();
+        assertSame(first, toJson());
+        // 内容相同的新对象也复用
+        jars = new HashSet<String>(jars);
+        simulatorFileConfigs = new HashMap<String, String>(simulatorFileConfigs);
+        assertSame(first, toJson());
+    }
+
+    @Test
+    public void jarsChangedInPlaceIsDetected() {
+        String first = toJson();
+        jars.add("/app/lib/b.jar");
+        String second = toJson();
+        assertNotSame(first, second);
+        assertTrue(second.contains("b.jar"));
+    }
+
+    @Test
+    public void configChangedInPlaceIsDetected() {
+        String first = toJson();
+        agentFileConfigs.put("agent.sync.module.enable", "false");
+        String second = toJson();
+        assertNotSame(first, second);
+        assertSame(second, toJson());
+    }
+
+    @Test
+    public void mutatedModuleLoadInfoIsDetected() {
+        String first = toJson();
+        moduleLoadInfos.get(0).setErrorMsg(ModuleLoadStatusEnum.LOAD_FAILED, "boom");
+        String second = toJson();
+        assertNotSame(first, second);
+        assertTrue(second.contains("boom"));
+        assertSame(second, toJson());
+    }
+
+    /**
+     * 两组 hashCode 相同的配置(Aa 与 BB 的 hashCode 相等), 按指纹比较会误判为未变化
+     */
+    @Test
+    public void hashCollisionIsNotTreatedAsUnchanged() {
+        simulatorFileConfigs.put("key", "Aa");
+        String first = toJson();
+        int hashCode = simulatorFileConfigs.hashCode();
+        simulatorFileConfigs.put("key", "BB");
+        assertTrue(hashCode == simulatorFileConfigs.hashCode());
+        String second = toJson();
+        assertNotSame(first, second);
+        assertTrue(second.contains("BB"));
+    }
+
+    private String toJson() {
+        return staticPart.toJson(jars, simulatorFileConfigs, agentFileConfigs, moduleLoadInfos);
+    }
+
+    private static ModuleLoadInfo moduleLoadInfo(String moduleId, ModuleLoadStatusEnum status, String errorMsg) {
+        ModuleLoadInfo moduleLoadInfo = new ModuleLoadInfo();
+        moduleLoadInfo.setModuleId(moduleId);
+        moduleLoadInfo.setErrorMsg(status, errorMsg);
+        return moduleLoadInfo;
+    }
+}
@@ -14,6 +14,8 @@
  */
 package com.pamirs.attach.plugin.proxool.utils;
 
+import com.pamirs.attach.plugin.common.datasource.utils.DataSourceLocks;
+import com.pamirs.attach.plugin.common.datasource.warmup.ShadowPoolWarmer;
 import com.pamirs.attach.plugin.dynamic.reflect.ReflectionUtils;
 import com.pamirs.pradar.ConfigNames;
 import com.pamirs.pradar.ErrorTypeEnum;
@@ -42,7 +44,12 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class DataSourceWrapUtil {
     private static Logger logger = LoggerFactory.getLogger(DataSourceWrapUtil.class.getName());
-    private final static Object lock = new Object();
+    private final static String MIDDLEWARE_NAME = "proxool";
+
+    /**
+     * 本插件的初始化锁, 销毁时只清除本插件的锁
+     */
+    private final static DataSourceLocks LOCKS = new DataSourceLocks();
 
     public static final ConcurrentHashMap<DataSourceMeta, ProxoolMediaDataSource> pressureDataSources
             = new ConcurrentHashMap<DataSourceMeta, ProxoolMediaDataSource>();
@@ -55,6 +62,22 @@ public class DataSourceWrapUtil {
             entry.getValue().close();
         }
         pressureDataSources.clear();
+        LOCKS.clear();
+        ShadowPoolWarmer.clear(MIDDLEWARE_NAME);
+    }
+
+    /**
+     * 配置生效后在后台重新创建业务数据源对应的影子数据源并预热
+     *
+     * @param dataSourceMeta 业务数据源
+     */
+    public static void initInBackground(final DataSourceMeta<ProxoolDataSource> dataSourceMeta) {
+        ShadowPoolWarmer.execute(new Runnable() {
+            @Override
+            public void run() {
+                init(dataSourceMeta);
+            }
+        });
     }
 
     public static boolean validate(ProxoolDataSource sourceDataSource) {
@@ -136,7 +159,8 @@ public class DataSourceWrapUtil {
         if (isPerformanceDataSource(target)) {
             return;
         }
-        synchronized (lock) {
+        // 按数据源加锁, 不同数据源之间互不阻塞
+        synchronized (LOCKS.lockOf(dataSourceMeta)) {
             if (pressureDataSources.containsKey(dataSourceMeta) && pressureDataSources.get(dataSourceMeta) != null) {
                 return;
             }
@@ -210,6 +234,7 @@ public class DataSourceWrapUtil {
                                 target.hashCode(), target.getDriverUrl(), target.getUser(), ptDataSource.getDriverUrl(),
                                 ptDataSource.getUser());
                     }
+                    warmUp(ptDataSource);
                 } catch (Throwable t) {
                     logger.error("[proxool] init datasource err!", t);
                     ErrorReporter.buildError()
@@ -439,4 +464,17 @@ public class DataSourceWrapUtil {
         }
         return shadowDatabaseConfig;
     }
+
+    /**
+     * 在后台预热影子连接池
+     *
+     * @param ptDataSource 影子数据源
+     */
+    private static void warmUp(ProxoolDataSource ptDataSource) {
+        if (ptDataSource == null) {
+            return;
+        }
+        ShadowPoolWarmer.warmUp(MIDDLEWARE_NAME, ptDataSource.getDriverUrl(), ptDataSource.getUser(), ptDataSource,
+                ptDataSource.getMinimumConnectionCount());
+    }
 }
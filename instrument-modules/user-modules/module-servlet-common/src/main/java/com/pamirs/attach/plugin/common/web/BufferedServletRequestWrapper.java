@@ -14,11 +14,12 @@
  */
 package com.pamirs.attach.plugin.common.web;
 
-import javax.servlet.ReadListener;
 import javax.servlet.ServletInputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletRequestWrapper;
-import java.io.*;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
 
 /**
  * Request 包装类
@@ -30,42 +31,22 @@ import java.io.*;
  */
 public class BufferedServletRequestWrapper extends HttpServletRequestWrapper implements IBufferedServletRequestWrapper {
 
-    private byte[] buffer;
+    private final RequestBodyCapture bodyCapture;
     private HttpServletRequest request;
 
     public BufferedServletRequestWrapper(HttpServletRequest request) {
         super(request);
         this.request = request;
-    }
-
-    private void initBuffer() {
-        try {
-            InputStream is = request.getInputStream();
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            byte buff[] = new byte[1024];
-            int read;
-            while ((read = is.read(buff)) > 0) {
-                baos.write(buff, 0, read);
-            }
-            this.buffer = baos.toByteArray();
-        } catch (IOException e) {
-            //ignore
-        }
+        this.bodyCapture = new RequestBodyCapture(request);
     }
 
     @Override
     public ServletInputStream getInputStream() throws IOException {
-        if (this.buffer == null) {
-            initBuffer();
-        }
-        return new BufferedServletInputStream(this.buffer);
+        return bodyCapture.getInputStream();
     }
 
     @Override
     public BufferedReader getReader() throws IOException {
-        if (this.buffer == null) {
-            initBuffer();
-        }
         String characterEncoding = request.getCharacterEncoding();
         if (characterEncoding == null) {
             characterEncoding = "ISO8859-1";
@@ -75,48 +56,6 @@ public class BufferedServletRequestWrapper extends HttpServletRequestWrapper imp
 
     @Override
     public byte[] getBody() {
-        if (null == this.buffer) {
-            return null;
-        }
-        return this.buffer;
-    }
-
-    static class BufferedServletInputStream extends ServletInputStream {
-        private ByteArrayInputStream inputStream;
-
-        public BufferedServletInputStream(byte[] buffer) {
-            this.inputStream = new ByteArrayInputStream(buffer);
-        }
-
-        @Override
-        public int available() throws IOException {
-            return inputStream.available();
-        }
-
-        @Override
-        public int read() throws IOException {
-            return inputStream.read();
-        }
-
-        @Override
-        public int read(byte[] b, int off, int len) throws IOException {
-            return inputStream.read(b, off, len);
-        }
-
-        @Override
-        public boolean isFinished() {
-            return false;
-        }
-
-        @Override
-        public boolean isReady() {
-            return false;
-        }
-
-        @Override
-        public void setReadListener(ReadListener readListener) {
-
-        }
-
+        return bodyCapture.getBody();
     }
 }
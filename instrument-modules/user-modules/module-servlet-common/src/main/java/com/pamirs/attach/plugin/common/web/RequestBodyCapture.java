@@ -0,0 +1,232 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.attach.plugin.common.web;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * 请求体采集，供各个容器插件的 Request 包装类共用
+ * <p>
+ * Content-Length 已知且不超过 plugin.request.body.buffer.threshold 的请求体完整缓存，可以重复读取；
+ * 超过阈值或者长度未知(chunked)的请求体直接透传给业务，只复制前 plugin.request.body.capture.size 个字节用于 trace，
+ * 大请求体不会在堆中再保存一份
+ * </p>
+ * 注意：这个类会在业务线程中被加载，不要引用新的业务类
+ */
+public class RequestBodyCapture {
+
+    private final static int BUFFER_THRESHOLD = Integer.getInteger("plugin.request.body.buffer.threshold", 64 * 1024);
+    private final static int CAPTURE_SIZE = Integer.getInteger("plugin.request.body.capture.size", 4096);
+
+    private final HttpServletRequest request;
+    /**
+     * 完整缓存的请求体
+     */
+    private byte[] buffer;
+    /**
+     * 透传模式下的输入流
+     */
+    private CaptureServletInputStream captureInputStream;
+
+    public RequestBodyCapture(HttpServletRequest request) {
+        this.request = request;
+    }
+
+    /**
+     * 获取请求体输入流，缓存模式下每次返回一个从头读取的新流，透传模式下始终返回同一个流
+     *
+     * @return 输入流
+     * @throws IOException 读取原始请求流失败
+     */
+    public ServletInputStream getInputStream() throws IOException {
+        if (captureInputStream != null) {
+            return captureInputStream;
+        }
+        if (buffer == null) {
+            int contentLength = request.getContentLength();
+            if (contentLength < 0 || contentLength > BUFFER_THRESHOLD) {
+                captureInputStream = new CaptureServletInputStream(request.getInputStream(),
+                    contentLength < 0 ? CAPTURE_SIZE : Math.min(contentLength, CAPTURE_SIZE));
+                return captureInputStream;
+            }
+            initBuffer(contentLength);
+        }
+        return new BufferedServletInputStream(buffer);
+    }
+
+    /**
+     * 获取用于 trace 的请求体，透传模式下只包含已经被业务读取的前缀
+     *
+     * @return 请求体，业务还没有读取请求体时返回 null
+     */
+    public byte[] getBody() {
+        if (captureInputStream != null) {
+            return captureInputStream.getCaptured();
+        }
+        return buffer;
+    }
+
+    private void initBuffer(int contentLength) {
+        try {
+            InputStream is = request.getInputStream();
+            ByteArrayOutputStream baos = new ByteArrayOutputStream(Math.max(contentLength, 32));
+            byte buff[] = new byte[1024];
+            int read;
+            while ((read = is.read(buff)) > 0) {
+                baos.write(buff, 0, read);
+            }
+            this.buffer = baos.toByteArray();
+        } catch (IOException e) {
+            this.buffer = new byte[0];
+        }
+    }
+
+    static class BufferedServletInputStream extends ServletInputStream {
+        private ByteArrayInputStream inputStream;
+
+        public BufferedServletInputStream(byte[] buffer) {
+            this.inputStream = new ByteArrayInputStream(buffer);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return inputStream.available();
+        }
+
+        @Override
+        public int read() throws IOException {
+            return inputStream.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return inputStream.read(b, off, len);
+        }
+
+        @Override
+        public boolean isFinished() {
+            return false;
+        }
+
+        @Override
+        public boolean isReady() {
+            return false;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+
+        }
+    }
+
+    /**
+     * 透传原始请求流，读取时把前 captureSize 个字节复制一份
+     */
+    static class CaptureServletInputStream extends ServletInputStream {
+        private final ServletInputStream source;
+        private final byte[] captured;
+        private int capturedLength;
+
+        CaptureServletInputStream(ServletInputStream source, int captureSize) {
+            this.source = source;
+            this.captured = new byte[captureSize];
+        }
+
+        byte[] getCaptured() {
+            if (capturedLength == 0) {
+                return null;
+            }
+            return Arrays.copyOf(captured, capturedLength);
+        }
+
+        private void capture(byte[] b, int off, int len) {
+            int n = Math.min(len, captured.length - capturedLength);
+            if (n > 0) {
+                System.arraycopy(b, off, captured, capturedLength, n);
+                capturedLength += n;
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = source.read();
+            if (b >= 0 && capturedLength < captured.length) {
+                captured[capturedLength++] = (byte) b;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = source.read(b, off, len);
+            if (read > 0) {
+                capture(b, off, read);
+            }
+            return read;
+        }
+
+        @Override
+        public int readLine(byte[] b, int off, int len) throws IOException {
+            int read = source.readLine(b, off, len);
+            if (read > 0) {
+                capture(b, off, read);
+            }
+            return read;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return source.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            source.close();
+        }
+
+        /**
+         * 以下为 servlet 3.1 的方法，低版本容器中不存在，调用失败时按阻塞流处理
+         */
+        @Override
+        public boolean isFinished() {
+            try {
+                return source.isFinished();
+            } catch (Throwable e) {
+                return false;
+            }
+        }
+
+        @Override
+        public boolean isReady() {
+            try {
+                return source.isReady();
+            } catch (Throwable e) {
+                return true;
+            }
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            source.setReadListener(readListener);
+        }
+    }
+}
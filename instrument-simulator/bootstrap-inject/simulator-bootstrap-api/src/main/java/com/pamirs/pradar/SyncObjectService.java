@@ -3,7 +3,9 @@ package com.pamirs.pradar;
 import com.pamirs.pradar.bean.SyncObject;
 
 import java.util.Hashtable;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * @author Licey
@@ -11,12 +13,44 @@ import java.util.Map;
  */
 public class SyncObjectService {
     private final static Map<String, SyncObject> syncObjectMap = new Hashtable<String, SyncObject>();
+    private final static List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
 
-    public synchronized static void saveSyncObject(String key, SyncObject data) {
-        if (syncObjectMap.containsKey(key)) {
-            syncObjectMap.get(key).addData(data.getDatas());
-        } else {
-            syncObjectMap.put(key, data);
+    /**
+     * 同步对象保存监听, 回调在业务线程中执行, 实现不能阻塞
+     */
+    public interface Listener {
+        /**
+         * 有新的同步对象保存时回调
+         *
+         * @param key 同步对象的 key
+         */
+        void onSaved(String key);
+    }
+
+    public static void addListener(Listener listener) {
+        if (listener != null) {
+            listeners.add(listener);
+        }
+    }
+
+    public static void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public static void saveSyncObject(String key, SyncObject data) {
+        synchronized (SyncObjectService.class) {
+            if (syncObjectMap.containsKey(key)) {
+                syncObjectMap.get(key).addData(data.getDatas());
+            } else {
+                syncObjectMap.put(key, data);
+            }
+        }
+        for (Listener listener : listeners) {
+            try {
+                listener.onSaved(key);
+            } catch (Throwable e) {
+                // 监听器的异常不能影响业务
+            }
         }
     }
 
@@ -0,0 +1,105 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.attach.plugin.dynamic.reflect;
+
+import java.lang.reflect.Field;
+
+/**
+ * 按名称访问字段的访问器，插件可以作为常量持有，替代在调用路径上使用 {@link ReflectionUtils#get(Object, String)}
+ * <p>
+ * 访问器记住最近一次解析的目标类和字段，目标类不变时直接读写字段，不再按名称查找；
+ * 目标类变化时从 {@link ReflectionUtils} 的查找缓存中重新获取
+ * </p>
+ */
+public final class FieldAccessor {
+
+    private final String name;
+
+    private volatile Resolved resolved;
+
+    public FieldAccessor(String name) {
+        this.name = name;
+    }
+
+    public static FieldAccessor of(String name) {
+        return new FieldAccessor(name);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 读取字段值
+     *
+     * @param target 目标对象
+     * @param <T>    返回类型
+     * @return 字段值
+     * @throws IllegalStateException 目标类中不存在该字段
+     */
+    public <T> T get(Object target) {
+        return (T) ReflectionUtils.getField(fieldOf(target), target);
+    }
+
+    /**
+     * 设置字段值
+     *
+     * @param target 目标对象
+     * @param value  字段值
+     * @throws IllegalStateException 目标类中不存在该字段
+     */
+    public void set(Object target, Object value) {
+        ReflectionUtils.setField(fieldOf(target), target, value);
+    }
+
+    /**
+     * 目标类中是否存在该字段
+     *
+     * @param target 目标对象
+     * @return 是否存在
+     */
+    public boolean exists(Object target) {
+        return resolve(target.getClass()) != null;
+    }
+
+    private Field fieldOf(Object target) {
+        Class<?> clazz = target.getClass();
+        Field field = resolve(clazz);
+        if (field == null) {
+            throw new IllegalStateException("Field not found: " + clazz.getName() + "." + name);
+        }
+        return field;
+    }
+
+    private Field resolve(Class<?> clazz) {
+        Resolved r = resolved;
+        if (r != null && r.clazz == clazz) {
+            return r.field;
+        }
+        Field field = ReflectionUtils.findField(clazz, name);
+        resolved = new Resolved(clazz, field);
+        return field;
+    }
+
+    private static final class Resolved {
+        private final Class<?> clazz;
+        private final Field field;
+
+        Resolved(Class<?> clazz, Field field) {
+            this.clazz = clazz;
+            this.field = field;
+        }
+    }
+}
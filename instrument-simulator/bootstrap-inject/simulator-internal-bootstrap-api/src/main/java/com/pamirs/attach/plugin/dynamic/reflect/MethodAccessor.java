@@ -0,0 +1,94 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.pamirs.attach.plugin.dynamic.reflect;
+
+import java.lang.reflect.Method;
+
+/**
+ * 按名称和参数类型调用方法的访问器，插件可以作为常量持有，替代在调用路径上使用 {@link ReflectionUtils#invoke(Object, String)}
+ * <p>
+ * 参数类型在创建时确定，调用时不再根据参数推断；访问器记住最近一次解析的目标类和方法，
+ * 目标类变化时从 {@link ReflectionUtils} 的查找缓存中重新获取
+ * </p>
+ */
+public final class MethodAccessor {
+
+    private final String name;
+
+    private final Class<?>[] paramTypes;
+
+    private volatile Resolved resolved;
+
+    public MethodAccessor(String name, Class<?>... paramTypes) {
+        this.name = name;
+        this.paramTypes = paramTypes;
+    }
+
+    public static MethodAccessor of(String name, Class<?>... paramTypes) {
+        return new MethodAccessor(name, paramTypes);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 调用方法
+     *
+     * @param target 目标对象
+     * @param args   参数
+     * @param <T>    返回类型
+     * @return 返回值
+     * @throws IllegalStateException 目标类中不存在该方法
+     */
+    public <T> T invoke(Object target, Object... args) {
+        Class<?> clazz = target.getClass();
+        Method method = resolve(clazz);
+        if (method == null) {
+            throw new IllegalStateException("Method not found: " + clazz.getName() + "." + name);
+        }
+        return (T) ReflectionUtils.invokeMethod(method, target, args);
+    }
+
+    /**
+     * 目标类中是否存在该方法
+     *
+     * @param target 目标对象
+     * @return 是否存在
+     */
+    public boolean exists(Object target) {
+        return resolve(target.getClass()) != null;
+    }
+
+    private Method resolve(Class<?> clazz) {
+        Resolved r = resolved;
+        if (r != null && r.clazz == clazz) {
+            return r.method;
+        }
+        Method method = ReflectionUtils.findMethod(clazz, name, paramTypes);
+        resolved = new Resolved(clazz, method);
+        return method;
+    }
+
+    private static final class Resolved {
+        private final Class<?> clazz;
+        private final Method method;
+
+        Resolved(Class<?> clazz, Method method) {
+            this.clazz = clazz;
+            this.method = method;
+        }
+    }
+}
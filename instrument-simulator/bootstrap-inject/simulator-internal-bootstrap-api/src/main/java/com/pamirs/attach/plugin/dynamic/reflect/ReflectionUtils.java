@@ -6,8 +6,10 @@ import com.pamirs.attach.plugin.dynamic.utils.ConcurrentReferenceHashMap;
 import java.lang.reflect.*;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 替代{@link Reflect} 工具
@@ -29,6 +31,17 @@ public abstract class ReflectionUtils {
     private static final Map<Class<?>, Constructor[]> declaredConstructorCache =
             new ConcurrentReferenceHashMap<Class<?>, Constructor[]>(256);
 
+    /**
+     * 查找结果缓存，找不到的结果同样缓存为 {@link #NOT_FOUND}
+     */
+    private static final Object NOT_FOUND = new Object();
+
+    private static final ConcurrentReferenceHashMap<Class<?>, Map<MemberKey, Object>> fieldLookupCache =
+            new ConcurrentReferenceHashMap<Class<?>, Map<MemberKey, Object>>(256);
+
+    private static final ConcurrentReferenceHashMap<Class<?>, Map<MemberKey, Object>> methodLookupCache =
+            new ConcurrentReferenceHashMap<Class<?>, Map<MemberKey, Object>>(256);
+
     public static <T> T invoke(Object target, String methodName) {
         Method method = findMethod(target.getClass(), methodName);
         return (T) invokeMethod(method, target);
@@ -154,6 +167,18 @@ public abstract class ReflectionUtils {
     public static Field findField(Class<?> clazz, String name, Class<?> type) {
         Assert.notNull(clazz, "Class must not be null");
         Assert.isTrue(name != null || type != null, "Either name or type of the field must be specified");
+        Map<MemberKey, Object> lookups = lookupsOf(fieldLookupCache, clazz);
+        MemberKey key = new MemberKey(name, type == null ? null : new Class[]{type});
+        Object cached = lookups.get(key);
+        if (cached == null) {
+            Field field = searchField(clazz, name, type);
+            cached = field == null ? NOT_FOUND : field;
+            lookups.put(key, cached);
+        }
+        return cached == NOT_FOUND ? null : (Field) cached;
+    }
+
+    private static Field searchField(Class<?> clazz, String name, Class<?> type) {
         Class<?> searchType = clazz;
         while (Object.class != searchType && searchType != null) {
             Field[] fields = getDeclaredFields(searchType);
@@ -210,6 +235,18 @@ public abstract class ReflectionUtils {
     public static Method findMethod(Class<?> clazz, String name, Class<?>... paramTypes) {
         Assert.notNull(clazz, "Class must not be null");
         Assert.notNull(name, "Method name must not be null");
+        Map<MemberKey, Object> lookups = lookupsOf(methodLookupCache, clazz);
+        MemberKey key = new MemberKey(name, paramTypes);
+        Object cached = lookups.get(key);
+        if (cached == null) {
+            Method method = searchMethod(clazz, name, paramTypes);
+            cached = method == null ? NOT_FOUND : method;
+            lookups.put(key, cached);
+        }
+        return cached == NOT_FOUND ? null : (Method) cached;
+    }
+
+    private static Method searchMethod(Class<?> clazz, String name, Class<?>... paramTypes) {
         Class<?> searchType = clazz;
         while (searchType != null) {
             Method[] methods = (searchType.isInterface() ? searchType.getMethods() : getDeclaredMethods(searchType));
@@ -484,9 +521,24 @@ public abstract class ReflectionUtils {
         return result;
     }
 
+    private static Map<MemberKey, Object> lookupsOf(ConcurrentReferenceHashMap<Class<?>, Map<MemberKey, Object>> cache,
+                                                    Class<?> clazz) {
+        Map<MemberKey, Object> lookups = cache.get(clazz);
+        if (lookups == null) {
+            lookups = new ConcurrentHashMap<MemberKey, Object>();
+            Map<MemberKey, Object> old = cache.putIfAbsent(clazz, lookups);
+            if (old != null) {
+                lookups = old;
+            }
+        }
+        return lookups;
+    }
+
     public static void clearCache() {
         declaredMethodsCache.clear();
         declaredFieldsCache.clear();
+        fieldLookupCache.clear();
+        methodLookupCache.clear();
     }
 
     public interface MethodCallback {
@@ -592,4 +644,38 @@ public abstract class ReflectionUtils {
     private static class NULL {
     }
 
+    /**
+     * 按名称和参数类型查找成员的缓存 key，字段的类型作为唯一的参数类型
+     */
+    private static final class MemberKey {
+        private final String name;
+        private final Class<?>[] types;
+        private final int hash;
+
+        MemberKey(String name, Class<?>[] types) {
+            this.name = name;
+            this.types = types;
+            this.hash = (name == null ? 0 : name.hashCode()) * 31 + (types == null ? -1 : Arrays.hashCode(types));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof MemberKey)) {
+                return false;
+            }
+            MemberKey that = (MemberKey) o;
+            return hash == that.hash
+                    && (name == null ? that.name == null : name.equals(that.name))
+                    && Arrays.equals(types, that.types);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
 }
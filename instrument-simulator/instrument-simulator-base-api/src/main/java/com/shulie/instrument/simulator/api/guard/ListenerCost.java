@@ -0,0 +1,235 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.shulie.instrument.simulator.api.guard;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 单个事件监听器(拦截器)的耗时统计
+ * <p>
+ * 只记录被 {@link SimulatorOverhead#sample()} 抽中的调用。次数、总耗时、最大耗时和耗时分布都按线程分段累加，
+ * 每个分段占用独立的一组槽位，多个业务线程不会竞争同一个计数器；读取时再把各个分段合并。
+ * 耗时分布使用固定大小的直方图，第 0 个桶为 1 微秒以内，第 k 个桶为 [2^(k-1), 2^k) 微秒，最后一个桶包含所有更大的耗时
+ * </p>
+ */
+public final class ListenerCost {
+
+    /**
+     * 直方图桶数，最后一个桶的下限约为 1 秒
+     */
+    public final static int BUCKETS = 22;
+
+    private final static int STRIPES = 8;
+    private final static int STRIPE_MASK = STRIPES - 1;
+
+    /**
+     * 每个分段内的槽位：次数、耗时、最大耗时，之后是直方图的各个桶
+     */
+    private final static int COUNT = 0;
+    private final static int TOTAL = 1;
+    private final static int MAX = 2;
+    private final static int HISTOGRAM = 3;
+
+    /**
+     * 每个分段占用的槽位数，补齐到 32 个(256 字节)，隔开不同分段避免伪共享
+     */
+    private final static int STRIPE_WIDTH = 32;
+
+    private final int listenerId;
+    private volatile String listenerClassName;
+
+    private final AtomicLongArray stripes = new AtomicLongArray(STRIPES * STRIPE_WIDTH);
+
+    ListenerCost(int listenerId) {
+        this.listenerId = listenerId;
+    }
+
+    void record(String listenerClassName, long nanos) {
+        if (this.listenerClassName == null) {
+            this.listenerClassName = listenerClassName;
+        }
+        int base = ((int) Thread.currentThread().getId() & STRIPE_MASK) * STRIPE_WIDTH;
+        stripes.incrementAndGet(base + COUNT);
+        stripes.addAndGet(base + TOTAL, nanos);
+        stripes.incrementAndGet(base + HISTOGRAM + bucketOf(nanos));
+        long max = stripes.get(base + MAX);
+        while (nanos > max && !stripes.compareAndSet(base + MAX, max, nanos)) {
+            max = stripes.get(base + MAX);
+        }
+    }
+
+    static int bucketOf(long nanos) {
+        long micros = nanos >>> 10;
+        int bucket = 64 - Long.numberOfLeadingZeros(micros);
+        return bucket < BUCKETS ? bucket : BUCKETS - 1;
+    }
+
+    /**
+     * 桶的上限，单位纳秒，最后一个桶返回 -1
+     */
+    static long bucketUpperNanos(int bucket) {
+        if (bucket >= BUCKETS - 1) {
+            return -1;
+        }
+        return (1L << bucket) << 10;
+    }
+
+    /**
+     * 获取当前统计的快照，读取期间的并发写入可能只有部分被计入
+     *
+     * @return 快照
+     */
+    public Snapshot snapshot() {
+        long sampled = 0;
+        long total = 0;
+        long max = 0;
+        long[] buckets = new long[BUCKETS];
+        for (int i = 0; i < STRIPES; i++) {
+            int base = i * STRIPE_WIDTH;
+            sampled += stripes.get(base + COUNT);
+            total += stripes.get(base + TOTAL);
+            max = Math.max(max, stripes.get(base + MAX));
+            for (int j = 0; j < BUCKETS; j++) {
+                buckets[j] += stripes.get(base + HISTOGRAM + j);
+            }
+        }
+        return snapshot(listenerId, listenerClassName, sampled, total, max, buckets);
+    }
+
+    /**
+     * 按直方图估算分位数，返回所在桶的上限，不超过最大耗时
+     */
+    private static long percentile(long[] buckets, long count, double percent, long max) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(count * percent);
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                long upper = bucketUpperNanos(i);
+                return upper < 0 || upper > max ? max : upper;
+            }
+        }
+        return max;
+    }
+
+    private static Snapshot snapshot(int listenerId, String listenerClassName, long sampled, long total, long max, long[] buckets) {
+        long histogramCount = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            histogramCount += buckets[i];
+        }
+        Snapshot snapshot = new Snapshot();
+        snapshot.listenerId = listenerId;
+        snapshot.listenerClassName = listenerClassName;
+        snapshot.sampledCount = sampled;
+        snapshot.estimatedCount = sampled * SimulatorOverhead.SAMPLE_RATE;
+        snapshot.estimatedTotalNanos = total * SimulatorOverhead.SAMPLE_RATE;
+        snapshot.avgNanos = sampled == 0 ? 0 : total / sampled;
+        snapshot.maxNanos = max;
+        snapshot.p50Nanos = percentile(buckets, histogramCount, 0.5, max);
+        snapshot.p99Nanos = percentile(buckets, histogramCount, 0.99, max);
+        snapshot.buckets = buckets;
+        return snapshot;
+    }
+
+    /**
+     * 耗时统计快照，次数与总耗时为按抽样率放大后的估算值
+     */
+    public static class Snapshot implements Serializable {
+        private final static long serialVersionUID = 1L;
+
+        private int listenerId;
+        private String listenerClassName;
+        private long sampledCount;
+        private long estimatedCount;
+        private long estimatedTotalNanos;
+        private long avgNanos;
+        private long maxNanos;
+        private long p50Nanos;
+        private long p99Nanos;
+        /**
+         * 抽样调用的耗时分布，桶的划分见 {@link ListenerCost}
+         */
+        private long[] buckets;
+
+        public int getListenerId() {
+            return listenerId;
+        }
+
+        public String getListenerClassName() {
+            return listenerClassName;
+        }
+
+        public long getSampledCount() {
+            return sampledCount;
+        }
+
+        public long getEstimatedCount() {
+            return estimatedCount;
+        }
+
+        public long getEstimatedTotalNanos() {
+            return estimatedTotalNanos;
+        }
+
+        public long getAvgNanos() {
+            return avgNanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        public long getP50Nanos() {
+            return p50Nanos;
+        }
+
+        public long getP99Nanos() {
+            return p99Nanos;
+        }
+
+        public long[] getBuckets() {
+            return buckets;
+        }
+
+        /**
+         * 与之前同一个监听器的快照做差值，得到两次快照之间的耗时统计。
+         * 区间内的最大耗时无法精确统计，取区间内最慢的非空桶的上限，不超过累计的最大耗时
+         *
+         * @param previous 之前的快照，为 null 时返回当前快照
+         * @return 区间内的耗时统计
+         */
+        public Snapshot since(Snapshot previous) {
+            if (previous == null) {
+                return this;
+            }
+            long[] delta = new long[BUCKETS];
+            long max = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                delta[i] = Math.max(buckets[i] - previous.buckets[i], 0);
+                if (delta[i] > 0) {
+                    long upper = bucketUpperNanos(i);
+                    max = upper < 0 || upper > maxNanos ? maxNanos : upper;
+                }
+            }
+            long total = (estimatedTotalNanos - previous.estimatedTotalNanos) / SimulatorOverhead.SAMPLE_RATE;
+            return snapshot(listenerId, listenerClassName, Math.max(sampledCount - previous.sampledCount, 0),
+                    Math.max(total, 0), max, delta);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.shulie.instrument.simulator.api.guard;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Simulator 在业务线程中的开销统计
+ * <p>
+ * 拦截器的耗时按 1/{@link #SAMPLE_RATE} 抽样计时，累加时按抽样率放大，
+ * 得到的是估算值，用于降级判断和按监听器统计耗时。未抽中的调用只有一次计数判断，不调用 System.nanoTime
+ * </p>
+ */
+public final class SimulatorOverhead {
+
+    private final static int SAMPLE_SHIFT = 6;
+
+    /**
+     * 抽样率，每 64 次调用计时一次
+     */
+    public final static int SAMPLE_RATE = 1 << SAMPLE_SHIFT;
+
+    private final static int SAMPLE_MASK = SAMPLE_RATE - 1;
+
+    private final static AtomicLong INTERCEPTOR_NANOS = new AtomicLong();
+
+    /**
+     * 监听器 ID -> 耗时统计
+     */
+    private final static ConcurrentHashMap<Integer, ListenerCost> LISTENER_COSTS = new ConcurrentHashMap<Integer, ListenerCost>();
+
+    /**
+     * 每个线程独立的抽样计数，避免多个业务线程争用同一个缓存行
+     */
+    private final static ThreadLocal<int[]> SEQUENCE = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[1];
+        }
+    };
+
+    private SimulatorOverhead() {
+    }
+
+    /**
+     * 判断本次调用是否需要计时
+     *
+     * @return 是否需要计时
+     */
+    public static boolean sample() {
+        int[] sequence = SEQUENCE.get();
+        return (++sequence[0] & SAMPLE_MASK) == 0;
+    }
+
+    /**
+     * 记录一次被抽中的拦截器耗时
+     *
+     * @param nanos 耗时，单位纳秒
+     */
+    public static void recordInterceptor(long nanos) {
+        if (nanos > 0) {
+            INTERCEPTOR_NANOS.addAndGet(nanos << SAMPLE_SHIFT);
+        }
+    }
+
+    /**
+     * 启动以来拦截器累计耗时的估算值，调用方自行计算两次读取的差值
+     *
+     * @return 耗时，单位纳秒
+     */
+    public static long getInterceptorNanos() {
+        return INTERCEPTOR_NANOS.get();
+    }
+
+    /**
+     * 监听器激活时注册耗时统计
+     *
+     * @param listenerId 监听器 ID
+     */
+    public static void registerListener(int listenerId) {
+        LISTENER_COSTS.putIfAbsent(listenerId, new ListenerCost(listenerId));
+    }
+
+    /**
+     * 监听器冻结时移除耗时统计
+     *
+     * @param listenerId 监听器 ID
+     */
+    public static void unregisterListener(int listenerId) {
+        LISTENER_COSTS.remove(listenerId);
+    }
+
+    /**
+     * 记录一次被抽中的监听器耗时，监听器未注册时忽略
+     *
+     * @param listenerId        监听器 ID
+     * @param listenerClassName 拦截器类名
+     * @param nanos             耗时，单位纳秒
+     */
+    public static void recordListener(int listenerId, String listenerClassName, long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        ListenerCost cost = LISTENER_COSTS.get(listenerId);
+        if (cost != null) {
+            cost.record(listenerClassName, nanos);
+        }
+    }
+
+    /**
+     * 获取所有已抽样到调用的监听器耗时统计
+     *
+     * @return 耗时统计快照
+     */
+    public static List<ListenerCost.Snapshot> getListenerCosts() {
+        List<ListenerCost.Snapshot> snapshots = new ArrayList<ListenerCost.Snapshot>(LISTENER_COSTS.size());
+        for (ListenerCost cost : LISTENER_COSTS.values()) {
+            ListenerCost.Snapshot snapshot = cost.snapshot();
+            if (snapshot.getSampledCount() > 0) {
+                snapshots.add(snapshot);
+            }
+        }
+        return snapshots;
+    }
+}
@@ -18,16 +18,17 @@ import com.shulie.instrument.simulator.core.util.CompoundEnumeration;
 import com.shulie.instrument.simulator.core.util.EmptyEnumeration;
 import org.apache.commons.lang.ArrayUtils;
 
+import java.io.File;
 import java.io.IOException;
-import java.net.JarURLConnection;
 import java.net.URL;
-import java.net.URLConnection;
-import java.security.AccessController;
-import java.security.PrivilegedExceptionAction;
 import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
+import java.util.jar.Manifest;
 
 /**
  * 模块类加载器的路由加载器实现
@@ -37,6 +38,10 @@ public abstract class ModuleRoutingURLClassLoader extends RoutingURLClassLoader
     protected Routing[] routingArray;
     protected final ClassLoaderService classLoaderService;
     protected final String moduleId;
+    /**
+     * 包名 -> 包所在的 jar，首次加载类时打开模块 jar 构建
+     */
+    private volatile Map<String, PackageSource> packageSources;
 
     static {
         try {
@@ -409,8 +414,12 @@ public abstract class ModuleRoutingURLClassLoader extends RoutingURLClassLoader
         if (lastDot >= 0) {
             String packageName = className.substring(0, lastDot);
             if (getPackage(packageName) == null) {
+                PackageSource source = getPackageSources().get(packageName);
+                if (source == null) {
+                    return;
+                }
                 try {
-                    definePackage(className, packageName);
+                    definePackage(packageName, source.manifest, source.url);
                 } catch (IllegalArgumentException ex) {
                     // Tolerate race condition due to being parallel capable
                 }
@@ -418,38 +427,76 @@ public abstract class ModuleRoutingURLClassLoader extends RoutingURLClassLoader
         }
     }
 
-    private void definePackage(final String className, final String packageName) {
-        try {
-            AccessController.doPrivileged(new PrivilegedExceptionAction<Object>() {
-                @Override
-                public Object run() throws Exception {
-                    StringBuilder pen = new StringBuilder(packageName.length() + 10);
-                    StringBuilder cen = new StringBuilder(className.length() + 10);
-                    String packageEntryName = pen.append(packageName.replace('.', '/')).append("/")
-                            .toString();
-                    String classEntryName = cen.append(className.replace('.', '/'))
-                            .append(".class").toString();
-                    for (URL url : getURLs()) {
-                        try {
-                            URLConnection connection = url.openConnection();
-                            if (connection instanceof JarURLConnection) {
-                                JarFile jarFile = ((JarURLConnection) connection).getJarFile();
-                                if (jarFile.getEntry(classEntryName) != null
-                                        && jarFile.getEntry(packageEntryName) != null
-                                        && jarFile.getManifest() != null) {
-                                    definePackage(packageName, jarFile.getManifest(), url);
-                                    return null;
-                                }
-                            }
-                        } catch (IOException ex) {
-                            // Ignore
-                        }
+    private Map<String, PackageSource> getPackageSources() {
+        Map<String, PackageSource> sources = packageSources;
+        if (sources == null) {
+            synchronized (this) {
+                sources = packageSources;
+                if (sources == null) {
+                    sources = buildPackageSources(getURLs());
+                    packageSources = sources;
+                }
+            }
+        }
+        return sources;
+    }
+
+    /**
+     * 遍历所有 jar 的条目，记录每个包第一次出现的 jar 及其 manifest，
+     * 与按 url 顺序查找类的结果保持一致；没有 manifest 的 jar 不需要提前定义包
+     *
+     * @param urls 类加载器的 url 列表
+     * @return 包名 -> 包所在的 jar
+     */
+    private static Map<String, PackageSource> buildPackageSources(URL[] urls) {
+        Map<String, PackageSource> sources = new HashMap<String, PackageSource>();
+        for (URL url : urls) {
+            if (!"file".equals(url.getProtocol())) {
+                continue;
+            }
+            File file = new File(url.getPath());
+            if (!file.isFile()) {
+                continue;
+            }
+            JarFile jarFile = null;
+            try {
+                jarFile = new JarFile(file);
+                Manifest manifest = jarFile.getManifest();
+                PackageSource source = manifest == null ? null : new PackageSource(url, manifest);
+                Enumeration<JarEntry> entries = jarFile.entries();
+                while (entries.hasMoreElements()) {
+                    String name = entries.nextElement().getName();
+                    int lastSlash = name.lastIndexOf('/');
+                    if (lastSlash <= 0 || !name.endsWith(CLASS_RESOURCE_SUFFIX)) {
+                        continue;
+                    }
+                    String packageName = name.substring(0, lastSlash).replace('/', '.');
+                    if (!sources.containsKey(packageName)) {
+                        sources.put(packageName, source);
+                    }
+                }
+            } catch (IOException ex) {
+                // Ignore
+            } finally {
+                if (jarFile != null) {
+                    try {
+                        jarFile.close();
+                    } catch (IOException ex) {
+                        // Ignore
                     }
-                    return null;
                 }
-            }, AccessController.getContext());
-        } catch (java.security.PrivilegedActionException ex) {
-            // Ignore
+            }
+        }
+        return sources;
+    }
+
+    private static class PackageSource {
+        private final URL url;
+        private final Manifest manifest;
+
+        PackageSource(URL url, Manifest manifest) {
+            this.url = url;
+            this.manifest = manifest;
         }
     }
 
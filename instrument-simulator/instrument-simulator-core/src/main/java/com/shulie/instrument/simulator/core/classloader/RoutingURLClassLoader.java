@@ -25,6 +25,7 @@ import java.io.IOException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 可路由的URLClassLoader
@@ -298,9 +299,35 @@ public class RoutingURLClassLoader extends URLClassLoader {
     public static class Routing {
         protected final Logger logger = LoggerFactory.getLogger(RoutingURLClassLoader.class);
         protected final boolean isDebugEnabled = logger.isDebugEnabled();
+        /**
+         * 未命中缓存的上限，只有存在无法预编译的规则时才使用
+         */
+        private final static int MAX_MISSED_SIZE = 4096;
+
         protected Collection<String/*REGEX*/> regexExpresses = new ArrayList<String>();
         protected ClassLoader classLoader;
 
+        /**
+         * 是否存在匹配所有类名的规则
+         */
+        private boolean matchAll;
+        /**
+         * 不含通配符的规则，按类名全匹配
+         */
+        private Set<String> exactNames = new HashSet<String>();
+        /**
+         * 只以一个 * 结尾的规则，按前缀匹配
+         */
+        private String[] prefixes = new String[0];
+        /**
+         * 无法预编译的规则，仍然按通配符匹配
+         */
+        private String[] wildcards = new String[0];
+        /**
+         * 按通配符匹配未命中的类名
+         */
+        private Map<String, Boolean> missed = new ConcurrentHashMap<String, Boolean>();
+
         /**
          * 构造类加载路由匹配器
          *
@@ -312,6 +339,42 @@ public class RoutingURLClassLoader extends URLClassLoader {
                 regexExpresses.addAll(Arrays.asList(regexExpressArray));
             }
             this.classLoader = classLoader;
+            compile();
+        }
+
+        /**
+         * 将匹配规则预编译为全匹配集合和前缀列表，匹配时不再逐条解析通配符
+         */
+        private void compile() {
+            List<String> prefixList = new ArrayList<String>();
+            List<String> wildcardList = new ArrayList<String>();
+            for (final String regexExpress : regexExpresses) {
+                if (regexExpress == null) {
+                    continue;
+                }
+                if ("*".equals(regexExpress)) {
+                    matchAll = true;
+                } else if (regexExpress.indexOf('*') == -1) {
+                    exactNames.add(regexExpress);
+                } else if (isPrefixExpress(regexExpress)) {
+                    prefixList.add(regexExpress.substring(0, regexExpress.length() - 1));
+                } else {
+                    wildcardList.add(regexExpress);
+                }
+            }
+            prefixes = prefixList.toArray(new String[prefixList.size()]);
+            wildcards = wildcardList.toArray(new String[wildcardList.size()]);
+        }
+
+        /**
+         * 是否是只在末尾有一个 * 的规则，例如 org.slf4j.*
+         */
+        private static boolean isPrefixExpress(final String regexExpress) {
+            int lastIndex = regexExpress.length() - 1;
+            if (regexExpress.indexOf('*') != lastIndex) {
+                return false;
+            }
+            return regexExpress.indexOf('?') == -1 && regexExpress.indexOf('\\') == -1;
         }
 
         /**
@@ -431,6 +494,11 @@ public class RoutingURLClassLoader extends URLClassLoader {
         public void clean() {
             regexExpresses.clear();
             regexExpresses = null;
+            matchAll = false;
+            exactNames = Collections.emptySet();
+            prefixes = new String[0];
+            wildcards = new String[0];
+            missed = Collections.emptyMap();
             classLoader = null;
         }
 
@@ -442,7 +510,24 @@ public class RoutingURLClassLoader extends URLClassLoader {
          * @return true:命中;false:不命中;
          */
         protected boolean isHit(final String javaClassName) {
-            for (final String regexExpress : regexExpresses) {
+            if (matchAll) {
+                return true;
+            }
+            if (javaClassName == null) {
+                return false;
+            }
+            if (exactNames.contains(javaClassName)) {
+                return true;
+            }
+            for (final String prefix : prefixes) {
+                if (javaClassName.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            if (wildcards.length == 0 || missed.containsKey(javaClassName)) {
+                return false;
+            }
+            for (final String regexExpress : wildcards) {
                 try {
                     if (matching(javaClassName, regexExpress)) {
                         return true;
@@ -451,6 +536,9 @@ public class RoutingURLClassLoader extends URLClassLoader {
                     logger.warn("SIMULATOR: routing {} failed, regex-express={}.", javaClassName, regexExpress, cause);
                 }
             }
+            if (missed.size() < MAX_MISSED_SIZE) {
+                missed.put(javaClassName, Boolean.TRUE);
+            }
             return false;
         }
     }
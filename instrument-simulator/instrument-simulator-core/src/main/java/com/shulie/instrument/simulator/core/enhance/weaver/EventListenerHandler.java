@@ -27,6 +27,7 @@ import com.shulie.instrument.simulator.api.event.EventType;
 import com.shulie.instrument.simulator.api.event.InvokeEvent;
 import com.shulie.instrument.simulator.api.executors.ExecutorServiceFactory;
 import com.shulie.instrument.simulator.api.guard.SimulatorGuard;
+import com.shulie.instrument.simulator.api.guard.SimulatorOverhead;
 import com.shulie.instrument.simulator.api.listener.EventListener;
 import com.shulie.instrument.simulator.core.classloader.BizClassLoaderHolder;
 import com.shulie.instrument.simulator.core.util.ReflectUtils;
@@ -105,6 +106,7 @@ public class EventListenerHandler implements MessageHandler {
         final EventListener listener,
         final int[] eventEventTypes) {
         mappingOfEventProcessor.put(listenerId, new InvokeProcessor(listenerId, listener, eventEventTypes));
+        SimulatorOverhead.registerListener(listenerId);
         if (isInfoEnabled) {
             logger.info("SIMULATOR: activated listener[id={};target={};] event={}",
                 listenerId,
@@ -121,6 +123,7 @@ public class EventListenerHandler implements MessageHandler {
      */
     public void frozen(int listenerId) {
         final InvokeProcessor processor = mappingOfEventProcessor.remove(listenerId);
+        SimulatorOverhead.unregisterListener(listenerId);
         if (null == processor) {
             if (isDebugEnabled) {
                 logger.debug("SIMULATOR: ignore frozen listener={}, because not found.", listenerId);
@@ -434,7 +437,8 @@ public class EventListenerHandler implements MessageHandler {
     @Override
     public Result handleOnBefore(int listenerId, Object[] argumentArray, Class clazz, String javaMethodName,
         String javaMethodDesc, Object target, String listenerClassName, int listenerTag, int executionTag) throws Throwable {
-        long startTimeRecord = costEnabled ? System.nanoTime() : 0;
+        final boolean overheadSampled = SimulatorOverhead.sample();
+        long startTimeRecord = costEnabled || overheadSampled ? System.nanoTime() : 0;
         try {
             if (executionTag == ExecutionTagSupplier.EXECUTION_IGNORE) {
                 return Result.RESULT_NONE;
@@ -523,14 +527,15 @@ public class EventListenerHandler implements MessageHandler {
                 processor.cleanIfEmpty();
             }
         } finally {
-            endTimeRecord(startTimeRecord, listenerClassName, "handleOnBefore");
+            endTimeRecord(startTimeRecord, overheadSampled, listenerId, listenerClassName, "handleOnBefore");
         }
     }
 
     @Override
     public Result handleOnThrows(int listenerId, Class clazz, Throwable throwable, String listenerClassName, int listenerTag,
         int executionTag) throws Throwable {
-        long startTimeRecord = costEnabled ? System.nanoTime() : 0;
+        final boolean overheadSampled = SimulatorOverhead.sample();
+        long startTimeRecord = costEnabled || overheadSampled ? System.nanoTime() : 0;
         try {
             if (executionTag == ExecutionTagSupplier.EXECUTION_IGNORE) {
                 return Result.RESULT_NONE;
@@ -539,14 +544,15 @@ public class EventListenerHandler implements MessageHandler {
             return handleOnEnd(listenerId, clazz, throwable, false);
         } finally {
             BizClassLoaderHolder.clearBizClassLoader();
-            endTimeRecord(startTimeRecord, listenerClassName, "handleOnThrows");
+            endTimeRecord(startTimeRecord, overheadSampled, listenerId, listenerClassName, "handleOnThrows");
         }
     }
 
     @Override
     public Result handleOnReturn(int listenerId, Class clazz, Object object, String listenerClassName, int listenerTag,
         int executionTag) throws Throwable {
-        long startTimeRecord = costEnabled ? System.nanoTime() : 0;
+        final boolean overheadSampled = SimulatorOverhead.sample();
+        long startTimeRecord = costEnabled || overheadSampled ? System.nanoTime() : 0;
         try {
             if (executionTag == ExecutionTagSupplier.EXECUTION_IGNORE) {
                 return Result.RESULT_NONE;
@@ -555,7 +561,7 @@ public class EventListenerHandler implements MessageHandler {
             return handleOnEnd(listenerId, clazz, object, true);
         } finally {
             BizClassLoaderHolder.clearBizClassLoader();
-            endTimeRecord(startTimeRecord, listenerClassName, "handleOnReturn");
+            endTimeRecord(startTimeRecord, overheadSampled, listenerId, listenerClassName, "handleOnReturn");
         }
     }
 
@@ -563,6 +569,7 @@ public class EventListenerHandler implements MessageHandler {
     public void destroy() {
         for (Map.Entry<Integer, InvokeProcessor> entry : mappingOfEventProcessor.entrySet()) {
             entry.getValue().clean();
+            SimulatorOverhead.unregisterListener(entry.getKey());
         }
         this.mappingOfEventProcessor.clear();
         AsmClassStructure.clear();
@@ -887,11 +894,19 @@ public class EventListenerHandler implements MessageHandler {
         }
     }
 
-    private final void endTimeRecord(long startTime, String listenerClass, String listenerType) {
-        if (!costEnabled) {
+    private final void endTimeRecord(long startTime, boolean overheadSampled, int listenerId, String listenerClass,
+        String listenerType) {
+        if (startTime == 0) {
             return;
         }
-        TIME_CONSUMING_LOGGER.info("[simulator cost]class {},listenerType {},cost {}ns", listenerClass, listenerType,
-            System.nanoTime() - startTime);
+        long cost = System.nanoTime() - startTime;
+        if (overheadSampled) {
+            SimulatorOverhead.recordInterceptor(cost);
+            SimulatorOverhead.recordListener(listenerId, listenerClass, cost);
+        }
+        if (costEnabled) {
+            TIME_CONSUMING_LOGGER.info("[simulator cost]class {},listenerType {},cost {}ns", listenerClass, listenerType,
+                cost);
+        }
     }
 }
@@ -48,6 +48,16 @@ public class MonitorView implements Serializable {
      */
     private long minCost;
 
+    /**
+     * 90 分位耗时
+     */
+    private long p90Cost;
+
+    /**
+     * 99 分位耗时
+     */
+    private long p99Cost;
+
     /**
      * 统计条数
      */
@@ -154,6 +164,22 @@ public class MonitorView implements Serializable {
         this.minCost = minCost;
     }
 
+    public long getP90Cost() {
+        return p90Cost;
+    }
+
+    public void setP90Cost(long p90Cost) {
+        this.p90Cost = p90Cost;
+    }
+
+    public long getP99Cost() {
+        return p99Cost;
+    }
+
+    public void setP99Cost(long p99Cost) {
+        this.p99Cost = p99Cost;
+    }
+
     public long getCount() {
         return count;
     }
@@ -181,7 +207,7 @@ public class MonitorView implements Serializable {
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder();
-        builder.append("class\tmethod\ttotal\tsuccess\tfail\tmaxCost\tminCost\tavgCost\n");
+        builder.append("class\tmethod\ttotal\tsuccess\tfail\tmaxCost\tminCost\tavgCost\tp90Cost\tp99Cost\n");
         builder.append(className)
                 .append('\t').append(methodName)
                 .append('\t').append(count)
@@ -189,7 +215,9 @@ public class MonitorView implements Serializable {
                 .append('\t').append(fail)
                 .append('\t').append(maxCost / 1000000).append("ms")
                 .append('\t').append(minCost / 1000000).append("ms")
-                .append('\t').append(avgCost / 1000000).append("ms");
+                .append('\t').append(avgCost / 1000000).append("ms")
+                .append('\t').append(p90Cost / 1000000).append("ms")
+                .append('\t').append(p99Cost / 1000000).append("ms");
         return builder.toString();
     }
 }
@@ -0,0 +1,109 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.shulie.instrument.simulator.module.monitor;
+
+import com.shulie.instrument.simulator.module.model.monitor.MonitorView;
+import com.shulie.instrument.simulator.module.util.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 一次 monitor 命令的统计数据，所有 {@link MonitorListener} 实例共享
+ * <p>
+ * 被监控的方法中只做分段累加，条数限制由命令线程周期性地检查，
+ * 监控的方法越多也不会增加被监控方法的开销
+ */
+class MonitorCollector {
+    /**
+     * 类名 -> 方法名 -> 统计，两级 map 避免每次调用都创建组合 key
+     */
+    private final ConcurrentMap<String, ConcurrentMap<String, LatencyHistogram>> data = new ConcurrentHashMap<String, ConcurrentMap<String, LatencyHistogram>>();
+
+    void record(String className, String methodName, long cost, boolean success) {
+        histogramOf(className, methodName).record(cost, success);
+    }
+
+    private LatencyHistogram histogramOf(String className, String methodName) {
+        ConcurrentMap<String, LatencyHistogram> methods = data.get(className);
+        if (methods == null) {
+            ConcurrentMap<String, LatencyHistogram> created = new ConcurrentHashMap<String, LatencyHistogram>();
+            methods = data.putIfAbsent(className, created);
+            if (methods == null) {
+                methods = created;
+            }
+        }
+        LatencyHistogram histogram = methods.get(methodName);
+        if (histogram == null) {
+            LatencyHistogram created = new LatencyHistogram();
+            histogram = methods.putIfAbsent(methodName, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * 所有方法的调用总数
+     *
+     * @return 调用总数
+     */
+    long total() {
+        long total = 0;
+        for (ConcurrentMap<String, LatencyHistogram> methods : data.values()) {
+            for (LatencyHistogram histogram : methods.values()) {
+                total += histogram.getCount();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 生成统计结果快照
+     *
+     * @return 每个方法的统计结果
+     */
+    List<MonitorView> snapshot() {
+        List<MonitorView> views = new ArrayList<MonitorView>();
+        for (Map.Entry<String, ConcurrentMap<String, LatencyHistogram>> classEntry : data.entrySet()) {
+            for (Map.Entry<String, LatencyHistogram> methodEntry : classEntry.getValue().entrySet()) {
+                LatencyHistogram histogram = methodEntry.getValue();
+                long success = histogram.getSuccess();
+                long fail = histogram.getFail();
+                long count = success + fail;
+                if (count == 0) {
+                    continue;
+                }
+                MonitorView view = new MonitorView();
+                view.setClassName(classEntry.getKey());
+                view.setMethodName(methodEntry.getKey());
+                view.setSuccess(success);
+                view.setFail(fail);
+                view.setCount(count);
+                view.setAvgCost(histogram.getSum() / count);
+                view.setMinCost(histogram.getMin());
+                view.setMaxCost(histogram.getMax());
+                view.setP90Cost(histogram.getPercentile(0.90));
+                view.setP99Cost(histogram.getPercentile(0.99));
+                views.add(view);
+            }
+        }
+        return views;
+    }
+}
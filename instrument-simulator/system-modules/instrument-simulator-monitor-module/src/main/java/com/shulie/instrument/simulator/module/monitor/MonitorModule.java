@@ -31,10 +31,6 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Resource;
 import java.util.Map;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
 
 /**
  * @author xiaobin.zfb|xiaobin@shulie.io
@@ -44,6 +40,10 @@ import java.util.concurrent.TimeUnit;
 @ModuleInfo(id = "monitor", version = "1.0.0", author = "xiaobin@shulie.io", description = "监视器模块")
 public class MonitorModule extends ParamSupported implements ExtensionModule {
     private final Logger logger = LoggerFactory.getLogger(MonitorModule.class);
+    /**
+     * 检查条数限制的间隔,单位毫秒
+     */
+    private final static long REPORT_INTERVAL = 100;
     @Resource
     private ModuleEventWatcher moduleEventWatcher;
 
@@ -74,22 +74,22 @@ public class MonitorModule extends ParamSupported implements ExtensionModule {
                 return CommandResponse.failure("wait 最大等待时间不能超过10分钟");
             }
 
-            final CountDownLatch latch = new CountDownLatch(1);
-
-            Queue<Object> traceViews = new ConcurrentLinkedQueue<Object>();
+            final MonitorCollector collector = new MonitorCollector();
             watcher = new EventWatchBuilder(moduleEventWatcher)
                     .onClass(classPattern).includeSubClasses()
                     .onBehavior(methodPattern)
                     .withInvoke().withCall()
-                    .onListener(Listeners.of(MonitorListener.class, new Object[]{latch, traceViews, wait != -1 ? -1 : limits}))
+                    .onListener(Listeners.of(MonitorListener.class, new Object[]{collector}))
                     .onClass().onWatch();
 
             if (wait > 0) {
-                latch.await(wait, TimeUnit.SECONDS);
+                Thread.sleep(wait * 1000L);
             } else if (limits > 0) {
-                latch.await();
+                while (collector.total() < limits) {
+                    Thread.sleep(REPORT_INTERVAL);
+                }
             }
-            return CommandResponse.success(traceViews);
+            return CommandResponse.success(collector.snapshot());
         } catch (Throwable e) {
             logger.error("SIMULATOR: monitor module err! class={}, method={}, limits={}, wait={}",
                     classPattern, methodPattern, limits, wait, e);
@@ -0,0 +1,179 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.shulie.instrument.simulator.module.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 固定内存的耗时统计。
+ *
+ * <pre>
+ * 成功/失败次数、耗时总和以及耗时分布按线程分段累加，写入时不分配对象、不同线程之间基本没有竞争，
+ * 读取时再把所有分段汇总，读取结果是近似的快照，只用于 monitor 等命令的统计。
+ * 耗时分布按 2 的幂分段，每段再均分为 4 个桶，相对误差不超过 25%。
+ * </pre>
+ */
+public class LatencyHistogram {
+    /**
+     * 每个 2 的幂区间内的桶数 = 1 << SUB_BITS
+     */
+    private final static int SUB_BITS = 2;
+    private final static int SUB_COUNT = 1 << SUB_BITS;
+    /**
+     * 最大可区分的耗时为 2^40 纳秒(约 18 分钟)，超过的都记入最后一个桶
+     */
+    private final static int MAX_EXP = 40;
+    private final static int BUCKETS = (MAX_EXP - SUB_BITS + 1) * SUB_COUNT + SUB_COUNT;
+
+    private final static int SUCCESS = 0;
+    private final static int FAIL = 1;
+    private final static int SUM = 2;
+    private final static int HEADER = 3;
+    private final static int STRIPE_SIZE = HEADER + BUCKETS;
+
+    private final static int STRIPES = stripes();
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * STRIPE_SIZE);
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+    private static int stripes() {
+        int n = 1;
+        int cpus = Runtime.getRuntime().availableProcessors();
+        while (n < cpus && n < 8) {
+            n <<= 1;
+        }
+        return n;
+    }
+
+    /**
+     * 记录一次调用
+     *
+     * @param cost    耗时，单位纳秒
+     * @param success 是否成功
+     */
+    public void record(long cost, boolean success) {
+        if (cost < 0) {
+            cost = 0;
+        }
+        int base = ((int) Thread.currentThread().getId() & (STRIPES - 1)) * STRIPE_SIZE;
+        cells.incrementAndGet(base + (success ? SUCCESS : FAIL));
+        cells.addAndGet(base + SUM, cost);
+        cells.incrementAndGet(base + HEADER + bucketOf(cost));
+
+        long current;
+        while (cost < (current = min.get())) {
+            if (min.compareAndSet(current, cost)) {
+                break;
+            }
+        }
+        while (cost > (current = max.get())) {
+            if (max.compareAndSet(current, cost)) {
+                break;
+            }
+        }
+    }
+
+    public long getSuccess() {
+        return sum(SUCCESS);
+    }
+
+    public long getFail() {
+        return sum(FAIL);
+    }
+
+    public long getCount() {
+        return getSuccess() + getFail();
+    }
+
+    public long getSum() {
+        return sum(SUM);
+    }
+
+    public long getMin() {
+        long value = min.get();
+        return value == Long.MAX_VALUE ? 0 : value;
+    }
+
+    public long getMax() {
+        long value = max.get();
+        return value == Long.MIN_VALUE ? 0 : value;
+    }
+
+    /**
+     * 计算分位耗时，返回所在桶的上界，不超过最大耗时
+     *
+     * @param percentile 分位，取值 (0, 1]
+     * @return 耗时，单位纳秒
+     */
+    public long getPercentile(double percentile) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            int base = stripe * STRIPE_SIZE + HEADER;
+            for (int i = 0; i < BUCKETS; i++) {
+                long count = cells.get(base + i);
+                counts[i] += count;
+                total += count;
+            }
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile);
+        if (rank < 1) {
+            rank = 1;
+        }
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    private long sum(int offset) {
+        long sum = 0;
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            sum += cells.get(stripe * STRIPE_SIZE + offset);
+        }
+        return sum;
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int exp = 63 - Long.numberOfLeadingZeros(value);
+        if (exp > MAX_EXP) {
+            return BUCKETS - 1;
+        }
+        int sub = (int) (value >>> (exp - SUB_BITS)) & (SUB_COUNT - 1);
+        return ((exp - SUB_BITS + 1) << SUB_BITS) + sub;
+    }
+
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_COUNT) {
+            return bucket;
+        }
+        int exp = (bucket >> SUB_BITS) + SUB_BITS - 1;
+        int sub = bucket & (SUB_COUNT - 1);
+        long lower = (long) (SUB_COUNT + sub) << (exp - SUB_BITS);
+        return lower + (1L << (exp - SUB_BITS)) - 1;
+    }
+}
@@ -0,0 +1,174 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.shulie.instrument.simulator.agent.core.util;
+
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+/**
+ * HttpUtils 使用的长连接池，按 host:port 缓存空闲连接
+ * <p>
+ * 空闲超过 {@link #KEEP_ALIVE_MILLIS} 的连接不再复用，避免拿到已被服务端按 keep-alive 超时关闭的连接；
+ * 连接在使用方取出时检查，不需要额外的清理线程
+ * </p>
+ */
+final class HttpConnectionPool {
+
+    /**
+     * 每个地址最多保留的空闲连接数
+     */
+    private final static int MAX_IDLE_PER_ROUTE = 4;
+
+    /**
+     * 空闲连接的最长保留时间，小于常见服务端的 keep-alive 超时时间
+     */
+    private final static long KEEP_ALIVE_MILLIS = 15000L;
+
+    private final static int BUFFER_SIZE = 8192;
+
+    private final Map<String, LinkedList<HttpConnection>> idleConnections = new HashMap<String, LinkedList<HttpConnection>>();
+
+    private final int connectTimeout;
+
+    private final int readTimeout;
+
+    HttpConnectionPool(int connectTimeout, int readTimeout) {
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * 获取连接，优先使用最近归还的空闲连接
+     *
+     * @param host  地址
+     * @param port  端口
+     * @param fresh 是否必须新建连接
+     * @return 连接
+     * @throws IOException 建立连接失败
+     */
+    HttpConnection acquire(String host, int port, boolean fresh) throws IOException {
+        String route = host + ':' + port;
+        if (!fresh) {
+            HttpConnection connection = pollIdle(route);
+            if (connection != null) {
+                return connection;
+            }
+        }
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(host, port), connectTimeout);
+            socket.setSoTimeout(readTimeout);
+            socket.setTcpNoDelay(true);
+            socket.setKeepAlive(true);
+            return new HttpConnection(route, socket);
+        } catch (IOException e) {
+            closeQuietly(socket);
+            throw e;
+        }
+    }
+
+    private HttpConnection pollIdle(String route) {
+        long now = System.currentTimeMillis();
+        synchronized (idleConnections) {
+            LinkedList<HttpConnection> connections = idleConnections.get(route);
+            if (connections == null) {
+                return null;
+            }
+            while (!connections.isEmpty()) {
+                HttpConnection connection = connections.removeLast();
+                if (now - connection.idleSince < KEEP_ALIVE_MILLIS && !connection.socket.isClosed()) {
+                    connection.reused = true;
+                    return connection;
+                }
+                // 更早归还的连接空闲时间更长，全部关闭
+                closeQuietly(connection.socket);
+                while (!connections.isEmpty()) {
+                    closeQuietly(connections.removeLast().socket);
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 归还连接
+     *
+     * @param connection 连接
+     * @param reusable   响应是否已经完整读取并且服务端允许复用
+     */
+    void release(HttpConnection connection, boolean reusable) {
+        if (!reusable) {
+            closeQuietly(connection.socket);
+            return;
+        }
+        connection.idleSince = System.currentTimeMillis();
+        HttpConnection evicted = null;
+        synchronized (idleConnections) {
+            LinkedList<HttpConnection> connections = idleConnections.get(connection.route);
+            if (connections == null) {
+                connections = new LinkedList<HttpConnection>();
+                idleConnections.put(connection.route, connections);
+            }
+            connections.addLast(connection);
+            if (connections.size() > MAX_IDLE_PER_ROUTE) {
+                evicted = connections.removeFirst();
+            }
+        }
+        if (evicted != null) {
+            closeQuietly(evicted.socket);
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        // JDK 1.6 Socket没有实现Closeable接口
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    static final class HttpConnection {
+        private final String route;
+        private final Socket socket;
+        final InputStream input;
+        final OutputStream output;
+        private long idleSince;
+        private boolean reused;
+
+        private HttpConnection(String route, Socket socket) throws IOException {
+            this.route = route;
+            this.socket = socket;
+            this.input = new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE);
+            this.output = new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE);
+        }
+
+        /**
+         * 是否是从连接池中取出的空闲连接
+         */
+        boolean isReused() {
+            return reused;
+        }
+    }
+}
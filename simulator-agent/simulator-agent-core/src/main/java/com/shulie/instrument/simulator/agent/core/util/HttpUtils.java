@@ -19,9 +19,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
-import java.net.InetSocketAddress;
-import java.net.Socket;
-import java.net.SocketAddress;
+import java.net.SocketException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -35,15 +33,17 @@ public abstract class HttpUtils {
 
     private static final Charset UTF_8 = Charset.forName("UTF-8");
 
+    /**
+     * 建立连接超时时间 2s，读取数据超时时间 10s
+     */
+    private static final HttpConnectionPool CONNECTION_POOL = new HttpConnectionPool(2000, 10000);
+
     public static String doGet(String url, Map<String, String> headers) {
         HostPort hostPort = getHostPortUrlFromUrl(url);
         return doGet(hostPort.host, hostPort.port, headers, hostPort.url);
     }
 
     public static String doGet(String host, int port, Map<String, String> headers, String url) {
-        InputStream input = null;
-        OutputStream output = null;
-        Socket socket = null;
         StringBuilder request = new StringBuilder("GET ").append(url).append(" HTTP/1.1\r\n")
                 .append("Host: ").append(host).append(":").append(port).append("\r\n")
                 .append("Connection: Keep-Alive\r\n");
@@ -58,39 +58,11 @@ public abstract class HttpUtils {
         request.append("\r\n");
 
         try {
-            SocketAddress address = new InetSocketAddress(host, port);
-            socket = new Socket();
-            // 设置建立连接超时时间 1s
-            socket.connect(address, 2000);
-            // 设置读取数据超时时间 5s
-            socket.setSoTimeout(10000);
-            output = socket.getOutputStream();
-            output.write(request.toString().getBytes(UTF_8));
-            output.flush();
-            input = socket.getInputStream();
-            String status = readLine(input);
-            if (status == null || !status.contains("200")) {
-                return null;
-            }
-            Map<String, List<String>> inputHeaders = readHeaders(input);
-            input = wrapperInput(inputHeaders, input);
-            return toString(input);
+            HttpResult result = execute(host, port, request.toString().getBytes(UTF_8), null);
+            return result.isSuccess() ? result.getResult() : null;
         } catch (IOException e) {
             logger.warn("do http request fail!: url=" + url + "; reqeust:" + request, e);
             return null;
-        } finally {
-            closeQuietly(input);
-            closeQuietly(output);
-
-            // JDK 1.6 Socket没有实现Closeable接口
-            if (socket != null) {
-                try {
-                    socket.close();
-                } catch (final IOException ioe) {
-                    // ignore
-                }
-            }
-
         }
     }
 
@@ -100,10 +72,6 @@ public abstract class HttpUtils {
     }
 
     public static HttpResult doPost(String host, int port, String url, Map<String, String> headers, String body) {
-        InputStream input = null;
-        OutputStream output = null;
-        Socket socket = null;
-
         StringBuilder request = new StringBuilder("POST ").append(url).append(" HTTP/1.1\r\n")
                 .append("Host: ").append(host).append(":").append(port).append("\r\n")
                 .append("Connection: Keep-Alive\r\n");
@@ -116,55 +84,102 @@ public abstract class HttpUtils {
             }
         }
 
-        try {
-            SocketAddress address = new InetSocketAddress(host, port);
-            socket = new Socket();
-            socket.connect(address, 2000); // 设置建立连接超时时间 1s
-            socket.setSoTimeout(10000); // 设置读取数据超时时间 5s
-            output = socket.getOutputStream();
-
-            if (body != null && !body.isEmpty()) {
-                request.append("Content-Length: ").append(body.getBytes(UTF_8).length).append("\r\n")
-                        .append("Content-Type: application/json\r\n");
-            }
-            request.append("\r\n");
-            output.write(request.toString().getBytes(UTF_8));
-
-            if (body != null && !body.isEmpty()) {
-                output.write(body.getBytes(UTF_8));
-            }
-            output.flush();
+        byte[] content = null;
+        if (body != null && !body.isEmpty()) {
+            content = body.getBytes(UTF_8);
+            request.append("Content-Length: ").append(content.length).append("\r\n")
+                    .append("Content-Type: application/json\r\n");
+        }
+        request.append("\r\n");
 
-            input = socket.getInputStream();
-            String statusStr = StringUtils.trim(readLine(input));
-            String[] statusArr = StringUtils.split(statusStr, ' ');
-            int status = 500;
-            try {
-                status = Integer.parseInt(statusArr[1]);
-            } catch (Throwable e) {
-                // ignore
-            }
-            Map<String, List<String>> inputHeaders = readHeaders(input);
-            input = wrapperInput(inputHeaders, input);
-            String result = toString(input);
-            return HttpResult.result(status, result);
+        try {
+            return execute(host, port, request.toString().getBytes(UTF_8), content);
         } catch (IOException e) {
             logger.error("do http request fail!: url=" + url + "; reqeust:" + request, e);
             return null;
-        } finally {
-            closeQuietly(input);
-            closeQuietly(output);
+        }
+    }
 
-            // JDK 1.6 Socket没有实现Closeable接口
-            if (socket != null) {
-                try {
-                    socket.close();
-                } catch (final IOException ioe) {
-                    // ignore
+    /**
+     * 使用连接池中的连接发送请求并完整读取响应，响应读完后连接放回连接池
+     * <p>
+     * 空闲连接可能已经被服务端关闭，如果在复用的连接上还没有收到响应就读到连接关闭或者连接被重置，
+     * 说明请求没有被服务端处理，换一个新建的连接重试一次。读取超时等其他异常时请求可能已经被服务端处理，
+     * 不能重试，否则 POST 请求会被重复发送
+     * </p>
+     */
+    private static HttpResult execute(String host, int port, byte[] head, byte[] body) throws IOException {
+        boolean fresh = false;
+        while (true) {
+            HttpConnectionPool.HttpConnection connection = CONNECTION_POOL.acquire(host, port, fresh);
+            boolean responded = false;
+            boolean reusable = false;
+            try {
+                connection.output.write(head);
+                if (body != null) {
+                    connection.output.write(body);
+                }
+                connection.output.flush();
+
+                String statusLine = readLine(connection.input);
+                if (statusLine == null) {
+                    throw new EOFException("connection closed before response");
+                }
+                responded = true;
+                int status = parseStatus(statusLine);
+                Map<String, List<String>> inputHeaders = readHeaders(connection.input);
+                String result;
+                if (status == 204 || status == 304) {
+                    result = "";
+                    reusable = true;
+                } else {
+                    InputStream input = wrapperInput(inputHeaders, connection.input);
+                    result = toString(input);
+                    // 没有 Content-Length 也不是 chunked 的响应以连接关闭作为结束
+                    reusable = input != connection.input;
+                }
+                reusable = reusable && isKeepAlive(statusLine, inputHeaders);
+                return HttpResult.result(status, result);
+            } catch (IOException e) {
+                if (responded || !connection.isReused() || !isStaleConnection(e)) {
+                    throw e;
                 }
+                fresh = true;
+            } finally {
+                CONNECTION_POOL.release(connection, reusable);
             }
+        }
+    }
 
+    /**
+     * 是否是空闲连接已经被服务端关闭导致的异常
+     */
+    private static boolean isStaleConnection(IOException e) {
+        if (e instanceof EOFException) {
+            return true;
         }
+        return e instanceof SocketException && StringUtils.containsIgnoreCase(e.getMessage(), "connection reset");
+    }
+
+    private static int parseStatus(String statusLine) {
+        String[] statusArr = StringUtils.split(StringUtils.trim(statusLine), ' ');
+        try {
+            return Integer.parseInt(statusArr[1]);
+        } catch (Throwable e) {
+            return 500;
+        }
+    }
+
+    private static boolean isKeepAlive(String statusLine, Map<String, List<String>> headers) {
+        List<String> connections = headers.get("connection");
+        String connection = connections == null || connections.isEmpty() ? null : connections.get(0);
+        if ("close".equalsIgnoreCase(connection)) {
+            return false;
+        }
+        if (statusLine.startsWith("HTTP/1.0")) {
+            return "keep-alive".equalsIgnoreCase(connection);
+        }
+        return true;
     }
 
     public static String toString(InputStream input) throws IOException {
@@ -245,9 +260,13 @@ public abstract class HttpUtils {
         Map<String, List<String>> headers = new HashMap<String, List<String>>();
         String line = readLine(input);
         while (line != null && !line.isEmpty()) {
-            String[] headerPair = line.split(":");
-            String name = headerPair[0].trim().toLowerCase();
-            String value = headerPair[1].trim();
+            int separator = line.indexOf(':');
+            if (separator <= 0) {
+                line = readLine(input);
+                continue;
+            }
+            String name = line.substring(0, separator).trim().toLowerCase();
+            String value = line.substring(separator + 1).trim();
             List<String> values = headers.get(name);
             if (values == null) {
                 values = new ArrayList<String>();
@@ -0,0 +1,182 @@
+/**
+ * Copyright 2021 Shulie Technology, Co.Ltd
+ * Email: shulie@shulie.io
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.shulie.instrument.simulator.agent.core.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 使用本地 socket 模拟控制台, 验证 HttpUtils 的长连接复用和重试策略
+ */
+public class HttpUtilsTest {
+
+    /**
+     * 正常响应并保持连接
+     */
+    private static final int KEEP_ALIVE = 0;
+    /**
+     * 响应后关闭连接, 不声明 Connection: close, 模拟空闲连接被服务端超时关闭
+     */
+    private static final int CLOSE_AFTER_RESPONSE = 1;
+    /**
+     * 读取请求后不响应, 直到客户端读取超时
+     */
+    private static final int SILENT = 2;
+
+    private ServerSocket server;
+    private String baseUrl;
+    private volatile int mode;
+    private final AtomicInteger connections = new AtomicInteger();
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+    private final List<Socket> sockets = Collections.synchronizedList(new ArrayList<Socket>());
+
+    @Before
+    public void setUp() throws IOException {
+        server = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        baseUrl = "http://127.0.0.1:" + server.getLocalPort();
+        Thread acceptor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (!server.isClosed()) {
+                    try {
+                        final Socket socket = server.accept();
+                        connections.incrementAndGet();
+                        sockets.add(socket);
+                        Thread worker = new Thread(new Runnable() {
+                            @Override
+                            public void run() {
+                                serve(socket);
+                            }
+                        });
+                        worker.setDaemon(true);
+                        worker.start();
+                    } catch (IOException e) {
+                        return;
+                    }
+                }
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+        synchronized (sockets) {
+            for (Socket socket : sockets) {
+                HttpUtils.closeQuietly(socket);
+            }
+        }
+    }
+
+    @Test
+    public void requestsShareOneKeepAliveConnection() {
+        for (int i = 0; i < 20; i++) {
+            assertEquals("ok", HttpUtils.doGet(baseUrl + "/get", Collections.<String, String>emptyMap()));
+        }
+        HttpUtils.HttpResult result = HttpUtils.doPost(baseUrl + "/post", Collections.<String, String>emptyMap(), "{}");
+        assertEquals(200, result.getStatus());
+        assertEquals(1, connections.get());
+        assertEquals(21, requests.size());
+    }
+
+    @Test
+    public void closedIdleConnectionIsRetriedOnce() {
+        mode = CLOSE_AFTER_RESPONSE;
+        assertEquals("ok", HttpUtils.doGet(baseUrl + "/get", Collections.<String, String>emptyMap()));
+        mode = KEEP_ALIVE;
+        HttpUtils.HttpResult result = HttpUtils.doPost(baseUrl + "/post", Collections.<String, String>emptyMap(), "{}");
+        assertEquals(200, result.getStatus());
+        assertEquals(2, connections.get());
+        assertEquals(2, requests.size());
+    }
+
+    @Test
+    public void readTimeoutIsNotRetried() {
+        assertEquals("ok", HttpUtils.doGet(baseUrl + "/get", Collections.<String, String>emptyMap()));
+        mode = SILENT;
+        long start = System.currentTimeMillis();
+        assertNull(HttpUtils.doPost(baseUrl + "/post", Collections.<String, String>emptyMap(), "{}"));
+        assertTrue(System.currentTimeMillis() - start >= 9000);
+        assertEquals(1, connections.get());
+        assertEquals(1, count("POST /post"));
+    }
+
+    private int count(String requestLine) {
+        int count = 0;
+        synchronized (requests) {
+            for (String request : requests) {
+                if (request.startsWith(requestLine)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private void serve(Socket socket) {
+        try {
+            InputStream input = new BufferedInputStream(socket.getInputStream());
+            OutputStream output = socket.getOutputStream();
+            while (true) {
+                String requestLine = HttpUtils.readLine(input);
+                if (requestLine == null) {
+                    return;
+                }
+                List<String> contentLengths = HttpUtils.readHeaders(input).get("content-length");
+                if (contentLengths != null) {
+                    long remaining = Long.parseLong(contentLengths.get(0));
+                    while (remaining > 0 && input.read() >= 0) {
+                        remaining--;
+                    }
+                }
+                requests.add(requestLine);
+                int current = mode;
+                if (current == SILENT) {
+                    HttpUtils.exhaustInputStream(input);
+                    return;
+                }
+                output.write("HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nok".getBytes("UTF-8"));
+                output.flush();
+                if (current == CLOSE_AFTER_RESPONSE) {
+                    socket.close();
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            // 客户端关闭连接
+        } finally {
+            HttpUtils.closeQuietly(socket);
+        }
+    }
+}